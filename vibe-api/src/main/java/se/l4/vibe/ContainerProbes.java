@@ -0,0 +1,895 @@
+package se.l4.vibe;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.Optional;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.internal.CgroupPaths;
+import se.l4.vibe.internal.StatFile;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.SnapshotKey;
+import se.l4.vibe.snapshots.Snapshots;
+
+/**
+ * Probes for the resources of the container the JVM runs in, read from the
+ * cgroup file system. Both cgroup v1 and v2 are supported, pressure stall
+ * information is only available with v2.
+ *
+ * <p>
+ * Unlike {@link JvmProbes#cpuUsage()} these probes take CPU quotas and memory
+ * limits of the container into account and also report when the container
+ * is being throttled.
+ *
+ * <pre>
+ * ContainerProbes.detect()
+ *   .ifPresent(container -&gt; container.export(vibe));
+ * </pre>
+ *
+ * <p>
+ * Every sampler keeps its files open and parses them without allocating,
+ * so the probes can be sampled often.
+ */
+public class ContainerProbes
+{
+	private static final byte[] NR_PERIODS = StatFile.key("nr_periods");
+	private static final byte[] NR_THROTTLED = StatFile.key("nr_throttled");
+	private static final byte[] THROTTLED_USEC = StatFile.key("throttled_usec");
+	private static final byte[] THROTTLED_TIME = StatFile.key("throttled_time");
+	private static final byte[] USAGE_USEC = StatFile.key("usage_usec");
+
+	private static final byte[] SOME = StatFile.key("some");
+	private static final byte[] FULL = StatFile.key("full");
+	private static final byte[] AVG10 = StatFile.key("avg10");
+	private static final byte[] AVG60 = StatFile.key("avg60");
+	private static final byte[] AVG300 = StatFile.key("avg300");
+
+	private static final byte[] RBYTES = StatFile.key("rbytes");
+	private static final byte[] WBYTES = StatFile.key("wbytes");
+	private static final byte[] RIOS = StatFile.key("rios");
+	private static final byte[] WIOS = StatFile.key("wios");
+	private static final byte[] READ = StatFile.key("Read");
+	private static final byte[] WRITE = StatFile.key("Write");
+
+	/**
+	 * cgroup v1 reports a very large number instead of no limit.
+	 */
+	private static final long V1_UNLIMITED = 1L << 60;
+
+	private final boolean v2;
+
+	/*
+	 * Directories of the controllers, for cgroup v2 these are all the
+	 * directory of the cgroup.
+	 */
+	private final Path cpu;
+	private final Path cpuacct;
+	private final Path memory;
+	private final Path blkio;
+
+	private ContainerProbes(boolean v2, Path cpu, Path cpuacct, Path memory, Path blkio)
+	{
+		this.v2 = v2;
+		this.cpu = cpu;
+		this.cpuacct = cpuacct;
+		this.memory = memory;
+		this.blkio = blkio;
+	}
+
+	/**
+	 * Detect the cgroup of this process. The cgroup is resolved from
+	 * {@code /proc/self/cgroup} and {@code /proc/self/mountinfo}, so the
+	 * probes read the cgroup the process is in even when it is not the root
+	 * of the cgroup file system.
+	 *
+	 * @return
+	 *   probes for the container, or empty if no cgroup file system is
+	 *   mounted
+	 */
+	@NonNull
+	public static Optional<ContainerProbes> detect()
+	{
+		return detect(Paths.get("/proc/self/cgroup"), Paths.get("/proc/self/mountinfo"));
+	}
+
+	/**
+	 * Detect the cgroup of a process from its cgroup and mount information
+	 * files.
+	 *
+	 * @param cgroupFile
+	 * @param mountInfoFile
+	 * @return
+	 */
+	static Optional<ContainerProbes> detect(Path cgroupFile, Path mountInfoFile)
+	{
+		return CgroupPaths.read(cgroupFile, mountInfoFile)
+			.map(paths -> {
+				if(paths.isV2())
+				{
+					Path dir = paths.getUnified();
+					return new ContainerProbes(true, dir, dir, dir, dir);
+				}
+
+				return new ContainerProbes(
+					false,
+					controller(paths, "cpu"),
+					controller(paths, "cpuacct"),
+					controller(paths, "memory"),
+					controller(paths, "blkio")
+				);
+			});
+	}
+
+	/**
+	 * Get the directory of a cgroup v1 controller, defaulting to where it is
+	 * usually mounted if the process is not in a cgroup for it.
+	 *
+	 * @param paths
+	 * @param controller
+	 * @return
+	 */
+	private static Path controller(CgroupPaths paths, String controller)
+	{
+		Path result = paths.getController(controller);
+		return result == null ? Paths.get("/sys/fs/cgroup", controller) : result;
+	}
+
+	/**
+	 * Get probes for a cgroup mounted at the given path. The version of
+	 * cgroup is detected from the files in the directory, for cgroup v1 the
+	 * controllers are expected in directories such as {@code cpu} and
+	 * {@code memory} below the path.
+	 *
+	 * @param root
+	 * @return
+	 * @throws VibeException
+	 *   if the directory does not look like a cgroup
+	 */
+	@NonNull
+	public static ContainerProbes forRoot(@NonNull Path root)
+	{
+		Objects.requireNonNull(root, "root must be specified");
+
+		if(Files.exists(root.resolve("cgroup.controllers")))
+		{
+			return new ContainerProbes(true, root, root, root, root);
+		}
+
+		if(Files.isDirectory(root.resolve("cpu")) || Files.isDirectory(root.resolve("memory")))
+		{
+			return new ContainerProbes(
+				false,
+				root.resolve("cpu"),
+				root.resolve("cpuacct"),
+				root.resolve("memory"),
+				root.resolve("blkio")
+			);
+		}
+
+		throw new VibeException("Not a cgroup v1 or v2 directory: " + root);
+	}
+
+	/**
+	 * Get if this is a cgroup v2 hierarchy.
+	 *
+	 * @return
+	 */
+	public boolean isV2()
+	{
+		return v2;
+	}
+
+	/**
+	 * Get if pressure stall information is available, which requires cgroup
+	 * v2 and a kernel with PSI enabled.
+	 *
+	 * @return
+	 */
+	public boolean isPressureAvailable()
+	{
+		return v2 && Files.isReadable(cpu.resolve("cpu.pressure"));
+	}
+
+	/**
+	 * Get a probe for CPU throttling since the previous sample.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public SampledProbe<ThrottlingSnapshot> cpuThrottling()
+	{
+		Path path = cpu.resolve("cpu.stat");
+
+		return () -> new Sampler<ThrottlingSnapshot>()
+		{
+			private final StatFile file = new StatFile(path);
+
+			private long lastPeriods = -1;
+			private long lastThrottled;
+			private long lastTime;
+
+			@Override
+			public ThrottlingSnapshot sample()
+			{
+				long periods = 0;
+				long throttled = 0;
+				long time = 0;
+
+				if(file.read())
+				{
+					periods = Math.max(0, file.getLong(NR_PERIODS));
+					throttled = Math.max(0, file.getLong(NR_THROTTLED));
+					time = v2
+						? Math.max(0, file.getLong(THROTTLED_USEC)) * 1000
+						: Math.max(0, file.getLong(THROTTLED_TIME));
+				}
+
+				ThrottlingSnapshot snapshot;
+				if(lastPeriods < 0)
+				{
+					snapshot = new ThrottlingSnapshot(0, 0, 0);
+				}
+				else
+				{
+					snapshot = new ThrottlingSnapshot(
+						periods - lastPeriods,
+						throttled - lastThrottled,
+						time - lastTime
+					);
+				}
+
+				lastPeriods = periods;
+				lastThrottled = throttled;
+				lastTime = time;
+
+				return snapshot;
+			}
+
+			@Override
+			public void release()
+			{
+				file.release();
+			}
+		};
+	}
+
+	/**
+	 * Get a probe for the CPU usage of the container as a fraction of its
+	 * CPU limit. If the container does not have a quota the number of
+	 * available processors is used as the limit.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public SampledProbe<Double> cpuUsage()
+	{
+		Path usagePath = v2 ? cpu.resolve("cpu.stat") : cpuacct.resolve("cpuacct.usage");
+		Path maxPath = v2 ? cpu.resolve("cpu.max") : cpu.resolve("cpu.cfs_quota_us");
+		Path periodPath = v2 ? null : cpu.resolve("cpu.cfs_period_us");
+
+		return () -> new Sampler<Double>()
+		{
+			private final StatFile usage = new StatFile(usagePath);
+			private final StatFile max = new StatFile(maxPath);
+			private final StatFile period = periodPath == null ? null : new StatFile(periodPath);
+
+			private long lastTime = System.nanoTime();
+			private long lastUsage = readUsage();
+
+			private long readUsage()
+			{
+				if(! usage.read())
+				{
+					return 0;
+				}
+
+				return v2
+					? Math.max(0, usage.getLong(USAGE_USEC)) * 1000
+					: Math.max(0, usage.getToken(0));
+			}
+
+			private double readLimit()
+			{
+				long quota;
+				long periodLength;
+				if(v2)
+				{
+					if(! max.read()) return Runtime.getRuntime().availableProcessors();
+
+					quota = max.getToken(0);
+					periodLength = max.getToken(1);
+				}
+				else
+				{
+					if(! max.read() || ! period.read()) return Runtime.getRuntime().availableProcessors();
+
+					quota = max.getToken(0);
+					periodLength = period.getToken(0);
+				}
+
+				if(quota <= 0 || periodLength <= 0)
+				{
+					return Runtime.getRuntime().availableProcessors();
+				}
+
+				return quota / (double) periodLength;
+			}
+
+			@Override
+			public Double sample()
+			{
+				long time = System.nanoTime();
+				long current = readUsage();
+
+				long elapsed = time - lastTime;
+				double value = elapsed <= 0
+					? 0
+					: Math.min(1, (current - lastUsage) / (elapsed * readLimit()));
+
+				lastTime = time;
+				lastUsage = current;
+
+				return value;
+			}
+
+			@Override
+			public void release()
+			{
+				usage.release();
+				max.release();
+				if(period != null)
+				{
+					period.release();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Get a probe for the memory used by the container and its limit.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public SampledProbe<ContainerMemorySnapshot> memory()
+	{
+		Path currentPath = v2 ? memory.resolve("memory.current") : memory.resolve("memory.usage_in_bytes");
+		Path maxPath = v2 ? memory.resolve("memory.max") : memory.resolve("memory.limit_in_bytes");
+
+		return () -> new Sampler<ContainerMemorySnapshot>()
+		{
+			private final StatFile current = new StatFile(currentPath);
+			private final StatFile max = new StatFile(maxPath);
+
+			@Override
+			public ContainerMemorySnapshot sample()
+			{
+				long used = current.read() ? current.getToken(0) : -1;
+				long limit = max.read() ? max.getToken(0) : -1;
+				if(limit >= V1_UNLIMITED)
+				{
+					limit = -1;
+				}
+
+				return new ContainerMemorySnapshot(used, limit);
+			}
+
+			@Override
+			public void release()
+			{
+				current.release();
+				max.release();
+			}
+		};
+	}
+
+	/**
+	 * Get a probe for CPU pressure, the share of time tasks in the container
+	 * were waiting for a CPU.
+	 *
+	 * @return
+	 * @throws VibeException
+	 *   if pressure stall information is not available
+	 */
+	@NonNull
+	public SampledProbe<PressureSnapshot> cpuPressure()
+	{
+		return pressure("cpu.pressure");
+	}
+
+	/**
+	 * Get a probe for memory pressure, the share of time tasks in the
+	 * container were stalled waiting for memory.
+	 *
+	 * @return
+	 * @throws VibeException
+	 *   if pressure stall information is not available
+	 */
+	@NonNull
+	public SampledProbe<PressureSnapshot> memoryPressure()
+	{
+		return pressure("memory.pressure");
+	}
+
+	/**
+	 * Get a probe for IO pressure, the share of time tasks in the container
+	 * were stalled waiting for IO.
+	 *
+	 * @return
+	 * @throws VibeException
+	 *   if pressure stall information is not available
+	 */
+	@NonNull
+	public SampledProbe<PressureSnapshot> ioPressure()
+	{
+		return pressure("io.pressure");
+	}
+
+	private SampledProbe<PressureSnapshot> pressure(String name)
+	{
+		if(! isPressureAvailable())
+		{
+			throw new VibeException("Pressure stall information is not available in " + cpu);
+		}
+
+		Path path = cpu.resolve(name);
+		return () -> new Sampler<PressureSnapshot>()
+		{
+			private final StatFile file = new StatFile(path);
+
+			@Override
+			public PressureSnapshot sample()
+			{
+				if(! file.read())
+				{
+					return new PressureSnapshot(0, 0, 0, 0, 0, 0);
+				}
+
+				return new PressureSnapshot(
+					orZero(file.getDouble(SOME, AVG10)),
+					orZero(file.getDouble(SOME, AVG60)),
+					orZero(file.getDouble(SOME, AVG300)),
+					orZero(file.getDouble(FULL, AVG10)),
+					orZero(file.getDouble(FULL, AVG60)),
+					orZero(file.getDouble(FULL, AVG300))
+				);
+			}
+
+			@Override
+			public void release()
+			{
+				file.release();
+			}
+		};
+	}
+
+	private static double orZero(double value)
+	{
+		return Double.isNaN(value) ? 0 : value;
+	}
+
+	/**
+	 * Get a probe for the IO done by the container since the previous
+	 * sample, summed over all devices.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public SampledProbe<IoSnapshot> io()
+	{
+		Path bytesPath = v2 ? blkio.resolve("io.stat") : blkio.resolve("blkio.throttle.io_service_bytes");
+		Path opsPath = v2 ? null : blkio.resolve("blkio.throttle.io_serviced");
+
+		return () -> new Sampler<IoSnapshot>()
+		{
+			private final StatFile bytes = new StatFile(bytesPath);
+			private final StatFile ops = opsPath == null ? null : new StatFile(opsPath);
+
+			private final long[] last = new long[4];
+			private final long[] current = new long[4];
+			private boolean first = true;
+
+			@Override
+			public IoSnapshot sample()
+			{
+				current[0] = current[1] = current[2] = current[3] = 0;
+
+				if(v2)
+				{
+					if(bytes.read())
+					{
+						current[0] = bytes.sumLong(RBYTES);
+						current[1] = bytes.sumLong(WBYTES);
+						current[2] = bytes.sumLong(RIOS);
+						current[3] = bytes.sumLong(WIOS);
+					}
+				}
+				else
+				{
+					if(bytes.read())
+					{
+						current[0] = bytes.sumLong(READ);
+						current[1] = bytes.sumLong(WRITE);
+					}
+
+					if(ops.read())
+					{
+						current[2] = ops.sumLong(READ);
+						current[3] = ops.sumLong(WRITE);
+					}
+				}
+
+				IoSnapshot snapshot = first
+					? new IoSnapshot(0, 0, 0, 0)
+					: new IoSnapshot(
+						current[0] - last[0],
+						current[1] - last[1],
+						current[2] - last[2],
+						current[3] - last[3]
+					);
+
+				System.arraycopy(current, 0, last, 0, 4);
+				first = false;
+
+				return snapshot;
+			}
+
+			@Override
+			public void release()
+			{
+				bytes.release();
+				if(ops != null)
+				{
+					ops.release();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Export container probes on the given {@link Vibe} instance.
+	 *
+	 * <ul>
+	 *   <li>{@link #cpuUsage()} at {@code container/cpu/usage}
+	 *   <li>{@link #cpuThrottling()} at {@code container/cpu/throttling}
+	 *   <li>{@link #memory()} at {@code container/memory}
+	 *   <li>{@link #io()} at {@code container/io}
+	 *   <li>{@link #cpuPressure()}, {@link #memoryPressure()} and
+	 *     {@link #ioPressure()} at {@code container/pressure/cpu},
+	 *     {@code container/pressure/memory} and {@code container/pressure/io}
+	 *     if {@link #isPressureAvailable() available}
+	 * </ul>
+	 *
+	 * @param vibe
+	 */
+	public void export(@NonNull Vibe vibe)
+	{
+		vibe.export(cpuUsage())
+			.at("container", "cpu", "usage")
+			.done();
+
+		vibe.export(cpuThrottling())
+			.at("container", "cpu", "throttling")
+			.done();
+
+		vibe.export(memory())
+			.at("container", "memory")
+			.done();
+
+		vibe.export(io())
+			.at("container", "io")
+			.done();
+
+		if(isPressureAvailable())
+		{
+			vibe.export(cpuPressure())
+				.at("container", "pressure", "cpu")
+				.done();
+
+			vibe.export(memoryPressure())
+				.at("container", "pressure", "memory")
+				.done();
+
+			vibe.export(ioPressure())
+				.at("container", "pressure", "io")
+				.done();
+		}
+	}
+
+	/**
+	 * CPU throttling of a container between two samples.
+	 */
+	public static class ThrottlingSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey PERIODS = SnapshotKey.of("periods");
+		private static final SnapshotKey THROTTLED_PERIODS = SnapshotKey.of("throttledPeriods");
+		private static final SnapshotKey THROTTLED_TIME = SnapshotKey.of("throttledTime");
+		private static final SnapshotKey THROTTLED_AS_FRACTION = SnapshotKey.of("throttledAsFraction");
+
+		private final long periods;
+		private final long throttledPeriods;
+		private final long throttledTime;
+
+		public ThrottlingSnapshot(long periods, long throttledPeriods, long throttledTime)
+		{
+			this.periods = periods;
+			this.throttledPeriods = throttledPeriods;
+			this.throttledTime = throttledTime;
+		}
+
+		/**
+		 * Get the number of enforcement periods that have elapsed.
+		 *
+		 * @return
+		 */
+		public long getPeriods()
+		{
+			return periods;
+		}
+
+		/**
+		 * Get the number of periods in which the container was throttled.
+		 *
+		 * @return
+		 */
+		public long getThrottledPeriods()
+		{
+			return throttledPeriods;
+		}
+
+		/**
+		 * Get the time the container was throttled in nanoseconds.
+		 *
+		 * @return
+		 */
+		public long getThrottledTime()
+		{
+			return throttledTime;
+		}
+
+		/**
+		 * Get the fraction of periods that were throttled.
+		 *
+		 * @return
+		 */
+		public double getThrottledAsFraction()
+		{
+			return periods == 0 ? 0 : throttledPeriods / (double) periods;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(PERIODS, periods);
+			receiver.add(THROTTLED_PERIODS, throttledPeriods);
+			receiver.add(THROTTLED_TIME, throttledTime);
+			receiver.add(THROTTLED_AS_FRACTION, getThrottledAsFraction());
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * Memory used by a container.
+	 */
+	public static class ContainerMemorySnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey USED = SnapshotKey.of("used");
+		private static final SnapshotKey LIMIT = SnapshotKey.of("limit");
+		private static final SnapshotKey USAGE_AS_FRACTION = SnapshotKey.of("usageAsFraction");
+
+		private final long used;
+		private final long limit;
+
+		public ContainerMemorySnapshot(long used, long limit)
+		{
+			this.used = used;
+			this.limit = limit;
+		}
+
+		/**
+		 * Get the bytes used.
+		 *
+		 * @return
+		 */
+		public long getUsed()
+		{
+			return used;
+		}
+
+		/**
+		 * Get the memory limit in bytes.
+		 *
+		 * @return
+		 *   the limit, or {@code -1} if the container has no limit
+		 */
+		public long getLimit()
+		{
+			return limit;
+		}
+
+		/**
+		 * Get the used memory as a fraction of the limit.
+		 *
+		 * @return
+		 *   fraction of the limit, or {@code 0} if the container has no limit
+		 */
+		public double getUsageAsFraction()
+		{
+			return limit <= 0 ? 0 : used / (double) limit;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(USED, used);
+			receiver.add(LIMIT, limit);
+			receiver.add(USAGE_AS_FRACTION, getUsageAsFraction());
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * Pressure stall information for a resource. The {@code some} values are
+	 * the percentage of time at least one task was stalled and the
+	 * {@code full} values the percentage of time all tasks were stalled,
+	 * averaged over 10, 60 and 300 seconds.
+	 */
+	public static class PressureSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey SOME_AVG10 = SnapshotKey.of("someAvg10");
+		private static final SnapshotKey SOME_AVG60 = SnapshotKey.of("someAvg60");
+		private static final SnapshotKey SOME_AVG300 = SnapshotKey.of("someAvg300");
+		private static final SnapshotKey FULL_AVG10 = SnapshotKey.of("fullAvg10");
+		private static final SnapshotKey FULL_AVG60 = SnapshotKey.of("fullAvg60");
+		private static final SnapshotKey FULL_AVG300 = SnapshotKey.of("fullAvg300");
+
+		private final double someAvg10;
+		private final double someAvg60;
+		private final double someAvg300;
+		private final double fullAvg10;
+		private final double fullAvg60;
+		private final double fullAvg300;
+
+		public PressureSnapshot(
+			double someAvg10,
+			double someAvg60,
+			double someAvg300,
+			double fullAvg10,
+			double fullAvg60,
+			double fullAvg300
+		)
+		{
+			this.someAvg10 = someAvg10;
+			this.someAvg60 = someAvg60;
+			this.someAvg300 = someAvg300;
+			this.fullAvg10 = fullAvg10;
+			this.fullAvg60 = fullAvg60;
+			this.fullAvg300 = fullAvg300;
+		}
+
+		public double getSomeAvg10()
+		{
+			return someAvg10;
+		}
+
+		public double getSomeAvg60()
+		{
+			return someAvg60;
+		}
+
+		public double getSomeAvg300()
+		{
+			return someAvg300;
+		}
+
+		public double getFullAvg10()
+		{
+			return fullAvg10;
+		}
+
+		public double getFullAvg60()
+		{
+			return fullAvg60;
+		}
+
+		public double getFullAvg300()
+		{
+			return fullAvg300;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(SOME_AVG10, someAvg10);
+			receiver.add(SOME_AVG60, someAvg60);
+			receiver.add(SOME_AVG300, someAvg300);
+			receiver.add(FULL_AVG10, fullAvg10);
+			receiver.add(FULL_AVG60, fullAvg60);
+			receiver.add(FULL_AVG300, fullAvg300);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * IO done by a container between two samples.
+	 */
+	public static class IoSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey READ_BYTES = SnapshotKey.of("readBytes");
+		private static final SnapshotKey WRITTEN_BYTES = SnapshotKey.of("writtenBytes");
+		private static final SnapshotKey READS = SnapshotKey.of("reads");
+		private static final SnapshotKey WRITES = SnapshotKey.of("writes");
+
+		private final long readBytes;
+		private final long writtenBytes;
+		private final long reads;
+		private final long writes;
+
+		public IoSnapshot(long readBytes, long writtenBytes, long reads, long writes)
+		{
+			this.readBytes = readBytes;
+			this.writtenBytes = writtenBytes;
+			this.reads = reads;
+			this.writes = writes;
+		}
+
+		public long getReadBytes()
+		{
+			return readBytes;
+		}
+
+		public long getWrittenBytes()
+		{
+			return writtenBytes;
+		}
+
+		public long getReads()
+		{
+			return reads;
+		}
+
+		public long getWrites()
+		{
+			return writes;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(READ_BYTES, readBytes);
+			receiver.add(WRITTEN_BYTES, writtenBytes);
+			receiver.add(READS, reads);
+			receiver.add(WRITES, writes);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+}
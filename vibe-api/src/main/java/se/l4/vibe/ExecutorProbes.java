@@ -1,19 +1,28 @@
 package se.l4.vibe;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
-import se.l4.vibe.operations.Change;
-import se.l4.vibe.operations.OperationExecutor;
+import se.l4.vibe.internal.InstrumentedExecutorServiceImpl;
+import se.l4.vibe.internal.InstrumentedScheduledExecutorServiceImpl;
 import se.l4.vibe.probes.SampledProbe;
 import se.l4.vibe.snapshots.KeyValueReceiver;
 import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.SnapshotKey;
+import se.l4.vibe.snapshots.Snapshots;
 
 /**
- * Probes that can be used for {@link ThreadPoolExecutor}.
+ * Probes that can be used for {@link ThreadPoolExecutor}, {@link ForkJoinPool}
+ * and wrappers that measure the tasks of any {@link ExecutorService}.
  */
 public class ExecutorProbes
 {
+	private static final long MIN_RATE_ELAPSED = TimeUnit.MILLISECONDS.toNanos(100);
+
 	private ExecutorProbes()
 	{
 	}
@@ -24,25 +33,123 @@ public class ExecutorProbes
 	)
 	{
 		return () -> {
-			OperationExecutor<Number, Long> completedTasksChange = Change.changeAsLong().create();
-
-			return () -> new ThreadPoolExecutorSnapshot(
-				executor.getPoolSize(),
-				executor.getMaximumPoolSize(),
-				executor.getActiveCount(),
-				completedTasksChange.apply(executor.getCompletedTaskCount()),
-				executor.getQueue().size()
-			);
+			long[] last = { executor.getCompletedTaskCount(), System.nanoTime() };
+			double[] rate = { 0 };
+
+			return () -> {
+				long completed = executor.getCompletedTaskCount();
+				long now = System.nanoTime();
+
+				/*
+				 * Only calculate the rate over a long enough time, such as
+				 * not from the sample taken when sampling starts, the tasks
+				 * are counted by the next sample instead.
+				 */
+				long change = 0;
+				long elapsed = now - last[1];
+				if(elapsed >= MIN_RATE_ELAPSED)
+				{
+					change = completed - last[0];
+					rate[0] = change * 1e9 / elapsed;
+					last[0] = completed;
+					last[1] = now;
+				}
+
+				return new ThreadPoolExecutorSnapshot(
+					executor.getPoolSize(),
+					executor.getMaximumPoolSize(),
+					executor.getActiveCount(),
+					change,
+					rate[0],
+					executor.getQueue().size()
+				);
+			};
+		};
+	}
+
+	/**
+	 * Wrap an executor so that the time every task waits in the queue and
+	 * the time it runs is recorded. Works with any executor, including
+	 * {@link ThreadPoolExecutor}, {@link ForkJoinPool} and executors that
+	 * start a virtual thread per task, where the queue wait is the time it
+	 * takes for the thread to start.
+	 *
+	 * <p>
+	 * Tasks forked within a {@link ForkJoinPool} do not pass through the
+	 * wrapper and are not measured, use {@link #forForkJoinPool(ForkJoinPool)}
+	 * to monitor the pool itself.
+	 *
+	 * @param executor
+	 * @return
+	 */
+	@NonNull
+	public static InstrumentedExecutorService instrument(@NonNull ExecutorService executor)
+	{
+		return new InstrumentedExecutorServiceImpl(executor);
+	}
+
+	/**
+	 * Wrap a scheduled executor so that the time every task waits and the
+	 * time it runs is recorded. For scheduled tasks the wait is how late a
+	 * run started compared to when it was scheduled.
+	 *
+	 * @param executor
+	 * @return
+	 */
+	@NonNull
+	public static InstrumentedScheduledExecutorService instrument(@NonNull ScheduledExecutorService executor)
+	{
+		return new InstrumentedScheduledExecutorServiceImpl(executor);
+	}
+
+	/**
+	 * Get a probe for the state of a {@link ForkJoinPool}, including the
+	 * number of tasks stolen between threads since the previous sample.
+	 *
+	 * @param pool
+	 * @return
+	 */
+	@NonNull
+	public static SampledProbe<ForkJoinPoolSnapshot> forForkJoinPool(
+		@NonNull ForkJoinPool pool
+	)
+	{
+		return () -> {
+			long[] last = { pool.getStealCount() };
+
+			return () -> {
+				long steals = pool.getStealCount();
+				long change = steals - last[0];
+				last[0] = steals;
+
+				return new ForkJoinPoolSnapshot(
+					pool.getParallelism(),
+					pool.getPoolSize(),
+					pool.getActiveThreadCount(),
+					pool.getRunningThreadCount(),
+					pool.getQueuedTaskCount(),
+					pool.getQueuedSubmissionCount(),
+					change
+				);
+			};
 		};
 	}
 
 	public static class ThreadPoolExecutorSnapshot
 		implements Snapshot
 	{
+		private static final SnapshotKey POOL_SIZE = SnapshotKey.of("poolSize");
+		private static final SnapshotKey MAX_POOL_SIZE = SnapshotKey.of("maxPoolSize");
+		private static final SnapshotKey ACTIVE_TASKS = SnapshotKey.of("activeTasks");
+		private static final SnapshotKey COMPLETED_TASKS = SnapshotKey.of("completedTasks");
+		private static final SnapshotKey COMPLETED_TASKS_RATE = SnapshotKey.of("completedTasksPerSecond");
+		private static final SnapshotKey QUEUE_SIZE = SnapshotKey.of("queueSize");
+
 		private final long poolSize;
 		private final long maxPoolSize;
 		private final long active;
 		private final long completedTasks;
+		private final double completedTasksRate;
 		private final long queueSize;
 
 		public ThreadPoolExecutorSnapshot(
@@ -50,6 +157,7 @@ public class ExecutorProbes
 			long maxSize,
 			long active,
 			long completedTasks,
+			double completedTasksRate,
 			long queueSize
 		)
 		{
@@ -57,17 +165,236 @@ public class ExecutorProbes
 			this.maxPoolSize = maxSize;
 			this.active = active;
 			this.completedTasks = completedTasks;
+			this.completedTasksRate = completedTasksRate;
 			this.queueSize = queueSize;
 		}
 
 		@Override
 		public void mapToKeyValues(KeyValueReceiver receiver)
 		{
-			receiver.add("poolSize", poolSize);
-			receiver.add("maxPoolSize", maxPoolSize);
-			receiver.add("activeTasks", active);
-			receiver.add("completedTasks", completedTasks);
-			receiver.add("queueSize", queueSize);
+			receiver.add(POOL_SIZE, poolSize);
+			receiver.add(MAX_POOL_SIZE, maxPoolSize);
+			receiver.add(ACTIVE_TASKS, active);
+			receiver.add(COMPLETED_TASKS, completedTasks);
+			receiver.add(COMPLETED_TASKS_RATE, completedTasksRate);
+			receiver.add(QUEUE_SIZE, queueSize);
+		}
+	}
+
+	/**
+	 * Tasks of an {@link InstrumentedExecutorService}. Queued and running
+	 * tasks are counted when sampled, the other counts are since the
+	 * previous sample.
+	 */
+	public static class ExecutorSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey QUEUED = SnapshotKey.of("queued");
+		private static final SnapshotKey RUNNING = SnapshotKey.of("running");
+		private static final SnapshotKey SUBMITTED = SnapshotKey.of("submitted");
+		private static final SnapshotKey COMPLETED = SnapshotKey.of("completed");
+		private static final SnapshotKey REJECTED = SnapshotKey.of("rejected");
+		private static final SnapshotKey SATURATION = SnapshotKey.of("saturation");
+
+		private final long queued;
+		private final long running;
+		private final long submitted;
+		private final long completed;
+		private final long rejected;
+		private final double saturation;
+
+		public ExecutorSnapshot(
+			long queued,
+			long running,
+			long submitted,
+			long completed,
+			long rejected,
+			double saturation
+		)
+		{
+			this.queued = queued;
+			this.running = running;
+			this.submitted = submitted;
+			this.completed = completed;
+			this.rejected = rejected;
+			this.saturation = saturation;
+		}
+
+		/**
+		 * Get the number of tasks waiting to run.
+		 *
+		 * @return
+		 */
+		public long getQueued()
+		{
+			return queued;
+		}
+
+		/**
+		 * Get the number of tasks running.
+		 *
+		 * @return
+		 */
+		public long getRunning()
+		{
+			return running;
+		}
+
+		/**
+		 * Get the number of tasks submitted.
+		 *
+		 * @return
+		 */
+		public long getSubmitted()
+		{
+			return submitted;
+		}
+
+		/**
+		 * Get the number of tasks that completed, successfully or not.
+		 *
+		 * @return
+		 */
+		public long getCompleted()
+		{
+			return completed;
+		}
+
+		/**
+		 * Get the number of tasks the executor rejected.
+		 *
+		 * @return
+		 */
+		public long getRejected()
+		{
+			return rejected;
+		}
+
+		/**
+		 * Get the running tasks as a fraction of the tasks the executor can
+		 * run at the same time. Always {@code 0} for executors without a
+		 * known limit, such as one that starts a thread per task.
+		 *
+		 * @return
+		 */
+		public double getSaturation()
+		{
+			return saturation;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(QUEUED, queued);
+			receiver.add(RUNNING, running);
+			receiver.add(SUBMITTED, submitted);
+			receiver.add(COMPLETED, completed);
+			receiver.add(REJECTED, rejected);
+			receiver.add(SATURATION, saturation);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	public static class ForkJoinPoolSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey PARALLELISM = SnapshotKey.of("parallelism");
+		private static final SnapshotKey POOL_SIZE = SnapshotKey.of("poolSize");
+		private static final SnapshotKey ACTIVE_THREADS = SnapshotKey.of("activeThreads");
+		private static final SnapshotKey RUNNING_THREADS = SnapshotKey.of("runningThreads");
+		private static final SnapshotKey QUEUED_TASKS = SnapshotKey.of("queuedTasks");
+		private static final SnapshotKey QUEUED_SUBMISSIONS = SnapshotKey.of("queuedSubmissions");
+		private static final SnapshotKey STEALS = SnapshotKey.of("steals");
+
+		private final long parallelism;
+		private final long poolSize;
+		private final long activeThreads;
+		private final long runningThreads;
+		private final long queuedTasks;
+		private final long queuedSubmissions;
+		private final long steals;
+
+		public ForkJoinPoolSnapshot(
+			long parallelism,
+			long poolSize,
+			long activeThreads,
+			long runningThreads,
+			long queuedTasks,
+			long queuedSubmissions,
+			long steals
+		)
+		{
+			this.parallelism = parallelism;
+			this.poolSize = poolSize;
+			this.activeThreads = activeThreads;
+			this.runningThreads = runningThreads;
+			this.queuedTasks = queuedTasks;
+			this.queuedSubmissions = queuedSubmissions;
+			this.steals = steals;
+		}
+
+		public long getParallelism()
+		{
+			return parallelism;
+		}
+
+		public long getPoolSize()
+		{
+			return poolSize;
+		}
+
+		public long getActiveThreads()
+		{
+			return activeThreads;
+		}
+
+		public long getRunningThreads()
+		{
+			return runningThreads;
+		}
+
+		public long getQueuedTasks()
+		{
+			return queuedTasks;
+		}
+
+		public long getQueuedSubmissions()
+		{
+			return queuedSubmissions;
+		}
+
+		/**
+		 * Get the number of tasks stolen from the queue of another thread
+		 * since the previous sample.
+		 *
+		 * @return
+		 */
+		public long getSteals()
+		{
+			return steals;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(PARALLELISM, parallelism);
+			receiver.add(POOL_SIZE, poolSize);
+			receiver.add(ACTIVE_THREADS, activeThreads);
+			receiver.add(RUNNING_THREADS, runningThreads);
+			receiver.add(QUEUED_TASKS, queuedTasks);
+			receiver.add(QUEUED_SUBMISSIONS, queuedSubmissions);
+			receiver.add(STEALS, steals);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
 		}
 	}
 }
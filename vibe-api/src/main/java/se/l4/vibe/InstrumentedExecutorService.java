@@ -0,0 +1,53 @@
+package se.l4.vibe;
+
+import java.util.concurrent.ExecutorService;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.ExecutorProbes.ExecutorSnapshot;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * {@link ExecutorService} that measures every task it runs. Created via
+ * {@link ExecutorProbes#instrument(ExecutorService)}.
+ *
+ * <pre>
+ * InstrumentedExecutorService executor = ExecutorProbes.instrument(
+ *   Executors.newFixedThreadPool(8)
+ * );
+ *
+ * vibe.export(executor.getQueueWaitTimer())
+ *   .at("workers", "queueWait")
+ *   .done();
+ * </pre>
+ */
+public interface InstrumentedExecutorService
+	extends ExecutorService
+{
+	/**
+	 * Get the timer that records how long tasks waited from being submitted
+	 * until they started running.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getQueueWaitTimer();
+
+	/**
+	 * Get the timer that records how long tasks ran.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getExecutionTimer();
+
+	/**
+	 * Get a probe for the number of tasks waiting and running, together
+	 * with the tasks submitted, completed and rejected since the previous
+	 * sample.
+	 *
+	 * @return
+	 */
+	@NonNull
+	SampledProbe<ExecutorSnapshot> getSnapshotProbe();
+}
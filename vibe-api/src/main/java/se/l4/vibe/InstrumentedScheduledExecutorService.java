@@ -0,0 +1,14 @@
+package se.l4.vibe;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * {@link ScheduledExecutorService} that measures every task it runs. For
+ * scheduled tasks the queue wait is how late a run started compared to when
+ * it was scheduled to start. Created via
+ * {@link ExecutorProbes#instrument(ScheduledExecutorService)}.
+ */
+public interface InstrumentedScheduledExecutorService
+	extends InstrumentedExecutorService, ScheduledExecutorService
+{
+}
@@ -0,0 +1,166 @@
+package se.l4.vibe;
+
+import java.time.Duration;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.internal.JfrProbesImpl;
+import se.l4.vibe.internal.JfrStream;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Probes fed by a JDK Flight Recorder stream. Complements {@link JvmProbes}
+ * with data the JVM only reports via JFR events, such as allocations,
+ * safepoints, monitor contention, thread parking and JIT compilation.
+ *
+ * <pre>
+ * JfrProbes jfr = JfrProbes.builder()
+ *   .withThreshold(Duration.ofMillis(10))
+ *   .build();
+ *
+ * jfr.export(vibe);
+ * </pre>
+ *
+ * <p>
+ * Events are aggregated as they arrive into striped counters and
+ * {@link Timer timers}, so the probes can be sampled and exported like any
+ * other probe. The recording runs until the probes are
+ * {@link #release() released}.
+ *
+ * <p>
+ * JFR streaming requires Java 14 or later, use {@link #isAvailable()} to check
+ * if it can be used. When running on the module path the {@code jdk.jfr}
+ * module might need to be added via {@code --add-modules jdk.jfr}.
+ */
+public interface JfrProbes
+	extends Handle
+{
+	/**
+	 * Get a probe for the number of bytes allocated per second.
+	 *
+	 * @return
+	 */
+	@NonNull
+	SampledProbe<Double> getAllocationRateProbe();
+
+	/**
+	 * Get a timer that records the duration of every safepoint.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getSafepointTimer();
+
+	/**
+	 * Get a timer that records how long threads wait to enter a contended
+	 * monitor. Only waits longer than the threshold are recorded.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getMonitorContentionTimer();
+
+	/**
+	 * Get a timer that records how long threads are parked, such as when
+	 * waiting for a lock in {@code java.util.concurrent}. Only parks longer
+	 * than the threshold are recorded.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getThreadParkTimer();
+
+	/**
+	 * Get a timer that records the duration of every JIT compilation.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Timer getCompilationTimer();
+
+	/**
+	 * Get a probe for the state of the code cache. The snapshot contains the
+	 * number of {@code entries} and {@code methods} in the cache, the bytes
+	 * {@code unallocated} and how many times the cache has been {@code full}.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Probe<MapSnapshot> getCodeCacheProbe();
+
+	/**
+	 * Export these probes on the given {@link Vibe} instance.
+	 *
+	 * <ul>
+	 *   <li>{@link #getAllocationRateProbe()} at {@code jfr/allocationRate}
+	 *   <li>{@link #getSafepointTimer()} at {@code jfr/safepoints}
+	 *   <li>{@link #getMonitorContentionTimer()} at {@code jfr/monitorContention}
+	 *   <li>{@link #getThreadParkTimer()} at {@code jfr/threadParks}
+	 *   <li>{@link #getCompilationTimer()} at {@code jfr/compilations}
+	 *   <li>{@link #getCodeCacheProbe()} at {@code jfr/codeCache}
+	 * </ul>
+	 *
+	 * @param vibe
+	 */
+	void export(@NonNull Vibe vibe);
+
+	/**
+	 * Get if JFR streaming is available in this JVM.
+	 *
+	 * @return
+	 */
+	static boolean isAvailable()
+	{
+		return JfrStream.isAvailable();
+	}
+
+	/**
+	 * Start building a new instance.
+	 *
+	 * @return
+	 */
+	@NonNull
+	static Builder builder()
+	{
+		return new JfrProbesImpl.BuilderImpl();
+	}
+
+	/**
+	 * Builder for creating and starting {@link JfrProbes}.
+	 */
+	interface Builder
+	{
+		/**
+		 * Set the shortest monitor wait and thread park to record, defaults
+		 * to 10 milliseconds. Lower thresholds give more detail at a higher
+		 * overhead.
+		 *
+		 * @param threshold
+		 * @return
+		 */
+		@NonNull
+		Builder withThreshold(@NonNull Duration threshold);
+
+		/**
+		 * Set how often periodic events, such as the code cache statistics,
+		 * are emitted. Defaults to 10 seconds.
+		 *
+		 * @param period
+		 * @return
+		 */
+		@NonNull
+		Builder withPeriod(@NonNull Duration period);
+
+		/**
+		 * Build the probes and start the recording.
+		 *
+		 * @return
+		 * @throws VibeException
+		 *   if JFR streaming is not available
+		 */
+		@NonNull
+		JfrProbes build();
+	}
+}
@@ -8,20 +8,38 @@ import java.lang.management.MemoryUsage;
 import java.lang.management.OperatingSystemMXBean;
 import java.lang.management.RuntimeMXBean;
 import java.lang.management.ThreadMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.internal.GarbageCollectors;
+import se.l4.vibe.internal.ProcessThreadsSampler;
+import se.l4.vibe.internal.StatFile;
+import se.l4.vibe.internal.ThreadUsageSampler;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 import se.l4.vibe.sampling.Sampler;
 import se.l4.vibe.snapshots.KeyValueReceiver;
 import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.SnapshotKey;
 import se.l4.vibe.snapshots.Snapshots;
+import se.l4.vibe.timers.Timer;
 
 /**
  * Probes for the JVM runtime.
  */
 public class JvmProbes
 {
+	private static final Path PROC_SELF = Paths.get("/proc/self");
+	private static final byte[] PROC_READ_BYTES = StatFile.key("read_bytes");
+	private static final byte[] PROC_WRITE_BYTES = StatFile.key("write_bytes");
+	private static final byte[] PROC_VM_RSS = StatFile.key("VmRSS");
+	private static final byte[] PROC_THREADS = StatFile.key("Threads");
+
 	private JvmProbes()
 	{
 	}
@@ -227,6 +245,153 @@ public class JvmProbes
 		return thread::getThreadCount;
 	}
 
+	/**
+	 * Get a probe that finds the threads that used the most CPU time and the
+	 * threads that allocated the most memory since the previous sample. This
+	 * can be used to find out which threads are responsible for a spike
+	 * without attaching a profiler.
+	 *
+	 * <p>
+	 * Every sample reads all threads via the bulk methods of
+	 * {@link com.sun.management.ThreadMXBean} and keeps its state in primitive
+	 * arrays, so it can be used in JVMs with thousands of threads.
+	 *
+	 * @param limit
+	 *   the number of threads to include in each top list
+	 * @return
+	 */
+	@NonNull
+	public static SampledProbe<ThreadUsageSnapshot> threadUsage(int limit)
+	{
+		if(limit < 1)
+		{
+			throw new IllegalArgumentException("limit must be at least 1");
+		}
+
+		return () -> new ThreadUsageSampler(limit);
+	}
+
+	/**
+	 * Get a probe for the resources used by this process as reported by
+	 * Linux in {@code /proc/self}. Every sample contains the resident set
+	 * size and number of threads, together with the page faults and the
+	 * bytes read from and written to storage since the previous sample.
+	 *
+	 * <p>
+	 * The files are kept open and parsed without creating any objects, so
+	 * the probe can be sampled often.
+	 *
+	 * @return
+	 * @throws VibeException
+	 *   if {@code /proc/self} is not available
+	 */
+	@NonNull
+	public static SampledProbe<ProcessSnapshot> process()
+	{
+		Path proc = requireProc();
+
+		return () -> new Sampler<ProcessSnapshot>()
+		{
+			private final StatFile stat = new StatFile(proc.resolve("stat"));
+			private final StatFile status = new StatFile(proc.resolve("status"));
+			private final StatFile io = new StatFile(proc.resolve("io"));
+
+			private final long[] last = read(new long[4]);
+			private final long[] current = new long[4];
+
+			private long[] read(long[] values)
+			{
+				values[0] = values[1] = values[2] = values[3] = 0;
+
+				if(stat.read())
+				{
+					// Fields are counted from the end of the command name
+					values[0] = Math.max(0, stat.getTokenAfterLast((byte) ')', 7));
+					values[1] = Math.max(0, stat.getTokenAfterLast((byte) ')', 9));
+				}
+
+				// Only readable by the owner of the process
+				if(io.read())
+				{
+					values[2] = Math.max(0, io.getLong(PROC_READ_BYTES));
+					values[3] = Math.max(0, io.getLong(PROC_WRITE_BYTES));
+				}
+
+				return values;
+			}
+
+			@Override
+			public ProcessSnapshot sample()
+			{
+				read(current);
+
+				long rss = 0;
+				long threads = 0;
+				if(status.read())
+				{
+					rss = Math.max(0, status.getLong(PROC_VM_RSS)) * 1024;
+					threads = Math.max(0, status.getLong(PROC_THREADS));
+				}
+
+				ProcessSnapshot snapshot = new ProcessSnapshot(
+					rss,
+					threads,
+					current[0] - last[0],
+					current[1] - last[1],
+					current[2] - last[2],
+					current[3] - last[3]
+				);
+
+				System.arraycopy(current, 0, last, 0, 4);
+				return snapshot;
+			}
+
+			@Override
+			public void release()
+			{
+				stat.release();
+				status.release();
+				io.release();
+			}
+		};
+	}
+
+	/**
+	 * Get a probe for the threads of this process as seen by Linux. Every
+	 * sample contains the number of threads per state and the number of
+	 * voluntary and involuntary context switches since the previous sample.
+	 *
+	 * <p>
+	 * Linux only reports context switches per thread, so every sample reads
+	 * one file per thread in {@code /proc/self/task}. The cost of sampling
+	 * grows with the number of threads.
+	 *
+	 * @return
+	 * @throws VibeException
+	 *   if {@code /proc/self} is not available
+	 */
+	@NonNull
+	public static SampledProbe<ProcessThreadsSnapshot> processThreads()
+	{
+		Path tasks = requireProc().resolve("task");
+		return () -> new ProcessThreadsSampler(tasks);
+	}
+
+	private static Path requireProc()
+	{
+		if(! isProcAvailable())
+		{
+			throw new VibeException("/proc/self is only available on Linux");
+		}
+
+		return PROC_SELF;
+	}
+
+	private static boolean isProcAvailable()
+	{
+		return Files.isReadable(PROC_SELF.resolve("stat"));
+	}
+
 	/**
 	 * Get the number of classes that are currently loaded by the JVM.
 	 *
@@ -260,6 +425,101 @@ public class JvmProbes
 		return () -> -1l;
 	}
 
+	/**
+	 * Get the names of the garbage collectors in this JVM.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public static Collection<String> garbageCollectors()
+	{
+		return GarbageCollectors.get().keySet();
+	}
+
+	/**
+	 * Get a timer that records the stop-the-world pauses of the given
+	 * garbage collector. Durations are reported by the JVM when a collection
+	 * completes, nothing is polled. Concurrent cycles, such as those of
+	 * {@code ZGC Cycles} or {@code G1 Concurrent GC}, run alongside the
+	 * application and are not recorded, only the pauses within them are.
+	 *
+	 * @param collector
+	 *   the name of the collector, see {@link #garbageCollectors()}
+	 * @return
+	 */
+	@NonNull
+	public static Timer garbageCollectionPauses(@NonNull String collector)
+	{
+		return getCollector(collector).getPauses();
+	}
+
+	/**
+	 * Get a probe that samples the activity of the given garbage collector.
+	 * Every sample contains the number of collections, the time spent
+	 * collecting and the bytes reclaimed since the previous sample together
+	 * with the bytes used in every memory pool of the collector after its
+	 * last collection.
+	 *
+	 * @param collector
+	 *   the name of the collector, see {@link #garbageCollectors()}
+	 * @return
+	 */
+	@NonNull
+	public static SampledProbe<GarbageCollectionSnapshot> garbageCollections(@NonNull String collector)
+	{
+		GarbageCollectors.Collector c = getCollector(collector);
+
+		return () -> new Sampler<GarbageCollectionSnapshot>()
+		{
+			private long lastCollections = c.getCollections();
+			private long lastTime = c.getTime();
+			private long lastReclaimed = c.getReclaimed();
+
+			@Override
+			public GarbageCollectionSnapshot sample()
+			{
+				long collections = c.getCollections();
+				long time = c.getTime();
+				long reclaimed = c.getReclaimed();
+
+				SnapshotKey[] keys = new SnapshotKey[c.getPoolCount()];
+				long[] usedAfter = new long[keys.length];
+				for(int i=0; i<keys.length; i++)
+				{
+					keys[i] = c.getPoolKey(i);
+					usedAfter[i] = c.getUsedAfter(i);
+				}
+
+				GarbageCollectionSnapshot snapshot = new GarbageCollectionSnapshot(
+					collections - lastCollections,
+					time - lastTime,
+					reclaimed - lastReclaimed,
+					keys,
+					usedAfter
+				);
+
+				lastCollections = collections;
+				lastTime = time;
+				lastReclaimed = reclaimed;
+
+				return snapshot;
+			}
+		};
+	}
+
+	private static GarbageCollectors.Collector getCollector(String name)
+	{
+		Objects.requireNonNull(name, "name must be specified");
+
+		GarbageCollectors.Collector collector = GarbageCollectors.get().get(name);
+		if(collector == null)
+		{
+			throw new VibeException("Unknown garbage collector: " + name);
+		}
+
+		return collector;
+	}
+
 	/**
 	 * Export JVM probes on the given {@link Vibe} instance. In most cases you
 	 * want to use a {@link Vibe#scope(String...) scoped instance} with this
@@ -280,12 +540,20 @@ public class JvmProbes
 	 *   <li>{@link #threadCount()} at {@code threadCount}
 	 *   <li>{@link #loadedClassCount()} at {@code loadedClassCount}
 	 *   <li>{@link #directBufferPool()} at {@code buffers/direct}
-	 *   <li>{@link #mappedBufferPool() at {@code buffers/mapped}
+	 *   <li>{@link #mappedBufferPool()} at {@code buffers/mapped}
+	 *   <li>{@link #process()} at {@code process} on Linux
+	 *   <li>{@link #processThreads()} at {@code process/threads} on Linux
+	 *   <li>{@link #threadUsage(int)} at {@code threads/top} with the top 5
+	 *     threads
+	 *   <li>{@link #garbageCollections(String)} at {@code gc/collectorName}
+	 *     for every collector, such as {@code gc/g1YoungGeneration}
+	 *   <li>{@link #garbageCollectionPauses(String)} at
+	 *     {@code gc/collectorName/pauses} for every collector
 	 * </ul>
 	 *
 	 * @param vibe
 	 */
-	public void export(@NonNull Vibe vibe)
+	public static void export(@NonNull Vibe vibe)
 	{
 		vibe.export(cpuUsage())
 			.at("cpu")
@@ -314,6 +582,34 @@ public class JvmProbes
 		vibe.export(mappedBufferPool())
 			.at("buffers", "mapped")
 			.done();
+
+		if(isProcAvailable())
+		{
+			vibe.export(process())
+				.at("process")
+				.done();
+
+			vibe.export(processThreads())
+				.at("process", "threads")
+				.done();
+		}
+
+		vibe.export(threadUsage(5))
+			.at("threads", "top")
+			.done();
+
+		for(String collector : garbageCollectors())
+		{
+			String key = GarbageCollectors.toKey(collector);
+
+			vibe.export(garbageCollections(collector))
+				.at("gc", key)
+				.done();
+
+			vibe.export(garbageCollectionPauses(collector))
+				.at("gc", key, "pauses")
+				.done();
+		}
 	}
 
 	/**
@@ -324,6 +620,14 @@ public class JvmProbes
 	public static class MemorySnapshot
 		implements Snapshot
 	{
+		private static final SnapshotKey HEAP_USED = SnapshotKey.of("heapUsed");
+		private static final SnapshotKey HEAP_COMMITTED = SnapshotKey.of("heapCommitted");
+		private static final SnapshotKey HEAP_MAX = SnapshotKey.of("heapMax");
+		private static final SnapshotKey HEAP_USAGE_AS_FRACTION = SnapshotKey.of("heapUsageAsFraction");
+		private static final SnapshotKey NON_HEAP_USED = SnapshotKey.of("nonHeapUsed");
+		private static final SnapshotKey NON_HEAP_COMMITTED = SnapshotKey.of("nonHeapCommitted");
+		private static final SnapshotKey NON_HEAP_MAX = SnapshotKey.of("nonHeapMax");
+
 		private final long heapUsed;
 		private final long heapCommitted;
 		private final long heapMax;
@@ -434,13 +738,116 @@ public class JvmProbes
 		@Override
 		public void mapToKeyValues(KeyValueReceiver receiver)
 		{
-			receiver.add("heapUsed", heapUsed);
-			receiver.add("heapCommitted", heapCommitted);
-			receiver.add("heapMax", heapMax);
-			receiver.add("heapUsageAsFraction", getHeapUsageAsFraction());
-			receiver.add("nonHeapUsed", nonHeapUsed);
-			receiver.add("nonHeapCommitted", nonHeapCommitted);
-			receiver.add("nonHeapMax", nonHeapMax);
+			receiver.add(HEAP_USED, heapUsed);
+			receiver.add(HEAP_COMMITTED, heapCommitted);
+			receiver.add(HEAP_MAX, heapMax);
+			receiver.add(HEAP_USAGE_AS_FRACTION, getHeapUsageAsFraction());
+			receiver.add(NON_HEAP_USED, nonHeapUsed);
+			receiver.add(NON_HEAP_COMMITTED, nonHeapCommitted);
+			receiver.add(NON_HEAP_MAX, nonHeapMax);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * Activity of a garbage collector between two samples.
+	 */
+	public static class GarbageCollectionSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey COLLECTIONS = SnapshotKey.of("collections");
+		private static final SnapshotKey TIME = SnapshotKey.of("time");
+		private static final SnapshotKey RECLAIMED = SnapshotKey.of("reclaimed");
+
+		private final long collections;
+		private final long time;
+		private final long reclaimed;
+		private final SnapshotKey[] poolKeys;
+		private final long[] usedAfter;
+
+		public GarbageCollectionSnapshot(
+			long collections,
+			long time,
+			long reclaimed,
+			SnapshotKey[] poolKeys,
+			long[] usedAfter
+		)
+		{
+			this.collections = collections;
+			this.time = time;
+			this.reclaimed = reclaimed;
+			this.poolKeys = poolKeys;
+			this.usedAfter = usedAfter;
+		}
+
+		/**
+		 * Get the number of collections.
+		 *
+		 * @return
+		 */
+		public long getCollections()
+		{
+			return collections;
+		}
+
+		/**
+		 * Get the time spent collecting in milliseconds.
+		 *
+		 * @return
+		 */
+		public long getTime()
+		{
+			return time;
+		}
+
+		/**
+		 * Get the number of bytes reclaimed.
+		 *
+		 * @return
+		 */
+		public long getReclaimed()
+		{
+			return reclaimed;
+		}
+
+		/**
+		 * Get the bytes used in a memory pool after the last collection.
+		 *
+		 * @param pool
+		 *   the key of the pool, such as {@code g1OldGenUsed}
+		 * @return
+		 *   bytes used, or {@code -1} if the pool is not collected by this
+		 *   collector
+		 */
+		public long getUsedAfter(@NonNull String pool)
+		{
+			for(int i=0; i<poolKeys.length; i++)
+			{
+				if(poolKeys[i].getName().equals(pool))
+				{
+					return usedAfter[i];
+				}
+			}
+
+			return -1;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(COLLECTIONS, collections);
+			receiver.add(TIME, time);
+			receiver.add(RECLAIMED, reclaimed);
+
+			for(int i=0; i<poolKeys.length; i++)
+			{
+				receiver.add(poolKeys[i], usedAfter[i]);
+			}
 		}
 
 		@Override
@@ -450,9 +857,382 @@ public class JvmProbes
 		}
 	}
 
+	/**
+	 * Resources used by the process as reported by Linux. Page faults and
+	 * bytes are counted since the previous sample.
+	 */
+	public static class ProcessSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey RSS = SnapshotKey.of("rss");
+		private static final SnapshotKey THREADS = SnapshotKey.of("threads");
+		private static final SnapshotKey MINOR_FAULTS = SnapshotKey.of("minorFaults");
+		private static final SnapshotKey MAJOR_FAULTS = SnapshotKey.of("majorFaults");
+		private static final SnapshotKey READ_BYTES = SnapshotKey.of("readBytes");
+		private static final SnapshotKey WRITTEN_BYTES = SnapshotKey.of("writtenBytes");
+
+		private final long rss;
+		private final long threads;
+		private final long minorFaults;
+		private final long majorFaults;
+		private final long readBytes;
+		private final long writtenBytes;
+
+		public ProcessSnapshot(
+			long rss,
+			long threads,
+			long minorFaults,
+			long majorFaults,
+			long readBytes,
+			long writtenBytes
+		)
+		{
+			this.rss = rss;
+			this.threads = threads;
+			this.minorFaults = minorFaults;
+			this.majorFaults = majorFaults;
+			this.readBytes = readBytes;
+			this.writtenBytes = writtenBytes;
+		}
+
+		/**
+		 * Get the resident set size in bytes.
+		 *
+		 * @return
+		 */
+		public long getRss()
+		{
+			return rss;
+		}
+
+		/**
+		 * Get the number of threads in the process.
+		 *
+		 * @return
+		 */
+		public long getThreads()
+		{
+			return threads;
+		}
+
+		/**
+		 * Get the number of page faults that did not require loading a page
+		 * from disk.
+		 *
+		 * @return
+		 */
+		public long getMinorFaults()
+		{
+			return minorFaults;
+		}
+
+		/**
+		 * Get the number of page faults that required loading a page from
+		 * disk.
+		 *
+		 * @return
+		 */
+		public long getMajorFaults()
+		{
+			return majorFaults;
+		}
+
+		/**
+		 * Get the number of bytes read from storage.
+		 *
+		 * @return
+		 */
+		public long getReadBytes()
+		{
+			return readBytes;
+		}
+
+		/**
+		 * Get the number of bytes written to storage.
+		 *
+		 * @return
+		 */
+		public long getWrittenBytes()
+		{
+			return writtenBytes;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(RSS, rss);
+			receiver.add(THREADS, threads);
+			receiver.add(MINOR_FAULTS, minorFaults);
+			receiver.add(MAJOR_FAULTS, majorFaults);
+			receiver.add(READ_BYTES, readBytes);
+			receiver.add(WRITTEN_BYTES, writtenBytes);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * States and context switches of the threads in the process as reported
+	 * by Linux. Context switches are counted since the previous sample.
+	 */
+	public static class ProcessThreadsSnapshot
+		implements Snapshot
+	{
+		private static final SnapshotKey RUNNING = SnapshotKey.of("running");
+		private static final SnapshotKey SLEEPING = SnapshotKey.of("sleeping");
+		private static final SnapshotKey WAITING = SnapshotKey.of("waiting");
+		private static final SnapshotKey OTHER = SnapshotKey.of("other");
+		private static final SnapshotKey VOLUNTARY_SWITCHES = SnapshotKey.of("voluntaryContextSwitches");
+		private static final SnapshotKey INVOLUNTARY_SWITCHES = SnapshotKey.of("involuntaryContextSwitches");
+
+		private final int running;
+		private final int sleeping;
+		private final int waiting;
+		private final int other;
+		private final long voluntaryContextSwitches;
+		private final long involuntaryContextSwitches;
+
+		public ProcessThreadsSnapshot(
+			int running,
+			int sleeping,
+			int waiting,
+			int other,
+			long voluntaryContextSwitches,
+			long involuntaryContextSwitches
+		)
+		{
+			this.running = running;
+			this.sleeping = sleeping;
+			this.waiting = waiting;
+			this.other = other;
+			this.voluntaryContextSwitches = voluntaryContextSwitches;
+			this.involuntaryContextSwitches = involuntaryContextSwitches;
+		}
+
+		/**
+		 * Get the number of threads that are running or ready to run.
+		 *
+		 * @return
+		 */
+		public int getRunning()
+		{
+			return running;
+		}
+
+		/**
+		 * Get the number of threads in an interruptible sleep.
+		 *
+		 * @return
+		 */
+		public int getSleeping()
+		{
+			return sleeping;
+		}
+
+		/**
+		 * Get the number of threads in an uninterruptible wait, usually for
+		 * IO.
+		 *
+		 * @return
+		 */
+		public int getWaiting()
+		{
+			return waiting;
+		}
+
+		/**
+		 * Get the number of threads in any other state, such as stopped.
+		 *
+		 * @return
+		 */
+		public int getOther()
+		{
+			return other;
+		}
+
+		/**
+		 * Get the number of times threads gave up the CPU, such as when
+		 * blocking on IO or a lock.
+		 *
+		 * @return
+		 */
+		public long getVoluntaryContextSwitches()
+		{
+			return voluntaryContextSwitches;
+		}
+
+		/**
+		 * Get the number of times threads were forced off the CPU.
+		 *
+		 * @return
+		 */
+		public long getInvoluntaryContextSwitches()
+		{
+			return involuntaryContextSwitches;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			receiver.add(RUNNING, running);
+			receiver.add(SLEEPING, sleeping);
+			receiver.add(WAITING, waiting);
+			receiver.add(OTHER, other);
+			receiver.add(VOLUNTARY_SWITCHES, voluntaryContextSwitches);
+			receiver.add(INVOLUNTARY_SWITCHES, involuntaryContextSwitches);
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * The threads that used the most CPU time and allocated the most memory
+	 * between two samples.
+	 */
+	public static class ThreadUsageSnapshot
+		implements Snapshot
+	{
+		private final List<ThreadUsage> cpu;
+		private final List<ThreadUsage> allocation;
+
+		public ThreadUsageSnapshot(
+			List<ThreadUsage> cpu,
+			List<ThreadUsage> allocation
+		)
+		{
+			this.cpu = cpu;
+			this.allocation = allocation;
+		}
+
+		/**
+		 * Get the threads that used the most CPU time, highest first.
+		 *
+		 * @return
+		 */
+		@NonNull
+		public List<ThreadUsage> getTopCpu()
+		{
+			return cpu;
+		}
+
+		/**
+		 * Get the threads that allocated the most memory, highest first.
+		 *
+		 * @return
+		 */
+		@NonNull
+		public List<ThreadUsage> getTopAllocation()
+		{
+			return allocation;
+		}
+
+		@Override
+		public void mapToKeyValues(KeyValueReceiver receiver)
+		{
+			for(int i=0; i<cpu.size(); i++)
+			{
+				ThreadUsage usage = cpu.get(i);
+				receiver.add("cpu" + (i + 1) + "Thread", usage.getName());
+				receiver.add("cpu" + (i + 1) + "Time", usage.getCpuTime());
+			}
+
+			for(int i=0; i<allocation.size(); i++)
+			{
+				ThreadUsage usage = allocation.get(i);
+				receiver.add("allocation" + (i + 1) + "Thread", usage.getName());
+				receiver.add("allocation" + (i + 1) + "Bytes", usage.getAllocatedBytes());
+			}
+		}
+
+		@Override
+		public String toString()
+		{
+			return Snapshots.toString(this);
+		}
+	}
+
+	/**
+	 * Usage of a single thread between two samples.
+	 */
+	public static class ThreadUsage
+	{
+		private final long id;
+		private final String name;
+		private final long cpuTime;
+		private final long allocatedBytes;
+
+		public ThreadUsage(long id, String name, long cpuTime, long allocatedBytes)
+		{
+			this.id = id;
+			this.name = name;
+			this.cpuTime = cpuTime;
+			this.allocatedBytes = allocatedBytes;
+		}
+
+		/**
+		 * Get the id of the thread.
+		 *
+		 * @return
+		 */
+		public long getId()
+		{
+			return id;
+		}
+
+		/**
+		 * Get the name of the thread.
+		 *
+		 * @return
+		 */
+		@NonNull
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Get the CPU time used in nanoseconds.
+		 *
+		 * @return
+		 */
+		public long getCpuTime()
+		{
+			return cpuTime;
+		}
+
+		/**
+		 * Get the number of bytes allocated.
+		 *
+		 * @return
+		 */
+		public long getAllocatedBytes()
+		{
+			return allocatedBytes;
+		}
+
+		@Override
+		public String toString()
+		{
+			return "ThreadUsage{id=" + id + ", name=" + name
+				+ ", cpuTime=" + cpuTime + ", allocatedBytes=" + allocatedBytes + "}";
+		}
+	}
+
 	public static class BufferPoolDetails
 		implements Snapshot
 	{
+		private static final SnapshotKey MEMORY_USED = SnapshotKey.of("memoryUsed");
+		private static final SnapshotKey TOTAL_CAPACITY = SnapshotKey.of("totalCapacity");
+		private static final SnapshotKey COUNT = SnapshotKey.of("count");
+
 		private final long memoryUsed;
 		private final long totalCapacity;
 		private final long count;
@@ -486,9 +1266,9 @@ public class JvmProbes
 		@Override
 		public void mapToKeyValues(KeyValueReceiver receiver)
 		{
-			receiver.add("memoryUsed", memoryUsed);
-			receiver.add("totalCapacity", totalCapacity);
-			receiver.add("count", count);
+			receiver.add(MEMORY_USED, memoryUsed);
+			receiver.add(TOTAL_CAPACITY, totalCapacity);
+			receiver.add(COUNT, count);
 		}
 
 		@Override
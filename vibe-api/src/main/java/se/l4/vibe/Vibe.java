@@ -163,6 +163,28 @@ public interface Vibe
 		@NonNull
 		Builder addBackend(@NonNull Optional<VibeBackend> backend);
 
+		/**
+		 * Export metrics about Vibe itself under the path {@code vibe}. The
+		 * path is reserved while internal metrics are enabled, so nothing
+		 * else can be exported under it. This will export:
+		 *
+		 * <ul>
+		 *   <li>How often and for how long each exported probe is read at
+		 *     {@code vibe/probes/[path]}
+		 *   <li>How late sampling runs compared to its schedule at
+		 *     {@code vibe/sampling/lag}
+		 *   <li>Time spent delivering samples, events and timings to listeners
+		 *     at {@code vibe/listeners/dispatch}
+		 *   <li>The number of events registered at {@code vibe/events}
+		 *   <li>Metrics from backends at {@code vibe/backends/[name]}, see
+		 *     {@link VibeBackend#exportInternalMetrics(Vibe)}
+		 * </ul>
+		 *
+		 * @return
+		 */
+		@NonNull
+		Builder withInternalMetrics();
+
 		/**
 		 * Build the instance.
 		 *
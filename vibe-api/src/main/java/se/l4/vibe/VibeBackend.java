@@ -85,6 +85,20 @@ public interface VibeBackend
 		return Handle.empty();
 	}
 
+	/**
+	 * Export metrics about this backend, such as how much data it has sent.
+	 * This is called once when a {@link Vibe} instance with internal metrics
+	 * enabled is built, the given instance is scoped to a path reserved for
+	 * this backend.
+	 *
+	 * @param vibe
+	 *   instance to export metrics on
+	 * @see Vibe.Builder#withInternalMetrics()
+	 */
+	default void exportInternalMetrics(@NonNull Vibe vibe)
+	{
+	}
+
 	/**
 	 * Release any resources held by this backend.
 	 */
@@ -52,6 +52,24 @@ import se.l4.vibe.sampling.TimeSampler;
  *   }
  * });
  * </pre>
+ *
+ * <h2>Damping</h2>
+ *
+ * <p>
+ * By default the state of a check changes as soon as a single sample meets
+ * or stops meeting the conditions. Checks on noisy values can be damped by
+ * requiring a number of recent samples to meet the conditions, by requiring
+ * the state to be stable for a while before changing and by using a separate
+ * condition for when the check stops being met:
+ *
+ * <pre>
+ * Check check = Check.builder()
+ *   .whenProbe(JvmProbes.cpuUsage())
+ *     .is(Conditions.above(0.9), Conditions.below(0.8))
+ *   .whenMetInSamples(3, 5)
+ *   .whenMetFor(Duration.ofMinutes(5))
+ *   .build();
+ * </pre>
  */
 public interface Check
 	extends Exportable
@@ -174,6 +192,40 @@ public interface Check
 		@NonNull
 		Builder whenMetRepeatEvery(@NonNull Duration duration);
 
+		/**
+		 * Require the conditions to be met for at least the given duration
+		 * before the check changes to being met. Samples that do not meet the
+		 * conditions restart the duration.
+		 *
+		 * @param duration
+		 * @return
+		 */
+		@NonNull
+		Builder whenMetFor(@NonNull Duration duration);
+
+		/**
+		 * Require the conditions to not be met for at least the given duration
+		 * before the check changes to not being met.
+		 *
+		 * @param duration
+		 * @return
+		 */
+		@NonNull
+		Builder whenUnmetFor(@NonNull Duration duration);
+
+		/**
+		 * Require that a number of the last samples meet the conditions for
+		 * the check to be met, such as 3 out of the last 5 samples.
+		 *
+		 * @param required
+		 *   the number of samples that must meet the conditions
+		 * @param samples
+		 *   the number of samples to look at
+		 * @return
+		 */
+		@NonNull
+		Builder whenMetInSamples(int required, int samples);
+
 		/**
 		 * Request that the check triggers repeating events when the the
 		 * conditions of the check are not met. Can be used to implement things
@@ -229,6 +281,19 @@ public interface Check
 		 */
 		@NonNull
 		Builder is(@NonNull Predicate<I> condition);
+
+		/**
+		 * Set separate conditions for when the check starts and stops being
+		 * met. The check is met when the enter condition is met and stays met
+		 * until the exit condition is met, such as entering above 90% and
+		 * exiting below 80%.
+		 *
+		 * @param enterCondition
+		 * @param exitCondition
+		 * @return
+		 */
+		@NonNull
+		Builder is(@NonNull Predicate<I> enterCondition, @NonNull Predicate<I> exitCondition);
 	}
 
 	/**
@@ -276,6 +341,19 @@ public interface Check
 		 */
 		@NonNull
 		Builder is(@NonNull Predicate<I> condition);
+
+		/**
+		 * Set separate conditions for when the check starts and stops being
+		 * met. The check is met when the enter condition is met and stays met
+		 * until the exit condition is met, such as entering above 90% and
+		 * exiting below 80%.
+		 *
+		 * @param enterCondition
+		 * @param exitCondition
+		 * @return
+		 */
+		@NonNull
+		Builder is(@NonNull Predicate<I> enterCondition, @NonNull Predicate<I> exitCondition);
 	}
 
 	/**
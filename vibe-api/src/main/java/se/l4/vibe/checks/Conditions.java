@@ -7,7 +7,9 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
- * Conditions available for use with {@link Check checks}.
+ * Conditions available for use with {@link Check checks}. Numeric conditions
+ * are implemented as {@link DoubleCondition}s so that checks can test them
+ * without boxing, use {@link DoubleConditions} to get them with that type.
  */
 public class Conditions
 {
@@ -49,7 +51,7 @@ public class Conditions
 	@NonNull
 	public static Predicate<Number> is(double number)
 	{
-		return v -> v != null && v.doubleValue() == number;
+		return DoubleConditions.equalTo(number);
 	}
 
 	/**
@@ -74,12 +76,23 @@ public class Conditions
 	@NonNull
 	public static Predicate<Number> inRange(double lower, double upper)
 	{
-		return v -> {
-			if(v == null) return false;
+		return DoubleConditions.inRange(lower, upper);
+	}
 
-			double d = v.doubleValue();
-			return d >= lower && d < upper;
-		};
+	/**
+	 * Get a condition that will match if a probed value is below the lower
+	 * bound or above the upper bound. Useful together with the scores from
+	 * {@link se.l4.vibe.operations.Anomalies} to match deviations in both
+	 * directions.
+	 *
+	 * @param lower
+	 * @param upper
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> Predicate<T> outside(double lower, double upper)
+	{
+		return DoubleConditions.outside(lower, upper);
 	}
 
 	/**
@@ -92,7 +105,7 @@ public class Conditions
 	@NonNull
 	public static <T extends Number> Predicate<T> above(double threshold)
 	{
-		return v -> v != null && v.doubleValue() > threshold;
+		return DoubleConditions.above(threshold);
 	}
 
 	/**
@@ -105,6 +118,6 @@ public class Conditions
 	@NonNull
 	public static <T extends Number> Predicate<T> below(double threshold)
 	{
-		return v -> v != null && v.doubleValue() < threshold;
+		return DoubleConditions.below(threshold);
 	}
 }
@@ -0,0 +1,29 @@
+package se.l4.vibe.checks;
+
+import java.util.function.Predicate;
+
+/**
+ * Condition on a numeric value that can be tested without boxing. Checks
+ * that share a sampler read the sampled number once and test all of their
+ * double conditions against the primitive value.
+ *
+ * @param <T>
+ */
+@FunctionalInterface
+public interface DoubleCondition<T extends Number>
+	extends Predicate<T>
+{
+	/**
+	 * Test if the given value meets this condition.
+	 *
+	 * @param value
+	 * @return
+	 */
+	boolean testDouble(double value);
+
+	@Override
+	default boolean test(T value)
+	{
+		return value != null && testDouble(value.doubleValue());
+	}
+}
@@ -0,0 +1,81 @@
+package se.l4.vibe.checks;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Numeric conditions typed as {@link DoubleCondition}s, for code that wants
+ * to test them against a primitive value. The same conditions are available
+ * as {@link java.util.function.Predicate}s via {@link Conditions}.
+ */
+public class DoubleConditions
+{
+	private DoubleConditions()
+	{
+	}
+
+	/**
+	 * Check that a value is equal to the specified number.
+	 *
+	 * @param number
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> DoubleCondition<T> equalTo(double number)
+	{
+		return v -> v == number;
+	}
+
+	/**
+	 * Check that a value is within the given range. Lower is inclusive,
+	 * while upper is exclusive.
+	 *
+	 * @param lower
+	 * @param upper
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> DoubleCondition<T> inRange(double lower, double upper)
+	{
+		return v -> v >= lower && v < upper;
+	}
+
+	/**
+	 * Get a condition that will match if a value is below the lower bound or
+	 * above the upper bound.
+	 *
+	 * @param lower
+	 * @param upper
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> DoubleCondition<T> outside(double lower, double upper)
+	{
+		return v -> v < lower || v > upper;
+	}
+
+	/**
+	 * Get a condition that will match if a value is above the given
+	 * threshold.
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> DoubleCondition<T> above(double threshold)
+	{
+		return v -> v > threshold;
+	}
+
+	/**
+	 * Get a condition that will match if a value is below the given
+	 * threshold.
+	 *
+	 * @param threshold
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> DoubleCondition<T> below(double threshold)
+	{
+		return v -> v < threshold;
+	}
+}
@@ -1,9 +1,12 @@
 package se.l4.vibe.events;
 
+import java.util.Collection;
+
 import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.vibe.Exportable;
 import se.l4.vibe.Handle;
 import se.l4.vibe.internal.EventsImpl;
+import se.l4.vibe.meters.MeterSnapshot;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 
@@ -29,8 +32,9 @@ import se.l4.vibe.probes.SampledProbe;
  *
  * <h2>Probes</h2>
  *
- * Instances contain two probes, one for total events via {@link #getTotalEventsProbe()}
- * and one sampled probe via {@link #getEventsProbe()}. These probes can be
+ * Instances contain three probes, one for total events via {@link #getTotalEventsProbe()},
+ * one sampled probe via {@link #getEventsProbe()} and one for the rate of
+ * events per second via {@link #getRateProbe()}. These probes can be
  * {@link se.l4.vibe.Vibe#export(Exportable) exported}, used with a
  * {@link se.l4.vibe.sampling.TimeSampler} or {@link se.l4.vibe.checks.Check}.
  *
@@ -57,6 +61,16 @@ public interface Events<T extends EventData>
 	 */
 	void register(@NonNull EventSeverity severity, @NonNull T eventData);
 
+	/**
+	 * Register several events using the default severity. The events are
+	 * delivered to listeners as a batch, which is cheaper than registering
+	 * them one by one.
+	 *
+	 * @param eventData
+	 *   data of the events
+	 */
+	void registerAll(@NonNull Collection<? extends T> eventData);
+
 	/**
 	 * Get the default severity for this object.
 	 *
@@ -97,6 +111,15 @@ public interface Events<T extends EventData>
 	@NonNull
 	SampledProbe<Long> getEventsProbe();
 
+	/**
+	 * Get a probe that will return the rate of events per second, both since
+	 * it was last sampled and as moving averages.
+	 *
+	 * @return
+	 */
+	@NonNull
+	SampledProbe<MeterSnapshot> getRateProbe();
+
 	/**
 	 * Start building a new {@link Events}.
 	 *
@@ -0,0 +1,265 @@
+package se.l4.vibe.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Directories of the cgroup of a process, resolved from
+ * {@code /proc/self/cgroup} and {@code /proc/self/mountinfo} in the same way
+ * as the container support of the JDK. The cgroup a process belongs to is
+ * not always the root of the mount, such as when running under systemd or in
+ * a container without a cgroup namespace, so the path of the process is
+ * resolved relative to the root of every cgroup mount.
+ *
+ * <p>
+ * If both cgroup v1 controllers and the v2 hierarchy are mounted the v1
+ * controllers are used, as limits are only applied via v1 in such hybrid
+ * setups.
+ */
+public class CgroupPaths
+{
+	private final boolean v2;
+	private final Path unified;
+	private final Map<String, Path> controllers;
+
+	private CgroupPaths(boolean v2, Path unified, Map<String, Path> controllers)
+	{
+		this.v2 = v2;
+		this.unified = unified;
+		this.controllers = controllers;
+	}
+
+	/**
+	 * Resolve the cgroup of a process.
+	 *
+	 * @param cgroupFile
+	 *   the cgroup file of the process, such as {@code /proc/self/cgroup}
+	 * @param mountInfoFile
+	 *   the mount information of the process, such as
+	 *   {@code /proc/self/mountinfo}
+	 * @return
+	 *   the directories, or empty if the files could not be read or no
+	 *   cgroup is mounted
+	 */
+	public static Optional<CgroupPaths> read(Path cgroupFile, Path mountInfoFile)
+	{
+		List<String> cgroupLines;
+		List<String> mountLines;
+		try
+		{
+			cgroupLines = Files.readAllLines(cgroupFile, StandardCharsets.UTF_8);
+			mountLines = Files.readAllLines(mountInfoFile, StandardCharsets.UTF_8);
+		}
+		catch(IOException e)
+		{
+			return Optional.empty();
+		}
+
+		// Path of the process within every hierarchy, keyed on controller
+		String unifiedPath = null;
+		Map<String, String> paths = new HashMap<>();
+		for(String line : cgroupLines)
+		{
+			String[] parts = line.split(":", 3);
+			if(parts.length != 3)
+			{
+				continue;
+			}
+
+			if(parts[1].isEmpty())
+			{
+				if("0".equals(parts[0]))
+				{
+					unifiedPath = parts[2];
+				}
+
+				continue;
+			}
+
+			for(String controller : parts[1].split(","))
+			{
+				paths.put(controller, parts[2]);
+			}
+		}
+
+		Path unified = null;
+		Map<String, Path> controllers = new HashMap<>();
+		for(String line : mountLines)
+		{
+			int separator = line.indexOf(" - ");
+			if(separator < 0)
+			{
+				continue;
+			}
+
+			String[] fields = line.substring(0, separator).split(" ");
+			String[] fs = line.substring(separator + 3).split(" ");
+			if(fields.length < 5 || fs.length < 3)
+			{
+				continue;
+			}
+
+			String root = unescape(fields[3]);
+			Path mountPoint = Paths.get(unescape(fields[4]));
+
+			if("cgroup2".equals(fs[0]))
+			{
+				if(unified == null && unifiedPath != null)
+				{
+					unified = resolve(root, mountPoint, unifiedPath);
+				}
+			}
+			else if("cgroup".equals(fs[0]))
+			{
+				for(String option : fs[2].split(","))
+				{
+					String path = paths.get(option);
+					if(path != null && ! controllers.containsKey(option))
+					{
+						controllers.put(option, resolve(root, mountPoint, path));
+					}
+				}
+			}
+		}
+
+		if(controllers.containsKey("cpu") || controllers.containsKey("memory"))
+		{
+			return Optional.of(new CgroupPaths(false, null, controllers));
+		}
+
+		if(unified != null)
+		{
+			return Optional.of(new CgroupPaths(true, unified, controllers));
+		}
+
+		return Optional.empty();
+	}
+
+	/**
+	 * Resolve the path of a process against a cgroup mount. If the path is
+	 * not below the root of the mount, which happens in containers with a
+	 * cgroup namespace, the mount point itself is the cgroup of the process.
+	 *
+	 * @param root
+	 *   the root of the mount within the hierarchy
+	 * @param mountPoint
+	 *   where the hierarchy is mounted
+	 * @param path
+	 *   the path of the process within the hierarchy
+	 * @return
+	 */
+	private static Path resolve(String root, Path mountPoint, String path)
+	{
+		String relative;
+		if("/".equals(root))
+		{
+			relative = path;
+		}
+		else if(path.startsWith(root + "/"))
+		{
+			relative = path.substring(root.length());
+		}
+		else
+		{
+			return mountPoint;
+		}
+
+		Path result = mountPoint;
+		for(String segment : relative.split("/"))
+		{
+			if(! segment.isEmpty())
+			{
+				result = result.resolve(segment);
+			}
+		}
+
+		return Files.isDirectory(result) ? result : mountPoint;
+	}
+
+	/**
+	 * Decode the octal escapes, such as {@code \040} for a space, used in
+	 * {@code /proc/self/mountinfo}.
+	 *
+	 * @param value
+	 * @return
+	 */
+	private static String unescape(String value)
+	{
+		if(value.indexOf('\\') < 0)
+		{
+			return value;
+		}
+
+		StringBuilder result = new StringBuilder(value.length());
+		for(int i=0; i<value.length(); i++)
+		{
+			char c = value.charAt(i);
+			if(c == '\\' && i + 3 < value.length() && isOctal(value, i + 1))
+			{
+				result.append((char) Integer.parseInt(value.substring(i + 1, i + 4), 8));
+				i += 3;
+			}
+			else
+			{
+				result.append(c);
+			}
+		}
+
+		return result.toString();
+	}
+
+	private static boolean isOctal(String value, int start)
+	{
+		for(int i=start; i<start + 3; i++)
+		{
+			char c = value.charAt(i);
+			if(c < '0' || c > '7')
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Get if the process is in a cgroup v2 hierarchy.
+	 *
+	 * @return
+	 */
+	public boolean isV2()
+	{
+		return v2;
+	}
+
+	/**
+	 * Get the directory of the cgroup in the v2 hierarchy.
+	 *
+	 * @return
+	 *   the directory, or {@code null} if using cgroup v1
+	 */
+	public Path getUnified()
+	{
+		return unified;
+	}
+
+	/**
+	 * Get the directory of the cgroup for a cgroup v1 controller, such as
+	 * {@code cpu} or {@code memory}.
+	 *
+	 * @param controller
+	 * @return
+	 *   the directory, or {@code null} if the controller is not mounted
+	 */
+	public Path getController(String controller)
+	{
+		return controllers.get(controller);
+	}
+}
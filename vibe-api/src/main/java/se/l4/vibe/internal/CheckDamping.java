@@ -0,0 +1,136 @@
+package se.l4.vibe.internal;
+
+/**
+ * Damping of the state of a {@link CheckImpl check} so that it does not flap
+ * on noisy samples. The result of every sample is first passed through a
+ * window that requires a number of the last samples to meet the conditions,
+ * and the state then only changes once the result of the window has been
+ * different from the current state for a certain duration.
+ *
+ * <p>
+ * The window is kept as a ring of bits together with a count of set bits and
+ * the duration as the time the pending change was first seen, so the memory
+ * used does not grow with the number of samples.
+ *
+ * <p>
+ * Not thread-safe, samples are evaluated by a single thread.
+ */
+public class CheckDamping
+{
+	private final long metFor;
+	private final long unmetFor;
+
+	private final int required;
+	private final int samples;
+	private final long[] window;
+
+	private int index;
+	private int count;
+
+	private long pendingSince;
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param metFor
+	 *   milliseconds conditions must be met before the state changes to met
+	 * @param unmetFor
+	 *   milliseconds conditions must be unmet before the state changes to
+	 *   unmet
+	 * @param required
+	 *   the number of samples in the window that must meet the conditions
+	 * @param samples
+	 *   the size of the window
+	 */
+	public CheckDamping(long metFor, long unmetFor, int required, int samples)
+	{
+		this.metFor = metFor;
+		this.unmetFor = unmetFor;
+		this.required = required;
+		this.samples = samples;
+
+		window = samples > 1 ? new long[(samples + 63) >>> 6] : null;
+
+		reset();
+	}
+
+	/**
+	 * Forget all samples seen, used when a check is started again.
+	 */
+	public void reset()
+	{
+		index = 0;
+		count = 0;
+		pendingSince = -1;
+
+		if(window != null)
+		{
+			for(int i=0; i<window.length; i++)
+			{
+				window[i] = 0;
+			}
+		}
+	}
+
+	/**
+	 * Update with the result of a new sample.
+	 *
+	 * @param current
+	 *   the current state of the check
+	 * @param met
+	 *   if the sample met the conditions
+	 * @param time
+	 *   the time of the sample
+	 * @return
+	 *   the new state of the check
+	 */
+	public boolean update(boolean current, boolean met, long time)
+	{
+		boolean result = window == null ? met : updateWindow(met);
+
+		if(result == current)
+		{
+			pendingSince = -1;
+			return current;
+		}
+
+		if(pendingSince < 0)
+		{
+			pendingSince = time;
+		}
+
+		if(time - pendingSince >= (result ? metFor : unmetFor))
+		{
+			pendingSince = -1;
+			return result;
+		}
+
+		return current;
+	}
+
+	private boolean updateWindow(boolean met)
+	{
+		int word = index >>> 6;
+		long bit = 1L << (index & 63);
+
+		if((window[word] & bit) != 0)
+		{
+			// The oldest sample in the window met the conditions
+			count--;
+		}
+
+		if(met)
+		{
+			window[word] |= bit;
+			count++;
+		}
+		else
+		{
+			window[word] &= ~bit;
+		}
+
+		index = index + 1 == samples ? 0 : index + 1;
+
+		return count >= required;
+	}
+}
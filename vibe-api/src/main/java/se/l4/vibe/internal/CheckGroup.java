@@ -0,0 +1,293 @@
+package se.l4.vibe.internal;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * Group of {@link CheckImpl checks} evaluated on the same sampler. The group
+ * listens to the sampler while at least one check is active and evaluates
+ * all of its checks in a single pass for every sample, reading numeric
+ * values once so that {@link se.l4.vibe.checks.DoubleCondition}s can be
+ * tested without boxing.
+ *
+ * <p>
+ * Groups are shared between checks created for the same probe, supplier or
+ * sampler, so thousands of checks on a probe only sample it once. Checks
+ * refer to their group via a {@link Source}, and shared groups are only
+ * created and kept in a registry while they have active checks, so checks
+ * that are built but never started do not register anything.
+ *
+ * @param <T>
+ */
+public class CheckGroup<T>
+{
+	private static final Logger logger = LoggerFactory.getLogger(CheckGroup.class);
+
+	private static final ConcurrentMap<Key, CheckGroup<?>> shared = new ConcurrentHashMap<>();
+
+	private final TimeSampler<T> sampler;
+	private final Set<CheckImpl<T>> checks;
+
+	private Handle samplerHandle;
+
+	private CheckGroup(TimeSampler<T> sampler)
+	{
+		this.sampler = sampler;
+
+		checks = ConcurrentHashMap.newKeySet();
+	}
+
+	/**
+	 * Get the source for checks on something that is sampled at the given
+	 * interval, such as a probe or a supplier. The sampler is created when
+	 * the first check on the source becomes active.
+	 *
+	 * @param source
+	 *   the source, compared by identity
+	 * @param interval
+	 *   the interval in milliseconds
+	 * @param factory
+	 *   factory used to create the sampler if there is no active group
+	 * @return
+	 */
+	public static <T> Source<T> forSource(
+		Object source,
+		long interval,
+		Supplier<TimeSampler<T>> factory
+	)
+	{
+		return new SharedSource<>(new Key(source, interval), factory);
+	}
+
+	/**
+	 * Get the source for checks on the given sampler.
+	 *
+	 * @param sampler
+	 * @return
+	 */
+	public static <T> Source<T> forSampler(TimeSampler<T> sampler)
+	{
+		return forSource(sampler, 0, () -> sampler);
+	}
+
+	/**
+	 * Create a source that is not shared, used for checks that transform the
+	 * sampled values.
+	 *
+	 * @param sampler
+	 * @return
+	 */
+	public static <T> Source<T> single(TimeSampler<T> sampler)
+	{
+		CheckGroup<T> group = new CheckGroup<>(sampler);
+		return new Source<T>()
+		{
+			@Override
+			public Handle join(CheckImpl<T> check)
+			{
+				group.add(check);
+				return () -> group.remove(check);
+			}
+
+			@Override
+			public Sample<T> getLastSample()
+			{
+				return sampler.getLastSample();
+			}
+		};
+	}
+
+	/**
+	 * Add a check, starting to listen to the sampler if this is the first
+	 * check.
+	 *
+	 * @param check
+	 */
+	private synchronized void add(CheckImpl<T> check)
+	{
+		checks.add(check);
+
+		if(samplerHandle == null)
+		{
+			samplerHandle = sampler.addListener(this::evaluate);
+		}
+	}
+
+	/**
+	 * Remove a check, stopping to listen to the sampler if this was the last
+	 * check.
+	 *
+	 * @param check
+	 * @return
+	 *   if the group is now empty
+	 */
+	private synchronized boolean remove(CheckImpl<T> check)
+	{
+		if(! checks.remove(check) || ! checks.isEmpty())
+		{
+			return checks.isEmpty();
+		}
+
+		samplerHandle.release();
+		samplerHandle = null;
+		return true;
+	}
+
+	private void evaluate(Sample<T> sample)
+	{
+		long start = InternalMetrics.isEnabled() ? System.nanoTime() : 0;
+
+		T value = sample.getValue();
+		boolean numeric = value instanceof Number;
+		double number = numeric ? ((Number) value).doubleValue() : 0;
+
+		int evaluated = 0;
+		for(CheckImpl<T> check : checks)
+		{
+			try
+			{
+				check.check(sample, numeric, number);
+			}
+			catch(RuntimeException e)
+			{
+				logger.warn("Could not evaluate check " + check + "; " + e.getMessage(), e);
+			}
+
+			evaluated++;
+		}
+
+		if(start != 0)
+		{
+			InternalMetrics.CHECK_EVALUATION.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			InternalMetrics.CHECK_EVALUATIONS.add(evaluated);
+		}
+	}
+
+	/**
+	 * Source of samples for a {@link CheckImpl check}, which the check joins
+	 * while it is active.
+	 *
+	 * @param <T>
+	 */
+	public interface Source<T>
+	{
+		/**
+		 * Start evaluating the given check for every sample.
+		 *
+		 * @param check
+		 * @return
+		 *   handle that stops evaluating the check
+		 */
+		Handle join(CheckImpl<T> check);
+
+		/**
+		 * Get the last sample of the source, if any.
+		 *
+		 * @return
+		 */
+		Sample<T> getLastSample();
+	}
+
+	/**
+	 * {@link Source} that looks up or creates the shared group when a check
+	 * joins and removes it from the registry when its last check leaves.
+	 * Both happen while computing the registry entry, so a key never has more
+	 * than one group.
+	 */
+	private static class SharedSource<T>
+		implements Source<T>
+	{
+		private final Key key;
+		private final Supplier<TimeSampler<T>> factory;
+
+		/**
+		 * The group last joined, used to report the last sample while the
+		 * check is not active.
+		 */
+		private volatile CheckGroup<T> last;
+
+		public SharedSource(Key key, Supplier<TimeSampler<T>> factory)
+		{
+			this.key = key;
+			this.factory = factory;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Handle join(CheckImpl<T> check)
+		{
+			CheckGroup<T> group = (CheckGroup<T>) shared.compute(key, (k, current) -> {
+				CheckGroup<T> result = current == null
+					? new CheckGroup<>(factory.get())
+					: (CheckGroup<T>) current;
+
+				result.add(check);
+				return result;
+			});
+
+			last = group;
+
+			return () -> shared.computeIfPresent(key, (k, current) -> {
+				if(current != group)
+				{
+					return current;
+				}
+
+				return group.remove(check) ? null : current;
+			});
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public Sample<T> getLastSample()
+		{
+			CheckGroup<T> group = (CheckGroup<T>) shared.get(key);
+			if(group == null)
+			{
+				group = last;
+			}
+
+			return group == null ? null : group.sampler.getLastSample();
+		}
+	}
+
+	private static class Key
+	{
+		private final Object source;
+		private final long interval;
+
+		public Key(Object source, long interval)
+		{
+			this.source = source;
+			this.interval = interval;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return System.identityHashCode(source) * 31 + Long.hashCode(interval);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(! (obj instanceof Key))
+			{
+				return false;
+			}
+
+			Key other = (Key) obj;
+			return source == other.source && interval == other.interval;
+		}
+	}
+}
@@ -3,7 +3,6 @@ package se.l4.vibe.internal;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Objects;
-import java.util.function.BiFunction;
 import java.util.function.BooleanSupplier;
 import java.util.function.Predicate;
 
@@ -11,47 +10,91 @@ import se.l4.vibe.Handle;
 import se.l4.vibe.checks.Check;
 import se.l4.vibe.checks.CheckEvent;
 import se.l4.vibe.checks.CheckListener;
+import se.l4.vibe.checks.DoubleCondition;
 import se.l4.vibe.operations.Operation;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 import se.l4.vibe.sampling.Sample;
 import se.l4.vibe.sampling.TimeSampler;
 
+/**
+ * Implementation of {@link Check}. Checks are evaluated by the
+ * {@link CheckGroup} of their sampler, which they join through a
+ * {@link CheckGroup.Source} while they are active.
+ */
 public class CheckImpl<Input>
 	implements Check
 {
 	private final Listeners<CheckListener> listeners;
 
-	private final TimeSampler<Input> sampler;
+	private final CheckGroup.Source<Input> source;
 	private final Predicate<Input> condition;
+	private final DoubleCondition<?> doubleCondition;
+	private final Predicate<Input> exitCondition;
+	private final DoubleCondition<?> exitDoubleCondition;
+	private final CheckDamping damping;
 	private final RepetitionGuard metRepetitionGuard;
 	private final RepetitionGuard unmetRepetitionGuard;
 
-	private Handle listenerHandle;
+	private final Object evaluationLock;
 
-	private boolean isConditionsMet;
+	private volatile Handle listenerHandle;
+	private boolean joined;
+	private volatile boolean evaluated;
+
+	private volatile boolean isConditionsMet;
 	private Instant lastConditionsChange;
 
 	public CheckImpl(
-		TimeSampler<Input> sampler,
+		CheckGroup.Source<Input> source,
 		Predicate<Input> condition,
+		Predicate<Input> exitCondition,
+		CheckDamping damping,
 		RepetitionGuard metRepetitionGuard,
 		RepetitionGuard unmetRepetitionGuard
 	)
 	{
-		this.sampler = sampler;
+		this.source = source;
 		this.condition = condition;
+		this.exitCondition = exitCondition;
+		this.damping = damping;
 		this.metRepetitionGuard = metRepetitionGuard;
 		this.unmetRepetitionGuard = unmetRepetitionGuard;
 
-		listeners = new Listeners<>(size -> {
-			if(size == 1)
+		doubleCondition = condition instanceof DoubleCondition
+			? (DoubleCondition<?>) condition
+			: null;
+
+		exitDoubleCondition = exitCondition instanceof DoubleCondition
+			? (DoubleCondition<?>) exitCondition
+			: null;
+
+		evaluationLock = new Object();
+
+		listeners = new Listeners<>(active -> {
+			if(active)
 			{
-				listenerHandle = sampler.addListener(this::check);
+				synchronized(evaluationLock)
+				{
+					// Reset under the lock so no evaluation sees a partial reset
+					damping.reset();
+					evaluated = false;
+					joined = true;
+				}
+
+				listenerHandle = source.join(this);
 			}
-			else if(size == 0)
+			else if(listenerHandle != null)
 			{
+				synchronized(evaluationLock)
+				{
+					// Evaluations still in progress for the group are ignored
+					joined = false;
+				}
+
+				// Only release if activating did not fail
 				listenerHandle.release();
+				listenerHandle = null;
 			}
 		});
 	}
@@ -59,8 +102,20 @@ public class CheckImpl<Input>
 	@Override
 	public boolean isConditionsMet()
 	{
-		Input input = sampler.getLastSample().getValue();
-		return condition.test(input);
+		if(listenerHandle != null && evaluated)
+		{
+			// The check is active, so report the damped state
+			return isConditionsMet;
+		}
+
+		Sample<Input> sample = source.getLastSample();
+		if(sample == null)
+		{
+			// Nothing has been sampled yet
+			return false;
+		}
+
+		return condition.test(sample.getValue());
 	}
 
 	@Override
@@ -81,10 +136,64 @@ public class CheckImpl<Input>
 		listeners.remove(listener);
 	}
 
-	private void check(Sample<Input> sample)
+	/**
+	 * Evaluate this check against a sample, called by the {@link CheckGroup}
+	 * this check belongs to.
+	 *
+	 * @param sample
+	 *   the sample to evaluate
+	 * @param numeric
+	 *   if the value of the sample is a number
+	 * @param number
+	 *   the value of the sample as a double if it is a number
+	 */
+	void check(Sample<Input> sample, boolean numeric, double number)
+	{
+		CheckEvent event;
+		synchronized(evaluationLock)
+		{
+			if(! joined)
+			{
+				// Evaluation started before the check left its group
+				return;
+			}
+
+			event = evaluate(sample, numeric, number);
+		}
+
+		if(event != null)
+		{
+			listeners.forEach(l -> l.checkStatus(event));
+		}
+	}
+
+	/**
+	 * Update the state of this check from a sample, must be called while
+	 * holding the evaluation lock.
+	 *
+	 * @param sample
+	 * @param numeric
+	 * @param number
+	 * @return
+	 *   event to send to listeners, or {@code null} if nothing changed
+	 */
+	private CheckEvent evaluate(Sample<Input> sample, boolean numeric, double number)
 	{
+		boolean met;
+		if(isConditionsMet && exitCondition != null)
+		{
+			// Stay met until the exit condition is met
+			met = ! test(exitCondition, exitDoubleCondition, sample, numeric, number);
+		}
+		else
+		{
+			met = test(condition, doubleCondition, sample, numeric, number);
+		}
+
+		met = damping.update(isConditionsMet, met, sample.getTime());
+
 		CheckEvent event = null;
-		if(condition.test(sample.getValue()))
+		if(met)
 		{
 			if(! isConditionsMet)
 			{
@@ -130,18 +239,33 @@ public class CheckImpl<Input>
 			}
 		}
 
-		if(event != null)
-		{
-			CheckEvent event0 = event;
-			listeners.forEach(l -> l.checkStatus(event0));
-		}
+		evaluated = true;
+		return event;
+	}
+
+	private static <I> boolean test(
+		Predicate<I> condition,
+		DoubleCondition<?> doubleCondition,
+		Sample<I> sample,
+		boolean numeric,
+		double number
+	)
+	{
+		return numeric && doubleCondition != null
+			? doubleCondition.testDouble(number)
+			: condition.test(sample.getValue());
 	}
 
 	public static class BuilderImpl
 		implements Builder
 	{
-		private TimeSampler<?> sampler;
+		private CheckGroup.Source<?> source;
 		private Predicate<?> condition;
+		private Predicate<?> exitCondition;
+		private Duration metFor = Duration.ZERO;
+		private Duration unmetFor = Duration.ZERO;
+		private int requiredSamples = 1;
+		private int samples = 1;
 		private RepetitionGuard metRepetitionGuard = RepetitionGuard.once();
 		private RepetitionGuard unmetRepetitionGuard = RepetitionGuard.once();
 
@@ -154,13 +278,13 @@ public class CheckImpl<Input>
 		@Override
 		public <I> ProbeWhenBuilder<I> whenProbe(Probe<I> probe)
 		{
-			return new ProbeBuilderImpl<>(SampledProbe.over(probe), this::receiveResult);
+			return new ProbeBuilderImpl<>(probe, SampledProbe.over(probe), this::receiveResult);
 		}
 
 		@Override
 		public <I> ProbeWhenBuilder<I> whenProbe(SampledProbe<I> probe)
 		{
-			return new ProbeBuilderImpl<>(probe, this::receiveResult);
+			return new ProbeBuilderImpl<>(probe, probe, this::receiveResult);
 		}
 
 		@Override
@@ -169,10 +293,59 @@ public class CheckImpl<Input>
 			return new BooleanSupplierBuilder(supplier, this::receiveResult);
 		}
 
-		private Builder receiveResult(TimeSampler<?> sampler, Predicate<?> condition)
+		private Builder receiveResult(
+			CheckGroup.Source<?> source,
+			Predicate<?> condition,
+			Predicate<?> exitCondition
+		)
 		{
-			this.sampler = sampler;
+			this.source = source;
 			this.condition = condition;
+			this.exitCondition = exitCondition;
+			return this;
+		}
+
+		@Override
+		public Builder whenMetFor(Duration duration)
+		{
+			Objects.requireNonNull(duration, "duration must not be null");
+			if(duration.isNegative())
+			{
+				throw new IllegalArgumentException("duration must not be negative");
+			}
+
+			metFor = duration;
+			return this;
+		}
+
+		@Override
+		public Builder whenUnmetFor(Duration duration)
+		{
+			Objects.requireNonNull(duration, "duration must not be null");
+			if(duration.isNegative())
+			{
+				throw new IllegalArgumentException("duration must not be negative");
+			}
+
+			unmetFor = duration;
+			return this;
+		}
+
+		@Override
+		public Builder whenMetInSamples(int required, int samples)
+		{
+			if(samples < 1)
+			{
+				throw new IllegalArgumentException("samples must be at least 1");
+			}
+
+			if(required < 1 || required > samples)
+			{
+				throw new IllegalArgumentException("required must be between 1 and " + samples);
+			}
+
+			this.requiredSamples = required;
+			this.samples = samples;
 			return this;
 		}
 
@@ -198,11 +371,13 @@ public class CheckImpl<Input>
 		@SuppressWarnings({ "unchecked", "rawtypes" })
 		public Check build()
 		{
-			Objects.requireNonNull(sampler, "Check requires a condition");
+			Objects.requireNonNull(source, "Check requires a condition");
 
 			return new CheckImpl(
-				sampler,
+				source,
 				condition,
+				exitCondition,
+				new CheckDamping(metFor.toMillis(), unmetFor.toMillis(), requiredSamples, samples),
 				metRepetitionGuard,
 				unmetRepetitionGuard
 			);
@@ -212,12 +387,13 @@ public class CheckImpl<Input>
 	private static class SamplerBuilderImpl<I>
 		implements SamplerWhenBuilder<I>
 	{
-		private final BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver;
+		private final ResultReceiver resultReceiver;
 		private TimeSampler<I> sampler;
+		private boolean modified;
 
 		public SamplerBuilderImpl(
 			TimeSampler<I> sampler,
-			BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver
+			ResultReceiver resultReceiver
 		)
 		{
 			this.sampler = sampler;
@@ -231,6 +407,7 @@ public class CheckImpl<Input>
 			Objects.requireNonNull(operation, "operation can not be null");
 
 			sampler = (TimeSampler) sampler.apply(operation);
+			modified = true;
 			return (SamplerWhenBuilder) this;
 		}
 
@@ -241,6 +418,7 @@ public class CheckImpl<Input>
 			Objects.requireNonNull(operation, "operation can not be null");
 
 			sampler = (TimeSampler) sampler.applyResampling(operation);
+			modified = true;
 			return (SamplerWhenBuilder) this;
 		}
 
@@ -248,26 +426,50 @@ public class CheckImpl<Input>
 		public Builder is(Predicate<I> condition)
 		{
 			Objects.requireNonNull(condition, "condition can not be null");
-			return resultReceiver.apply(sampler, condition);
+			return receive(condition, null);
+		}
+
+		@Override
+		public Builder is(Predicate<I> enterCondition, Predicate<I> exitCondition)
+		{
+			Objects.requireNonNull(enterCondition, "enterCondition can not be null");
+			Objects.requireNonNull(exitCondition, "exitCondition can not be null");
+			return receive(enterCondition, exitCondition);
+		}
+
+		private Builder receive(Predicate<I> condition, Predicate<I> exitCondition)
+		{
+			CheckGroup.Source<I> source = modified
+				? CheckGroup.single(sampler)
+				: CheckGroup.forSampler(sampler);
+
+			return resultReceiver.receive(source, condition, exitCondition);
 		}
 	}
 
 	private static class ProbeBuilderImpl<I>
 		implements ProbeWhenBuilder<I>
 	{
-		private final BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver;
+		private final ResultReceiver resultReceiver;
 
+		private final Object source;
 		private final TimeSampler.Builder<I> builder;
 
+		private Duration interval;
+		private boolean modified;
+
 		public ProbeBuilderImpl(
+			Object source,
 			SampledProbe<I> probe,
-			BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver
+			ResultReceiver resultReceiver
 		)
 		{
+			this.source = source;
 			this.resultReceiver = resultReceiver;
 
+			interval = Duration.ofMinutes(1);
 			this.builder = TimeSampler.forProbe(probe)
-				.withInterval(Duration.ofMinutes(1));
+				.withInterval(interval);
 		}
 
 		@Override
@@ -275,6 +477,7 @@ public class CheckImpl<Input>
 		{
 			Objects.requireNonNull(duration, "duration can not be null");
 			this.builder.withInterval(duration);
+			this.interval = duration;
 			return this;
 		}
 
@@ -285,6 +488,7 @@ public class CheckImpl<Input>
 			Objects.requireNonNull(operation, "operation can not be null");
 
 			builder.apply(operation);
+			modified = true;
 			return (ProbeWhenBuilder) this;
 		}
 
@@ -295,6 +499,7 @@ public class CheckImpl<Input>
 			Objects.requireNonNull(operation, "operation can not be null");
 
 			builder.applyResampling(operation);
+			modified = true;
 			return (ProbeWhenBuilder) this;
 		}
 
@@ -302,21 +507,38 @@ public class CheckImpl<Input>
 		public Builder is(Predicate<I> condition)
 		{
 			Objects.requireNonNull(condition, "condition can not be null");
-			return resultReceiver.apply(builder.build(), condition);
+			return receive(condition, null);
+		}
+
+		@Override
+		public Builder is(Predicate<I> enterCondition, Predicate<I> exitCondition)
+		{
+			Objects.requireNonNull(enterCondition, "enterCondition can not be null");
+			Objects.requireNonNull(exitCondition, "exitCondition can not be null");
+			return receive(enterCondition, exitCondition);
+		}
+
+		private Builder receive(Predicate<I> condition, Predicate<I> exitCondition)
+		{
+			CheckGroup.Source<I> checkSource = modified
+				? CheckGroup.single(builder.build())
+				: CheckGroup.forSource(source, interval.toMillis(), builder::build);
+
+			return resultReceiver.receive(checkSource, condition, exitCondition);
 		}
 	}
 
 	private static class BooleanSupplierBuilder
 		implements BooleanSupplierWhenBuilder
 	{
-		private final BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver;
+		private final ResultReceiver resultReceiver;
 
 		private final BooleanSupplier supplier;
 		private Duration checkInterval;
 
 		public BooleanSupplierBuilder(
 			BooleanSupplier supplier,
-			BiFunction<TimeSampler<?>, Predicate<?>, Builder> resultReceiver
+			ResultReceiver resultReceiver
 		)
 		{
 			this.supplier = supplier;
@@ -337,13 +559,27 @@ public class CheckImpl<Input>
 		@Override
 		public Builder done()
 		{
-			TimeSampler<Boolean> sampler = TimeSampler.forProbe(supplier::getAsBoolean)
-				.withInterval(checkInterval)
-				.build();
+			CheckGroup.Source<Boolean> source = CheckGroup.forSource(
+				supplier,
+				checkInterval.toMillis(),
+				() -> TimeSampler.forProbe(supplier::getAsBoolean)
+					.withInterval(checkInterval)
+					.build()
+			);
 
 			Predicate<Boolean> condition = v -> v;
 
-			return resultReceiver.apply(sampler, condition);
+			return resultReceiver.receive(source, condition, null);
 		}
 	}
+
+	/**
+	 * Receiver of the sampler and conditions of a check from one of the
+	 * when builders.
+	 */
+	@FunctionalInterface
+	private interface ResultReceiver
+	{
+		Builder receive(CheckGroup.Source<?> source, Predicate<?> condition, Predicate<?> exitCondition);
+	}
 }
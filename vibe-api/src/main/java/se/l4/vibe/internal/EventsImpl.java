@@ -1,7 +1,9 @@
 package se.l4.vibe.internal;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
-import java.util.concurrent.atomic.LongAdder;
 
 import se.l4.vibe.Handle;
 import se.l4.vibe.events.Event;
@@ -9,9 +11,11 @@ import se.l4.vibe.events.EventData;
 import se.l4.vibe.events.EventListener;
 import se.l4.vibe.events.EventSeverity;
 import se.l4.vibe.events.Events;
-import se.l4.vibe.operations.Change;
+import se.l4.vibe.meters.Meter;
+import se.l4.vibe.meters.MeterSnapshot;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
 
 /**
  * Implementation of {@link Events}.
@@ -24,7 +28,7 @@ public class EventsImpl<T extends EventData>
 	private final Listeners<EventListener<T>> listeners;
 	private final EventSeverity severity;
 
-	private final LongAdder totalEvents;
+	private final Meter meter;
 
 	public EventsImpl(EventSeverity severity)
 	{
@@ -32,7 +36,7 @@ public class EventsImpl<T extends EventData>
 
 		listeners = new Listeners<>();
 
-		totalEvents = new LongAdder();
+		meter = new Meter();
 	}
 
 	public void register(T eventData)
@@ -42,12 +46,39 @@ public class EventsImpl<T extends EventData>
 
 	public void register(EventSeverity severity, T eventData)
 	{
-		totalEvents.increment();
+		meter.mark();
+
+		if(InternalMetrics.isEnabled())
+		{
+			InternalMetrics.EVENTS.increase();
+		}
 
 		Event<T> event = new Event<>(severity, eventData);
 		listeners.forEach(l -> l.eventRegistered(event));
 	}
 
+	@Override
+	public void registerAll(Collection<? extends T> eventData)
+	{
+		Objects.requireNonNull(eventData, "eventData must be specified");
+		if(eventData.isEmpty()) return;
+
+		meter.mark(eventData.size());
+
+		if(InternalMetrics.isEnabled())
+		{
+			InternalMetrics.EVENTS.add(eventData.size());
+		}
+
+		List<Event<T>> events = new ArrayList<>(eventData.size());
+		for(T data : eventData)
+		{
+			events.add(new Event<>(severity, data));
+		}
+
+		listeners.forEachBatch(events, EventListener::eventRegistered);
+	}
+
 	@Override
 	public EventSeverity getDefaultSeverity()
 	{
@@ -69,14 +100,22 @@ public class EventsImpl<T extends EventData>
 	@Override
 	public Probe<Long> getTotalEventsProbe()
 	{
-		return totalEvents::longValue;
+		return meter.getCountProbe();
 	}
 
 	@Override
 	public SampledProbe<Long> getEventsProbe()
 	{
-		return SampledProbe.over(getTotalEventsProbe())
-			.apply(Change.changeAsLong());
+		return () -> {
+			Sampler<MeterSnapshot> sampler = meter.create();
+			return () -> sampler.sample().getEvents();
+		};
+	}
+
+	@Override
+	public SampledProbe<MeterSnapshot> getRateProbe()
+	{
+		return meter;
 	}
 
 	public static class BuilderImpl<T extends EventData>
@@ -0,0 +1,280 @@
+package se.l4.vibe.internal;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import com.sun.management.GcInfo;
+
+import se.l4.vibe.snapshots.SnapshotKey;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Keeps track of garbage collections by listening for the notifications
+ * sent by every {@link GarbageCollectorMXBean}. Nothing is polled, all of the
+ * state is updated when a collection is reported.
+ */
+public class GarbageCollectors
+{
+	private static volatile Map<String, Collector> collectors;
+
+	private GarbageCollectors()
+	{
+	}
+
+	/**
+	 * Get all of the collectors in this JVM, starting to listen for
+	 * notifications the first time this is called.
+	 *
+	 * @return
+	 */
+	public static Map<String, Collector> get()
+	{
+		Map<String, Collector> result = collectors;
+		if(result != null)
+		{
+			return result;
+		}
+
+		synchronized(GarbageCollectors.class)
+		{
+			if(collectors != null)
+			{
+				return collectors;
+			}
+
+			Map<String, Collector> map = new LinkedHashMap<>();
+			for(GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans())
+			{
+				Collector collector = new Collector(bean.getName(), bean.getMemoryPoolNames());
+				if(bean instanceof NotificationEmitter)
+				{
+					((NotificationEmitter) bean).addNotificationListener(
+						(notification, handback) -> collector.handle(notification),
+						n -> GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(n.getType()),
+						null
+					);
+				}
+
+				map.put(bean.getName(), collector);
+			}
+
+			collectors = Collections.unmodifiableMap(map);
+			return collectors;
+		}
+	}
+
+	/**
+	 * State of a single collector.
+	 */
+	public static class Collector
+	{
+		private final String name;
+		private final String[] pools;
+		private final SnapshotKey[] poolKeys;
+
+		private final Timer pauses;
+		private final LongAdder collections;
+		private final LongAdder time;
+		private final LongAdder reclaimed;
+		private final AtomicLongArray usedAfter;
+
+		public Collector(String name, String[] pools)
+		{
+			this.name = name;
+			this.pools = pools;
+
+			poolKeys = new SnapshotKey[pools.length];
+			for(int i=0; i<pools.length; i++)
+			{
+				poolKeys[i] = SnapshotKey.of(toKey(pools[i]) + "Used");
+			}
+
+			pauses = Timer.builder()
+				.withResolution(TimeUnit.MILLISECONDS)
+				.withBuckets(
+					Duration.ZERO,
+					Duration.ofMillis(1),
+					Duration.ofMillis(5),
+					Duration.ofMillis(10),
+					Duration.ofMillis(50),
+					Duration.ofMillis(100),
+					Duration.ofMillis(500),
+					Duration.ofSeconds(1),
+					Duration.ofSeconds(5)
+				)
+				.build();
+
+			collections = new LongAdder();
+			time = new LongAdder();
+			reclaimed = new LongAdder();
+			usedAfter = new AtomicLongArray(pools.length);
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		/**
+		 * Get the timer that stop-the-world pauses are recorded in.
+		 * Concurrent cycles, such as those reported by {@code ZGC Cycles},
+		 * are not pauses and are not recorded.
+		 *
+		 * @return
+		 */
+		public Timer getPauses()
+		{
+			return pauses;
+		}
+
+		public long getCollections()
+		{
+			return collections.sum();
+		}
+
+		/**
+		 * Get the total time spent collecting in milliseconds.
+		 *
+		 * @return
+		 */
+		public long getTime()
+		{
+			return time.sum();
+		}
+
+		/**
+		 * Get the total number of bytes reclaimed.
+		 *
+		 * @return
+		 */
+		public long getReclaimed()
+		{
+			return reclaimed.sum();
+		}
+
+		public int getPoolCount()
+		{
+			return pools.length;
+		}
+
+		public SnapshotKey getPoolKey(int pool)
+		{
+			return poolKeys[pool];
+		}
+
+		/**
+		 * Get the bytes used in the given pool after the last collection.
+		 *
+		 * @param pool
+		 * @return
+		 */
+		public long getUsedAfter(int pool)
+		{
+			return usedAfter.get(pool);
+		}
+
+		void handle(Notification notification)
+		{
+			GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from(
+				(CompositeData) notification.getUserData()
+			);
+
+			GcInfo gc = info.getGcInfo();
+			long duration = gc.getDuration();
+
+			collections.increment();
+			time.add(duration);
+
+			if(isPause(info.getGcAction()))
+			{
+				pauses.record(duration, TimeUnit.MILLISECONDS);
+			}
+
+			Map<String, MemoryUsage> before = gc.getMemoryUsageBeforeGc();
+			Map<String, MemoryUsage> after = gc.getMemoryUsageAfterGc();
+
+			long freed = 0;
+			for(Map.Entry<String, MemoryUsage> e : after.entrySet())
+			{
+				MemoryUsage b = before.get(e.getKey());
+				if(b != null)
+				{
+					freed += b.getUsed() - e.getValue().getUsed();
+				}
+			}
+
+			reclaimed.add(Math.max(0, freed));
+
+			for(int i=0; i<pools.length; i++)
+			{
+				MemoryUsage usage = after.get(pools[i]);
+				if(usage != null)
+				{
+					usedAfter.set(i, usage.getUsed());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get if a collection with the given action stopped the application.
+	 * Generational collectors report {@code end of minor GC} and
+	 * {@code end of major GC}, while collectors that work concurrently
+	 * report their pauses with actions such as {@code end of GC pause} and
+	 * the whole concurrent cycle as {@code end of GC cycle}.
+	 *
+	 * @param action
+	 * @return
+	 */
+	public static boolean isPause(String action)
+	{
+		return "end of minor GC".equals(action)
+			|| "end of major GC".equals(action)
+			|| (action != null && action.contains("pause"));
+	}
+
+	/**
+	 * Turn a name such as {@code PS Old Gen} into a key such as
+	 * {@code psOldGen}.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static String toKey(String name)
+	{
+		StringBuilder builder = new StringBuilder(name.length());
+		for(String word : name.split("[^\\p{Alnum}]+"))
+		{
+			if(word.isEmpty()) continue;
+
+			if(builder.length() == 0)
+			{
+				// Lower case abbreviations such as PS or G1 completely
+				builder.append(word.equals(word.toUpperCase())
+					? word.toLowerCase()
+					: Character.toLowerCase(word.charAt(0)) + word.substring(1)
+				);
+			}
+			else
+			{
+				builder.append(Character.toUpperCase(word.charAt(0)))
+					.append(word, 1, word.length());
+			}
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,406 @@
+package se.l4.vibe.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+import se.l4.vibe.ExecutorProbes.ExecutorSnapshot;
+import se.l4.vibe.InstrumentedExecutorService;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Implementation of {@link InstrumentedExecutorService}. Every task is
+ * wrapped before being passed to the delegate, the wrapper records the queue
+ * wait and execution time into timers and updates striped counters. All of
+ * the submit and invoke methods go through {@link #execute(Runnable)}.
+ *
+ * <p>
+ * For a {@link ThreadPoolExecutor} the {@link RejectedExecutionHandler} of
+ * the pool is wrapped, so that tasks dropped by policies such as
+ * {@link ThreadPoolExecutor.DiscardPolicy} and
+ * {@link ThreadPoolExecutor.DiscardOldestPolicy} are counted as rejected and
+ * no longer counted as queued.
+ */
+public class InstrumentedExecutorServiceImpl
+	extends AbstractExecutorService
+	implements InstrumentedExecutorService
+{
+	private final ExecutorService delegate;
+
+	private final Timer queueWait;
+	private final Timer execution;
+
+	private final LongAdder queued;
+	private final LongAdder running;
+	private final LongAdder submitted;
+	private final LongAdder completed;
+	private final LongAdder rejected;
+
+	/**
+	 * If rejections of tasks passed to {@link #execute(Runnable)} are
+	 * counted by a {@link RejectionTracker} installed in the delegate.
+	 */
+	private final boolean tracksRejections;
+
+	public InstrumentedExecutorServiceImpl(ExecutorService delegate)
+	{
+		this.delegate = Objects.requireNonNull(delegate, "executor must be specified");
+
+		queueWait = createTimer();
+		execution = createTimer();
+
+		queued = new LongAdder();
+		running = new LongAdder();
+		submitted = new LongAdder();
+		completed = new LongAdder();
+		rejected = new LongAdder();
+
+		if(delegate instanceof ThreadPoolExecutor
+			&& ! (delegate instanceof ScheduledThreadPoolExecutor))
+		{
+			/*
+			 * Scheduled pools wrap tasks before rejecting them and only
+			 * reject when shut down, so they are left as is.
+			 */
+			ThreadPoolExecutor pool = (ThreadPoolExecutor) delegate;
+			pool.setRejectedExecutionHandler(new RejectionTracker(pool.getRejectedExecutionHandler()));
+			tracksRejections = true;
+		}
+		else
+		{
+			tracksRejections = false;
+		}
+	}
+
+	private static Timer createTimer()
+	{
+		return Timer.builder()
+			.withResolution(TimeUnit.MICROSECONDS)
+			.withBuckets(
+				Duration.ZERO,
+				Duration.ofNanos(100_000),
+				Duration.ofMillis(1),
+				Duration.ofMillis(10),
+				Duration.ofMillis(100),
+				Duration.ofSeconds(1),
+				Duration.ofSeconds(10)
+			)
+			.build();
+	}
+
+	@Override
+	public Timer getQueueWaitTimer()
+	{
+		return queueWait;
+	}
+
+	@Override
+	public Timer getExecutionTimer()
+	{
+		return execution;
+	}
+
+	@Override
+	public SampledProbe<ExecutorSnapshot> getSnapshotProbe()
+	{
+		return () -> new Sampler<ExecutorSnapshot>()
+		{
+			private long lastSubmitted = submitted.sum();
+			private long lastCompleted = completed.sum();
+			private long lastRejected = rejected.sum();
+
+			@Override
+			public ExecutorSnapshot sample()
+			{
+				long currentSubmitted = submitted.sum();
+				long currentCompleted = completed.sum();
+				long currentRejected = rejected.sum();
+
+				long currentRunning = Math.max(0, running.sum());
+				int capacity = getCapacity();
+
+				ExecutorSnapshot snapshot = new ExecutorSnapshot(
+					Math.max(0, queued.sum()),
+					currentRunning,
+					currentSubmitted - lastSubmitted,
+					currentCompleted - lastCompleted,
+					currentRejected - lastRejected,
+					capacity <= 0 ? 0 : Math.min(1, currentRunning / (double) capacity)
+				);
+
+				lastSubmitted = currentSubmitted;
+				lastCompleted = currentCompleted;
+				lastRejected = currentRejected;
+
+				return snapshot;
+			}
+		};
+	}
+
+	/**
+	 * Get the number of tasks the delegate can run at the same time.
+	 *
+	 * @return
+	 *   the capacity, or {@code 0} if unknown or unbounded
+	 */
+	private int getCapacity()
+	{
+		if(delegate instanceof ThreadPoolExecutor)
+		{
+			int max = ((ThreadPoolExecutor) delegate).getMaximumPoolSize();
+			return max == Integer.MAX_VALUE ? 0 : max;
+		}
+		else if(delegate instanceof ForkJoinPool)
+		{
+			return ((ForkJoinPool) delegate).getParallelism();
+		}
+
+		return 0;
+	}
+
+	@Override
+	public void execute(Runnable command)
+	{
+		Objects.requireNonNull(command, "command must be specified");
+
+		QueuedTask task = new QueuedTask(this, command, System.nanoTime());
+
+		submitted.increment();
+		queued.increment();
+		try
+		{
+			delegate.execute(task);
+		}
+		catch(RejectedExecutionException e)
+		{
+			if(! tracksRejections)
+			{
+				task.dequeue();
+				rejected.increment();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Mark that a task has been submitted directly to the delegate, such as
+	 * a scheduled task.
+	 */
+	protected void submitted()
+	{
+		submitted.increment();
+	}
+
+	/**
+	 * Mark that the delegate rejected a task.
+	 */
+	protected void rejected()
+	{
+		rejected.increment();
+	}
+
+	/**
+	 * Mark that a task is about to run.
+	 *
+	 * @param expectedStart
+	 *   when the task was expected to start in {@link System#nanoTime()}
+	 * @return
+	 *   the time the task started
+	 */
+	protected long beforeRun(long expectedStart)
+	{
+		long start = System.nanoTime();
+		queueWait.record(Math.max(0, start - expectedStart), TimeUnit.NANOSECONDS);
+		running.increment();
+		return start;
+	}
+
+	/**
+	 * Mark that a task has completed.
+	 *
+	 * @param start
+	 *   the time returned by {@link #beforeRun(long)}
+	 */
+	protected void afterRun(long start)
+	{
+		running.decrement();
+		completed.increment();
+		execution.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+	}
+
+	@Override
+	public void shutdown()
+	{
+		delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow()
+	{
+		List<Runnable> tasks = delegate.shutdownNow();
+		List<Runnable> result = new ArrayList<>(tasks.size());
+		for(Runnable task : tasks)
+		{
+			if(task instanceof QueuedTask)
+			{
+				((QueuedTask) task).dequeue();
+				result.add(((QueuedTask) task).command);
+			}
+			else
+			{
+				result.add(task);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public boolean isShutdown()
+	{
+		return delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated()
+	{
+		return delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit)
+		throws InterruptedException
+	{
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "InstrumentedExecutorService{delegate=" + delegate + "}";
+	}
+
+	/**
+	 * Mark that a task passed to the delegate will not run, because it was
+	 * rejected or discarded.
+	 *
+	 * @param task
+	 */
+	private void discarded(Runnable task)
+	{
+		if(task instanceof QueuedTask && ((QueuedTask) task).service == this)
+		{
+			((QueuedTask) task).dequeue();
+			rejected.increment();
+		}
+	}
+
+	/**
+	 * {@link RejectedExecutionHandler} installed in a
+	 * {@link ThreadPoolExecutor} that counts the tasks the pool rejects before
+	 * passing them on to the original handler. The handler of the pool is
+	 * only invoked for rejected tasks, so this does not affect tasks that are
+	 * accepted.
+	 *
+	 * <p>
+	 * {@link ThreadPoolExecutor.DiscardOldestPolicy} silently drops the
+	 * oldest task in the queue, so it is replaced with an equivalent that
+	 * counts the dropped task instead of the one that was retried.
+	 */
+	private class RejectionTracker
+		implements RejectedExecutionHandler
+	{
+		private final RejectedExecutionHandler handler;
+
+		public RejectionTracker(RejectedExecutionHandler handler)
+		{
+			this.handler = handler;
+		}
+
+		@Override
+		public void rejectedExecution(Runnable r, ThreadPoolExecutor executor)
+		{
+			if(handler instanceof ThreadPoolExecutor.DiscardOldestPolicy)
+			{
+				if(executor.isShutdown())
+				{
+					discarded(r);
+				}
+				else
+				{
+					discarded(executor.getQueue().poll());
+					executor.execute(r);
+				}
+
+				return;
+			}
+
+			discarded(r);
+			handler.rejectedExecution(r, executor);
+		}
+	}
+
+	private static class QueuedTask
+		implements Runnable
+	{
+		private static final AtomicIntegerFieldUpdater<QueuedTask> DEQUEUED =
+			AtomicIntegerFieldUpdater.newUpdater(QueuedTask.class, "dequeued");
+
+		private final InstrumentedExecutorServiceImpl service;
+		private final Runnable command;
+		private final long submittedAt;
+
+		/**
+		 * Set when the task leaves the queue, either to run or because it
+		 * was discarded. Policies such as
+		 * {@link ThreadPoolExecutor.CallerRunsPolicy} run rejected tasks,
+		 * so the task may leave the queue twice.
+		 */
+		private volatile int dequeued;
+
+		public QueuedTask(InstrumentedExecutorServiceImpl service, Runnable command, long submittedAt)
+		{
+			this.service = service;
+			this.command = command;
+			this.submittedAt = submittedAt;
+		}
+
+		public void dequeue()
+		{
+			if(DEQUEUED.compareAndSet(this, 0, 1))
+			{
+				service.queued.decrement();
+			}
+		}
+
+		@Override
+		public void run()
+		{
+			dequeue();
+
+			long start = service.beforeRun(submittedAt);
+			try
+			{
+				command.run();
+			}
+			finally
+			{
+				service.afterRun(start);
+			}
+		}
+	}
+}
@@ -0,0 +1,194 @@
+package se.l4.vibe.internal;
+
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import se.l4.vibe.InstrumentedScheduledExecutorService;
+
+/**
+ * Implementation of {@link InstrumentedScheduledExecutorService}. Scheduled
+ * tasks are not counted as queued while waiting for their delay, instead
+ * the queue wait of every run is how late it started compared to its
+ * schedule.
+ */
+public class InstrumentedScheduledExecutorServiceImpl
+	extends InstrumentedExecutorServiceImpl
+	implements InstrumentedScheduledExecutorService
+{
+	private final ScheduledExecutorService delegate;
+
+	public InstrumentedScheduledExecutorServiceImpl(ScheduledExecutorService delegate)
+	{
+		super(delegate);
+
+		this.delegate = delegate;
+	}
+
+	@Override
+	public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit)
+	{
+		Objects.requireNonNull(command, "command must be specified");
+
+		long expected = System.nanoTime() + unit.toNanos(delay);
+		submitted();
+		try
+		{
+			return delegate.schedule(() -> {
+				long start = beforeRun(expected);
+				try
+				{
+					command.run();
+				}
+				finally
+				{
+					afterRun(start);
+				}
+			}, delay, unit);
+		}
+		catch(RejectedExecutionException e)
+		{
+			rejected();
+			throw e;
+		}
+	}
+
+	@Override
+	public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit)
+	{
+		Objects.requireNonNull(callable, "callable must be specified");
+
+		long expected = System.nanoTime() + unit.toNanos(delay);
+		submitted();
+		try
+		{
+			return delegate.schedule(() -> {
+				long start = beforeRun(expected);
+				try
+				{
+					return callable.call();
+				}
+				finally
+				{
+					afterRun(start);
+				}
+			}, delay, unit);
+		}
+		catch(RejectedExecutionException e)
+		{
+			rejected();
+			throw e;
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleAtFixedRate(
+		Runnable command,
+		long initialDelay,
+		long period,
+		TimeUnit unit
+	)
+	{
+		Objects.requireNonNull(command, "command must be specified");
+
+		long periodNanos = unit.toNanos(period);
+		RepeatingTask task = new RepeatingTask(command, System.nanoTime() + unit.toNanos(initialDelay))
+		{
+			@Override
+			protected long next(long expected, long end)
+			{
+				return expected + periodNanos;
+			}
+		};
+
+		submitted();
+		try
+		{
+			return delegate.scheduleAtFixedRate(task, initialDelay, period, unit);
+		}
+		catch(RejectedExecutionException e)
+		{
+			rejected();
+			throw e;
+		}
+	}
+
+	@Override
+	public ScheduledFuture<?> scheduleWithFixedDelay(
+		Runnable command,
+		long initialDelay,
+		long delay,
+		TimeUnit unit
+	)
+	{
+		Objects.requireNonNull(command, "command must be specified");
+
+		long delayNanos = unit.toNanos(delay);
+		RepeatingTask task = new RepeatingTask(command, System.nanoTime() + unit.toNanos(initialDelay))
+		{
+			@Override
+			protected long next(long expected, long end)
+			{
+				return end + delayNanos;
+			}
+		};
+
+		submitted();
+		try
+		{
+			return delegate.scheduleWithFixedDelay(task, initialDelay, delay, unit);
+		}
+		catch(RejectedExecutionException e)
+		{
+			rejected();
+			throw e;
+		}
+	}
+
+	/**
+	 * Task that runs several times, keeping track of when the next run is
+	 * expected to start. Runs of a periodic task never overlap so the
+	 * expected time does not need to be synchronized.
+	 */
+	private abstract class RepeatingTask
+		implements Runnable
+	{
+		private final Runnable command;
+		private volatile long expected;
+
+		public RepeatingTask(Runnable command, long expected)
+		{
+			this.command = command;
+			this.expected = expected;
+		}
+
+		@Override
+		public void run()
+		{
+			long start = beforeRun(expected);
+			try
+			{
+				command.run();
+			}
+			finally
+			{
+				afterRun(start);
+				expected = next(expected, System.nanoTime());
+			}
+		}
+
+		/**
+		 * Calculate when the next run is expected to start.
+		 *
+		 * @param expected
+		 *   when the current run was expected to start
+		 * @param end
+		 *   when the current run ended
+		 * @return
+		 */
+		protected abstract long next(long expected, long end);
+	}
+}
@@ -0,0 +1,142 @@
+package se.l4.vibe.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.Vibe;
+import se.l4.vibe.operations.Change;
+import se.l4.vibe.probes.CountingProbe;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Metrics about the overhead of Vibe itself. Metrics are only collected while
+ * at least one {@link Vibe} instance has internal metrics enabled, when
+ * disabled the cost for collecting them is a single volatile read.
+ */
+public class InternalMetrics
+{
+	private static final AtomicInteger enabled = new AtomicInteger();
+
+	/**
+	 * How late sampling ticks are compared to their schedule.
+	 */
+	public static final Timer SAMPLING_LAG = Timer.builder()
+		.withResolution(TimeUnit.MILLISECONDS)
+		.build();
+
+	/**
+	 * Sampling ticks that were skipped as the previous tick took longer than
+	 * the sampling interval.
+	 */
+	public static final CountingProbe SAMPLING_OVERRUNS = new CountingProbe();
+
+	/**
+	 * Reads of asynchronous probes that failed or did not complete before
+	 * their deadline.
+	 */
+	public static final CountingProbe SAMPLING_MISSED_DEADLINES = new CountingProbe();
+
+	/**
+	 * Time spent delivering something to listeners.
+	 */
+	public static final Timer LISTENER_DISPATCH = Timer.builder()
+		.withResolution(TimeUnit.MICROSECONDS)
+		.build();
+
+	/**
+	 * Exceptions thrown by listeners.
+	 */
+	public static final CountingProbe LISTENER_FAILURES = new CountingProbe();
+
+	/**
+	 * Events registered over all instances of {@link se.l4.vibe.events.Events}.
+	 */
+	public static final CountingProbe EVENTS = new CountingProbe();
+
+	/**
+	 * Time spent evaluating all checks of a sampler for one sample.
+	 */
+	public static final Timer CHECK_EVALUATION = Timer.builder()
+		.withResolution(TimeUnit.MICROSECONDS)
+		.build();
+
+	/**
+	 * Number of times a single check has been evaluated.
+	 */
+	public static final CountingProbe CHECK_EVALUATIONS = new CountingProbe();
+
+	private InternalMetrics()
+	{
+	}
+
+	/**
+	 * Get if internal metrics should be collected.
+	 *
+	 * @return
+	 */
+	public static boolean isEnabled()
+	{
+		return enabled.get() > 0;
+	}
+
+	/**
+	 * Enable collection of internal metrics.
+	 *
+	 * @return
+	 *   handle that should be released when metrics are no longer needed
+	 */
+	public static Handle enable()
+	{
+		enabled.incrementAndGet();
+
+		AtomicBoolean released = new AtomicBoolean();
+		return () -> {
+			if(released.compareAndSet(false, true))
+			{
+				enabled.decrementAndGet();
+			}
+		};
+	}
+
+	/**
+	 * Export the global internal metrics on the given instance.
+	 *
+	 * @param vibe
+	 */
+	public static void export(Vibe vibe)
+	{
+		vibe.export(SAMPLING_LAG.getSnapshotProbe())
+			.at("sampling", "lag")
+			.done();
+
+		vibe.export(SAMPLING_OVERRUNS.apply(Change.changeAsLong()))
+			.at("sampling", "overruns")
+			.done();
+
+		vibe.export(SAMPLING_MISSED_DEADLINES.apply(Change.changeAsLong()))
+			.at("sampling", "missedDeadlines")
+			.done();
+
+		vibe.export(LISTENER_DISPATCH.getSnapshotProbe())
+			.at("listeners", "dispatch")
+			.done();
+
+		vibe.export(LISTENER_FAILURES.apply(Change.changeAsLong()))
+			.at("listeners", "failures")
+			.done();
+
+		vibe.export(EVENTS.apply(Change.changeAsLong()))
+			.at("events")
+			.done();
+
+		vibe.export(CHECK_EVALUATION.getSnapshotProbe())
+			.at("checks", "evaluation")
+			.done();
+
+		vibe.export(CHECK_EVALUATIONS.apply(Change.changeAsLong()))
+			.at("checks", "evaluations")
+			.done();
+	}
+}
@@ -0,0 +1,324 @@
+package se.l4.vibe.internal;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.JfrProbes;
+import se.l4.vibe.Vibe;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Implementation of {@link JfrProbes} on top of a {@link JfrStream}. Event
+ * handlers run on the thread of the stream and only update counters and
+ * timers, all of the reading happens when the probes are sampled.
+ */
+public class JfrProbesImpl
+	implements JfrProbes
+{
+	private static final Logger logger = LoggerFactory.getLogger(JfrProbesImpl.class);
+
+	private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+	private static final String ALLOCATION_IN_NEW_TLAB = "jdk.ObjectAllocationInNewTLAB";
+	private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+	private static final String SAFEPOINT = "jdk.SafepointBegin";
+	private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+	private static final String THREAD_PARK = "jdk.ThreadPark";
+	private static final String COMPILATION = "jdk.Compilation";
+	private static final String CODE_CACHE_STATISTICS = "jdk.CodeCacheStatistics";
+	private static final String CODE_CACHE_FULL = "jdk.CodeCacheFull";
+
+	private final JfrStream stream;
+
+	private final LongAdder allocated;
+	private final Timer safepoints;
+	private final Timer monitorContention;
+	private final Timer threadParks;
+	private final Timer compilations;
+
+	private final Map<String, long[]> codeHeaps;
+	private final LongAdder codeCacheFull;
+
+	private JfrProbesImpl(Duration threshold, Duration period)
+	{
+		allocated = new LongAdder();
+
+		safepoints = Timer.builder()
+			.withResolution(TimeUnit.MICROSECONDS)
+			.withBuckets(
+				Duration.ZERO,
+				Duration.ofNanos(100_000),
+				Duration.ofMillis(1),
+				Duration.ofMillis(10),
+				Duration.ofMillis(100),
+				Duration.ofSeconds(1)
+			)
+			.build();
+
+		monitorContention = createWaitTimer();
+		threadParks = createWaitTimer();
+
+		compilations = Timer.builder()
+			.withResolution(TimeUnit.MILLISECONDS)
+			.withBuckets(
+				Duration.ZERO,
+				Duration.ofMillis(1),
+				Duration.ofMillis(10),
+				Duration.ofMillis(100),
+				Duration.ofSeconds(1),
+				Duration.ofSeconds(10)
+			)
+			.build();
+
+		codeHeaps = new ConcurrentHashMap<>();
+		codeCacheFull = new LongAdder();
+
+		stream = new JfrStream();
+		try
+		{
+			Set<String> types = JfrStream.getEventTypes();
+			if(types.contains(ALLOCATION_SAMPLE))
+			{
+				// Throttled sampling of allocations, available since Java 16
+				listen(ALLOCATION_SAMPLE, null, null,
+					e -> allocated.add(JfrStream.getLong(e, "weight")));
+			}
+			else
+			{
+				listen(ALLOCATION_IN_NEW_TLAB, null, null,
+					e -> allocated.add(JfrStream.getLong(e, "tlabSize")));
+				listen(ALLOCATION_OUTSIDE_TLAB, null, null,
+					e -> allocated.add(JfrStream.getLong(e, "allocationSize")));
+			}
+
+			listen(SAFEPOINT, Duration.ZERO, null, e -> recordDuration(safepoints, e));
+			listen(MONITOR_ENTER, threshold, null, e -> recordDuration(monitorContention, e));
+			listen(THREAD_PARK, threshold, null, e -> recordDuration(threadParks, e));
+			listen(COMPILATION, Duration.ZERO, null, e -> recordDuration(compilations, e));
+
+			listen(CODE_CACHE_STATISTICS, null, period, e -> codeHeaps.put(
+				String.valueOf(JfrStream.getValue(e, "codeBlobType")),
+				new long[] {
+					JfrStream.getLong(e, "entryCount"),
+					JfrStream.getLong(e, "methodCount"),
+					JfrStream.getLong(e, "unallocatedCapacity")
+				}
+			));
+			listen(CODE_CACHE_FULL, null, null, e -> codeCacheFull.increment());
+
+			stream.start();
+		}
+		catch(RuntimeException e)
+		{
+			stream.release();
+			throw e;
+		}
+	}
+
+	private static Timer createWaitTimer()
+	{
+		return Timer.builder()
+			.withResolution(TimeUnit.MILLISECONDS)
+			.withBuckets(
+				Duration.ZERO,
+				Duration.ofMillis(10),
+				Duration.ofMillis(50),
+				Duration.ofMillis(100),
+				Duration.ofMillis(500),
+				Duration.ofSeconds(1),
+				Duration.ofSeconds(5)
+			)
+			.build();
+	}
+
+	private static void recordDuration(Timer timer, Object event)
+	{
+		timer.record(JfrStream.getDuration(event), TimeUnit.NANOSECONDS);
+	}
+
+	private void listen(
+		String event,
+		Duration threshold,
+		Duration period,
+		Consumer<Object> handler
+	)
+	{
+		stream.enable(event, threshold, period);
+		stream.onEvent(event, e -> {
+			try
+			{
+				handler.accept(e);
+			}
+			catch(RuntimeException ex)
+			{
+				// Never let a single event stop the stream
+				logger.debug("Could not handle JFR event " + event + "; " + ex.getMessage(), ex);
+			}
+		});
+	}
+
+	@Override
+	public SampledProbe<Double> getAllocationRateProbe()
+	{
+		return () -> new Sampler<Double>()
+		{
+			private long lastTime = System.nanoTime();
+			private long lastAllocated = allocated.sum();
+
+			@Override
+			public Double sample()
+			{
+				long time = System.nanoTime();
+				long bytes = allocated.sum();
+
+				long elapsed = time - lastTime;
+				double rate = elapsed <= 0 ? 0 : (bytes - lastAllocated) * 1e9 / elapsed;
+
+				lastTime = time;
+				lastAllocated = bytes;
+
+				return rate;
+			}
+		};
+	}
+
+	@Override
+	public Timer getSafepointTimer()
+	{
+		return safepoints;
+	}
+
+	@Override
+	public Timer getMonitorContentionTimer()
+	{
+		return monitorContention;
+	}
+
+	@Override
+	public Timer getThreadParkTimer()
+	{
+		return threadParks;
+	}
+
+	@Override
+	public Timer getCompilationTimer()
+	{
+		return compilations;
+	}
+
+	@Override
+	public Probe<MapSnapshot> getCodeCacheProbe()
+	{
+		return () -> {
+			long entries = 0;
+			long methods = 0;
+			long unallocated = 0;
+			for(long[] heap : codeHeaps.values())
+			{
+				entries += heap[0];
+				methods += heap[1];
+				unallocated += heap[2];
+			}
+
+			return MapSnapshot.builder()
+				.set("entries", entries)
+				.set("methods", methods)
+				.set("unallocated", unallocated)
+				.set("full", codeCacheFull.sum())
+				.build();
+		};
+	}
+
+	@Override
+	public void export(Vibe vibe)
+	{
+		Objects.requireNonNull(vibe, "vibe must be specified");
+
+		vibe.export(getAllocationRateProbe())
+			.at("jfr", "allocationRate")
+			.done();
+
+		vibe.export(safepoints)
+			.at("jfr", "safepoints")
+			.done();
+
+		vibe.export(monitorContention)
+			.at("jfr", "monitorContention")
+			.done();
+
+		vibe.export(threadParks)
+			.at("jfr", "threadParks")
+			.done();
+
+		vibe.export(compilations)
+			.at("jfr", "compilations")
+			.done();
+
+		vibe.export(getCodeCacheProbe())
+			.at("jfr", "codeCache")
+			.done();
+	}
+
+	@Override
+	public void release()
+	{
+		stream.release();
+	}
+
+	public static class BuilderImpl
+		implements Builder
+	{
+		private Duration threshold;
+		private Duration period;
+
+		public BuilderImpl()
+		{
+			threshold = Duration.ofMillis(10);
+			period = Duration.ofSeconds(10);
+		}
+
+		@Override
+		public Builder withThreshold(Duration threshold)
+		{
+			Objects.requireNonNull(threshold, "threshold must be specified");
+			if(threshold.isNegative())
+			{
+				throw new IllegalArgumentException("threshold must be zero or positive");
+			}
+
+			this.threshold = threshold;
+			return this;
+		}
+
+		@Override
+		public Builder withPeriod(Duration period)
+		{
+			Objects.requireNonNull(period, "period must be specified");
+			if(period.toMillis() < 1)
+			{
+				throw new IllegalArgumentException("period must be at least one millisecond");
+			}
+
+			this.period = period;
+			return this;
+		}
+
+		@Override
+		public JfrProbes build()
+		{
+			return new JfrProbesImpl(threshold, period);
+		}
+	}
+}
@@ -0,0 +1,311 @@
+package se.l4.vibe.internal;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeException;
+
+/**
+ * Bridge to {@code jdk.jfr.consumer.RecordingStream}. Vibe is compiled for
+ * Java 9 where JFR streaming does not exist, so the stream and the events it
+ * delivers are accessed via method handles that are resolved once. Events are
+ * passed to handlers as plain objects and read via the static accessors in
+ * this class.
+ */
+public class JfrStream
+	implements Handle
+{
+	private static final MethodHandle CREATE;
+	private static final MethodHandle ENABLE;
+	private static final MethodHandle WITH_THRESHOLD;
+	private static final MethodHandle WITH_PERIOD;
+	private static final MethodHandle WITHOUT_STACK_TRACE;
+	private static final MethodHandle ON_EVENT;
+	private static final MethodHandle START_ASYNC;
+	private static final MethodHandle CLOSE;
+
+	private static final MethodHandle GET_DURATION;
+	private static final MethodHandle GET_LONG;
+	private static final MethodHandle GET_VALUE;
+
+	private static final MethodHandle GET_FLIGHT_RECORDER;
+	private static final MethodHandle GET_EVENT_TYPES;
+	private static final MethodHandle GET_EVENT_TYPE_NAME;
+
+	static
+	{
+		MethodHandle[] handles;
+		try
+		{
+			handles = resolve();
+		}
+		catch(ReflectiveOperationException | LinkageError | SecurityException e)
+		{
+			// Not running on Java 14 or later or jdk.jfr is not available
+			handles = new MethodHandle[14];
+		}
+
+		CREATE = handles[0];
+		ENABLE = handles[1];
+		WITH_THRESHOLD = handles[2];
+		WITH_PERIOD = handles[3];
+		WITHOUT_STACK_TRACE = handles[4];
+		ON_EVENT = handles[5];
+		START_ASYNC = handles[6];
+		CLOSE = handles[7];
+		GET_DURATION = handles[8];
+		GET_LONG = handles[9];
+		GET_VALUE = handles[10];
+		GET_FLIGHT_RECORDER = handles[11];
+		GET_EVENT_TYPES = handles[12];
+		GET_EVENT_TYPE_NAME = handles[13];
+	}
+
+	private final Object stream;
+
+	public JfrStream()
+	{
+		if(! isAvailable())
+		{
+			throw new VibeException("JFR streaming requires Java 14 or later with the jdk.jfr module");
+		}
+
+		try
+		{
+			stream = CREATE.invokeExact();
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not start JFR stream; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Get if JFR streaming is available in this JVM.
+	 *
+	 * @return
+	 */
+	public static boolean isAvailable()
+	{
+		return CREATE != null;
+	}
+
+	/**
+	 * Get the names of all event types known to this JVM.
+	 *
+	 * @return
+	 */
+	public static Set<String> getEventTypes()
+	{
+		if(! isAvailable())
+		{
+			return Set.of();
+		}
+
+		try
+		{
+			Object recorder = GET_FLIGHT_RECORDER.invokeExact();
+			List<?> types = (List<?>) GET_EVENT_TYPES.invokeExact(recorder);
+
+			Set<String> result = new HashSet<>();
+			for(Object type : types)
+			{
+				result.add((String) GET_EVENT_TYPE_NAME.invokeExact(type));
+			}
+
+			return result;
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not list JFR event types; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Enable an event without stack traces.
+	 *
+	 * @param event
+	 *   the name of the event, such as {@code jdk.ThreadPark}
+	 * @param threshold
+	 *   the shortest duration to record, or {@code null} for the default
+	 * @param period
+	 *   how often to emit a periodic event, or {@code null} for the default
+	 */
+	public void enable(String event, Duration threshold, Duration period)
+	{
+		try
+		{
+			Object settings = ENABLE.invokeExact(stream, event);
+			settings = WITHOUT_STACK_TRACE.invokeExact(settings);
+
+			if(threshold != null)
+			{
+				settings = WITH_THRESHOLD.invokeExact(settings, threshold);
+			}
+
+			if(period != null)
+			{
+				settings = WITH_PERIOD.invokeExact(settings, period);
+			}
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not enable JFR event " + event + "; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Register a handler for an event. Handlers are called on the thread of
+	 * the stream, one event at a time.
+	 *
+	 * @param event
+	 * @param handler
+	 */
+	public void onEvent(String event, Consumer<Object> handler)
+	{
+		try
+		{
+			ON_EVENT.invokeExact(stream, event, handler);
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not listen to JFR event " + event + "; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Start delivering events in a background thread.
+	 */
+	public void start()
+	{
+		try
+		{
+			START_ASYNC.invokeExact(stream);
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not start JFR stream; " + t.getMessage(), t);
+		}
+	}
+
+	@Override
+	public void release()
+	{
+		try
+		{
+			CLOSE.invokeExact(stream);
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not close JFR stream; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Get the duration of an event in nanoseconds.
+	 *
+	 * @param event
+	 * @return
+	 */
+	public static long getDuration(Object event)
+	{
+		try
+		{
+			return ((Duration) GET_DURATION.invokeExact(event)).toNanos();
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not read duration of JFR event; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Get a numeric field of an event.
+	 *
+	 * @param event
+	 * @param field
+	 * @return
+	 */
+	public static long getLong(Object event, String field)
+	{
+		try
+		{
+			return (long) GET_LONG.invokeExact(event, field);
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not read " + field + " of JFR event; " + t.getMessage(), t);
+		}
+	}
+
+	/**
+	 * Get a field of an event.
+	 *
+	 * @param event
+	 * @param field
+	 * @return
+	 */
+	public static Object getValue(Object event, String field)
+	{
+		try
+		{
+			return GET_VALUE.invokeExact(event, field);
+		}
+		catch(Throwable t)
+		{
+			throw new VibeException("Could not read " + field + " of JFR event; " + t.getMessage(), t);
+		}
+	}
+
+	private static MethodHandle[] resolve()
+		throws ReflectiveOperationException
+	{
+		MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+		ClassLoader loader = ClassLoader.getSystemClassLoader();
+
+		Class<?> streamType = Class.forName("jdk.jfr.consumer.RecordingStream", false, loader);
+		Class<?> settingsType = Class.forName("jdk.jfr.EventSettings", false, loader);
+		Class<?> objectType = Class.forName("jdk.jfr.consumer.RecordedObject", false, loader);
+		Class<?> eventType = Class.forName("jdk.jfr.consumer.RecordedEvent", false, loader);
+		Class<?> recorderType = Class.forName("jdk.jfr.FlightRecorder", false, loader);
+		Class<?> typeType = Class.forName("jdk.jfr.EventType", false, loader);
+
+		return new MethodHandle[] {
+			lookup.findConstructor(streamType, MethodType.methodType(void.class))
+				.asType(MethodType.methodType(Object.class)),
+			lookup.findVirtual(streamType, "enable", MethodType.methodType(settingsType, String.class))
+				.asType(MethodType.methodType(Object.class, Object.class, String.class)),
+			lookup.findVirtual(settingsType, "withThreshold", MethodType.methodType(settingsType, Duration.class))
+				.asType(MethodType.methodType(Object.class, Object.class, Duration.class)),
+			lookup.findVirtual(settingsType, "withPeriod", MethodType.methodType(settingsType, Duration.class))
+				.asType(MethodType.methodType(Object.class, Object.class, Duration.class)),
+			lookup.findVirtual(settingsType, "withoutStackTrace", MethodType.methodType(settingsType))
+				.asType(MethodType.methodType(Object.class, Object.class)),
+			lookup.findVirtual(streamType, "onEvent", MethodType.methodType(void.class, String.class, Consumer.class))
+				.asType(MethodType.methodType(void.class, Object.class, String.class, Consumer.class)),
+			lookup.findVirtual(streamType, "startAsync", MethodType.methodType(void.class))
+				.asType(MethodType.methodType(void.class, Object.class)),
+			lookup.findVirtual(streamType, "close", MethodType.methodType(void.class))
+				.asType(MethodType.methodType(void.class, Object.class)),
+			lookup.findVirtual(eventType, "getDuration", MethodType.methodType(Duration.class))
+				.asType(MethodType.methodType(Duration.class, Object.class)),
+			lookup.findVirtual(objectType, "getLong", MethodType.methodType(long.class, String.class))
+				.asType(MethodType.methodType(long.class, Object.class, String.class)),
+			lookup.findVirtual(objectType, "getValue", MethodType.methodType(Object.class, String.class))
+				.asType(MethodType.methodType(Object.class, Object.class, String.class)),
+			lookup.findStatic(recorderType, "getFlightRecorder", MethodType.methodType(recorderType))
+				.asType(MethodType.methodType(Object.class)),
+			lookup.findVirtual(recorderType, "getEventTypes", MethodType.methodType(List.class))
+				.asType(MethodType.methodType(List.class, Object.class)),
+			lookup.findVirtual(typeType, "getName", MethodType.methodType(String.class))
+				.asType(MethodType.methodType(String.class, Object.class))
+		};
+	}
+}
@@ -1,73 +1,128 @@
 package se.l4.vibe.internal;
 
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import se.l4.vibe.Handle;
 
+/**
+ * Registry of listeners used on hot paths. Listeners are kept in an array
+ * that is replaced using compare-and-set when listeners are added or
+ * removed, so delivering to listeners never takes a lock and never allocates.
+ *
+ * <p>
+ * A listener that throws an exception does not stop delivery to other
+ * listeners and the exception is not propagated to the code that triggered
+ * the delivery. Failures are counted and logged, the first failure of every
+ * listener as a warning and later ones on debug level.
+ *
+ * <p>
+ * A listener that is removed while a delivery is in progress is not called
+ * for the rest of that delivery.
+ *
+ * @param <T>
+ */
 public class Listeners<T>
 {
-	private static final Object[] EMPTY = new Object[0];
+	private static final Logger logger = LoggerFactory.getLogger(Listeners.class);
+
+	private static final Entry<?>[] EMPTY = new Entry<?>[0];
 
-	private final OnChange onListenersChanged;
+	private final OnActiveChange onActiveChange;
+	private final AtomicInteger pendingChanges;
+	private boolean active;
 
-	private final Lock listenersLock;
-	private volatile Object[] listeners;
+	private final AtomicReference<Entry<T>[]> listeners;
+	private final AtomicLong failures;
 
 	public Listeners()
 	{
 		this(null);
 	}
 
-	public Listeners(OnChange onListenersChanged)
+	@SuppressWarnings("unchecked")
+	public Listeners(OnActiveChange onActiveChange)
 	{
-		listenersLock = new ReentrantLock();
-		listeners = EMPTY;
+		this.onActiveChange = onActiveChange;
+		pendingChanges = new AtomicInteger();
 
-		this.onListenersChanged = onListenersChanged;
+		listeners = new AtomicReference<>((Entry<T>[]) EMPTY);
+		failures = new AtomicLong();
 	}
 
+	/**
+	 * Get the number of listeners.
+	 *
+	 * @return
+	 */
 	public int getSize()
 	{
-		return listeners.length;
+		return listeners.get().length;
+	}
+
+	/**
+	 * Get the number of times a listener has thrown an exception.
+	 *
+	 * @return
+	 */
+	public long getFailures()
+	{
+		return failures.get();
 	}
 
 	public Handle add(T listener)
 	{
-		listenersLock.lock();
-		try
+		Entry<T> entry = new Entry<>(listener);
+
+		while(true)
 		{
-			Object[] listeners = this.listeners;
-			Object[] result = new Object[listeners.length + 1];
-			System.arraycopy(listeners, 0, result, 0, listeners.length);
-			result[listeners.length] = listener;
+			Entry<T>[] current = listeners.get();
 
-			this.listeners = result;
+			@SuppressWarnings("unchecked")
+			Entry<T>[] result = new Entry[current.length + 1];
+			System.arraycopy(current, 0, result, 0, current.length);
+			result[current.length] = entry;
 
-			if(onListenersChanged != null)
+			if(listeners.compareAndSet(current, result))
 			{
-				onListenersChanged.listenersChanged(result.length);
+				break;
 			}
-
-			return () -> remove(listener);
 		}
-		finally
+
+		notifyChange();
+
+		return () -> remove(entry);
+	}
+
+	public void remove(T listener)
+	{
+		for(Entry<T> entry : listeners.get())
 		{
-			listenersLock.unlock();
+			if(entry.listener == listener)
+			{
+				remove(entry);
+				return;
+			}
 		}
 	}
 
-	public void remove(T listener)
+	private void remove(Entry<T> entry)
 	{
-		listenersLock.lock();
-		try
+		while(true)
 		{
-			Object[] listeners = this.listeners;
+			Entry<T>[] current = listeners.get();
 			int index = -1;
-			for(int i=0, n=listeners.length; i<n; i++)
+			for(int i=0, n=current.length; i<n; i++)
 			{
-				if(listeners[i] == listener)
+				if(current[i] == entry)
 				{
 					index = i;
 					break;
@@ -80,40 +135,196 @@ public class Listeners<T>
 				return;
 			}
 
-			int length = listeners.length;
-			Object[] result = new Object[length - 1];
-			System.arraycopy(listeners, 0, result, 0, index);
+			int length = current.length;
 
-			if(index < length - 1)
+			@SuppressWarnings("unchecked")
+			Entry<T>[] result = new Entry[length - 1];
+			System.arraycopy(current, 0, result, 0, index);
+			System.arraycopy(current, index + 1, result, index, length - index - 1);
+
+			if(listeners.compareAndSet(current, result))
 			{
-				System.arraycopy(listeners, index + 1, result, index, length - index - 1);
+				entry.removed = true;
+				break;
 			}
+		}
+
+		notifyChange();
+	}
+
+	/**
+	 * Notify the callback if the listeners have gone from none to some or
+	 * the other way around. Only one thread runs the callback at a time,
+	 * if another thread is already running it that thread will pick up this
+	 * change when it is done. A callback that throws is logged, so that
+	 * later changes are still delivered.
+	 */
+	private void notifyChange()
+	{
+		if(onActiveChange == null) return;
+
+		if(pendingChanges.getAndIncrement() != 0)
+		{
+			return;
+		}
 
-			this.listeners = result;
+		int missed = 1;
+		while(true)
+		{
+			boolean active = listeners.get().length > 0;
+			if(active != this.active)
+			{
+				this.active = active;
+
+				try
+				{
+					onActiveChange.activeChanged(active);
+				}
+				catch(RuntimeException e)
+				{
+					// Throwing would leave changes pending and drop all later ones
+					logger.warn("Could not " + (active ? "activate" : "deactivate") + "; " + e.getMessage(), e);
+				}
+			}
 
-			if(onListenersChanged != null)
+			missed = pendingChanges.addAndGet(-missed);
+			if(missed == 0)
 			{
-				onListenersChanged.listenersChanged(result.length);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Deliver something to all listeners.
+	 *
+	 * @param action
+	 */
+	public void forEach(Consumer<? super T> action)
+	{
+		Entry<T>[] listeners = this.listeners.get();
+		if(listeners.length == 0) return;
+
+		if(! InternalMetrics.isEnabled())
+		{
+			for(Entry<T> entry : listeners)
+			{
+				deliver(entry, action);
+			}
+
+			return;
+		}
+
+		long start = System.nanoTime();
+		try
+		{
+			for(Entry<T> entry : listeners)
+			{
+				deliver(entry, action);
 			}
 		}
 		finally
 		{
-			listenersLock.unlock();
+			InternalMetrics.LISTENER_DISPATCH.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	public void forEach(Consumer<? super T> action)
+	/**
+	 * Deliver several items to all listeners. Every listener receives all
+	 * of the items before the next listener is called, a failure for one
+	 * item does not stop the delivery of the others.
+	 *
+	 * @param items
+	 * @param action
+	 */
+	public <I> void forEachBatch(List<? extends I> items, BiConsumer<? super T, ? super I> action)
 	{
-		Object[] listeners = this.listeners;
-		for(Object o : listeners)
+		Entry<T>[] listeners = this.listeners.get();
+		if(listeners.length == 0 || items.isEmpty()) return;
+
+		long start = InternalMetrics.isEnabled() ? System.nanoTime() : 0;
+		try
+		{
+			for(Entry<T> entry : listeners)
+			{
+				for(int i=0, n=items.size(); i<n; i++)
+				{
+					if(entry.removed) break;
+
+					try
+					{
+						action.accept(entry.listener, items.get(i));
+					}
+					catch(RuntimeException e)
+					{
+						failed(entry, e);
+					}
+				}
+			}
+		}
+		finally
+		{
+			if(start != 0)
+			{
+				InternalMetrics.LISTENER_DISPATCH.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		}
+	}
+
+	private void deliver(Entry<T> entry, Consumer<? super T> action)
+	{
+		if(entry.removed) return;
+
+		try
+		{
+			action.accept(entry.listener);
+		}
+		catch(RuntimeException e)
+		{
+			failed(entry, e);
+		}
+	}
+
+	private void failed(Entry<T> entry, RuntimeException e)
+	{
+		failures.incrementAndGet();
+		if(InternalMetrics.isEnabled())
+		{
+			InternalMetrics.LISTENER_FAILURES.increase();
+		}
+
+		if(entry.failed)
+		{
+			logger.debug("Listener " + entry.listener + " failed; " + e.getMessage(), e);
+		}
+		else
+		{
+			entry.failed = true;
+			logger.warn("Listener " + entry.listener + " failed, further failures are logged on debug level; " + e.getMessage(), e);
+		}
+	}
+
+	private static class Entry<T>
+	{
+		private final T listener;
+
+		private volatile boolean removed;
+		private volatile boolean failed;
+
+		public Entry(T listener)
 		{
-			action.accept((T) o);
+			this.listener = listener;
 		}
 	}
 
-	public interface OnChange
+	/**
+	 * Callback for when the first listener is added or the last one is
+	 * removed. Calls are never concurrent and are not made while holding
+	 * any lock, so it is safe to add or remove listeners from within the
+	 * callback.
+	 */
+	public interface OnActiveChange
 	{
-		void listenersChanged(int listenerCount);
+		void activeChanged(boolean active);
 	}
 }
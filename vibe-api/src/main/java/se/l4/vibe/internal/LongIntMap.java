@@ -0,0 +1,143 @@
+package se.l4.vibe.internal;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing map from {@code long} keys to non-negative {@code int}
+ * values. Used where boxing a key per entry would be too expensive, such as
+ * when keeping state for thousands of threads. Not thread-safe.
+ */
+public class LongIntMap
+{
+	private static final int MISSING = -1;
+
+	private long[] keys;
+	private int[] values;
+	private int size;
+
+	public LongIntMap(int expectedSize)
+	{
+		allocate(capacityFor(expectedSize));
+	}
+
+	/**
+	 * Get the number of entries in the map.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	/**
+	 * Get the value of the given key.
+	 *
+	 * @param key
+	 * @return
+	 *   the value, or {@code -1} if the key is not in the map
+	 */
+	public int get(long key)
+	{
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(values[i] != MISSING)
+		{
+			if(keys[i] == key)
+			{
+				return values[i];
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		return MISSING;
+	}
+
+	/**
+	 * Set the value of the given key.
+	 *
+	 * @param key
+	 * @param value
+	 *   the value, must not be negative
+	 */
+	public void put(long key, int value)
+	{
+		if(value < 0)
+		{
+			throw new IllegalArgumentException("value must be zero or positive");
+		}
+
+		if((size + 1) * 2 > keys.length)
+		{
+			resize(keys.length * 2);
+		}
+
+		int mask = keys.length - 1;
+		int i = hash(key) & mask;
+		while(values[i] != MISSING)
+		{
+			if(keys[i] == key)
+			{
+				values[i] = value;
+				return;
+			}
+
+			i = (i + 1) & mask;
+		}
+
+		keys[i] = key;
+		values[i] = value;
+		size++;
+	}
+
+	/**
+	 * Remove all entries, keeping the allocated capacity.
+	 */
+	public void clear()
+	{
+		Arrays.fill(values, MISSING);
+		size = 0;
+	}
+
+	private void resize(int capacity)
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+
+		allocate(capacity);
+		size = 0;
+
+		for(int i=0; i<oldKeys.length; i++)
+		{
+			if(oldValues[i] != MISSING)
+			{
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, MISSING);
+	}
+
+	private static int capacityFor(int expectedSize)
+	{
+		int capacity = 16;
+		while(capacity < expectedSize * 2)
+		{
+			capacity <<= 1;
+		}
+
+		return capacity;
+	}
+
+	private static int hash(long key)
+	{
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
@@ -1,8 +1,11 @@
 package se.l4.vibe.internal;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 import se.l4.vibe.Handle;
+import se.l4.vibe.Vibe;
 import se.l4.vibe.VibeBackend;
 import se.l4.vibe.checks.Check;
 import se.l4.vibe.events.Events;
@@ -84,6 +87,27 @@ public class MergedBackend
 		return new MergedHandle(handles);
 	}
 
+	@Override
+	public void exportInternalMetrics(Vibe vibe)
+	{
+		Map<String, Integer> names = new HashMap<>();
+		for(VibeBackend backend : backends)
+		{
+			/*
+			 * Backends are scoped using their name, with a counter added if
+			 * several backends of the same type are used.
+			 */
+			String name = backend.getClass().getSimpleName();
+			int count = names.merge(name, 1, Integer::sum);
+			if(count > 1)
+			{
+				name = name + "-" + count;
+			}
+
+			backend.exportInternalMetrics(vibe.scope(name));
+		}
+	}
+
 	@Override
 	public void close()
 	{
@@ -0,0 +1,168 @@
+package se.l4.vibe.internal;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import se.l4.vibe.JvmProbes.ProcessThreadsSnapshot;
+import se.l4.vibe.sampling.Sampler;
+
+/**
+ * Sampler that reads {@code status} of every thread in
+ * {@code /proc/self/task}. The kernel only reports context switches per
+ * thread, so they are summed here, using a {@link LongIntMap} keyed on the
+ * thread id to find the previous counts of every thread. All files are read
+ * into the buffer of a single {@link StatFile}.
+ */
+public class ProcessThreadsSampler
+	implements Sampler<ProcessThreadsSnapshot>
+{
+	private static final byte[] STATE = StatFile.key("State");
+	private static final byte[] VOLUNTARY = StatFile.key("voluntary_ctxt_switches");
+	private static final byte[] INVOLUNTARY = StatFile.key("nonvoluntary_ctxt_switches");
+
+	private final Path tasks;
+	private final StatFile file;
+
+	private LongIntMap previous;
+	private long[] previousVoluntary;
+	private long[] previousInvoluntary;
+
+	private LongIntMap current;
+	private long[] currentVoluntary;
+	private long[] currentInvoluntary;
+
+	public ProcessThreadsSampler(Path tasks)
+	{
+		this.tasks = tasks;
+
+		file = new StatFile(tasks.resolve("status"));
+
+		previous = new LongIntMap(64);
+		previousVoluntary = new long[64];
+		previousInvoluntary = new long[64];
+
+		current = new LongIntMap(64);
+		currentVoluntary = new long[64];
+		currentInvoluntary = new long[64];
+
+		sample();
+	}
+
+	@Override
+	public ProcessThreadsSnapshot sample()
+	{
+		int running = 0;
+		int sleeping = 0;
+		int waiting = 0;
+		int other = 0;
+		long voluntary = 0;
+		long involuntary = 0;
+
+		current.clear();
+		int count = 0;
+
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(tasks))
+		{
+			for(Path task : stream)
+			{
+				long id = parseId(task.getFileName().toString());
+				if(id < 0 || ! file.read(task.resolve("status")))
+				{
+					// Not a thread or the thread exited while listing
+					continue;
+				}
+
+				switch(file.getByte(STATE))
+				{
+					case 'R':
+						running++;
+						break;
+					case 'S':
+						sleeping++;
+						break;
+					case 'D':
+						waiting++;
+						break;
+					default:
+						other++;
+				}
+
+				long v = Math.max(0, file.getLong(VOLUNTARY));
+				long iv = Math.max(0, file.getLong(INVOLUNTARY));
+
+				int p = previous.get(id);
+				voluntary += v - (p < 0 ? 0 : previousVoluntary[p]);
+				involuntary += iv - (p < 0 ? 0 : previousInvoluntary[p]);
+
+				if(count == currentVoluntary.length)
+				{
+					currentVoluntary = grow(currentVoluntary);
+					currentInvoluntary = grow(currentInvoluntary);
+				}
+
+				current.put(id, count);
+				currentVoluntary[count] = v;
+				currentInvoluntary[count] = iv;
+				count++;
+			}
+		}
+		catch(IOException e)
+		{
+			// Report what was read, the next sample will try again
+		}
+
+		// Swap so that the current counts become the previous counts
+		LongIntMap map = previous;
+		previous = current;
+		current = map;
+
+		long[] array = previousVoluntary;
+		previousVoluntary = currentVoluntary;
+		currentVoluntary = array.length >= previousVoluntary.length ? array : new long[previousVoluntary.length];
+
+		array = previousInvoluntary;
+		previousInvoluntary = currentInvoluntary;
+		currentInvoluntary = array.length >= previousInvoluntary.length ? array : new long[previousInvoluntary.length];
+
+		return new ProcessThreadsSnapshot(
+			running,
+			sleeping,
+			waiting,
+			other,
+			voluntary,
+			involuntary
+		);
+	}
+
+	@Override
+	public void release()
+	{
+		file.release();
+	}
+
+	private static long[] grow(long[] array)
+	{
+		long[] result = new long[array.length * 2];
+		System.arraycopy(array, 0, result, 0, array.length);
+		return result;
+	}
+
+	private static long parseId(String name)
+	{
+		long result = 0;
+		for(int i=0; i<name.length(); i++)
+		{
+			char c = name.charAt(i);
+			if(c < '0' || c > '9')
+			{
+				return -1;
+			}
+
+			result = result * 10 + (c - '0');
+		}
+
+		return name.isEmpty() ? -1 : result;
+	}
+}
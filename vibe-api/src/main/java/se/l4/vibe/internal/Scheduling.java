@@ -6,15 +6,28 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import se.l4.vibe.Handle;
 
 /**
  * Internal class for scheduling things in Vibe. Will manage a small executor
  * that things like sampling run on in Vibe.
+ *
+ * <p>
+ * Samplers run on a pool of threads, so a slow sampler does not delay
+ * others. If a sampler takes longer than its interval the ticks it missed
+ * are skipped and counted as overruns, instead of being run back to back
+ * to catch up. Lag is measured using {@link System#nanoTime()}, so changes
+ * to the wall clock do not cause ticks to be skipped.
  */
 public class Scheduling
 {
+	private static final Logger logger = LoggerFactory.getLogger(Scheduling.class);
+
 	private static ScheduledExecutorService executor;
 	private static final AtomicInteger samplers;
 
@@ -55,28 +68,138 @@ public class Scheduling
 
 	public static Handle scheduleSampling(long sampleIntervalInMs, Runnable action)
 	{
-		if(executor == null)
+		return scheduleAdaptiveSampling(sampleIntervalInMs, () -> {
+			action.run();
+			return sampleIntervalInMs;
+		});
+	}
+
+	/**
+	 * Schedule sampling where the interval can change after every run. The
+	 * action returns the interval in milliseconds until it should run next,
+	 * runs are aligned to multiples of that interval.
+	 *
+	 * @param initialInterval
+	 * @param action
+	 * @return
+	 */
+	public static Handle scheduleAdaptiveSampling(long initialInterval, LongSupplier action)
+	{
+		AdaptiveAction adaptive = new AdaptiveAction(action);
+		synchronized(Scheduling.class)
 		{
 			startExecutor();
+			samplers.incrementAndGet();
+			adaptive.schedule(initialInterval);
 		}
 
-		long initialDelay = sampleIntervalInMs - (System.currentTimeMillis() % sampleIntervalInMs);
-		ScheduledFuture<?> future = executor.scheduleAtFixedRate(
-			action,
-			initialDelay,
-			sampleIntervalInMs,
-			TimeUnit.MILLISECONDS
-		);
-		samplers.incrementAndGet();
+		return adaptive::cancel;
+	}
+
+	/**
+	 * Action that reschedules itself with the interval returned by the
+	 * sampling action. As only one run is scheduled at a time a slow run
+	 * delays the next one instead of causing runs to queue up, the ticks that
+	 * passed while running are skipped and counted as overruns.
+	 *
+	 * <p>
+	 * Runs are aligned to the wall clock, but lag is measured using
+	 * {@link System#nanoTime()} from when the run was scheduled, so a step
+	 * of the wall clock or a suspended machine only moves the next tick.
+	 */
+	private static class AdaptiveAction
+		implements Runnable
+	{
+		private final LongSupplier action;
 
-		return () -> {
-			if(future.isCancelled()) return;
+		private boolean cancelled;
+		private ScheduledFuture<?> future;
+		private long interval;
+		private long expectedNanos;
 
-			future.cancel(false);
-			if(samplers.decrementAndGet() == 0)
+		public AdaptiveAction(LongSupplier action)
+		{
+			this.action = action;
+		}
+
+		/**
+		 * Schedule the next run, must be called while holding the lock on
+		 * {@link Scheduling}.
+		 *
+		 * @param interval
+		 */
+		private void schedule(long interval)
+		{
+			if(cancelled) return;
+
+			this.interval = Math.max(1, interval);
+
+			long now = System.currentTimeMillis();
+			long delay = this.interval - (now % this.interval);
+			expectedNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay);
+			future = executor.schedule(this, delay, TimeUnit.MILLISECONDS);
+		}
+
+		@Override
+		public void run()
+		{
+			long expectedNanos;
+			long interval;
+			synchronized(Scheduling.class)
 			{
-				stopExecutor();
+				if(cancelled) return;
+
+				expectedNanos = this.expectedNanos;
+				interval = this.interval;
 			}
-		};
+
+			if(InternalMetrics.isEnabled())
+			{
+				long lag = System.nanoTime() - expectedNanos;
+				InternalMetrics.SAMPLING_LAG.record(Math.max(0, lag), TimeUnit.NANOSECONDS);
+			}
+
+			long next;
+			try
+			{
+				next = action.getAsLong();
+			}
+			catch(RuntimeException e)
+			{
+				logger.warn("Sampling failed; " + e.getMessage(), e);
+				next = interval;
+			}
+
+			long missed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - expectedNanos) / interval;
+			if(missed > 0)
+			{
+				if(InternalMetrics.isEnabled())
+				{
+					InternalMetrics.SAMPLING_OVERRUNS.add(missed);
+				}
+
+				logger.debug("Sampling took longer than " + interval + " ms, skipping " + missed + " ticks");
+			}
+
+			synchronized(Scheduling.class)
+			{
+				schedule(next);
+			}
+		}
+
+		public void cancel()
+		{
+			synchronized(Scheduling.class)
+			{
+				if(cancelled) return;
+
+				cancelled = true;
+				future.cancel(false);
+				if(samplers.decrementAndGet() == 0)
+				{
+					stopExecutor();
+				}
+			}
+		}
 	}
 }
@@ -19,6 +19,7 @@ public class ScopedVibe
 	private final VibeImpl vibe;
 	private final VibeBackend parent;
 	private final String scope;
+	private final boolean internal;
 
 	private final Set<Export<?>> exports;
 
@@ -27,10 +28,21 @@ public class ScopedVibe
 		VibeBackend parent,
 		String scope
 	)
+	{
+		this(vibe, parent, scope, false);
+	}
+
+	public ScopedVibe(
+		VibeImpl vibe,
+		VibeBackend parent,
+		String scope,
+		boolean internal
+	)
 	{
 		this.vibe = vibe;
 		this.parent = parent;
 		this.scope = scope;
+		this.internal = internal;
 
 		this.exports = new HashSet<>();
 	}
@@ -42,13 +54,13 @@ public class ScopedVibe
 			scope,
 			VibePaths.hierarchy(hierarchy)
 		);
-		return new ScopedVibe(vibe, parent, path);
+		return new ScopedVibe(vibe, parent, path, internal);
 	}
 
 	@Override
 	public <T extends Exportable> ExportBuilder<T> export(T object)
 	{
-		return vibe.export(scope, object, this::mapExport);
+		return vibe.export(scope, object, this::mapExport, internal);
 	}
 
 	@Override
@@ -0,0 +1,474 @@
+package se.l4.vibe.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import se.l4.vibe.Handle;
+
+/**
+ * Reader for the small text files exposed by the kernel, such as the files
+ * in {@code /sys/fs/cgroup} and {@code /proc}. The file is kept open and
+ * read from the start into a reused direct buffer, and values are parsed
+ * straight from the bytes so that reading does not allocate.
+ *
+ * <p>
+ * Values are looked up via keys created with {@link #key(String)}. A key
+ * matches a word at the start of a line or after whitespace that is followed
+ * by any number of spaces, tabs, {@code :} or {@code =} and then the value,
+ * which covers formats such as {@code nr_periods 10}, {@code rbytes=10} and
+ * {@code VmRSS:\t  1024 kB}.
+ *
+ * <p>
+ * Not thread-safe, every sampler should use its own instance.
+ */
+public class StatFile
+	implements Handle
+{
+	private final Path path;
+
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private int length;
+
+	public StatFile(Path path)
+	{
+		this.path = path;
+
+		buffer = ByteBuffer.allocateDirect(4096);
+	}
+
+	/**
+	 * Create a key that can be used to find values in a file.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static byte[] key(String name)
+	{
+		return name.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	/**
+	 * Read the current contents of the file.
+	 *
+	 * @return
+	 *   {@code true} if the file could be read
+	 */
+	public boolean read()
+	{
+		length = 0;
+
+		try
+		{
+			if(channel == null)
+			{
+				channel = FileChannel.open(path, StandardOpenOption.READ);
+			}
+
+			readFrom(channel);
+			return true;
+		}
+		catch(IOException e)
+		{
+			release();
+			return false;
+		}
+	}
+
+	/**
+	 * Read the contents of another file into the buffer of this instance,
+	 * such as when reading the same file for many threads. The other file
+	 * is closed directly after it has been read.
+	 *
+	 * @param other
+	 * @return
+	 *   {@code true} if the file could be read
+	 */
+	public boolean read(Path other)
+	{
+		length = 0;
+
+		try(FileChannel otherChannel = FileChannel.open(other, StandardOpenOption.READ))
+		{
+			readFrom(otherChannel);
+			return true;
+		}
+		catch(IOException e)
+		{
+			return false;
+		}
+	}
+
+	private void readFrom(FileChannel channel)
+		throws IOException
+	{
+		buffer.clear();
+		long position = 0;
+		while(true)
+		{
+			int read = channel.read(buffer, position);
+			if(read < 0)
+			{
+				break;
+			}
+
+			position += read;
+			if(! buffer.hasRemaining())
+			{
+				ByteBuffer larger = ByteBuffer.allocateDirect(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+		}
+
+		length = buffer.position();
+	}
+
+	/**
+	 * Get the value of the first occurrence of a key.
+	 *
+	 * @param key
+	 * @return
+	 *   the value, or {@code -1} if the key does not exist
+	 */
+	public long getLong(byte[] key)
+	{
+		int idx = find(0, length, key);
+		return idx < 0 ? -1 : parseLong(idx);
+	}
+
+	/**
+	 * Get the sum of all the values of a key, such as when a value is
+	 * reported once per device.
+	 *
+	 * @param key
+	 * @return
+	 *   the sum, or {@code 0} if the key does not exist
+	 */
+	public long sumLong(byte[] key)
+	{
+		long sum = 0;
+		int from = 0;
+		while(true)
+		{
+			int idx = find(from, length, key);
+			if(idx < 0)
+			{
+				return sum;
+			}
+
+			long value = parseLong(idx);
+			if(value > 0)
+			{
+				sum += value;
+			}
+
+			from = idx;
+		}
+	}
+
+	/**
+	 * Get the value of a key on the line starting with the given word, such
+	 * as {@code avg10} on the {@code some} line of a pressure file.
+	 *
+	 * @param line
+	 * @param key
+	 * @return
+	 *   the value, or {@code -1} if the line or key does not exist
+	 */
+	public long getLong(byte[] line, byte[] key)
+	{
+		int start = findLine(line);
+		if(start < 0)
+		{
+			return -1;
+		}
+
+		int idx = find(start, lineEnd(start), key);
+		return idx < 0 ? -1 : parseLong(idx);
+	}
+
+	/**
+	 * Get a decimal value of a key on the line starting with the given word.
+	 *
+	 * @param line
+	 * @param key
+	 * @return
+	 *   the value, or {@code NaN} if the line or key does not exist
+	 */
+	public double getDouble(byte[] line, byte[] key)
+	{
+		int start = findLine(line);
+		if(start < 0)
+		{
+			return Double.NaN;
+		}
+
+		int idx = find(start, lineEnd(start), key);
+		return idx < 0 ? Double.NaN : parseDouble(idx);
+	}
+
+	/**
+	 * Get a value by its position on the first line, such as the period in
+	 * {@code max 100000}.
+	 *
+	 * @param index
+	 * @return
+	 *   the value, or {@code -1} if the token does not exist or is not a
+	 *   number
+	 */
+	public long getToken(int index)
+	{
+		int i = tokenStart(0, lineEnd(0), index);
+		return i < 0 ? -1 : parseLong(i);
+	}
+
+	/**
+	 * Get a value by its position after the last occurrence of a byte, such
+	 * as the fields after the command name in {@code /proc/self/stat}.
+	 *
+	 * @param marker
+	 * @param index
+	 * @return
+	 *   the value, or {@code -1} if the token does not exist or is not a
+	 *   number
+	 */
+	public long getTokenAfterLast(byte marker, int index)
+	{
+		int i = tokenStartAfterLast(marker, index);
+		return i < 0 ? -1 : parseLong(i);
+	}
+
+	/**
+	 * Get the first byte of a token after the last occurrence of a byte,
+	 * such as the state of a process in {@code /proc/self/stat}.
+	 *
+	 * @param marker
+	 * @param index
+	 * @return
+	 *   the byte, or {@code 0} if the token does not exist
+	 */
+	public byte getByteAfterLast(byte marker, int index)
+	{
+		int i = tokenStartAfterLast(marker, index);
+		return i < 0 ? 0 : buffer.get(i);
+	}
+
+	/**
+	 * Get the first byte of the value of a key, such as the state in
+	 * {@code State:\tS (sleeping)}.
+	 *
+	 * @param key
+	 * @return
+	 *   the byte, or {@code 0} if the key does not exist
+	 */
+	public byte getByte(byte[] key)
+	{
+		int idx = find(0, length, key);
+		return idx < 0 || idx >= length ? 0 : buffer.get(idx);
+	}
+
+	private int tokenStartAfterLast(byte marker, int index)
+	{
+		for(int i=length-1; i>=0; i--)
+		{
+			if(buffer.get(i) == marker)
+			{
+				return tokenStart(i + 1, length, index);
+			}
+		}
+
+		return -1;
+	}
+
+	private int tokenStart(int from, int to, int index)
+	{
+		int i = from;
+		for(int token=0; token<=index; token++)
+		{
+			while(i < to && isSpace(buffer.get(i))) i++;
+
+			if(i >= to)
+			{
+				return -1;
+			}
+
+			if(token == index)
+			{
+				return i;
+			}
+
+			while(i < to && ! isSpace(buffer.get(i))) i++;
+		}
+
+		return -1;
+	}
+
+	@Override
+	public void release()
+	{
+		if(channel == null)
+		{
+			return;
+		}
+
+		try
+		{
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			// Nothing useful can be done if closing fails
+		}
+
+		channel = null;
+	}
+
+	/**
+	 * Find a key between the given positions.
+	 *
+	 * @return
+	 *   the position of the value of the key, or {@code -1} if not found
+	 */
+	private int find(int from, int to, byte[] key)
+	{
+		int last = to - key.length;
+		for(int i=from; i<last; i++)
+		{
+			if(i > 0 && ! isSpace(buffer.get(i - 1)))
+			{
+				continue;
+			}
+
+			if(! matches(i, key) || ! isSeparator(buffer.get(i + key.length)))
+			{
+				continue;
+			}
+
+			int value = i + key.length;
+			while(value < to && isSeparator(buffer.get(value))) value++;
+			return value;
+		}
+
+		return -1;
+	}
+
+	private static boolean isSpace(byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\n';
+	}
+
+	private static boolean isSeparator(byte b)
+	{
+		return b == ' ' || b == '\t' || b == ':' || b == '=';
+	}
+
+	private int findLine(byte[] word)
+	{
+		int i = 0;
+		while(i < length)
+		{
+			if(matches(i, word) && i + word.length < length && isSeparator(buffer.get(i + word.length)))
+			{
+				return i;
+			}
+
+			i = lineEnd(i) + 1;
+		}
+
+		return -1;
+	}
+
+	private int lineEnd(int from)
+	{
+		for(int i=from; i<length; i++)
+		{
+			if(buffer.get(i) == '\n')
+			{
+				return i;
+			}
+		}
+
+		return length;
+	}
+
+	private boolean matches(int at, byte[] word)
+	{
+		if(at + word.length > length)
+		{
+			return false;
+		}
+
+		for(int i=0; i<word.length; i++)
+		{
+			if(buffer.get(at + i) != word[i])
+			{
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private long parseLong(int at)
+	{
+		boolean negative = at < length && buffer.get(at) == '-';
+		int i = negative ? at + 1 : at;
+
+		long result = 0;
+		int digits = 0;
+		while(i < length && buffer.get(i) >= '0' && buffer.get(i) <= '9')
+		{
+			result = result * 10 + (buffer.get(i) - '0');
+			digits++;
+			i++;
+		}
+
+		if(digits == 0)
+		{
+			return -1;
+		}
+
+		return negative ? -result : result;
+	}
+
+	private double parseDouble(int at)
+	{
+		int i = at;
+		long whole = 0;
+		int digits = 0;
+		while(i < length && buffer.get(i) >= '0' && buffer.get(i) <= '9')
+		{
+			whole = whole * 10 + (buffer.get(i) - '0');
+			digits++;
+			i++;
+		}
+
+		if(digits == 0)
+		{
+			return Double.NaN;
+		}
+
+		if(i >= length || buffer.get(i) != '.')
+		{
+			return whole;
+		}
+
+		i++;
+		long fraction = 0;
+		long scale = 1;
+		while(i < length && buffer.get(i) >= '0' && buffer.get(i) <= '9' && scale < 1_000_000_000_000L)
+		{
+			fraction = fraction * 10 + (buffer.get(i) - '0');
+			scale *= 10;
+			i++;
+		}
+
+		return whole + fraction / (double) scale;
+	}
+}
@@ -0,0 +1,233 @@
+package se.l4.vibe.internal;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.sun.management.ThreadMXBean;
+
+import se.l4.vibe.JvmProbes.ThreadUsage;
+import se.l4.vibe.JvmProbes.ThreadUsageSnapshot;
+import se.l4.vibe.sampling.Sampler;
+
+/**
+ * Sampler that finds the threads that used the most CPU time and allocated
+ * the most bytes since the previous sample. Readings are taken with the bulk
+ * methods of {@link ThreadMXBean} and the previous reading of every thread is
+ * found via a {@link LongIntMap} keyed on the thread id, so no objects are
+ * created per thread. Names are only looked up for the threads that end up
+ * in the top lists.
+ */
+public class ThreadUsageSampler
+	implements Sampler<ThreadUsageSnapshot>
+{
+	private final ThreadMXBean threads;
+	private final int limit;
+	private final boolean cpuSupported;
+	private final boolean allocationSupported;
+
+	private final LongIntMap previous;
+	private long[] previousCpu;
+	private long[] previousAllocated;
+
+	private long[] cpuDeltas;
+	private long[] allocatedDeltas;
+	private final int[] heap;
+
+	public ThreadUsageSampler(int limit)
+	{
+		this.limit = limit;
+
+		threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+		cpuSupported = threads.isThreadCpuTimeSupported();
+		allocationSupported = threads.isThreadAllocatedMemorySupported();
+
+		long[] ids = threads.getAllThreadIds();
+		previous = new LongIntMap(ids.length);
+		cpuDeltas = new long[ids.length];
+		allocatedDeltas = new long[ids.length];
+		heap = new int[limit];
+
+		remember(ids, readCpu(ids), readAllocated(ids));
+	}
+
+	@Override
+	public ThreadUsageSnapshot sample()
+	{
+		long[] ids = threads.getAllThreadIds();
+		long[] cpu = readCpu(ids);
+		long[] allocated = readAllocated(ids);
+
+		if(cpuDeltas.length < ids.length)
+		{
+			cpuDeltas = new long[ids.length];
+			allocatedDeltas = new long[ids.length];
+		}
+
+		for(int i=0; i<ids.length; i++)
+		{
+			int p = previous.get(ids[i]);
+			cpuDeltas[i] = delta(cpu[i], p < 0 ? 0 : previousCpu[p]);
+			allocatedDeltas[i] = delta(allocated[i], p < 0 ? 0 : previousAllocated[p]);
+		}
+
+		remember(ids, cpu, allocated);
+
+		int[] topCpu = top(cpuDeltas, ids.length);
+		int[] topAllocated = top(allocatedDeltas, ids.length);
+
+		return new ThreadUsageSnapshot(
+			toUsage(ids, topCpu),
+			toUsage(ids, topAllocated)
+		);
+	}
+
+	private void remember(long[] ids, long[] cpu, long[] allocated)
+	{
+		previous.clear();
+		for(int i=0; i<ids.length; i++)
+		{
+			previous.put(ids[i], i);
+		}
+
+		previousCpu = cpu;
+		previousAllocated = allocated;
+	}
+
+	private long[] readCpu(long[] ids)
+	{
+		return cpuSupported ? threads.getThreadCpuTime(ids) : new long[ids.length];
+	}
+
+	private long[] readAllocated(long[] ids)
+	{
+		return allocationSupported ? threads.getThreadAllocatedBytes(ids) : new long[ids.length];
+	}
+
+	private static long delta(long current, long previous)
+	{
+		// Negative values are reported for threads that are no longer alive
+		if(current <= 0)
+		{
+			return 0;
+		}
+
+		return current - Math.max(0, previous);
+	}
+
+	/**
+	 * Find the indexes of the highest non-zero scores using a bounded
+	 * min-heap.
+	 *
+	 * @param scores
+	 * @param count
+	 * @return
+	 *   indexes ordered from highest to lowest score
+	 */
+	private int[] top(long[] scores, int count)
+	{
+		int size = 0;
+		for(int i=0; i<count; i++)
+		{
+			long score = scores[i];
+			if(score <= 0)
+			{
+				continue;
+			}
+
+			if(size < limit)
+			{
+				heap[size] = i;
+				siftUp(scores, size++);
+			}
+			else if(score > scores[heap[0]])
+			{
+				heap[0] = i;
+				siftDown(scores, 0, size);
+			}
+		}
+
+		int[] result = new int[size];
+		for(int i=size-1; i>=0; i--)
+		{
+			result[i] = heap[0];
+			heap[0] = heap[i];
+			siftDown(scores, 0, i);
+		}
+
+		return result;
+	}
+
+	private void siftUp(long[] scores, int i)
+	{
+		while(i > 0)
+		{
+			int parent = (i - 1) >>> 1;
+			if(scores[heap[parent]] <= scores[heap[i]])
+			{
+				return;
+			}
+
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(long[] scores, int i, int size)
+	{
+		while(true)
+		{
+			int smallest = i;
+			int left = 2 * i + 1;
+			int right = left + 1;
+
+			if(left < size && scores[heap[left]] < scores[heap[smallest]])
+			{
+				smallest = left;
+			}
+
+			if(right < size && scores[heap[right]] < scores[heap[smallest]])
+			{
+				smallest = right;
+			}
+
+			if(smallest == i)
+			{
+				return;
+			}
+
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int a, int b)
+	{
+		int t = heap[a];
+		heap[a] = heap[b];
+		heap[b] = t;
+	}
+
+	private List<ThreadUsage> toUsage(long[] ids, int[] indexes)
+	{
+		long[] topIds = new long[indexes.length];
+		for(int i=0; i<indexes.length; i++)
+		{
+			topIds[i] = ids[indexes[i]];
+		}
+
+		ThreadInfo[] infos = threads.getThreadInfo(topIds, 0);
+
+		List<ThreadUsage> result = new ArrayList<>(indexes.length);
+		for(int i=0; i<indexes.length; i++)
+		{
+			int idx = indexes[i];
+			String name = infos[i] != null ? infos[i].getThreadName() : "thread-" + topIds[i];
+
+			result.add(new ThreadUsage(topIds[i], name, cpuDeltas[idx], allocatedDeltas[idx]));
+		}
+
+		return result;
+	}
+}
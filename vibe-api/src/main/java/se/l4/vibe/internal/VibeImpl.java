@@ -18,6 +18,8 @@ import se.l4.vibe.VibeException;
 import se.l4.vibe.VibePaths;
 import se.l4.vibe.checks.Check;
 import se.l4.vibe.events.Events;
+import se.l4.vibe.internal.sampling.SharedProbe;
+import se.l4.vibe.internal.sampling.SharedSampledProbe;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 import se.l4.vibe.sampling.TimeSampler;
@@ -29,9 +31,18 @@ import se.l4.vibe.timers.Timer;
 public class VibeImpl
 	implements Vibe
 {
+	/**
+	 * Path that metrics about Vibe itself are exported under.
+	 */
+	public static final String INTERNAL_SCOPE = "vibe";
+
 	private final Map<String, Handle> exported;
 	private final VibeBackend backend;
 
+	private final boolean shareProbes;
+	private final boolean internalMetrics;
+	private final Handle internalMetricsHandle;
+
 	/**
 	 * Create a new instance.
 	 *
@@ -41,10 +52,46 @@ public class VibeImpl
 	public VibeImpl(
 		VibeBackend[] backends
 	)
+	{
+		this(backends, false);
+	}
+
+	/**
+	 * Create a new instance.
+	 *
+	 * @param backends
+	 * 	backends that should be used when exporting metrics
+	 * @param internalMetrics
+	 *   if metrics about Vibe itself should be exported
+	 */
+	public VibeImpl(
+		VibeBackend[] backends,
+		boolean internalMetrics
+	)
 	{
 		exported = new ConcurrentHashMap<>();
 
 		this.backend = new MergedBackend(backends);
+		this.internalMetrics = internalMetrics;
+
+		/*
+		 * Probes are shared if several backends will sample them or if
+		 * reads should be measured.
+		 */
+		this.shareProbes = backends.length > 1 || internalMetrics;
+
+		if(internalMetrics)
+		{
+			Vibe internal = new ScopedVibe(this, backend, INTERNAL_SCOPE, true);
+			InternalMetrics.export(internal);
+			backend.exportInternalMetrics(internal.scope("backends"));
+
+			internalMetricsHandle = InternalMetrics.enable();
+		}
+		else
+		{
+			internalMetricsHandle = Handle.empty();
+		}
 	}
 
 	@Override
@@ -64,6 +111,29 @@ public class VibeImpl
 		T object,
 		Function<Export<T>, Export<T>> exportMapper
 	)
+	{
+		return export(path0, object, exportMapper, false);
+	}
+
+	/**
+	 * Start exporting an object.
+	 *
+	 * @param path0
+	 *   the path to start at
+	 * @param object
+	 *   the object being exported
+	 * @param exportMapper
+	 *   optional function to apply to the export
+	 * @param internal
+	 *   if the export is allowed to use the path reserved for internal metrics
+	 * @return
+	 */
+	public <T extends Exportable> ExportBuilder<T> export(
+		String path0,
+		T object,
+		Function<Export<T>, Export<T>> exportMapper,
+		boolean internal
+	)
 	{
 		return new ExportBuilder<T>()
 		{
@@ -89,6 +159,11 @@ public class VibeImpl
 			@Override
 			public Export<T> done()
 			{
+				if(! internal && isInternalPath(path))
+				{
+					throw new VibeException("path is reserved for internal metrics: " + path);
+				}
+
 				Export<T> result = exportObject(path, object);
 
 				if(exportMapper != null)
@@ -112,6 +187,9 @@ public class VibeImpl
 			handle.release();
 		}
 
+		// Stop collecting internal metrics
+		internalMetricsHandle.release();
+
 		// Ask the backends to stop
 		this.backend.close();
 
@@ -146,11 +224,27 @@ public class VibeImpl
 		}
 		else if(object instanceof SampledProbe)
 		{
-			handle = backend.export(path, (SampledProbe) object);
+			if(shareProbes)
+			{
+				SharedSampledProbe<?> shared = new SharedSampledProbe<>((SampledProbe) object);
+				handle = withReadMetrics(path, shared.getReadTimer(), backend.export(path, shared));
+			}
+			else
+			{
+				handle = backend.export(path, (SampledProbe) object);
+			}
 		}
 		else if(object instanceof Probe)
 		{
-			handle = backend.export(path, (Probe) object);
+			if(shareProbes)
+			{
+				SharedProbe<?> shared = new SharedProbe<>((Probe) object);
+				handle = withReadMetrics(path, shared.getReadTimer(), backend.export(path, shared));
+			}
+			else
+			{
+				handle = backend.export(path, (Probe) object);
+			}
 		}
 		else
 		{
@@ -176,10 +270,53 @@ public class VibeImpl
 		};
 	}
 
+	/**
+	 * Export the read count and latency of a shared probe if internal
+	 * metrics are enabled.
+	 *
+	 * @param path
+	 *   the path the probe is exported at
+	 * @param reads
+	 *   timer measuring reads of the probe
+	 * @param handle
+	 *   handle of the probe export
+	 * @return
+	 *   handle that releases both the probe and the metrics
+	 */
+	private Handle withReadMetrics(String path, Timer reads, Handle handle)
+	{
+		if(! internalMetrics || isInternalPath(path)) return handle;
+
+		Handle metricsHandle = backend.export(
+			VibePaths.merge(VibePaths.hierarchy(INTERNAL_SCOPE, "probes"), path),
+			reads.getSnapshotProbe()
+		);
+
+		return () -> {
+			handle.release();
+			metricsHandle.release();
+		};
+	}
+
+	/**
+	 * Get if the given path is reserved for internal metrics.
+	 *
+	 * @param path
+	 * @return
+	 */
+	private boolean isInternalPath(String path)
+	{
+		return internalMetrics
+			&& path != null
+			&& path.startsWith(INTERNAL_SCOPE)
+			&& (path.length() == INTERNAL_SCOPE.length() || path.charAt(INTERNAL_SCOPE.length()) == VibePaths.SEPARATOR);
+	}
+
 	public static class BuilderImpl
 		implements Builder
 	{
 		private final List<VibeBackend> backends;
+		private boolean internalMetrics;
 
 		public BuilderImpl()
 		{
@@ -207,10 +344,18 @@ public class VibeImpl
 			return this;
 		}
 
+		@Override
+		public Builder withInternalMetrics()
+		{
+			internalMetrics = true;
+			return this;
+		}
+
 		public Vibe build()
 		{
 			return new VibeImpl(
-				backends.toArray(new VibeBackend[backends.size()])
+				backends.toArray(new VibeBackend[backends.size()]),
+				internalMetrics
 			);
 		}
 	}
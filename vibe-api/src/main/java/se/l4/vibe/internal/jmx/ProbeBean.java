@@ -4,6 +4,8 @@ import java.util.Collection;
 import java.util.Collections;
 
 import se.l4.vibe.probes.Probe;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.Snapshots;
 
 /**
  * Wrapper for {@link Probe} to treat it as a service.
@@ -32,7 +34,13 @@ public class ProbeBean
 		switch(attribute)
 		{
 			case "currentValue":
-				return probe.read();
+				Object value = probe.read();
+				if(value instanceof Snapshot)
+				{
+					return Snapshots.toString((Snapshot) value);
+				}
+
+				return value;
 		}
 
 		return null;
@@ -1,5 +1,7 @@
 package se.l4.vibe.internal.sampling;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import se.l4.vibe.Handle;
 import se.l4.vibe.internal.Listeners;
 import se.l4.vibe.sampling.Sample;
@@ -7,7 +9,9 @@ import se.l4.vibe.sampling.SampleListener;
 import se.l4.vibe.sampling.TimeSampler;
 
 /**
- * Abstract implementation of {@link TimeSampler}.
+ * Abstract implementation of {@link TimeSampler}. Samples are published
+ * atomically before they are delivered to listeners, so the last sample can
+ * be read from any thread. No lock is held while listeners run.
  *
  * @param <T>
  */
@@ -16,16 +20,18 @@ public abstract class AbstractTimeSampler<T>
 {
 	private final Listeners<SampleListener<T>> listeners;
 
-	private Sample<T> lastSample;
+	private final AtomicReference<Sample<T>> lastSample;
 
 	public AbstractTimeSampler()
 	{
-		listeners = new Listeners<>(count -> {
-			if(count == 1)
+		lastSample = new AtomicReference<>();
+
+		listeners = new Listeners<>(active -> {
+			if(active)
 			{
 				startSampling();
 			}
-			else if(count == 0)
+			else
 			{
 				stopSampling();
 			}
@@ -35,7 +41,7 @@ public abstract class AbstractTimeSampler<T>
 	@Override
 	public Sample<T> getLastSample()
 	{
-		return lastSample;
+		return lastSample.get();
 	}
 
 	@Override
@@ -56,18 +62,27 @@ public abstract class AbstractTimeSampler<T>
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Register a new sample and deliver it to all listeners. Safe to call
+	 * from several threads, the last sample is only replaced by samples that
+	 * are not older than it.
+	 *
+	 * @param time
+	 * @param value
+	 */
 	protected void registerSample(long time, T value)
 	{
-		// TODO: Concurrency
-
 		Sample<T> sample = new SampleImpl<>(time, value);
-		lastSample = sample;
+		lastSample.accumulateAndGet(sample, (current, next) ->
+			current == null || next.getTime() >= current.getTime() ? next : current
+		);
+
 		listeners.forEach(l -> l.sampleAcquired(sample));
 	}
 
 	protected Sample<T> lastSample()
 	{
-		return lastSample;
+		return lastSample.get();
 	}
 
 	protected void startSampling()
@@ -0,0 +1,321 @@
+package se.l4.vibe.internal.sampling;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeException;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.sampling.AdaptiveInterval;
+import se.l4.vibe.snapshots.MapSnapshot;
+
+/**
+ * Implementation of {@link AdaptiveInterval}. {@link #next(Object)} is only
+ * called by the sampler, one sample at a time, the state is published via
+ * volatile fields so that it can be read from other threads.
+ */
+public class AdaptiveIntervalImpl
+	implements AdaptiveInterval
+{
+	private final long minimum;
+	private final long maximum;
+	private final int stableSamples;
+	private final double changeThreshold;
+	private final List<Check> checks;
+	private final List<BooleanSupplier> conditions;
+
+	private final AtomicBoolean inUse;
+	private final List<Handle> checkHandles;
+
+	private final AtomicLong speedUps;
+	private final AtomicLong slowDowns;
+	private volatile long interval;
+	private volatile String reason;
+
+	private double previous;
+	private int stable;
+
+	private AdaptiveIntervalImpl(
+		long minimum,
+		long maximum,
+		int stableSamples,
+		double changeThreshold,
+		List<Check> checks,
+		List<BooleanSupplier> conditions
+	)
+	{
+		this.minimum = minimum;
+		this.maximum = maximum;
+		this.stableSamples = stableSamples;
+		this.changeThreshold = changeThreshold;
+		this.checks = checks;
+		this.conditions = conditions;
+
+		inUse = new AtomicBoolean();
+		checkHandles = new ArrayList<>();
+
+		speedUps = new AtomicLong();
+		slowDowns = new AtomicLong();
+		interval = maximum;
+		reason = "initial";
+	}
+
+	@Override
+	public Duration getMinimumInterval()
+	{
+		return Duration.ofMillis(minimum);
+	}
+
+	@Override
+	public Duration getMaximumInterval()
+	{
+		return Duration.ofMillis(maximum);
+	}
+
+	@Override
+	public Probe<MapSnapshot> getStateProbe()
+	{
+		return () -> MapSnapshot.builder()
+			.set("interval", interval)
+			.set("speedUps", speedUps.get())
+			.set("slowDowns", slowDowns.get())
+			.set("reason", reason)
+			.build();
+	}
+
+	/**
+	 * Get the interval currently used.
+	 *
+	 * @return
+	 *   interval in milliseconds
+	 */
+	public long getCurrentInterval()
+	{
+		return interval;
+	}
+
+	/**
+	 * Start controlling a sampler.
+	 *
+	 * @return
+	 *   the interval to start sampling at in milliseconds
+	 */
+	public long start()
+	{
+		if(! inUse.compareAndSet(false, true))
+		{
+			throw new VibeException("AdaptiveInterval is already in use by another sampler");
+		}
+
+		for(Check check : checks)
+		{
+			checkHandles.add(check.start());
+		}
+
+		previous = Double.NaN;
+		stable = 0;
+		interval = maximum;
+		reason = "initial";
+
+		return maximum;
+	}
+
+	/**
+	 * Stop controlling the current sampler.
+	 */
+	public void stop()
+	{
+		for(Handle handle : checkHandles)
+		{
+			handle.release();
+		}
+
+		checkHandles.clear();
+		inUse.set(false);
+	}
+
+	/**
+	 * Decide the interval to use after the given value has been sampled.
+	 *
+	 * @param value
+	 * @return
+	 *   interval in milliseconds
+	 */
+	public long next(Object value)
+	{
+		String trigger = null;
+		for(BooleanSupplier condition : conditions)
+		{
+			if(condition.getAsBoolean())
+			{
+				trigger = "condition";
+				break;
+			}
+		}
+
+		if(! Double.isNaN(changeThreshold) && value instanceof Number)
+		{
+			double current = ((Number) value).doubleValue();
+			if(trigger == null && ! Double.isNaN(previous) && exceedsThreshold(previous, current))
+			{
+				trigger = "change";
+			}
+
+			previous = current;
+		}
+
+		if(trigger != null)
+		{
+			stable = 0;
+			if(interval != minimum)
+			{
+				interval = minimum;
+				reason = trigger;
+				speedUps.incrementAndGet();
+			}
+		}
+		else if(++stable >= stableSamples)
+		{
+			stable = 0;
+			long next = Math.min(maximum, interval * 2);
+			if(next != interval)
+			{
+				interval = next;
+				reason = "stable";
+				slowDowns.incrementAndGet();
+			}
+		}
+
+		return interval;
+	}
+
+	private boolean exceedsThreshold(double previous, double current)
+	{
+		if(previous == current)
+		{
+			return false;
+		}
+
+		double base = Math.abs(previous);
+		if(base == 0)
+		{
+			// Any change from zero is treated as a large change
+			return true;
+		}
+
+		return Math.abs(current - previous) / base > changeThreshold;
+	}
+
+	public static class BuilderImpl
+		implements Builder
+	{
+		private Duration minimum;
+		private Duration maximum;
+		private int stableSamples;
+		private double changeThreshold;
+
+		private final List<Check> checks;
+		private final List<BooleanSupplier> conditions;
+
+		public BuilderImpl()
+		{
+			minimum = Duration.ofSeconds(1);
+			maximum = Duration.ofMinutes(1);
+			stableSamples = 3;
+			changeThreshold = Double.NaN;
+
+			checks = new ArrayList<>();
+			conditions = new ArrayList<>();
+		}
+
+		@Override
+		public Builder withMinimumInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval must be specified");
+			this.minimum = interval;
+			return this;
+		}
+
+		@Override
+		public Builder withMaximumInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval must be specified");
+			this.maximum = interval;
+			return this;
+		}
+
+		@Override
+		public Builder withStableSamples(int samples)
+		{
+			if(samples < 1)
+			{
+				throw new IllegalArgumentException("samples must be at least 1");
+			}
+
+			this.stableSamples = samples;
+			return this;
+		}
+
+		@Override
+		public Builder whenChangeExceeds(double fraction)
+		{
+			if(! (fraction >= 0))
+			{
+				throw new IllegalArgumentException("fraction must be zero or positive");
+			}
+
+			this.changeThreshold = fraction;
+			return this;
+		}
+
+		@Override
+		public Builder whenCheckMet(Check check)
+		{
+			Objects.requireNonNull(check, "check must be specified");
+
+			checks.add(check);
+			conditions.add(check::isConditionsMet);
+			return this;
+		}
+
+		@Override
+		public Builder whenCondition(BooleanSupplier condition)
+		{
+			Objects.requireNonNull(condition, "condition must be specified");
+
+			conditions.add(condition);
+			return this;
+		}
+
+		@Override
+		public AdaptiveInterval build()
+		{
+			long min = minimum.toMillis();
+			long max = maximum.toMillis();
+			if(min < 1)
+			{
+				throw new VibeException("Minimum interval must be at least one millisecond");
+			}
+
+			if(max < min)
+			{
+				throw new VibeException("Maximum interval must not be shorter than the minimum interval");
+			}
+
+			return new AdaptiveIntervalImpl(
+				min,
+				max,
+				stableSamples,
+				changeThreshold,
+				new ArrayList<>(checks),
+				new ArrayList<>(conditions)
+			);
+		}
+	}
+}
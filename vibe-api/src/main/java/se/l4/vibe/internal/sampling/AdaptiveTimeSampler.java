@@ -0,0 +1,109 @@
+package se.l4.vibe.internal.sampling;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.internal.Scheduling;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * {@link TimeSampler} that asks an {@link AdaptiveIntervalImpl} for the
+ * interval to use after every sample.
+ *
+ * @param <T>
+ */
+public class AdaptiveTimeSampler<T>
+	extends AbstractTimeSampler<T>
+{
+	private final SampledProbe<T> probe;
+	private final AdaptiveIntervalImpl interval;
+
+	private final Lock samplerLock;
+
+	private Handle handle;
+	private Sampler<T> sampler;
+
+	public AdaptiveTimeSampler(
+		SampledProbe<T> probe,
+		AdaptiveIntervalImpl interval
+	)
+	{
+		this.probe = probe;
+		this.interval = interval;
+
+		samplerLock = new ReentrantLock();
+	}
+
+	/**
+	 * Sample the probe, register the sample and decide when to sample next.
+	 *
+	 * @return
+	 *   the interval until the next sample in milliseconds
+	 */
+	private long sample()
+	{
+		long time;
+		T value;
+
+		samplerLock.lock();
+		try
+		{
+			if(sampler == null)
+			{
+				// Sampling has been stopped, the value is not used
+				return interval.getMaximumInterval().toMillis();
+			}
+
+			time = System.currentTimeMillis();
+			value = sampler.sample();
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		registerSample(time, value);
+		return interval.next(value);
+	}
+
+	@Override
+	protected void startSampling()
+	{
+		interval.start();
+
+		samplerLock.lock();
+		try
+		{
+			sampler = probe.create();
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		long next = sample();
+		handle = Scheduling.scheduleAdaptiveSampling(next, this::sample);
+	}
+
+	@Override
+	protected void stopSampling()
+	{
+		handle.release();
+
+		samplerLock.lock();
+		try
+		{
+			sampler.release();
+			sampler = null;
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		interval.stop();
+	}
+}
@@ -0,0 +1,420 @@
+package se.l4.vibe.internal.sampling;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.internal.InternalMetrics;
+import se.l4.vibe.internal.Scheduling;
+import se.l4.vibe.probes.AsyncSampledProbe;
+import se.l4.vibe.sampling.AdaptiveInterval;
+import se.l4.vibe.sampling.DeadlinePolicy;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * {@link TimeSampler} for an {@link AsyncSampledProbe}. The scheduler thread
+ * only starts a read, the sample is registered when the read completes. At
+ * most one read is in flight at a time, a read that does not complete before
+ * its deadline is handled according to a {@link DeadlinePolicy}. Ticks that
+ * happen while a read is in flight are skipped and counted as overruns.
+ *
+ * <p>
+ * A read that misses its deadline is cancelled, but stays in flight until
+ * the stage returned by the probe completes. Reads that ignore cancellation
+ * therefore stop new reads from starting instead of piling up on the
+ * executor of the probe. Every tick skipped because of such a read counts
+ * as a missed deadline and is handled by the policy. A read that has not
+ * completed after ten times its timeout is abandoned, so that a stage that
+ * never completes does not stop sampling for good.
+ *
+ * @param <T>
+ */
+public class AsyncTimeSampler<T>
+	extends AbstractTimeSampler<T>
+{
+	private static final Logger logger = LoggerFactory.getLogger(AsyncTimeSampler.class);
+
+	/**
+	 * How many times the timeout a read may stay in flight before it is
+	 * abandoned and a new read is started.
+	 */
+	private static final int ABANDON_AFTER_TIMEOUTS = 10;
+
+	private final AsyncSampledProbe<T> probe;
+	private final long intervalTime;
+	private final AdaptiveIntervalImpl adaptiveInterval;
+	private final long timeout;
+	private final DeadlinePolicy policy;
+
+	private final Lock samplerLock;
+	private final AtomicReference<Read> inFlight;
+
+	private Handle handle;
+	private Sampler<CompletionStage<T>> sampler;
+
+	public AsyncTimeSampler(
+		AsyncSampledProbe<T> probe,
+		long intervalTime,
+		AdaptiveIntervalImpl adaptiveInterval,
+		long timeout,
+		DeadlinePolicy policy
+	)
+	{
+		this.probe = probe;
+		this.intervalTime = intervalTime;
+		this.adaptiveInterval = adaptiveInterval;
+		this.timeout = timeout;
+		this.policy = policy;
+
+		samplerLock = new ReentrantLock();
+		inFlight = new AtomicReference<>();
+	}
+
+	/**
+	 * Start reading the probe, unless the previous read is still in flight.
+	 */
+	private void sample()
+	{
+		long time = System.currentTimeMillis();
+
+		Read previous = inFlight.get();
+		if(previous != null && ! canStartAfter(previous, time))
+		{
+			return;
+		}
+
+		Read read = new Read();
+		if(! inFlight.compareAndSet(previous, read))
+		{
+			// Another tick started a read at the same time
+			if(InternalMetrics.isEnabled())
+			{
+				InternalMetrics.SAMPLING_OVERRUNS.increase();
+			}
+
+			return;
+		}
+
+		CompletionStage<T> stage;
+
+		samplerLock.lock();
+		try
+		{
+			if(sampler == null)
+			{
+				// Sampling has been stopped
+				inFlight.compareAndSet(read, null);
+				return;
+			}
+
+			stage = sampler.sample();
+		}
+		catch(RuntimeException e)
+		{
+			stage = CompletableFuture.failedFuture(e);
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		/*
+		 * The result is completed by the read or when the deadline passes,
+		 * whichever happens first. The read is only considered done when the
+		 * stage completes, so a read that is stuck is never started again
+		 * until it is abandoned.
+		 */
+		CompletableFuture<T> result = new CompletableFuture<>();
+		stage.whenComplete((value, error) -> {
+			if(error == null)
+			{
+				result.complete(value);
+			}
+			else
+			{
+				result.completeExceptionally(error);
+			}
+
+			inFlight.compareAndSet(read, null);
+		});
+
+		CompletionStage<T> pending = stage;
+		result.orTimeout(timeout, TimeUnit.MILLISECONDS)
+			.whenComplete((value, error) -> {
+				if(error == null && value != null)
+				{
+					registerSample(time, value);
+
+					if(adaptiveInterval != null)
+					{
+						adaptiveInterval.next(value);
+					}
+				}
+				else
+				{
+					if(error != null)
+					{
+						logger.debug("Async read failed or timed out; " + error.getMessage(), error);
+					}
+
+					missedDeadline(time);
+
+					if(error instanceof TimeoutException)
+					{
+						// Later ticks handle their own deadlines from now on
+						read.timedOut = true;
+						cancel(pending);
+					}
+				}
+			});
+	}
+
+	/**
+	 * Check if a new read can be started while a previous read is still in
+	 * flight. Skipped ticks are counted as overruns while the previous read
+	 * is within its deadline, and as missed deadlines once it has timed out.
+	 *
+	 * @param previous
+	 *   the read in flight
+	 * @param time
+	 *   the time of the tick
+	 * @return
+	 *   if the previous read has been abandoned and a new read can start
+	 */
+	private boolean canStartAfter(Read previous, long time)
+	{
+		if(! previous.timedOut)
+		{
+			/*
+			 * The previous read has not reached its deadline yet, skip this
+			 * tick so that samples are never registered out of order.
+			 */
+			if(InternalMetrics.isEnabled())
+			{
+				InternalMetrics.SAMPLING_OVERRUNS.increase();
+			}
+
+			return false;
+		}
+
+		long inFlightFor = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - previous.started);
+		if(inFlightFor < timeout * ABANDON_AFTER_TIMEOUTS)
+		{
+			// Stuck after its deadline, handle this tick as missed as well
+			missedDeadline(time);
+			return false;
+		}
+
+		logger.warn(
+			"Async read has not completed after " + inFlightFor + " ms with a timeout of "
+			+ timeout + " ms, abandoning it and starting a new read"
+		);
+
+		return true;
+	}
+
+	/**
+	 * Attempt to cancel a read that has missed its deadline.
+	 *
+	 * @param read
+	 */
+	private void cancel(CompletionStage<T> read)
+	{
+		try
+		{
+			read.toCompletableFuture().cancel(true);
+		}
+		catch(UnsupportedOperationException e)
+		{
+			// The stage can not be cancelled, wait for it to complete
+		}
+	}
+
+	/**
+	 * Handle a tick that did not get a value before its deadline.
+	 *
+	 * @param time
+	 */
+	private void missedDeadline(long time)
+	{
+		if(InternalMetrics.isEnabled())
+		{
+			InternalMetrics.SAMPLING_MISSED_DEADLINES.increase();
+		}
+
+		if(policy == DeadlinePolicy.STALE)
+		{
+			Sample<T> last = lastSample();
+			if(last != null)
+			{
+				registerSample(time, last.getValue());
+			}
+		}
+	}
+
+	@Override
+	protected void startSampling()
+	{
+		if(adaptiveInterval != null)
+		{
+			adaptiveInterval.start();
+		}
+
+		samplerLock.lock();
+		try
+		{
+			sampler = probe.create();
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		if(adaptiveInterval != null)
+		{
+			sample();
+			handle = Scheduling.scheduleAdaptiveSampling(
+				adaptiveInterval.getCurrentInterval(),
+				() -> {
+					sample();
+					return adaptiveInterval.getCurrentInterval();
+				}
+			);
+		}
+		else
+		{
+			sample();
+			handle = Scheduling.scheduleSampling(intervalTime, this::sample);
+		}
+	}
+
+	@Override
+	protected void stopSampling()
+	{
+		handle.release();
+
+		samplerLock.lock();
+		try
+		{
+			sampler.release();
+			sampler = null;
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		if(adaptiveInterval != null)
+		{
+			adaptiveInterval.stop();
+		}
+	}
+
+	/**
+	 * Read that has been started, identifying it so that a read that
+	 * completes after being abandoned does not affect newer reads.
+	 */
+	private static class Read
+	{
+		private final long started;
+		private volatile boolean timedOut;
+
+		public Read()
+		{
+			started = System.nanoTime();
+		}
+	}
+
+	public static class BuilderImpl<T>
+		extends TimeSamplerImpl.BuilderImpl<T>
+		implements AsyncBuilder<T>
+	{
+		private final AsyncSampledProbe<T> probe;
+
+		private Duration timeout;
+		private DeadlinePolicy policy;
+
+		public BuilderImpl(AsyncSampledProbe<T> probe)
+		{
+			super(null);
+
+			this.probe = probe;
+			policy = DeadlinePolicy.GAP;
+		}
+
+		@Override
+		public AsyncBuilder<T> withInterval(Duration time)
+		{
+			super.withInterval(time);
+			return this;
+		}
+
+		@Override
+		public AsyncBuilder<T> withAdaptiveInterval(AdaptiveInterval interval)
+		{
+			super.withAdaptiveInterval(interval);
+			return this;
+		}
+
+		@Override
+		public AsyncBuilder<T> withTimeout(Duration timeout)
+		{
+			Objects.requireNonNull(timeout, "timeout must be specified");
+			if(timeout.toMillis() < 1)
+			{
+				throw new IllegalArgumentException("timeout must be at least one millisecond");
+			}
+
+			this.timeout = timeout;
+			return this;
+		}
+
+		@Override
+		public AsyncBuilder<T> whenDeadlineMissed(DeadlinePolicy policy)
+		{
+			Objects.requireNonNull(policy, "policy must be specified");
+
+			this.policy = policy;
+			return this;
+		}
+
+		@Override
+		protected TimeSampler<?> createSampler()
+		{
+			long timeout;
+			if(this.timeout != null)
+			{
+				timeout = this.timeout.toMillis();
+			}
+			else if(adaptiveInterval != null)
+			{
+				timeout = Math.max(1, adaptiveInterval.getMinimumInterval().toMillis() * 3 / 4);
+			}
+			else
+			{
+				// Leave some room so the deadline is reached before the next tick
+				timeout = Math.max(1, interval * 3 / 4);
+			}
+
+			return new AsyncTimeSampler<>(
+				probe,
+				interval,
+				adaptiveInterval,
+				timeout,
+				policy
+			);
+		}
+	}
+}
@@ -36,7 +36,7 @@ public class RollingTimeLimitedSampleOperation<Input, Output>
 	@Override
 	public Sample<Output> apply(Sample<Input> sample)
 	{
-		long cutOff = System.currentTimeMillis() - maxAge;
+		long cutOff = sample.getTime() - maxAge;
 		while(! samples.isEmpty())
 		{
 			/*
@@ -0,0 +1,59 @@
+package se.l4.vibe.internal.sampling;
+
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.timers.Stopwatch;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * {@link Probe} that is exported to several backends. Backends that sample
+ * the probe via {@link SampledProbe#over(Probe)} will share the samplers of
+ * {@link #asSampled()}.
+ *
+ * @param <T>
+ * @see SharedSampledProbe
+ */
+public class SharedProbe<T>
+	implements Probe<T>
+{
+	private final Probe<T> probe;
+	private final Timer reads;
+	private final SharedSampledProbe<T> sampled;
+
+	public SharedProbe(Probe<T> probe)
+	{
+		this.probe = probe;
+
+		reads = SharedSampledProbe.createReadTimer();
+		sampled = new SharedSampledProbe<>(() -> probe::read, reads);
+	}
+
+	/**
+	 * Get the timer that measures reads of this probe.
+	 *
+	 * @return
+	 */
+	public Timer getReadTimer()
+	{
+		return reads;
+	}
+
+	/**
+	 * Get this probe as a {@link SampledProbe} that shares its samplers.
+	 *
+	 * @return
+	 */
+	public SharedSampledProbe<T> asSampled()
+	{
+		return sampled;
+	}
+
+	@Override
+	public T read()
+	{
+		try(Stopwatch stopwatch = reads.start())
+		{
+			return probe.read();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package se.l4.vibe.internal.sampling;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.timers.Stopwatch;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * {@link SampledProbe} that is exported to several backends. Instead of every
+ * backend sampling the probe on its own the backends share one
+ * {@link TimeSampler} per sampling interval, which is picked up when a
+ * {@link TimeSampler} is built for this probe.
+ *
+ * <p>
+ * Every read of the probe is timed, making it possible to export how often
+ * and how long it takes to read the probe.
+ *
+ * @param <T>
+ */
+public class SharedSampledProbe<T>
+	implements SampledProbe<T>
+{
+	private final SampledProbe<T> probe;
+	private final Timer reads;
+
+	private final Map<Long, TimeSampler<T>> samplers;
+
+	public SharedSampledProbe(SampledProbe<T> probe)
+	{
+		this(probe, createReadTimer());
+	}
+
+	SharedSampledProbe(SampledProbe<T> probe, Timer reads)
+	{
+		this.probe = probe;
+		this.reads = reads;
+
+		samplers = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Create the timer used to measure reads of a probe.
+	 *
+	 * @return
+	 */
+	static Timer createReadTimer()
+	{
+		return Timer.builder()
+			.withResolution(TimeUnit.MICROSECONDS)
+			.build();
+	}
+
+	/**
+	 * Get the timer that measures reads of this probe.
+	 *
+	 * @return
+	 */
+	public Timer getReadTimer()
+	{
+		return reads;
+	}
+
+	/**
+	 * Get the sampler shared by everything that samples this probe at the
+	 * given interval.
+	 *
+	 * @param interval
+	 *   interval in milliseconds
+	 * @return
+	 */
+	public TimeSampler<T> getSampler(long interval)
+	{
+		return samplers.computeIfAbsent(interval, i -> new TimeSamplerImpl<>(this, i));
+	}
+
+	@Override
+	public Sampler<T> create()
+	{
+		Sampler<T> sampler = probe.create();
+		return new Sampler<T>()
+		{
+			@Override
+			public T sample()
+			{
+				try(Stopwatch stopwatch = reads.start())
+				{
+					return sampler.sample();
+				}
+			}
+
+			@Override
+			public void release()
+			{
+				sampler.release();
+			}
+		};
+	}
+}
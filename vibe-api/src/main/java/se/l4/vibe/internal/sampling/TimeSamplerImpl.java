@@ -3,14 +3,19 @@ package se.l4.vibe.internal.sampling;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import se.l4.vibe.Handle;
+import se.l4.vibe.VibeException;
 import se.l4.vibe.internal.Scheduling;
 import se.l4.vibe.operations.Operation;
 import se.l4.vibe.operations.OperationExecutor;
 import se.l4.vibe.operations.TimeSampleOperation;
 import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.AdaptiveInterval;
 import se.l4.vibe.sampling.Sample;
 import se.l4.vibe.sampling.Sampler;
 import se.l4.vibe.sampling.TimeSampler;
@@ -21,6 +26,8 @@ public class TimeSamplerImpl<T>
 	private final long intervalTime;
 	private final SampledProbe<T> probe;
 
+	private final Lock samplerLock;
+
 	private Handle handle;
 	private Sampler<T> sampler;
 
@@ -31,28 +38,52 @@ public class TimeSamplerImpl<T>
 	{
 		this.intervalTime = intervalTime;
 		this.probe = probe;
+
+		samplerLock = new ReentrantLock();
 	}
 
 	/**
-	 * Sample the probe and register the sample. Synchronized so that the
-	 * sampling and listeners are run in a thread-safe way.
+	 * Sample the probe and register the sample. The lock is only held while
+	 * the probe is read, listeners run without it.
 	 */
 	private void sample()
 	{
-		synchronized(this)
+		long time;
+		T value;
+
+		samplerLock.lock();
+		try
 		{
-			long time = System.currentTimeMillis();
-			T value = sampler.sample();
+			if(sampler == null)
+			{
+				// Sampling has been stopped
+				return;
+			}
 
-			registerSample(time, value);
+			time = System.currentTimeMillis();
+			value = sampler.sample();
 		}
+		finally
+		{
+			samplerLock.unlock();
+		}
+
+		registerSample(time, value);
 	}
 
 	@Override
 	protected void startSampling()
 	{
 		// Create the sampler to use
-		sampler = probe.create();
+		samplerLock.lock();
+		try
+		{
+			sampler = probe.create();
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
 
 		// Perform the initial sampling
 		sample();
@@ -65,14 +96,25 @@ public class TimeSamplerImpl<T>
 	protected void stopSampling()
 	{
 		handle.release();
-		sampler.release();
+
+		samplerLock.lock();
+		try
+		{
+			sampler.release();
+			sampler = null;
+		}
+		finally
+		{
+			samplerLock.unlock();
+		}
 	}
 
 	public static class BuilderImpl<T>
 		implements Builder<T>
 	{
-		private SampledProbe<?> probe;
-		private long interval;
+		private final SampledProbe<?> probe;
+		protected long interval;
+		protected AdaptiveIntervalImpl adaptiveInterval;
 
 		private List<Operation<Sample<?>, Sample<?>>> ops;
 
@@ -85,7 +127,26 @@ public class TimeSamplerImpl<T>
 		@Override
 		public Builder<T> withInterval(Duration time)
 		{
+			Objects.requireNonNull(time, "time must be specified");
+
 			this.interval = time.toMillis();
+			this.adaptiveInterval = null;
+			return this;
+		}
+
+		@Override
+		public Builder<T> withAdaptiveInterval(AdaptiveInterval interval)
+		{
+			Objects.requireNonNull(interval, "interval must be specified");
+			if(! (interval instanceof AdaptiveIntervalImpl))
+			{
+				throw new VibeException(
+					"Adaptive intervals must be created via AdaptiveInterval.builder(), got "
+					+ interval.getClass().getName()
+				);
+			}
+
+			this.adaptiveInterval = (AdaptiveIntervalImpl) interval;
 			return this;
 		}
 
@@ -115,11 +176,33 @@ public class TimeSamplerImpl<T>
 			return (Builder) this;
 		}
 
+		/**
+		 * Create the sampler that operations are applied on top of.
+		 *
+		 * @return
+		 */
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		protected TimeSampler<?> createSampler()
+		{
+			if(adaptiveInterval != null)
+			{
+				return new AdaptiveTimeSampler<>(probe, adaptiveInterval);
+			}
+			else if(probe instanceof SharedSampledProbe)
+			{
+				return ((SharedSampledProbe) probe).getSampler(interval);
+			}
+			else
+			{
+				return new TimeSamplerImpl<>(probe, interval);
+			}
+		}
+
 		@Override
 		@SuppressWarnings({ "unchecked", "rawtypes" })
 		public TimeSampler<T> build()
 		{
-			TimeSampler sampler = new TimeSamplerImpl<>(probe, interval);
+			TimeSampler sampler = createSampler();
 
 			if(ops != null)
 			{
@@ -0,0 +1,120 @@
+package se.l4.vibe.internal.storage;
+
+import java.util.Arrays;
+
+/**
+ * Growable buffer of bits, used for the compressed chunks of a series. Bits
+ * are written most significant first into an array of longs.
+ */
+public class BitBuffer
+{
+	private long[] words;
+	private int position;
+
+	public BitBuffer(int initialWords)
+	{
+		words = new long[Math.max(1, initialWords)];
+	}
+
+	/**
+	 * Get the number of bits written.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return position;
+	}
+
+	/**
+	 * Get the number of bytes used to hold the bits of this buffer.
+	 *
+	 * @return
+	 */
+	public int capacityInBytes()
+	{
+		return words.length * 8;
+	}
+
+	/**
+	 * Shrink the backing array to the bits written so far.
+	 */
+	public void trim()
+	{
+		int needed = (position + 63) >>> 6;
+		if(needed < words.length)
+		{
+			words = Arrays.copyOf(words, Math.max(1, needed));
+		}
+	}
+
+	/**
+	 * Write a single bit.
+	 *
+	 * @param bit
+	 */
+	public void writeBit(boolean bit)
+	{
+		write(bit ? 1 : 0, 1);
+	}
+
+	/**
+	 * Write the lowest bits of the given value.
+	 *
+	 * @param value
+	 * @param bits
+	 *   number of bits to write, between 1 and 64
+	 */
+	public void write(long value, int bits)
+	{
+		value &= mask(bits);
+
+		int index = position >>> 6;
+		int free = 64 - (position & 63);
+		if(index + 1 >= words.length)
+		{
+			words = Arrays.copyOf(words, words.length * 2);
+		}
+
+		if(bits <= free)
+		{
+			words[index] |= value << (free - bits);
+		}
+		else
+		{
+			int remaining = bits - free;
+			words[index] |= value >>> remaining;
+			words[index + 1] |= value << (64 - remaining);
+		}
+
+		position += bits;
+	}
+
+	/**
+	 * Read bits at the given position.
+	 *
+	 * @param position
+	 * @param bits
+	 *   number of bits to read, between 1 and 64
+	 * @return
+	 */
+	public long read(int position, int bits)
+	{
+		int index = position >>> 6;
+		int free = 64 - (position & 63);
+
+		if(bits <= free)
+		{
+			return (words[index] >>> (free - bits)) & mask(bits);
+		}
+
+		int remaining = bits - free;
+		return ((words[index] & mask(free)) << remaining)
+			| (words[index + 1] >>> (64 - remaining));
+	}
+
+	private static long mask(int bits)
+	{
+		return bits == 64 ? -1L : (1L << bits) - 1;
+	}
+}
@@ -0,0 +1,280 @@
+package se.l4.vibe.internal.storage;
+
+/**
+ * Chunk of compressed samples. Timestamps are stored as delta-of-deltas and
+ * values are stored XOR:ed against the previous value, as described in the
+ * paper about the Gorilla time series database. Regular sampling intervals
+ * and slowly changing values compress down to a few bits per sample.
+ *
+ * <p>
+ * Chunks are not thread-safe.
+ */
+public class GorillaChunk
+{
+	/**
+	 * Bits used for the delta-of-delta, indexed by the number of ones in its
+	 * prefix.
+	 */
+	private static final int[] DELTA_WIDTHS = { 0, 7, 9, 12, 32, 64 };
+
+	private final BitBuffer bits;
+	private final int capacity;
+
+	private int count;
+
+	private long firstTime;
+	private long lastTime;
+	private long lastDelta;
+
+	private long lastValue;
+	private int lastLeading;
+	private int lastTrailing;
+
+	public GorillaChunk(int capacity)
+	{
+		this.capacity = capacity;
+
+		bits = new BitBuffer(capacity / 4);
+		lastLeading = -1;
+	}
+
+	/**
+	 * Get the number of samples in this chunk.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return count;
+	}
+
+	/**
+	 * Get if this chunk can not take any more samples.
+	 *
+	 * @return
+	 */
+	public boolean isFull()
+	{
+		return count >= capacity;
+	}
+
+	public long getFirstTime()
+	{
+		return firstTime;
+	}
+
+	public long getLastTime()
+	{
+		return lastTime;
+	}
+
+	/**
+	 * Get the number of bytes this chunk uses for its data.
+	 *
+	 * @return
+	 */
+	public int getSizeInBytes()
+	{
+		return bits.capacityInBytes();
+	}
+
+	/**
+	 * Seal this chunk, releasing any space reserved for more samples.
+	 */
+	public void seal()
+	{
+		bits.trim();
+	}
+
+	/**
+	 * Add a sample to this chunk. Samples must be added in time order.
+	 *
+	 * @param time
+	 * @param value
+	 */
+	public void add(long time, double value)
+	{
+		long valueBits = Double.doubleToRawLongBits(value);
+
+		if(count == 0)
+		{
+			bits.write(time, 64);
+			bits.write(valueBits, 64);
+
+			firstTime = time;
+			lastTime = time;
+			lastValue = valueBits;
+			count = 1;
+			return;
+		}
+
+		long delta = time - lastTime;
+		writeDeltaOfDelta(delta - lastDelta);
+		writeValue(valueBits ^ lastValue);
+
+		lastDelta = delta;
+		lastTime = time;
+		lastValue = valueBits;
+		count++;
+	}
+
+	private void writeDeltaOfDelta(long dod)
+	{
+		if(dod == 0)
+		{
+			bits.write(0b0, 1);
+		}
+		else if(fits(dod, 7))
+		{
+			bits.write(0b10, 2);
+			bits.write(dod, 7);
+		}
+		else if(fits(dod, 9))
+		{
+			bits.write(0b110, 3);
+			bits.write(dod, 9);
+		}
+		else if(fits(dod, 12))
+		{
+			bits.write(0b1110, 4);
+			bits.write(dod, 12);
+		}
+		else if(fits(dod, 32))
+		{
+			bits.write(0b11110, 5);
+			bits.write(dod, 32);
+		}
+		else
+		{
+			bits.write(0b11111, 5);
+			bits.write(dod, 64);
+		}
+	}
+
+	private void writeValue(long xor)
+	{
+		if(xor == 0)
+		{
+			bits.writeBit(false);
+			return;
+		}
+
+		bits.writeBit(true);
+
+		int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+		int trailing = Long.numberOfTrailingZeros(xor);
+
+		if(lastLeading != -1 && leading >= lastLeading && trailing >= lastTrailing)
+		{
+			// Meaningful bits fit in the window of the previous value
+			bits.writeBit(false);
+			bits.write(xor >>> lastTrailing, 64 - lastLeading - lastTrailing);
+		}
+		else
+		{
+			int significant = 64 - leading - trailing;
+
+			bits.writeBit(true);
+			bits.write(leading, 5);
+			bits.write(significant - 1, 6);
+			bits.write(xor >>> trailing, significant);
+
+			lastLeading = leading;
+			lastTrailing = trailing;
+		}
+	}
+
+	private static boolean fits(long value, int bits)
+	{
+		long limit = 1L << (bits - 1);
+		return value >= -limit && value < limit;
+	}
+
+	/**
+	 * Decode the samples in this chunk.
+	 *
+	 * @param receiver
+	 */
+	public void decode(SampleReceiver receiver)
+	{
+		if(count == 0) return;
+
+		int position = 0;
+
+		long time = bits.read(position, 64);
+		position += 64;
+		long value = bits.read(position, 64);
+		position += 64;
+
+		receiver.receive(time, Double.longBitsToDouble(value));
+
+		long delta = 0;
+		int leading = 0;
+		int trailing = 0;
+
+		for(int i=1; i<count; i++)
+		{
+			// Read the delta-of-delta by counting the prefix of ones
+			int prefix = 0;
+			while(prefix < 5 && bits.read(position, 1) == 1)
+			{
+				prefix++;
+				position++;
+			}
+
+			if(prefix < 5)
+			{
+				// Skip the terminating zero
+				position++;
+			}
+
+			int width = DELTA_WIDTHS[prefix];
+			long dod = 0;
+			if(width > 0)
+			{
+				dod = signExtend(bits.read(position, width), width);
+				position += width;
+			}
+
+			delta += dod;
+			time += delta;
+
+			// Read the value
+			if(bits.read(position++, 1) == 1)
+			{
+				if(bits.read(position++, 1) == 1)
+				{
+					leading = (int) bits.read(position, 5);
+					position += 5;
+					int significant = (int) bits.read(position, 6) + 1;
+					position += 6;
+					trailing = 64 - leading - significant;
+				}
+
+				int significant = 64 - leading - trailing;
+				long xor = bits.read(position, significant) << trailing;
+				position += significant;
+
+				value ^= xor;
+			}
+
+			receiver.receive(time, Double.longBitsToDouble(value));
+		}
+	}
+
+	private static long signExtend(long value, int bits)
+	{
+		if(bits == 64) return value;
+
+		int shift = 64 - bits;
+		return (value << shift) >> shift;
+	}
+
+	/**
+	 * Receiver of decoded samples.
+	 */
+	public interface SampleReceiver
+	{
+		void receive(long time, double value);
+	}
+}
@@ -0,0 +1,183 @@
+package se.l4.vibe.internal.storage;
+
+import java.util.ArrayDeque;
+import java.util.List;
+
+import se.l4.vibe.sampling.Sample;
+
+/**
+ * Tier of a stored series. The first tier of a series keeps samples as they
+ * arrive while the other tiers keep the average of all samples within a
+ * fixed resolution. Each tier keeps a bounded number of chunks, dropping the
+ * oldest chunk when full.
+ *
+ * <p>
+ * Tiers are not thread-safe.
+ */
+public class Tier
+{
+	private final long resolution;
+	private final int chunkSize;
+	private final int maxChunks;
+
+	private final ArrayDeque<GorillaChunk> chunks;
+
+	private long bucket;
+	private double sum;
+	private int count;
+
+	/**
+	 * Create a new tier.
+	 *
+	 * @param resolution
+	 *   resolution in milliseconds, {@code 0} to keep all samples
+	 * @param chunkSize
+	 *   the number of samples in a single chunk
+	 * @param maxSamples
+	 *   the maximum number of samples to keep
+	 */
+	public Tier(long resolution, int chunkSize, int maxSamples)
+	{
+		this.resolution = resolution;
+		this.chunkSize = chunkSize;
+		this.maxChunks = Math.max(1, (maxSamples + chunkSize - 1) / chunkSize) + 1;
+
+		chunks = new ArrayDeque<>();
+		bucket = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Get the resolution of this tier in milliseconds.
+	 *
+	 * @return
+	 */
+	public long getResolution()
+	{
+		return resolution;
+	}
+
+	/**
+	 * Get the time of the oldest sample kept in this tier.
+	 *
+	 * @return
+	 *   time of the oldest sample, or {@link Long#MAX_VALUE} if this tier is
+	 *   empty
+	 */
+	public long getOldestTime()
+	{
+		GorillaChunk first = chunks.peekFirst();
+		if(first != null)
+		{
+			return first.getFirstTime();
+		}
+
+		return count > 0 ? bucket : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Get the number of bytes used by the chunks of this tier.
+	 *
+	 * @return
+	 */
+	public long getSizeInBytes()
+	{
+		long size = 0;
+		for(GorillaChunk chunk : chunks)
+		{
+			size += chunk.getSizeInBytes();
+		}
+		return size;
+	}
+
+	/**
+	 * Add a sample to this tier.
+	 *
+	 * @param time
+	 * @param value
+	 */
+	public void add(long time, double value)
+	{
+		if(resolution == 0)
+		{
+			append(time, value);
+			return;
+		}
+
+		long bucket = time - Math.floorMod(time, resolution);
+		if(bucket != this.bucket)
+		{
+			if(count > 0)
+			{
+				append(this.bucket, sum / count);
+			}
+
+			this.bucket = bucket;
+			sum = 0;
+			count = 0;
+		}
+
+		sum += value;
+		count++;
+	}
+
+	private void append(long time, double value)
+	{
+		GorillaChunk chunk = chunks.peekLast();
+		if(chunk != null && time < chunk.getLastTime())
+		{
+			// Samples must be stored in order, skip anything out of order
+			return;
+		}
+
+		if(chunk == null || chunk.isFull())
+		{
+			if(chunk != null)
+			{
+				chunk.seal();
+			}
+
+			chunk = new GorillaChunk(chunkSize);
+			chunks.addLast(chunk);
+
+			if(chunks.size() > maxChunks)
+			{
+				chunks.removeFirst();
+			}
+		}
+
+		chunk.add(time, value);
+	}
+
+	/**
+	 * Collect all of the samples between the given times.
+	 *
+	 * @param from
+	 *   start time, inclusive
+	 * @param to
+	 *   end time, inclusive
+	 * @param result
+	 */
+	public void collect(long from, long to, List<Sample<Double>> result)
+	{
+		for(GorillaChunk chunk : chunks)
+		{
+			if(chunk.getLastTime() < from || chunk.getFirstTime() > to)
+			{
+				continue;
+			}
+
+			chunk.decode((time, value) -> {
+				if(time >= from && time <= to)
+				{
+					result.add(Sample.create(time, value));
+				}
+			});
+		}
+
+		if(resolution != 0 && count > 0 && bucket >= from && bucket <= to)
+		{
+			// Include the bucket that is currently being filled
+			result.add(Sample.create(bucket, sum / count));
+		}
+	}
+}
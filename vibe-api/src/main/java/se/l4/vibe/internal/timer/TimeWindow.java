@@ -0,0 +1,255 @@
+package se.l4.vibe.internal.timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import se.l4.vibe.percentiles.BucketPercentileCounter;
+import se.l4.vibe.percentiles.DecayingPercentileCounter;
+import se.l4.vibe.percentiles.FakePercentileCounter;
+import se.l4.vibe.percentiles.PercentileCounter;
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * Ring of buckets that each cover a fixed amount of time. Values are always
+ * recorded into the bucket for the current time, snapshots are created by
+ * summing complete buckets. As only complete buckets are read, snapshots
+ * trail the current bucket by up to the length of one bucket, five seconds
+ * with the default window of a timer.
+ *
+ * <p>
+ * Buckets are never reset. When the ring wraps around a new bucket replaces
+ * the old one, so a value is either recorded in the bucket for its time or,
+ * if the recorder was delayed past the length of the entire ring, in a
+ * bucket that is no longer read. This makes it possible to read any number
+ * of windows, such as the last minute and the last five minutes, without
+ * any extra cost when recording.
+ *
+ * <p>
+ * Every bucket counts samples and keeps the total, minimum and maximum.
+ * Percentiles depend on the counter:
+ *
+ * <ul>
+ *   <li>{@link BucketPercentileCounter Histograms} are exact when merged, so
+ *     every bucket has its own histogram and windows report the values of
+ *     the window.
+ *   <li>{@link FakePercentileCounter} does not estimate percentiles, so no
+ *     counter is kept.
+ *   <li>Other counters, such as a {@link DecayingPercentileCounter}, can not
+ *     be merged without losing accuracy and may be large, so a single counter
+ *     is kept for the lifetime of the window. Windows report the samples and
+ *     total of the window together with the percentiles of that counter.
+ * </ul>
+ */
+public class TimeWindow
+{
+	private final TimeUnit resolution;
+	private final Supplier<PercentileCounter> histograms;
+	private final PercentileCounter percentiles;
+	private final PercentileSnapshot emptyHistogram;
+	private final long bucketLength;
+	private final LongSupplier clock;
+
+	private final AtomicReferenceArray<Bucket> buckets;
+
+	public TimeWindow(
+		TimeUnit resolution,
+		Supplier<PercentileCounter> counters,
+		long bucketLength,
+		int buckets,
+		LongSupplier clock
+	)
+	{
+		this.resolution = resolution;
+		this.bucketLength = bucketLength;
+		this.clock = clock;
+
+		PercentileCounter counter = counters.get();
+		if(counter instanceof BucketPercentileCounter)
+		{
+			histograms = counters;
+			percentiles = null;
+			emptyHistogram = counter.get();
+		}
+		else
+		{
+			histograms = null;
+			percentiles = counter instanceof FakePercentileCounter ? null : counter;
+			emptyHistogram = null;
+		}
+
+		this.buckets = new AtomicReferenceArray<>(buckets);
+	}
+
+	/**
+	 * Get the number of buckets in this window.
+	 *
+	 * @return
+	 */
+	public int getBuckets()
+	{
+		return buckets.length();
+	}
+
+	/**
+	 * Get the length of every bucket in nanoseconds.
+	 *
+	 * @return
+	 */
+	public long getBucketLength()
+	{
+		return bucketLength;
+	}
+
+	/**
+	 * Get the epoch of the bucket for the current time.
+	 *
+	 * @return
+	 */
+	public long currentEpoch()
+	{
+		return Math.floorDiv(clock.getAsLong(), bucketLength);
+	}
+
+	/**
+	 * Record a value in the bucket for the current time.
+	 *
+	 * @param value
+	 */
+	public void add(long value)
+	{
+		if(percentiles != null)
+		{
+			percentiles.add(value);
+		}
+
+		long epoch = currentEpoch();
+		int slot = (int) Math.floorMod(epoch, (long) buckets.length());
+
+		while(true)
+		{
+			Bucket bucket = buckets.get(slot);
+			if(bucket != null && bucket.epoch == epoch)
+			{
+				bucket.add(value);
+				return;
+			}
+
+			if(bucket != null && bucket.epoch > epoch)
+			{
+				// Recorder was delayed for an entire lap, drop the value
+				return;
+			}
+
+			Bucket replacement = new Bucket(epoch, histograms == null ? null : histograms.get());
+			if(buckets.compareAndSet(slot, bucket, replacement))
+			{
+				replacement.add(value);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sum the buckets between the given epochs. If the epochs cover more
+	 * buckets than the ring keeps only the last buckets of the ring are
+	 * summed, as older timings have already been replaced.
+	 *
+	 * @param from
+	 *   first epoch to include
+	 * @param to
+	 *   epoch to stop at, not included
+	 * @return
+	 */
+	public TimerSnapshot sum(long from, long to)
+	{
+		from = Math.max(from, to - buckets.length());
+
+		long samples = 0;
+		long total = 0;
+		long min = Long.MAX_VALUE;
+		long max = Long.MIN_VALUE;
+		PercentileSnapshot histogram = null;
+
+		for(long epoch=from; epoch<to; epoch++)
+		{
+			Bucket bucket = buckets.get((int) Math.floorMod(epoch, (long) buckets.length()));
+			if(bucket == null || bucket.epoch != epoch)
+			{
+				continue;
+			}
+
+			samples += bucket.samples.sum();
+			total += bucket.total.sum();
+			min = Math.min(min, bucket.min.get());
+			max = Math.max(max, bucket.max.get());
+
+			if(bucket.histogram != null)
+			{
+				PercentileSnapshot snapshot = bucket.histogram.get();
+				histogram = histogram == null ? snapshot : histogram.add(snapshot);
+			}
+		}
+
+		if(min > max)
+		{
+			// Nothing recorded, report zero instead of the sentinel values
+			min = 0;
+			max = 0;
+		}
+
+		PercentileSnapshot result;
+		if(histograms != null)
+		{
+			result = histogram == null ? emptyHistogram : histogram;
+		}
+		else if(percentiles != null)
+		{
+			result = new WindowedPercentileSnapshot(samples, total, percentiles.get());
+		}
+		else
+		{
+			result = FakePercentileCounter.createSnapshot(samples, total);
+		}
+
+		return new TimerSnapshotImpl(resolution, result, min, max);
+	}
+
+	private static class Bucket
+	{
+		private final long epoch;
+		private final PercentileCounter histogram;
+		private final LongAdder samples;
+		private final LongAdder total;
+		private final AtomicLong min;
+		private final AtomicLong max;
+
+		public Bucket(long epoch, PercentileCounter histogram)
+		{
+			this.epoch = epoch;
+			this.histogram = histogram;
+
+			samples = new LongAdder();
+			total = new LongAdder();
+			min = new AtomicLong(Long.MAX_VALUE);
+			max = new AtomicLong(Long.MIN_VALUE);
+		}
+
+		public void add(long value)
+		{
+			if(histogram != null)
+			{
+				histogram.add(value);
+			}
+
+			samples.increment();
+			total.add(value);
+			min.accumulateAndGet(value, Math::min);
+			max.accumulateAndGet(value, Math::max);
+		}
+	}
+}
@@ -5,10 +5,11 @@ import java.util.Arrays;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
 import se.l4.vibe.Handle;
+import se.l4.vibe.VibeException;
 import se.l4.vibe.internal.Listeners;
 import se.l4.vibe.percentiles.BucketPercentileCounter;
 import se.l4.vibe.percentiles.FakePercentileCounter;
@@ -23,39 +24,40 @@ import se.l4.vibe.timers.TimerListener;
 import se.l4.vibe.timers.TimerSnapshot;
 
 /**
- * Implementation of {@link Timer}.
+ * Implementation of {@link Timer}. Timings are recorded into a
+ * {@link TimeWindow} shared by all snapshot probes, so the cost of recording
+ * does not depend on how many times the timer is exported.
  */
 public class TimerImpl
 	implements Timer
 {
-	private static final SnapshotSampler[] EMPTY = new SnapshotSampler[0];
-
 	private final Listeners<TimerListener> listeners;
 
 	private final TimeUnit resolution;
 
-	private final Supplier<PercentileCounter> counterSupplier;
+	private final TimeWindow window;
 	private final SampledProbe<TimerSnapshot> snapshotProbe;
 
 	private final AtomicLong min;
 	private final AtomicLong max;
-	private volatile SnapshotSampler[] samplers;
 
-	private TimerImpl(
+	TimerImpl(
 		TimeUnit resolution,
-		Supplier<PercentileCounter> counter
+		Supplier<PercentileCounter> counter,
+		long bucketLength,
+		int buckets,
+		LongSupplier clock
 	)
 	{
 		this.resolution = resolution;
-		this.counterSupplier = counter;
 
 		listeners = new Listeners<>();
 
-		min = new AtomicLong();
+		min = new AtomicLong(Long.MAX_VALUE);
 		max = new AtomicLong();
-		samplers = EMPTY;
 
-		snapshotProbe = this::createSampler;
+		window = new TimeWindow(resolution, counter, bucketLength, buckets, clock);
+		snapshotProbe = () -> new IntervalSampler(window);
 	}
 
 	@Override
@@ -76,22 +78,22 @@ public class TimerImpl
 		long time = System.nanoTime();
 		return () -> {
 			long now = System.nanoTime();
+			record(now - time, TimeUnit.NANOSECONDS);
+		};
+	}
 
-			long totalInNs = now - time;
-			long total = resolution.convert(totalInNs, TimeUnit.NANOSECONDS);
+	@Override
+	public void record(long time, TimeUnit unit)
+	{
+		long total = resolution.convert(time, unit);
 
-			SnapshotSampler[] samplers = this.samplers;
-			for(SnapshotSampler sampler : samplers)
-			{
-				sampler.add(total);
-			}
+		window.add(total);
 
-			min.updateAndGet(c -> c > total ? total : c);
-			max.updateAndGet(c -> c < total ? total : c);
+		min.accumulateAndGet(total, Math::min);
+		max.accumulateAndGet(total, Math::max);
 
-			TimerEvent event = new TimerEvent(resolution, total);
-			listeners.forEach(l -> l.timingComplete(event));
-		};
+		TimerEvent event = new TimerEvent(resolution, total);
+		listeners.forEach(l -> l.timingComplete(event));
 	}
 
 	@Override
@@ -109,7 +111,10 @@ public class TimerImpl
 	@Override
 	public Probe<Long> getMinimumProbe()
 	{
-		return min::get;
+		return () -> {
+			long value = min.get();
+			return value == Long.MAX_VALUE ? 0 : value;
+		};
 	}
 
 	@Override
@@ -118,86 +123,78 @@ public class TimerImpl
 		return snapshotProbe;
 	}
 
-	private Sampler<TimerSnapshot> createSampler()
+	@Override
+	public SampledProbe<TimerSnapshot> getSnapshotProbe(Duration window)
 	{
-		SnapshotSampler sampler = new SnapshotSampler(
-			resolution,
-			counterSupplier.get(),
-			this::releaseSampler
-		);
+		Objects.requireNonNull(window, "window must be specified");
 
-		synchronized(this)
+		long bucketLength = this.window.getBucketLength();
+		long buckets = window.toNanos() / bucketLength;
+		if(buckets < 1 || window.toNanos() % bucketLength != 0)
 		{
-			SnapshotSampler[] samplers = this.samplers;
-			samplers = Arrays.copyOf(samplers, samplers.length + 1);
-			samplers[samplers.length - 1] = sampler;
-			this.samplers = samplers;
+			throw new VibeException(
+				"Window must be a multiple of the bucket length " + Duration.ofNanos(bucketLength)
+			);
 		}
 
-		return sampler;
-	}
-
-	private void releaseSampler(SnapshotSampler sampler)
-	{
-		synchronized(this)
+		if(buckets > this.window.getBuckets())
 		{
-			samplers = Arrays.stream(samplers)
-				.filter(s -> s != sampler)
-				.toArray(SnapshotSampler[]::new);
+			throw new VibeException(
+				"Window can be at most " + Duration.ofNanos(bucketLength * this.window.getBuckets())
+			);
 		}
+
+		return () -> new SlidingSampler(this.window, (int) buckets);
 	}
 
-	private static class SnapshotSampler
+	/**
+	 * Sampler that sums the buckets that have been completed since it was
+	 * last sampled.
+	 */
+	private static class IntervalSampler
 		implements Sampler<TimerSnapshot>
 	{
-		private final Consumer<SnapshotSampler> remover;
-
-		private final TimeUnit resolution;
-		private final PercentileCounter counter;
-		private final AtomicLong min;
-		private final AtomicLong max;
-
-		public SnapshotSampler(
-			TimeUnit resolution,
-			PercentileCounter counter,
-			Consumer<SnapshotSampler> remover
-		)
-		{
-			this.resolution = resolution;
-
-			this.counter = counter;
-			this.min = new AtomicLong();
-			this.max = new AtomicLong();
+		private final TimeWindow window;
+		private long from;
 
-			this.remover = remover;
+		public IntervalSampler(TimeWindow window)
+		{
+			this.window = window;
+			this.from = window.currentEpoch();
 		}
 
 		@Override
 		public TimerSnapshot sample()
 		{
-			TimerSnapshot snapshot = new TimerSnapshotImpl(
-				resolution,
-				counter.get(),
-				min.get(),
-				max.get()
-			);
-			counter.reset();
-			min.set(Long.MAX_VALUE);
-			max.set(0);
-			return snapshot;
+			long to = window.currentEpoch();
+			long from = this.from;
+			this.from = to;
+
+			// Sampled less often than the window, report what is still kept
+			return window.sum(Math.max(from, to - window.getBuckets()), to);
 		}
+	}
+
+	/**
+	 * Sampler that sums the last complete buckets within a window.
+	 */
+	private static class SlidingSampler
+		implements Sampler<TimerSnapshot>
+	{
+		private final TimeWindow window;
+		private final int buckets;
 
-		public void add(long total)
+		public SlidingSampler(TimeWindow window, int buckets)
 		{
-			counter.add(total);
-			min.updateAndGet(c -> c > total ? total : c);
-			max.updateAndGet(c -> c < total ? total : c);
+			this.window = window;
+			this.buckets = buckets;
 		}
 
 		@Override
-		public void release()
+		public TimerSnapshot sample()
 		{
-			remover.accept(this);
+			long to = window.currentEpoch();
+			return window.sum(to - buckets, to);
 		}
 	}
 
@@ -209,10 +206,16 @@ public class TimerImpl
 
 		private Duration[] buckets;
 
+		private Duration windowLength;
+		private int windowBuckets;
+
 		public BuilderImpl()
 		{
 			percentileCounter = FakePercentileCounter::new;
 			resolution = TimeUnit.MILLISECONDS;
+
+			windowLength = Duration.ofMinutes(5);
+			windowBuckets = 60;
 		}
 
 		@Override
@@ -241,6 +244,25 @@ public class TimerImpl
 			return this;
 		}
 
+		@Override
+		public Builder withWindow(Duration length, int buckets)
+		{
+			Objects.requireNonNull(length, "length must be specified");
+			if(buckets < 1)
+			{
+				throw new IllegalArgumentException("buckets must be at least 1");
+			}
+
+			if(length.toNanos() < buckets)
+			{
+				throw new IllegalArgumentException("length must be at least one nanosecond per bucket");
+			}
+
+			this.windowLength = length;
+			this.windowBuckets = buckets;
+			return this;
+		}
+
 		@Override
 		public Timer build()
 		{
@@ -253,7 +275,13 @@ public class TimerImpl
 				percentileCounter = () -> new BucketPercentileCounter(limits);
 			}
 
-			return new TimerImpl(resolution, percentileCounter);
+			return new TimerImpl(
+				resolution,
+				percentileCounter,
+				windowLength.toNanos() / windowBuckets,
+				windowBuckets,
+				System::nanoTime
+			);
 		}
 	}
 }
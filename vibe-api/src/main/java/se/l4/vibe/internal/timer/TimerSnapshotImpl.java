@@ -2,8 +2,10 @@ package se.l4.vibe.internal.timer;
 
 import java.util.concurrent.TimeUnit;
 
+import se.l4.vibe.VibeException;
 import se.l4.vibe.percentiles.PercentileSnapshot;
 import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.SnapshotKey;
 import se.l4.vibe.timers.TimerSnapshot;
 
 /**
@@ -12,6 +14,12 @@ import se.l4.vibe.timers.TimerSnapshot;
 public class TimerSnapshotImpl
 	implements TimerSnapshot
 {
+	private static final SnapshotKey SAMPLES = SnapshotKey.of("samples");
+	private static final SnapshotKey TOTAL_TIME = SnapshotKey.of("totalTime");
+	private static final SnapshotKey AVERAGE = SnapshotKey.of("average");
+	private static final SnapshotKey MIN = SnapshotKey.of("min");
+	private static final SnapshotKey MAX = SnapshotKey.of("max");
+
 	private final TimeUnit resolution;
 	private final PercentileSnapshot snapshot;
 	private final long min;
@@ -66,36 +74,71 @@ public class TimerSnapshotImpl
 		return max;
 	}
 
+	@Override
+	public PercentileSnapshot getPercentiles()
+	{
+		return snapshot;
+	}
+
 	@Override
 	public TimerSnapshot add(TimerSnapshot other)
 	{
+		PercentileSnapshot merged = snapshot.add(checkResolution(other).getPercentiles());
+		if(other.getSamples() == 0)
+		{
+			return new TimerSnapshotImpl(resolution, merged, min, max);
+		}
+		else if(getSamples() == 0)
+		{
+			return new TimerSnapshotImpl(
+				resolution,
+				merged,
+				other.getMinimum(),
+				other.getMaximum()
+			);
+		}
+
 		return new TimerSnapshotImpl(
 			resolution,
-			snapshot.add(((TimerSnapshotImpl) other).snapshot),
+			merged,
 			Math.min(other.getMinimum(), min),
-			Math.min(other.getMaximum(), max)
+			Math.max(other.getMaximum(), max)
 		);
 	}
 
 	@Override
 	public TimerSnapshot remove(TimerSnapshot other)
 	{
+		/*
+		 * The minimum and maximum can not be recalculated when values are
+		 * removed, so keep the ones of this snapshot as the closest bound.
+		 */
 		return new TimerSnapshotImpl(
 			resolution,
-			snapshot.remove(((TimerSnapshotImpl) other).snapshot),
-			Math.min(other.getMinimum(), min),
-			Math.min(other.getMaximum(), max)
+			snapshot.remove(checkResolution(other).getPercentiles()),
+			min,
+			max
 		);
 	}
 
+	private TimerSnapshot checkResolution(TimerSnapshot other)
+	{
+		if(other.getResolution() != resolution)
+		{
+			throw new VibeException("Snapshots have different resolutions; " + resolution + " != " + other.getResolution());
+		}
+
+		return other;
+	}
+
 	@Override
 	public void mapToKeyValues(KeyValueReceiver receiver)
 	{
-		receiver.add("samples", snapshot.getSamples());
-		receiver.add("totalTime", snapshot.getTotal());
-		receiver.add("average", getAverage());
-		receiver.add("min", getMinimum());
-		receiver.add("max", getMaximum());
+		receiver.add(SAMPLES, snapshot.getSamples());
+		receiver.add(TOTAL_TIME, snapshot.getTotal());
+		receiver.add(AVERAGE, getAverage());
+		receiver.add(MIN, getMinimum());
+		receiver.add(MAX, getMaximum());
 
 		snapshot.partialMapToKeyValues(receiver);
 	}
@@ -0,0 +1,81 @@
+package se.l4.vibe.internal.timer;
+
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+
+/**
+ * {@link PercentileSnapshot} for a window of a {@link TimeWindow}, reporting
+ * the number of samples and the total of the window while percentiles are
+ * estimated by a counter that lives for as long as the timer, such as a
+ * decaying reservoir.
+ *
+ * <p>
+ * Buckets of the long-lived counter are not reported, as they would count
+ * values outside of the window.
+ */
+class WindowedPercentileSnapshot
+	implements PercentileSnapshot
+{
+	private final long samples;
+	private final long total;
+	private final PercentileSnapshot percentiles;
+
+	public WindowedPercentileSnapshot(long samples, long total, PercentileSnapshot percentiles)
+	{
+		this.samples = samples;
+		this.total = total;
+		this.percentiles = percentiles;
+	}
+
+	@Override
+	public long getSamples()
+	{
+		return samples;
+	}
+
+	@Override
+	public long getTotal()
+	{
+		return total;
+	}
+
+	@Override
+	public long estimatePercentile(int percentile)
+	{
+		return percentiles.estimatePercentile(percentile);
+	}
+
+	@Override
+	public PercentileSnapshot add(PercentileSnapshot other)
+	{
+		PercentileSnapshot merged = other instanceof WindowedPercentileSnapshot
+			? percentiles.add(((WindowedPercentileSnapshot) other).percentiles)
+			: percentiles.add(other);
+
+		return new WindowedPercentileSnapshot(
+			samples + other.getSamples(),
+			total + other.getTotal(),
+			merged
+		);
+	}
+
+	@Override
+	public PercentileSnapshot remove(PercentileSnapshot other)
+	{
+		PercentileSnapshot removed = other instanceof WindowedPercentileSnapshot
+			? percentiles.remove(((WindowedPercentileSnapshot) other).percentiles)
+			: percentiles.remove(other);
+
+		return new WindowedPercentileSnapshot(
+			samples - other.getSamples(),
+			total - other.getTotal(),
+			removed
+		);
+	}
+
+	@Override
+	public void partialMapToKeyValues(KeyValueReceiver receiver)
+	{
+		percentiles.partialMapToKeyValues(receiver);
+	}
+}
@@ -0,0 +1,188 @@
+package se.l4.vibe.meters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+
+/**
+ * Meter that measures the rate of events. Events are counted using striped
+ * counters, so marking is cheap even when done from many threads.
+ *
+ * <p>
+ * The meter is a {@link SampledProbe} of {@link MeterSnapshot}s. Every
+ * sampler keeps track of the count and the time it last sampled at, so
+ * rates are always in events per second regardless of how often the meter
+ * is sampled. The first sample covers the time since the sampler was
+ * created, so it never contains events from before that.
+ *
+ * <p>
+ * Rates are only calculated over at least 100 milliseconds. A sample taken
+ * sooner than that after the previous one, such as the sample taken when a
+ * sampler is started, reports no events and the previous rate, and the
+ * events are included in the next sample instead. The moving averages are
+ * started from the first rate calculated, so a sample taken right after a
+ * sampler is created does not skew them.
+ *
+ * <pre>
+ * Meter requests = new Meter();
+ *
+ * vibe.export(requests)
+ *   .at("http", "requests")
+ *   .done();
+ *
+ * requests.mark();
+ * </pre>
+ */
+public class Meter
+	implements SampledProbe<MeterSnapshot>
+{
+	private static final double ONE_MINUTE = TimeUnit.MINUTES.toNanos(1);
+	private static final double FIVE_MINUTES = TimeUnit.MINUTES.toNanos(5);
+	private static final double FIFTEEN_MINUTES = TimeUnit.MINUTES.toNanos(15);
+
+	/**
+	 * Shortest time a rate is calculated over, samples taken closer together
+	 * than this are only counted once enough time has passed.
+	 */
+	private static final long MIN_ELAPSED = TimeUnit.MILLISECONDS.toNanos(100);
+
+	private final LongSupplier clock;
+	private final LongAdder count;
+	private final long startTime;
+
+	/**
+	 * Create a new meter.
+	 */
+	public Meter()
+	{
+		this(System::nanoTime);
+	}
+
+	Meter(LongSupplier clock)
+	{
+		this.clock = clock;
+
+		count = new LongAdder();
+		startTime = clock.getAsLong();
+	}
+
+	/**
+	 * Mark that an event has occurred.
+	 */
+	public void mark()
+	{
+		count.increment();
+	}
+
+	/**
+	 * Mark that several events have occurred.
+	 *
+	 * @param events
+	 */
+	public void mark(long events)
+	{
+		count.add(events);
+	}
+
+	/**
+	 * Get the total number of events that have occurred.
+	 *
+	 * @return
+	 */
+	public long getCount()
+	{
+		return count.sum();
+	}
+
+	/**
+	 * Get a probe that reads the total number of events.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public Probe<Long> getCountProbe()
+	{
+		return count::sum;
+	}
+
+	@Override
+	public Sampler<MeterSnapshot> create()
+	{
+		return new MeterSampler();
+	}
+
+	private class MeterSampler
+		implements Sampler<MeterSnapshot>
+	{
+		private long lastCount;
+		private long lastTime;
+
+		private boolean hasRate;
+		private double rate;
+		private double oneMinute;
+		private double fiveMinutes;
+		private double fifteenMinutes;
+
+		public MeterSampler()
+		{
+			lastCount = count.sum();
+			lastTime = clock.getAsLong();
+		}
+
+		@Override
+		public synchronized MeterSnapshot sample()
+		{
+			long now = clock.getAsLong();
+			long current = count.sum();
+
+			long events = 0;
+			long elapsed = now - lastTime;
+			if(elapsed >= MIN_ELAPSED)
+			{
+				events = current - lastCount;
+				rate = events * 1e9 / elapsed;
+
+				if(hasRate)
+				{
+					oneMinute = decay(oneMinute, rate, elapsed, ONE_MINUTE);
+					fiveMinutes = decay(fiveMinutes, rate, elapsed, FIVE_MINUTES);
+					fifteenMinutes = decay(fifteenMinutes, rate, elapsed, FIFTEEN_MINUTES);
+				}
+				else
+				{
+					hasRate = true;
+					oneMinute = rate;
+					fiveMinutes = rate;
+					fifteenMinutes = rate;
+				}
+
+				lastCount = current;
+				lastTime = now;
+			}
+
+			long sinceStart = now - startTime;
+			double meanRate = sinceStart < MIN_ELAPSED ? 0 : current * 1e9 / sinceStart;
+
+			return new MeterSnapshot(
+				current,
+				events,
+				rate,
+				meanRate,
+				oneMinute,
+				fiveMinutes,
+				fifteenMinutes
+			);
+		}
+
+		private double decay(double average, double rate, long elapsed, double window)
+		{
+			double alpha = 1 - Math.exp(-elapsed / window);
+			return average + alpha * (rate - average);
+		}
+	}
+}
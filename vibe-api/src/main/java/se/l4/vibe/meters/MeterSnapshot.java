@@ -0,0 +1,141 @@
+package se.l4.vibe.meters;
+
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.SnapshotKey;
+
+/**
+ * A sample of the state of a {@link Meter}. All rates are in events per
+ * second.
+ */
+public class MeterSnapshot
+	implements Snapshot
+{
+	private static final SnapshotKey COUNT = SnapshotKey.of("count");
+	private static final SnapshotKey EVENTS = SnapshotKey.of("events");
+	private static final SnapshotKey RATE = SnapshotKey.of("rate");
+	private static final SnapshotKey MEAN_RATE = SnapshotKey.of("meanRate");
+	private static final SnapshotKey ONE_MINUTE_RATE = SnapshotKey.of("rate1m");
+	private static final SnapshotKey FIVE_MINUTE_RATE = SnapshotKey.of("rate5m");
+	private static final SnapshotKey FIFTEEN_MINUTE_RATE = SnapshotKey.of("rate15m");
+
+	private final long count;
+	private final long events;
+	private final double rate;
+	private final double meanRate;
+	private final double oneMinuteRate;
+	private final double fiveMinuteRate;
+	private final double fifteenMinuteRate;
+
+	public MeterSnapshot(
+		long count,
+		long events,
+		double rate,
+		double meanRate,
+		double oneMinuteRate,
+		double fiveMinuteRate,
+		double fifteenMinuteRate
+	)
+	{
+		this.count = count;
+		this.events = events;
+		this.rate = rate;
+		this.meanRate = meanRate;
+		this.oneMinuteRate = oneMinuteRate;
+		this.fiveMinuteRate = fiveMinuteRate;
+		this.fifteenMinuteRate = fifteenMinuteRate;
+	}
+
+	/**
+	 * Get the total number of events that have occurred.
+	 *
+	 * @return
+	 */
+	public long getCount()
+	{
+		return count;
+	}
+
+	/**
+	 * Get the number of events since the previous sample.
+	 *
+	 * @return
+	 */
+	public long getEvents()
+	{
+		return events;
+	}
+
+	/**
+	 * Get the rate since the previous sample.
+	 *
+	 * @return
+	 */
+	public double getRate()
+	{
+		return rate;
+	}
+
+	/**
+	 * Get the mean rate since the meter was created.
+	 *
+	 * @return
+	 */
+	public double getMeanRate()
+	{
+		return meanRate;
+	}
+
+	/**
+	 * Get the exponentially weighted moving rate over one minute.
+	 *
+	 * @return
+	 */
+	public double getOneMinuteRate()
+	{
+		return oneMinuteRate;
+	}
+
+	/**
+	 * Get the exponentially weighted moving rate over five minutes.
+	 *
+	 * @return
+	 */
+	public double getFiveMinuteRate()
+	{
+		return fiveMinuteRate;
+	}
+
+	/**
+	 * Get the exponentially weighted moving rate over fifteen minutes.
+	 *
+	 * @return
+	 */
+	public double getFifteenMinuteRate()
+	{
+		return fifteenMinuteRate;
+	}
+
+	@Override
+	public void mapToKeyValues(KeyValueReceiver receiver)
+	{
+		receiver.add(COUNT, count);
+		receiver.add(EVENTS, events);
+		receiver.add(RATE, rate);
+		receiver.add(MEAN_RATE, meanRate);
+		receiver.add(ONE_MINUTE_RATE, oneMinuteRate);
+		receiver.add(FIVE_MINUTE_RATE, fiveMinuteRate);
+		receiver.add(FIFTEEN_MINUTE_RATE, fifteenMinuteRate);
+	}
+
+	@Override
+	public String toString()
+	{
+		return "MeterSnapshot{" +
+			"count=" + count +
+			", events=" + events +
+			", rate=" + rate +
+			", meanRate=" + meanRate +
+		"}";
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Classes related to measuring the rate of events.
+ */
+package se.l4.vibe.meters;
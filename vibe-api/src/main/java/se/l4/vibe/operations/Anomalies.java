@@ -0,0 +1,346 @@
+package se.l4.vibe.operations;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.checks.Conditions;
+import se.l4.vibe.sampling.Sample;
+
+/**
+ * Operations that score how much a value deviates from a baseline that is
+ * learned from earlier samples. Scores are the number of deviations the
+ * value is above or below the baseline, so they can be used with
+ * {@link Conditions#outside(double, double)} in a {@link Check} to detect
+ * anomalies in values that change over time where a static threshold does
+ * not fit:
+ *
+ * <pre>
+ * Check check = Check.builder()
+ *   .whenProbe(requestRate)
+ *     .withCheckInterval(Duration.ofMinutes(1))
+ *     .applyResampling(Anomalies.holtWintersScore(24 * 60))
+ *     .is(Conditions.outside(-4, 4))
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * The baselines are updated for every sample and use constant memory, no
+ * matter how many samples they have seen. Scores are {@code 0} while a
+ * baseline is warming up.
+ */
+public class Anomalies
+{
+	/**
+	 * Scale that makes the median absolute deviation comparable to the
+	 * standard deviation of normally distributed values.
+	 */
+	private static final double MAD_SCALE = 1.4826;
+
+	private static final double MAD_RATE = 0.05;
+	private static final int MAD_WARM_UP = 30;
+
+	private Anomalies()
+	{
+	}
+
+	/**
+	 * Create an operation that scores values against an exponentially
+	 * weighted moving mean and variance, also known as a z-score. The weight
+	 * of a sample decays in the same way as in
+	 * {@link Ewma#averageOver(Duration)}, and values are only scored once a
+	 * full window has been seen.
+	 *
+	 * @param <T>
+	 * @param window
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> ewmaScore(
+		@NonNull Duration window
+	)
+	{
+		Objects.requireNonNull(window, "window must be specified");
+		long millis = window.toMillis();
+		if(millis <= 0)
+		{
+			throw new IllegalArgumentException("window must be at least one millisecond");
+		}
+
+		return () -> new OperationExecutor<Sample<T>, Sample<Double>>()
+		{
+			private boolean started;
+			private long firstTime;
+			private long lastTime;
+
+			private double mean;
+			private double variance;
+
+			@Override
+			public Sample<Double> apply(Sample<T> sample)
+			{
+				double value = sample.getValue().doubleValue();
+				long time = sample.getTime();
+
+				if(! started)
+				{
+					started = true;
+					firstTime = time;
+					lastTime = time;
+					mean = value;
+					return Sample.create(time, 0.0);
+				}
+
+				double diff = value - mean;
+				double score = time - firstTime >= millis
+					? score(diff, Math.sqrt(variance))
+					: 0.0;
+
+				long elapsed = time - lastTime;
+				if(elapsed > 0)
+				{
+					double alpha = 1 - Math.exp(-elapsed / (double) millis);
+					mean += alpha * diff;
+					variance = (1 - alpha) * (variance + alpha * diff * diff);
+				}
+
+				lastTime = time;
+				return Sample.create(time, score);
+			}
+		};
+	}
+
+	/**
+	 * Create an operation that scores values against a Holt-Winters forecast
+	 * with the given season, using default smoothing factors.
+	 *
+	 * @param <T>
+	 * @param season
+	 *   the number of samples in a season, such as {@code 1440} for a daily
+	 *   season sampled every minute
+	 * @return
+	 * @see #holtWintersScore(int, double, double, double)
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> holtWintersScore(
+		int season
+	)
+	{
+		return holtWintersScore(season, 0.2, 0.01, 0.1);
+	}
+
+	/**
+	 * Create an operation that scores values against an additive Holt-Winters
+	 * forecast. The forecast is made up of a level, a trend and a seasonal
+	 * offset for every position in the season. Deviations are the smoothed
+	 * absolute forecast error, tracked both over the whole season and per
+	 * position in the season, so that values at times of the season that
+	 * usually vary more need to deviate more to get the same score.
+	 *
+	 * <p>
+	 * The first season is used to initialize the forecast and the second
+	 * season to initialize the deviations, neither of them are scored.
+	 * Memory use is linear in the length of the season.
+	 *
+	 * @param <T>
+	 * @param season
+	 *   the number of samples in a season
+	 * @param alpha
+	 *   smoothing factor for the level, between {@code 0} and {@code 1}
+	 * @param beta
+	 *   smoothing factor for the trend, between {@code 0} and {@code 1}
+	 * @param gamma
+	 *   smoothing factor for the seasonal offsets and deviations, between
+	 *   {@code 0} and {@code 1}
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> holtWintersScore(
+		int season,
+		double alpha,
+		double beta,
+		double gamma
+	)
+	{
+		if(season < 2)
+		{
+			throw new IllegalArgumentException("season must be at least 2 samples");
+		}
+
+		checkFactor("alpha", alpha);
+		checkFactor("beta", beta);
+		checkFactor("gamma", gamma);
+
+		return () -> new OperationExecutor<Sample<T>, Sample<Double>>()
+		{
+			private final double[] offsets = new double[season];
+			private final double[] deviations = new double[season];
+
+			private long seen;
+			private int index;
+
+			private double level;
+			private double trend;
+			private double overall;
+
+			@Override
+			public Sample<Double> apply(Sample<T> sample)
+			{
+				double value = sample.getValue().doubleValue();
+
+				if(seen < season)
+				{
+					// Collect the first season as is
+					offsets[(int) seen++] = value;
+					if(seen == season)
+					{
+						initialize();
+					}
+
+					return Sample.create(sample.getTime(), 0.0);
+				}
+
+				double forecast = level + trend + offsets[index];
+				double error = value - forecast;
+
+				double score;
+				if(seen < season * 2L)
+				{
+					// Second season, use the first error as the deviation
+					seen++;
+					score = 0;
+					deviations[index] = Math.abs(error);
+					overall += Math.abs(error) / season;
+				}
+				else
+				{
+					/*
+					 * A single position has seen few errors, so positions
+					 * only widen the deviation over the whole season.
+					 */
+					score = score(error, Math.max(deviations[index], overall));
+					deviations[index] = gamma * Math.abs(error) + (1 - gamma) * deviations[index];
+					overall = gamma / season * Math.abs(error) + (1 - gamma / season) * overall;
+				}
+
+				double lastLevel = level;
+				level = alpha * (value - offsets[index]) + (1 - alpha) * (level + trend);
+				trend = beta * (level - lastLevel) + (1 - beta) * trend;
+				offsets[index] = gamma * (value - level) + (1 - gamma) * offsets[index];
+
+				index = index + 1 == season ? 0 : index + 1;
+
+				return Sample.create(sample.getTime(), score);
+			}
+
+			private void initialize()
+			{
+				double sum = 0;
+				for(int i=0; i<season; i++)
+				{
+					sum += offsets[i];
+				}
+
+				level = sum / season;
+
+				for(int i=0; i<season; i++)
+				{
+					offsets[i] -= level;
+				}
+			}
+		};
+	}
+
+	/**
+	 * Create an operation that scores values against the median and the
+	 * median absolute deviation of earlier values. This is more robust
+	 * against outliers than {@link #ewmaScore(Duration)} as a few extreme
+	 * values do not move the baseline much.
+	 *
+	 * <p>
+	 * The median and deviation are estimated with a frugal streaming sketch
+	 * that only keeps the two estimates. Every value moves the median
+	 * towards it by a small fraction of the deviation, and the deviation
+	 * grows or shrinks by a small fraction depending on if the value is
+	 * further away from the median than the deviation. The deviation is
+	 * scaled so that scores are comparable to a z-score for normally
+	 * distributed values.
+	 *
+	 * @param <T>
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> madScore()
+	{
+		return () -> new OperationExecutor<Sample<T>, Sample<Double>>()
+		{
+			private double median;
+			private double deviation;
+			private int seen;
+
+			@Override
+			public Sample<Double> apply(Sample<T> sample)
+			{
+				double value = sample.getValue().doubleValue();
+
+				double diff = value - median;
+				double score = seen >= MAD_WARM_UP
+					? score(diff, MAD_SCALE * deviation)
+					: 0.0;
+
+				if(seen++ == 0)
+				{
+					median = value;
+					return Sample.create(sample.getTime(), score);
+				}
+
+				double distance = Math.abs(diff);
+				if(deviation == 0)
+				{
+					// Start from the first difference seen
+					deviation = distance;
+				}
+				else if(distance > deviation)
+				{
+					deviation *= 1 + MAD_RATE;
+				}
+				else if(distance < deviation)
+				{
+					deviation *= 1 - MAD_RATE;
+				}
+
+				// Never move the median past the value
+				median += Math.copySign(Math.min(MAD_RATE * deviation, distance), diff);
+
+				return Sample.create(sample.getTime(), score);
+			}
+		};
+	}
+
+	private static void checkFactor(String name, double value)
+	{
+		if(! (value >= 0 && value <= 1))
+		{
+			throw new IllegalArgumentException(name + " must be between 0 and 1");
+		}
+	}
+
+	/**
+	 * Calculate how many deviations a difference is.
+	 *
+	 * @param diff
+	 * @param deviation
+	 * @return
+	 */
+	private static double score(double diff, double deviation)
+	{
+		if(deviation > 0)
+		{
+			return diff / deviation;
+		}
+
+		// No deviation seen, so any difference is infinitely far away
+		return diff == 0 ? 0 : Math.copySign(Double.POSITIVE_INFINITY, diff);
+	}
+}
@@ -13,6 +13,7 @@ public class Change
 
 	/**
 	 * Create an operation that will report the absolute change as a double.
+	 * The first value is used as a starting point and reported as no change.
 	 *
 	 * @return
 	 */
@@ -21,13 +22,15 @@ public class Change
 	{
 		return () -> new OperationExecutor<T, Double>()
 		{
-			private double lastValue = 0;
+			private boolean hasValue;
+			private double lastValue;
 
 			@Override
 			public Double apply(T input)
 			{
 				double current = input.doubleValue();
-				double change = current - lastValue;
+				double change = hasValue ? current - lastValue : 0;
+				hasValue = true;
 				lastValue = current;
 				return change;
 			}
@@ -36,6 +39,7 @@ public class Change
 
 	/**
 	 * Create an operation that will report the absolute change as a long.
+	 * The first value is used as a starting point and reported as no change.
 	 *
 	 * @return
 	 */
@@ -44,13 +48,15 @@ public class Change
 	{
 		return () -> new OperationExecutor<T, Long>()
 		{
-			private long lastValue = 0;
+			private boolean hasValue;
+			private long lastValue;
 
 			@Override
 			public Long apply(T input)
 			{
 				long current = input.longValue();
-				long change = current - lastValue;
+				long change = hasValue ? current - lastValue : 0;
+				hasValue = true;
 				lastValue = current;
 				return change;
 			}
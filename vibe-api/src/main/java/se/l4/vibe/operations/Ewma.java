@@ -0,0 +1,168 @@
+package se.l4.vibe.operations;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * Operations for {@link TimeSampler} that use an exponentially weighted
+ * moving average. Unlike {@link Average#averageOver(Duration)} these do not
+ * keep the samples within the window, they use constant memory and time per
+ * sample regardless of how long the window is.
+ *
+ * <p>
+ * The weight of a sample decays with the time since it was sampled, with
+ * samples older than the window contributing about 37% of their original
+ * weight. This makes it possible to create load-style averages:
+ *
+ * <pre>
+ * TimeSampler&lt;Double&gt; oneMinute = sampler.applyResampling(Ewma.rateOver(Duration.ofMinutes(1)));
+ * TimeSampler&lt;Double&gt; fiveMinutes = sampler.applyResampling(Ewma.rateOver(Duration.ofMinutes(5)));
+ * TimeSampler&lt;Double&gt; fifteenMinutes = sampler.applyResampling(Ewma.rateOver(Duration.ofMinutes(15)));
+ * </pre>
+ */
+public class Ewma
+{
+	private Ewma()
+	{
+	}
+
+	/**
+	 * Create an operation that will keep an exponentially weighted moving
+	 * average over the given duration.
+	 *
+	 * @param <T>
+	 * @param duration
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> averageOver(
+		@NonNull Duration duration
+	)
+	{
+		double window = toWindow(duration);
+
+		return () -> new OperationExecutor<Sample<T>, Sample<Double>>()
+		{
+			private double average = Double.NaN;
+			private long lastTime;
+
+			@Override
+			public Sample<Double> apply(Sample<T> sample)
+			{
+				double value = sample.getValue().doubleValue();
+				if(Double.isNaN(average))
+				{
+					average = value;
+				}
+				else
+				{
+					average += alpha(sample.getTime() - lastTime, window) * (value - average);
+				}
+
+				lastTime = sample.getTime();
+				return Sample.create(sample.getTime(), average);
+			}
+		};
+	}
+
+	/**
+	 * Create an operation that will keep an exponentially weighted moving
+	 * rate per second over the given duration. The samples should be the
+	 * amount that has occurred since the previous sample, such as the
+	 * {@link Change#changeAsLong() change} of a counter.
+	 *
+	 * <p>
+	 * The first sample is only used as a starting point, as the time it
+	 * covers is not known. The rate is {@code 0} until a second sample has
+	 * been seen.
+	 *
+	 * @param <T>
+	 * @param duration
+	 * @return
+	 */
+	@NonNull
+	public static <T extends Number> TimeSampleOperation<T, Double> rateOver(
+		@NonNull Duration duration
+	)
+	{
+		double window = toWindow(duration);
+
+		return () -> new OperationExecutor<Sample<T>, Sample<Double>>()
+		{
+			private boolean started;
+			private double rate = Double.NaN;
+			private double pending;
+			private long lastTime;
+
+			@Override
+			public Sample<Double> apply(Sample<T> sample)
+			{
+				long time = sample.getTime();
+				if(! started)
+				{
+					started = true;
+					lastTime = time;
+					return Sample.create(time, 0.0);
+				}
+
+				pending += sample.getValue().doubleValue();
+
+				long elapsed = time - lastTime;
+				if(elapsed <= 0)
+				{
+					// No time has passed, wait for the next sample
+					return Sample.create(time, Double.isNaN(rate) ? 0.0 : rate);
+				}
+
+				double instant = pending * 1000.0 / elapsed;
+				if(Double.isNaN(rate))
+				{
+					rate = instant;
+				}
+				else
+				{
+					rate += alpha(elapsed, window) * (instant - rate);
+				}
+
+				pending = 0;
+				lastTime = time;
+				return Sample.create(time, rate);
+			}
+		};
+	}
+
+	private static double toWindow(Duration duration)
+	{
+		Objects.requireNonNull(duration, "duration must be specified");
+
+		long millis = duration.toMillis();
+		if(millis <= 0)
+		{
+			throw new IllegalArgumentException("duration must be at least one millisecond");
+		}
+
+		return millis;
+	}
+
+	/**
+	 * Calculate the weight a new value should have given the time since the
+	 * last value.
+	 *
+	 * @param elapsed
+	 * @param window
+	 * @return
+	 */
+	private static double alpha(long elapsed, double window)
+	{
+		if(elapsed <= 0)
+		{
+			return 0;
+		}
+
+		return 1 - Math.exp(-elapsed / window);
+	}
+}
@@ -6,6 +6,7 @@ import java.util.concurrent.atomic.AtomicLongArray;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.vibe.VibeException;
 import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.SnapshotKey;
 
 /**
  * A {@link PercentileCounter} that uses a fixed set of buckets that values are
@@ -34,6 +35,7 @@ public class BucketPercentileCounter
 	implements PercentileCounter
 {
 	private final int[] limits;
+	private final SnapshotKey[] keys;
 	private volatile AtomicLongArray buckets;
 	private final AtomicLong total;
 
@@ -50,6 +52,12 @@ public class BucketPercentileCounter
 		}
 
 		this.limits = limits;
+		keys = new SnapshotKey[limits.length];
+		for(int i=0, n=limits.length; i<n; i++)
+		{
+			keys[i] = SnapshotKey.of("bucket" + limits[i]);
+		}
+
 		buckets = new AtomicLongArray(limits.length);
 		total = new AtomicLong();
 	}
@@ -99,7 +107,43 @@ public class BucketPercentileCounter
 		}
 		long total = this.total.get();
 
-		return new BucketSnapshot(samples, total, values, limits);
+		return new BucketSnapshot(samples, total, values, limits, keys);
+	}
+
+	/**
+	 * Create a snapshot from previously collected bucket data, such as a
+	 * snapshot that has been received from another instance. The snapshot
+	 * can be merged with snapshots from a counter using the same limits.
+	 *
+	 * @param total
+	 *   total of all values measured
+	 * @param buckets
+	 *   number of values in each bucket
+	 * @param limits
+	 *   the lower bound of each bucket
+	 * @return
+	 */
+	@NonNull
+	public static PercentileSnapshot createSnapshot(
+		long total,
+		@NonNull long[] buckets,
+		@NonNull int[] limits
+	)
+	{
+		if(buckets.length != limits.length)
+		{
+			throw new VibeException("Buckets and limits must be of the same length");
+		}
+
+		SnapshotKey[] keys = new SnapshotKey[limits.length];
+		long samples = 0;
+		for(int i=0, n=limits.length; i<n; i++)
+		{
+			keys[i] = SnapshotKey.of("bucket" + limits[i]);
+			samples += buckets[i];
+		}
+
+		return new BucketSnapshot(samples, total, buckets, limits, keys);
 	}
 
 	int getBucket(int time)
@@ -142,13 +186,15 @@ public class BucketPercentileCounter
 		private long total;
 		private long[] buckets;
 		private int[] limits;
+		private SnapshotKey[] keys;
 
-		public BucketSnapshot(long samples, long total, long[] buckets, int[] limits)
+		public BucketSnapshot(long samples, long total, long[] buckets, int[] limits, SnapshotKey[] keys)
 		{
 			this.samples = samples;
 			this.total = total;
 			this.buckets = buckets;
 			this.limits = limits;
+			this.keys = keys;
 		}
 
 		@Override
@@ -180,46 +226,84 @@ public class BucketPercentileCounter
 			return -1;
 		}
 
+		@Override
+		public int getBucketCount()
+		{
+			return buckets.length;
+		}
+
+		@Override
+		public long getBucketLowerBound(int bucket)
+		{
+			return limits[bucket];
+		}
+
+		@Override
+		public long getBucketSamples(int bucket)
+		{
+			return buckets[bucket];
+		}
+
 		@Override
 		public PercentileSnapshot add(PercentileSnapshot other)
 		{
-			BucketSnapshot s = (BucketSnapshot) other;
+			checkBuckets(other);
+
 			long[] newBuckets = new long[buckets.length];
 			for(int i=0, n=newBuckets.length; i<n; i++)
 			{
-				newBuckets[i] = buckets[i] + s.buckets[i];
+				newBuckets[i] = buckets[i] + other.getBucketSamples(i);
 			}
 			return new BucketSnapshot(
-				samples + s.samples,
-				total + s.total,
+				samples + other.getSamples(),
+				total + other.getTotal(),
 				newBuckets,
-				limits
+				limits,
+				keys
 			);
 		}
 
 		@Override
 		public PercentileSnapshot remove(PercentileSnapshot other)
 		{
-			BucketSnapshot s = (BucketSnapshot) other;
+			checkBuckets(other);
+
 			long[] newBuckets = new long[buckets.length];
 			for(int i=0, n=newBuckets.length; i<n; i++)
 			{
-				newBuckets[i] = buckets[i] - s.buckets[i];
+				newBuckets[i] = buckets[i] - other.getBucketSamples(i);
 			}
 			return new BucketSnapshot(
-				samples - s.samples,
-				total - s.total,
+				samples - other.getSamples(),
+				total - other.getTotal(),
 				newBuckets,
-				limits
+				limits,
+				keys
 			);
 		}
 
+		private void checkBuckets(PercentileSnapshot other)
+		{
+			if(other.getBucketCount() != limits.length)
+			{
+				throw new VibeException("Snapshots have a different number of buckets; " + limits.length + " != " + other.getBucketCount());
+			}
+
+			for(int i=0, n=limits.length; i<n; i++)
+			{
+				if(other.getBucketLowerBound(i) != limits[i])
+				{
+					throw new VibeException("Snapshots have different bucket limits");
+				}
+			}
+		}
+
 		@Override
 		public void partialMapToKeyValues(KeyValueReceiver receiver)
 		{
 			for(int i=0, n=limits.length; i<n; i++)
 			{
-				receiver.add("bucket" + limits[i], buckets[i]);
+				receiver.add(keys[i], buckets[i]);
 			}
 		}
 	}
@@ -0,0 +1,380 @@
+package se.l4.vibe.percentiles;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+import se.l4.vibe.VibeException;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.SnapshotKey;
+
+/**
+ * A {@link PercentileCounter} that keeps a fixed size reservoir of values,
+ * favoring recent values using forward decay.
+ *
+ * <p>
+ * Every value is given a weight that grows exponentially with the time it
+ * was added, and a random priority based on that weight. The reservoir keeps
+ * the values with the highest priorities, so that recent values are more
+ * likely to be kept. Memory use is fixed by the size of the reservoir and
+ * adding a value takes {@code O(log size)} time, no matter how long values
+ * are relevant.
+ *
+ * <p>
+ * With the default alpha of {@code 0.015} the reservoir is heavily biased
+ * towards the last five minutes of values. Larger values of alpha favor
+ * recent values more.
+ *
+ * <p>
+ * {@link #reset() Resetting} the counter only resets the number of samples
+ * and the total, the values in the reservoir decay on their own. This allows
+ * the counter to be used with timers that reset their counter every time
+ * they are sampled.
+ */
+public class DecayingPercentileCounter
+	implements PercentileCounter
+{
+	private static final long RESCALE_INTERVAL = TimeUnit.HOURS.toNanos(1);
+
+	private static final int[] PERCENTILES = { 50, 75, 95, 99 };
+	private static final SnapshotKey[] KEYS = {
+		SnapshotKey.of("p50"),
+		SnapshotKey.of("p75"),
+		SnapshotKey.of("p95"),
+		SnapshotKey.of("p99")
+	};
+
+	private final double alpha;
+	private final LongSupplier clock;
+	private final DoubleSupplier random;
+
+	private final long[] values;
+	private final double[] weights;
+	private final double[] priorities;
+	private int count;
+
+	private long landmark;
+	private long nextRescale;
+
+	private final AtomicLong samples;
+	private final AtomicLong total;
+
+	/**
+	 * Create a counter with a reservoir of 1028 values and an alpha of
+	 * {@code 0.015}.
+	 */
+	public DecayingPercentileCounter()
+	{
+		this(1028, 0.015);
+	}
+
+	/**
+	 * Create a counter.
+	 *
+	 * @param size
+	 *   the number of values to keep
+	 * @param alpha
+	 *   the decay factor, higher values favor recent values more
+	 */
+	public DecayingPercentileCounter(int size, double alpha)
+	{
+		this(size, alpha, System::nanoTime);
+	}
+
+	DecayingPercentileCounter(int size, double alpha, LongSupplier clock)
+	{
+		this(size, alpha, clock, () -> ThreadLocalRandom.current().nextDouble());
+	}
+
+	DecayingPercentileCounter(
+		int size,
+		double alpha,
+		LongSupplier clock,
+		DoubleSupplier random
+	)
+	{
+		if(size < 1)
+		{
+			throw new VibeException("Size must be at least 1");
+		}
+
+		if(alpha <= 0)
+		{
+			throw new VibeException("Alpha must be positive");
+		}
+
+		this.alpha = alpha;
+		this.clock = clock;
+		this.random = random;
+
+		values = new long[size];
+		weights = new double[size];
+		priorities = new double[size];
+
+		landmark = clock.getAsLong();
+		nextRescale = landmark + RESCALE_INTERVAL;
+
+		samples = new AtomicLong();
+		total = new AtomicLong();
+	}
+
+	@Override
+	public void add(long value)
+	{
+		samples.incrementAndGet();
+		total.addAndGet(value);
+
+		long now = clock.getAsLong();
+		double random = 1.0 - this.random.getAsDouble();
+
+		synchronized(this)
+		{
+			if(now - nextRescale >= 0)
+			{
+				rescale(now);
+			}
+
+			double weight = Math.exp(alpha * ((now - landmark) / 1e9));
+			double priority = weight / random;
+
+			if(count < values.length)
+			{
+				values[count] = value;
+				weights[count] = weight;
+				priorities[count] = priority;
+				siftUp(count++);
+			}
+			else if(priority > priorities[0])
+			{
+				values[0] = value;
+				weights[0] = weight;
+				priorities[0] = priority;
+				siftDown(0);
+			}
+		}
+	}
+
+	/**
+	 * Move the landmark to the current time, as the weights would otherwise
+	 * overflow after a while.
+	 *
+	 * @param now
+	 */
+	private void rescale(long now)
+	{
+		double factor = Math.exp(-alpha * ((now - landmark) / 1e9));
+		for(int i=0; i<count; i++)
+		{
+			weights[i] *= factor;
+			priorities[i] *= factor;
+		}
+
+		landmark = now;
+		nextRescale = now + RESCALE_INTERVAL;
+	}
+
+	private void siftUp(int i)
+	{
+		while(i > 0)
+		{
+			int parent = (i - 1) / 2;
+			if(priorities[parent] <= priorities[i]) break;
+
+			swap(i, parent);
+			i = parent;
+		}
+	}
+
+	private void siftDown(int i)
+	{
+		while(true)
+		{
+			int left = 2 * i + 1;
+			if(left >= count) break;
+
+			int smallest = left;
+			int right = left + 1;
+			if(right < count && priorities[right] < priorities[left])
+			{
+				smallest = right;
+			}
+
+			if(priorities[i] <= priorities[smallest]) break;
+
+			swap(i, smallest);
+			i = smallest;
+		}
+	}
+
+	private void swap(int a, int b)
+	{
+		long v = values[a];
+		values[a] = values[b];
+		values[b] = v;
+
+		double w = weights[a];
+		weights[a] = weights[b];
+		weights[b] = w;
+
+		double p = priorities[a];
+		priorities[a] = priorities[b];
+		priorities[b] = p;
+	}
+
+	@Override
+	public void reset()
+	{
+		samples.set(0);
+		total.set(0);
+	}
+
+	@Override
+	public PercentileSnapshot get()
+	{
+		long[] sortedValues;
+		double[] sortedWeights;
+
+		synchronized(this)
+		{
+			Integer[] order = new Integer[count];
+			for(int i=0; i<count; i++)
+			{
+				order[i] = i;
+			}
+
+			Arrays.sort(order, (a, b) -> Long.compare(values[a], values[b]));
+
+			sortedValues = new long[count];
+			sortedWeights = new double[count];
+			double sum = 0;
+			for(int i=0; i<count; i++)
+			{
+				sortedValues[i] = values[order[i]];
+				sortedWeights[i] = weights[order[i]];
+				sum += sortedWeights[i];
+			}
+
+			for(int i=0; i<count; i++)
+			{
+				sortedWeights[i] /= sum;
+			}
+		}
+
+		return new DecayingSnapshot(samples.get(), total.get(), sortedValues, sortedWeights);
+	}
+
+	private static class DecayingSnapshot
+		implements PercentileSnapshot
+	{
+		private final long samples;
+		private final long total;
+		private final long[] values;
+		private final double[] weights;
+
+		public DecayingSnapshot(long samples, long total, long[] values, double[] weights)
+		{
+			this.samples = samples;
+			this.total = total;
+			this.values = values;
+			this.weights = weights;
+		}
+
+		@Override
+		public long getTotal()
+		{
+			return total;
+		}
+
+		@Override
+		public long getSamples()
+		{
+			return samples;
+		}
+
+		@Override
+		public long estimatePercentile(int percentile)
+		{
+			if(values.length == 0)
+			{
+				return -1;
+			}
+
+			double cutoff = percentile / 100.0;
+			double sum = 0;
+			for(int i=0, n=values.length; i<n; i++)
+			{
+				sum += weights[i];
+				if(sum >= cutoff)
+				{
+					return values[i];
+				}
+			}
+
+			return values[values.length - 1];
+		}
+
+		@Override
+		public PercentileSnapshot add(PercentileSnapshot other)
+		{
+			if(! (other instanceof DecayingSnapshot))
+			{
+				throw new VibeException("Decaying snapshots can only be merged with other decaying snapshots");
+			}
+
+			DecayingSnapshot s = (DecayingSnapshot) other;
+			long totalSamples = samples + s.samples;
+			double share;
+			if(s.values.length == 0)
+			{
+				share = 1;
+			}
+			else if(values.length == 0)
+			{
+				share = 0;
+			}
+			else
+			{
+				share = totalSamples == 0 ? 0.5 : samples / (double) totalSamples;
+			}
+
+			long[] newValues = new long[values.length + s.values.length];
+			double[] newWeights = new double[newValues.length];
+
+			int a = 0;
+			int b = 0;
+			for(int i=0, n=newValues.length; i<n; i++)
+			{
+				if(b >= s.values.length || (a < values.length && values[a] <= s.values[b]))
+				{
+					newValues[i] = values[a];
+					newWeights[i] = weights[a++] * share;
+				}
+				else
+				{
+					newValues[i] = s.values[b];
+					newWeights[i] = s.weights[b++] * (1 - share);
+				}
+			}
+
+			return new DecayingSnapshot(totalSamples, total + s.total, newValues, newWeights);
+		}
+
+		@Override
+		public PercentileSnapshot remove(PercentileSnapshot other)
+		{
+			throw new VibeException("Values can not be removed from decaying snapshots");
+		}
+
+		@Override
+		public void partialMapToKeyValues(KeyValueReceiver receiver)
+		{
+			for(int i=0; i<PERCENTILES.length; i++)
+			{
+				receiver.add(KEYS[i], estimatePercentile(PERCENTILES[i]));
+			}
+		}
+	}
+}
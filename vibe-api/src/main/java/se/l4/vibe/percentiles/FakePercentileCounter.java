@@ -2,6 +2,7 @@ package se.l4.vibe.percentiles;
 
 import java.util.concurrent.atomic.AtomicLong;
 
+import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.vibe.snapshots.KeyValueReceiver;
 
 /**
@@ -42,6 +43,21 @@ public class FakePercentileCounter
 		samples.set(0);
 	}
 
+	/**
+	 * Create a snapshot from a previously collected number of samples and
+	 * total, such as a snapshot that has been received from another
+	 * instance.
+	 *
+	 * @param samples
+	 * @param total
+	 * @return
+	 */
+	@NonNull
+	public static PercentileSnapshot createSnapshot(long samples, long total)
+	{
+		return new FakeSnapshot(samples, total);
+	}
+
 	private static class FakeSnapshot
 		implements PercentileSnapshot
 	{
@@ -0,0 +1,16 @@
+package se.l4.vibe.percentiles;
+
+import se.l4.vibe.snapshots.SnapshotKey;
+
+/**
+ * Keys shared by the snapshots in this package.
+ */
+class PercentileKeys
+{
+	static final SnapshotKey SAMPLES = SnapshotKey.of("samples");
+	static final SnapshotKey TOTAL = SnapshotKey.of("total");
+
+	private PercentileKeys()
+	{
+	}
+}
@@ -34,6 +34,43 @@ public interface PercentileSnapshot
 	 */
 	long estimatePercentile(int percentile);
 
+	/**
+	 * Get the number of buckets values have been sorted into. Will return
+	 * {@code 0} if the counter does not use buckets.
+	 *
+	 * @return
+	 */
+	default int getBucketCount()
+	{
+		return 0;
+	}
+
+	/**
+	 * Get the lower bound (inclusive) of the given bucket. The upper bound of
+	 * a bucket is the lower bound of the next bucket, with the last bucket
+	 * not having an upper bound.
+	 *
+	 * @param bucket
+	 *   index of the bucket, between {@code 0} and {@link #getBucketCount()}
+	 * @return
+	 */
+	default long getBucketLowerBound(int bucket)
+	{
+		throw new IndexOutOfBoundsException("Snapshot does not have buckets");
+	}
+
+	/**
+	 * Get the number of values that have been sorted into the given bucket.
+	 *
+	 * @param bucket
+	 *   index of the bucket, between {@code 0} and {@link #getBucketCount()}
+	 * @return
+	 */
+	default long getBucketSamples(int bucket)
+	{
+		throw new IndexOutOfBoundsException("Snapshot does not have buckets");
+	}
+
 	/**
 	 * Remove the values from the given object and return a new copy.
 	 *
@@ -55,8 +92,8 @@ public interface PercentileSnapshot
 	@Override
 	default void mapToKeyValues(KeyValueReceiver receiver)
 	{
-		receiver.add("samples", getSamples());
-		receiver.add("total", getTotal());
+		receiver.add(PercentileKeys.SAMPLES, getSamples());
+		receiver.add(PercentileKeys.TOTAL, getTotal());
 
 		partialMapToKeyValues(receiver);
 	}
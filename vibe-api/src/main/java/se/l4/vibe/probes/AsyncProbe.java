@@ -0,0 +1,48 @@
+package se.l4.vibe.probes;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * Probe that reads its value without blocking, for values that come from
+ * slow sources such as a database or a file system. Use
+ * {@link TimeSampler#forAsyncProbe(AsyncProbe)} to sample it.
+ *
+ * <pre>
+ * AsyncProbe&lt;Long&gt; rows = () -&gt; database.countRowsAsync();
+ * </pre>
+ *
+ * @param <T>
+ * @see AsyncSampledProbe
+ */
+@FunctionalInterface
+public interface AsyncProbe<T>
+{
+	/**
+	 * Start reading the value.
+	 *
+	 * @return
+	 *   stage that completes with the value
+	 */
+	@NonNull
+	CompletionStage<T> read();
+
+	/**
+	 * Turn a blocking probe into an asynchronous one by reading it using the
+	 * given executor.
+	 *
+	 * @param <T>
+	 * @param probe
+	 * @param executor
+	 * @return
+	 */
+	@NonNull
+	static <T> AsyncProbe<T> over(@NonNull Probe<T> probe, @NonNull Executor executor)
+	{
+		return () -> CompletableFuture.supplyAsync(probe::read, executor);
+	}
+}
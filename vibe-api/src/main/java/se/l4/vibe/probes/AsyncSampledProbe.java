@@ -0,0 +1,40 @@
+package se.l4.vibe.probes;
+
+import java.util.concurrent.CompletionStage;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * Version of {@link SampledProbe} where sampling does not block. The
+ * sampler returns a stage that completes with the value. Use
+ * {@link TimeSampler#forAsyncProbe(AsyncSampledProbe)} to sample it.
+ *
+ * @param <T>
+ * @see AsyncProbe
+ */
+@FunctionalInterface
+public interface AsyncSampledProbe<T>
+{
+	/**
+	 * Create a sampler for this probe.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Sampler<CompletionStage<T>> create();
+
+	/**
+	 * Turn an {@link AsyncProbe} into a sampled probe.
+	 *
+	 * @param <T>
+	 * @param probe
+	 * @return
+	 */
+	@NonNull
+	static <T> AsyncSampledProbe<T> over(@NonNull AsyncProbe<T> probe)
+	{
+		return () -> probe::read;
+	}
+}
@@ -3,6 +3,7 @@ package se.l4.vibe.probes;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.vibe.Exportable;
 import se.l4.vibe.internal.MergedProbes;
+import se.l4.vibe.internal.sampling.SharedProbe;
 import se.l4.vibe.operations.Operation;
 import se.l4.vibe.operations.OperationExecutor;
 import se.l4.vibe.sampling.Sampler;
@@ -82,6 +83,12 @@ public interface SampledProbe<T>
 	@NonNull
 	static <T> SampledProbe<T> over(@NonNull Probe<T> probe)
 	{
+		if(probe instanceof SharedProbe)
+		{
+			// Probes exported to several backends share their samplers
+			return ((SharedProbe<T>) probe).asSampled();
+		}
+
 		return () -> probe::read;
 	}
 
@@ -0,0 +1,152 @@
+package se.l4.vibe.sampling;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.internal.sampling.AdaptiveIntervalImpl;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.snapshots.MapSnapshot;
+
+/**
+ * Interval for a {@link TimeSampler} that adapts to what is being sampled.
+ * The sampler starts at the maximum interval and switches to the minimum
+ * interval as soon as the sampled value changes more than a threshold or a
+ * condition is met. After a number of samples without anything happening
+ * the interval is doubled until it reaches the maximum again.
+ *
+ * <pre>
+ * AdaptiveInterval interval = AdaptiveInterval.builder()
+ *   .withMinimumInterval(Duration.ofSeconds(1))
+ *   .withMaximumInterval(Duration.ofMinutes(1))
+ *   .whenChangeExceeds(0.1)
+ *   .build();
+ *
+ * TimeSampler&lt;Double&gt; sampler = TimeSampler.forProbe(probe)
+ *   .withAdaptiveInterval(interval)
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * An interval keeps the state of the sampler it controls and can only be
+ * used by one sampler at a time. Its decisions can be exported via
+ * {@link #getStateProbe()}.
+ *
+ * <p>
+ * Instances must be created via {@link #builder()}, samplers do not accept
+ * other implementations of this interface.
+ */
+public interface AdaptiveInterval
+{
+	/**
+	 * Get the shortest interval samples are taken at.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Duration getMinimumInterval();
+
+	/**
+	 * Get the longest interval samples are taken at.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Duration getMaximumInterval();
+
+	/**
+	 * Get a probe for the current state of this interval. The snapshot
+	 * contains the current {@code interval} in milliseconds, the number of
+	 * times sampling has been sped up in {@code speedUps} and slowed down in
+	 * {@code slowDowns}, and the {@code reason} for the last change.
+	 *
+	 * @return
+	 */
+	@NonNull
+	Probe<MapSnapshot> getStateProbe();
+
+	/**
+	 * Start building a new interval.
+	 *
+	 * @return
+	 */
+	@NonNull
+	static Builder builder()
+	{
+		return new AdaptiveIntervalImpl.BuilderImpl();
+	}
+
+	/**
+	 * Builder for creating an {@link AdaptiveInterval}.
+	 */
+	interface Builder
+	{
+		/**
+		 * Set the shortest interval to sample at, defaults to one second.
+		 *
+		 * @param interval
+		 * @return
+		 */
+		@NonNull
+		Builder withMinimumInterval(@NonNull Duration interval);
+
+		/**
+		 * Set the longest interval to sample at, defaults to one minute.
+		 *
+		 * @param interval
+		 * @return
+		 */
+		@NonNull
+		Builder withMaximumInterval(@NonNull Duration interval);
+
+		/**
+		 * Set how many samples in a row that need to be stable before the
+		 * interval is doubled, defaults to 3.
+		 *
+		 * @param samples
+		 * @return
+		 */
+		@NonNull
+		Builder withStableSamples(int samples);
+
+		/**
+		 * Sample at the minimum interval when a numeric value changes more
+		 * than the given fraction between two samples, such as {@code 0.1}
+		 * for 10%.
+		 *
+		 * @param fraction
+		 * @return
+		 */
+		@NonNull
+		Builder whenChangeExceeds(double fraction);
+
+		/**
+		 * Sample at the minimum interval while the conditions of the given
+		 * check are met. The check is started together with the sampler.
+		 *
+		 * @param check
+		 * @return
+		 */
+		@NonNull
+		Builder whenCheckMet(@NonNull Check check);
+
+		/**
+		 * Sample at the minimum interval while the given supplier returns
+		 * {@code true}.
+		 *
+		 * @param condition
+		 * @return
+		 */
+		@NonNull
+		Builder whenCondition(@NonNull BooleanSupplier condition);
+
+		/**
+		 * Build the interval.
+		 *
+		 * @return
+		 */
+		@NonNull
+		AdaptiveInterval build();
+	}
+}
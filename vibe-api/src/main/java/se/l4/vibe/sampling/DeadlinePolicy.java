@@ -0,0 +1,19 @@
+package se.l4.vibe.sampling;
+
+/**
+ * What a {@link TimeSampler} for an asynchronous probe does when a read
+ * does not complete before its deadline, or fails.
+ */
+public enum DeadlinePolicy
+{
+	/**
+	 * Skip the sample, leaving a gap in the series.
+	 */
+	GAP,
+
+	/**
+	 * Repeat the last value that was sampled, using the time of the missed
+	 * sample. Behaves like {@link #GAP} until a value has been sampled.
+	 */
+	STALE
+}
@@ -5,11 +5,14 @@ import java.time.Duration;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import se.l4.vibe.Exportable;
 import se.l4.vibe.Handle;
+import se.l4.vibe.internal.sampling.AsyncTimeSampler;
 import se.l4.vibe.internal.sampling.SamplerWithOperation;
 import se.l4.vibe.internal.sampling.TimeSamplerImpl;
 import se.l4.vibe.operations.Operation;
 import se.l4.vibe.operations.OperationExecutor;
 import se.l4.vibe.operations.TimeSampleOperation;
+import se.l4.vibe.probes.AsyncProbe;
+import se.l4.vibe.probes.AsyncSampledProbe;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 
@@ -112,6 +115,30 @@ public interface TimeSampler<T>
 		return new TimeSamplerImpl.BuilderImpl<>(SampledProbe.over(probe));
 	}
 
+	/**
+	 * Start building a new sampler on top of the given {@link AsyncSampledProbe}.
+	 * The probe is read without blocking the threads used for sampling.
+	 *
+	 * @return
+	 */
+	@NonNull
+	static <T> AsyncBuilder<T> forAsyncProbe(@NonNull AsyncSampledProbe<T> probe)
+	{
+		return new AsyncTimeSampler.BuilderImpl<>(probe);
+	}
+
+	/**
+	 * Start building a new sampler on top of the given {@link AsyncProbe}.
+	 * The probe is read without blocking the threads used for sampling.
+	 *
+	 * @return
+	 */
+	@NonNull
+	static <T> AsyncBuilder<T> forAsyncProbe(@NonNull AsyncProbe<T> probe)
+	{
+		return new AsyncTimeSampler.BuilderImpl<>(AsyncSampledProbe.over(probe));
+	}
+
 	interface Builder<T>
 	{
 		/**
@@ -123,6 +150,19 @@ public interface TimeSampler<T>
 		@NonNull
 		Builder<T> withInterval(@NonNull Duration time);
 
+		/**
+		 * Let the interval adapt to what is being sampled, sampling slowly
+		 * while things are stable and quickly when something is happening.
+		 * Samplers with an adaptive interval are not shared with other
+		 * samplers of the same probe.
+		 *
+		 * @param interval
+		 * @return
+		 * @see AdaptiveInterval
+		 */
+		@NonNull
+		Builder<T> withAdaptiveInterval(@NonNull AdaptiveInterval interval);
+
 		/**
 		 * Apply the given operation to the probe.
 		 *
@@ -161,4 +201,39 @@ public interface TimeSampler<T>
 		@NonNull
 		TimeSampler<T> build();
 	}
+
+	/**
+	 * Builder for samplers of asynchronous probes.
+	 */
+	interface AsyncBuilder<T>
+		extends Builder<T>
+	{
+		@Override
+		@NonNull
+		AsyncBuilder<T> withInterval(@NonNull Duration time);
+
+		@Override
+		@NonNull
+		AsyncBuilder<T> withAdaptiveInterval(@NonNull AdaptiveInterval interval);
+
+		/**
+		 * Set how long a read may take before it is considered missed,
+		 * defaults to three quarters of the interval.
+		 *
+		 * @param timeout
+		 * @return
+		 */
+		@NonNull
+		AsyncBuilder<T> withTimeout(@NonNull Duration timeout);
+
+		/**
+		 * Set what to do when a read misses its deadline or fails, defaults
+		 * to {@link DeadlinePolicy#GAP}.
+		 *
+		 * @param policy
+		 * @return
+		 */
+		@NonNull
+		AsyncBuilder<T> whenDeadlineMissed(@NonNull DeadlinePolicy policy);
+	}
 }
@@ -4,6 +4,14 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 
 /**
  * Receiver of key value pairs.
+ *
+ * <p>
+ * Values are passed via typed methods, so that primitives do not need to be
+ * boxed. Receivers that only implement {@link #add(String, Object)} will
+ * receive boxed values, receivers that care about allocations should
+ * implement the typed methods. Snapshots can pass a precomputed
+ * {@link SnapshotKey} instead of a string, the default implementations
+ * pass on the name of the key.
  */
 public interface KeyValueReceiver
 {
@@ -15,4 +23,126 @@ public interface KeyValueReceiver
 	 * @param value
 	 */
 	void add(@NonNull String key, @NonNull Object value);
+
+	/**
+	 * Add a long value.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull String key, long value)
+	{
+		add(key, (Object) value);
+	}
+
+	/**
+	 * Add a double value.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull String key, double value)
+	{
+		add(key, (Object) value);
+	}
+
+	/**
+	 * Add a boolean value.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull String key, boolean value)
+	{
+		add(key, (Object) value);
+	}
+
+	/**
+	 * Add a string value.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull String key, @NonNull CharSequence value)
+	{
+		add(key, (Object) value.toString());
+	}
+
+	/**
+	 * Add a long value using a precomputed key.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull SnapshotKey key, long value)
+	{
+		add(key.getName(), value);
+	}
+
+	/**
+	 * Add a double value using a precomputed key.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull SnapshotKey key, double value)
+	{
+		add(key.getName(), value);
+	}
+
+	/**
+	 * Add a boolean value using a precomputed key.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull SnapshotKey key, boolean value)
+	{
+		add(key.getName(), value);
+	}
+
+	/**
+	 * Add a string value using a precomputed key.
+	 *
+	 * @param key
+	 * @param value
+	 */
+	default void add(@NonNull SnapshotKey key, @NonNull CharSequence value)
+	{
+		add(key.getName(), value);
+	}
+
+	/**
+	 * Add a value of an unknown type, dispatching it to the typed method
+	 * that matches it. Values that are not a primitive or a string are added
+	 * using their string representation, so receivers can safely call this
+	 * from {@link #add(String, Object)}.
+	 *
+	 * @param receiver
+	 * @param key
+	 * @param value
+	 */
+	static void addValue(@NonNull KeyValueReceiver receiver, @NonNull String key, @NonNull Object value)
+	{
+		if(value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+		{
+			receiver.add(key, ((Number) value).longValue());
+		}
+		else if(value instanceof Number)
+		{
+			receiver.add(key, ((Number) value).doubleValue());
+		}
+		else if(value instanceof Boolean)
+		{
+			receiver.add(key, ((Boolean) value).booleanValue());
+		}
+		else if(value instanceof CharSequence)
+		{
+			receiver.add(key, (CharSequence) value);
+		}
+		else
+		{
+			receiver.add(key, value.toString());
+		}
+	}
 }
@@ -33,7 +33,7 @@ public class MapSnapshot
 	{
 		for(Map.Entry<String, Object> e : values.entrySet())
 		{
-			receiver.add(e.getKey(), e.getValue());
+			KeyValueReceiver.addValue(receiver, e.getKey(), e.getValue());
 		}
 	}
 
@@ -0,0 +1,86 @@
+package se.l4.vibe.snapshots;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Precomputed key of a {@link Snapshot}. Keys are interned, so there is only
+ * ever one instance for a given name and every key has a small unique
+ * {@link #getId() id}. Snapshots should create their keys once and reuse
+ * them, receivers can use the id to cache things such as an encoded version
+ * of the key.
+ *
+ * <pre>
+ * private static final SnapshotKey HEAP_USED = SnapshotKey.of("heapUsed");
+ *
+ * public void mapToKeyValues(KeyValueReceiver receiver) {
+ *   receiver.add(HEAP_USED, heapUsed);
+ * }
+ * </pre>
+ */
+public final class SnapshotKey
+{
+	private static final ConcurrentMap<String, SnapshotKey> KEYS = new ConcurrentHashMap<>();
+	private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+	private final String name;
+	private final int id;
+
+	private SnapshotKey(String name, int id)
+	{
+		this.name = name;
+		this.id = id;
+	}
+
+	/**
+	 * Get the key for the given name.
+	 *
+	 * @param name
+	 * @return
+	 */
+	@NonNull
+	public static SnapshotKey of(@NonNull String name)
+	{
+		Objects.requireNonNull(name, "name must be specified");
+
+		SnapshotKey key = KEYS.get(name);
+		if(key != null)
+		{
+			return key;
+		}
+
+		return KEYS.computeIfAbsent(name, n -> new SnapshotKey(n, NEXT_ID.getAndIncrement()));
+	}
+
+	/**
+	 * Get the name of this key.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public String getName()
+	{
+		return name;
+	}
+
+	/**
+	 * Get the id of this key. Ids are assigned in the order keys are created
+	 * starting at zero, making them suitable as an index into an array.
+	 *
+	 * @return
+	 */
+	public int getId()
+	{
+		return id;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+}
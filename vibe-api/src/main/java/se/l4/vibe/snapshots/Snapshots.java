@@ -24,11 +24,59 @@ public class Snapshots
 		builder.append(instance.getClass().getSimpleName());
 		builder.append("{ ");
 
-		instance.mapToKeyValues((k, v) -> {
-			builder.append(k).append('=').append(v).append(' ');
-		});
+		instance.mapToKeyValues(new StringReceiver(builder));
 
 		builder.append('}');
 		return builder.toString();
 	}
+
+	/**
+	 * Receiver that appends values to a {@link StringBuilder} without boxing
+	 * them.
+	 */
+	private static class StringReceiver
+		implements KeyValueReceiver
+	{
+		private final StringBuilder builder;
+
+		public StringReceiver(StringBuilder builder)
+		{
+			this.builder = builder;
+		}
+
+		private StringBuilder key(String key)
+		{
+			return builder.append(key).append('=');
+		}
+
+		@Override
+		public void add(String key, Object value)
+		{
+			key(key).append(value).append(' ');
+		}
+
+		@Override
+		public void add(String key, long value)
+		{
+			key(key).append(value).append(' ');
+		}
+
+		@Override
+		public void add(String key, double value)
+		{
+			key(key).append(value).append(' ');
+		}
+
+		@Override
+		public void add(String key, boolean value)
+		{
+			key(key).append(value).append(' ');
+		}
+
+		@Override
+		public void add(String key, CharSequence value)
+		{
+			key(key).append(value).append(' ');
+		}
+	}
 }
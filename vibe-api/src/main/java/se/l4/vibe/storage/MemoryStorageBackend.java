@@ -0,0 +1,299 @@
+package se.l4.vibe.storage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibePaths;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Backend that keeps recent history of exported values in memory, so that
+ * they can be queried without an external database. Every numeric value
+ * is stored in a {@link StoredSeries}, values of {@link Snapshot}s are
+ * stored in a series per key.
+ *
+ * <pre>
+ * MemoryStorageBackend storage = MemoryStorageBackend.builder()
+ *   .build();
+ *
+ * Vibe vibe = Vibe.builder()
+ *   .withBackend(storage)
+ *   .build();
+ *
+ * storage.query("jvm/cpu", Instant.now().minus(Duration.ofHours(1)), Instant.now())
+ *   .forEach(sample -> ...);
+ * </pre>
+ */
+public class MemoryStorageBackend
+	implements VibeBackend
+{
+	private final Duration samplingInterval;
+	private final StoredSeries.Builder seriesBuilder;
+
+	private final Map<String, StoredSeries> series;
+
+	private MemoryStorageBackend(
+		Duration samplingInterval,
+		StoredSeries.Builder seriesBuilder
+	)
+	{
+		this.samplingInterval = samplingInterval;
+		this.seriesBuilder = seriesBuilder;
+
+		series = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * Get the series stored for the given path.
+	 *
+	 * @param path
+	 * @return
+	 */
+	@NonNull
+	public Optional<StoredSeries> getSeries(@NonNull String path)
+	{
+		return Optional.ofNullable(series.get(path));
+	}
+
+	/**
+	 * Query for samples stored for the given path.
+	 *
+	 * @param path
+	 * @param from
+	 * @param to
+	 * @return
+	 * @see StoredSeries#query(Instant, Instant)
+	 */
+	@NonNull
+	public Stream<Sample<Double>> query(
+		@NonNull String path,
+		@NonNull Instant from,
+		@NonNull Instant to
+	)
+	{
+		StoredSeries s = series.get(path);
+		return s == null ? Stream.empty() : s.query(from, to);
+	}
+
+	private StoredSeries getOrCreate(String path)
+	{
+		return series.computeIfAbsent(path, p -> seriesBuilder.build());
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, TimeSampler<?> sampler)
+	{
+		return ((TimeSampler) sampler).addListener(new SampleStorer(path));
+	}
+
+	@Override
+	public Handle export(String path, Probe<?> probe)
+	{
+		return sampleAndExport(path, SampledProbe.over(probe));
+	}
+
+	@Override
+	public Handle export(String path, SampledProbe<?> probe)
+	{
+		return sampleAndExport(path, probe);
+	}
+
+	@Override
+	public Handle export(String path, Timer timer)
+	{
+		return sampleAndExport(path, timer.getSnapshotProbe());
+	}
+
+	private Handle sampleAndExport(String path, SampledProbe<?> probe)
+	{
+		TimeSampler<?> sampler = TimeSampler.forProbe(probe)
+			.withInterval(samplingInterval)
+			.build();
+
+		return export(path, sampler);
+	}
+
+	@Override
+	public void close()
+	{
+		series.clear();
+	}
+
+	private class SampleStorer
+		implements SampleListener<Object>, KeyValueReceiver
+	{
+		private final String path;
+		private final Map<String, StoredSeries> keys;
+
+		private long time;
+
+		public SampleStorer(String path)
+		{
+			this.path = path;
+			keys = new HashMap<>();
+		}
+
+		@Override
+		public void sampleAcquired(Sample<Object> sample)
+		{
+			Object value = sample.getValue();
+			if(value instanceof Snapshot)
+			{
+				time = sample.getTime();
+				((Snapshot) value).mapToKeyValues(this);
+			}
+			else if(isNumeric(value))
+			{
+				getOrCreate(path).add(sample.getTime(), toDouble(value));
+			}
+		}
+
+		@Override
+		public void add(String key, Object value)
+		{
+			KeyValueReceiver.addValue(this, key, value);
+		}
+
+		@Override
+		public void add(String key, long value)
+		{
+			series(key).add(time, value);
+		}
+
+		@Override
+		public void add(String key, double value)
+		{
+			series(key).add(time, value);
+		}
+
+		@Override
+		public void add(String key, boolean value)
+		{
+			series(key).add(time, value ? 1 : 0);
+		}
+
+		@Override
+		public void add(String key, CharSequence value)
+		{
+			// Only numeric values are stored
+		}
+
+		private StoredSeries series(String key)
+		{
+			StoredSeries s = keys.get(key);
+			if(s == null)
+			{
+				s = getOrCreate(VibePaths.merge(path, key));
+				keys.put(key, s);
+			}
+
+			return s;
+		}
+	}
+
+	private static boolean isNumeric(Object value)
+	{
+		return value instanceof Number || value instanceof Boolean;
+	}
+
+	private static double toDouble(Object value)
+	{
+		if(value instanceof Boolean)
+		{
+			return ((Boolean) value) ? 1 : 0;
+		}
+
+		return ((Number) value).doubleValue();
+	}
+
+	@NonNull
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private final StoredSeries.Builder seriesBuilder;
+		private Duration samplingInterval;
+
+		public Builder()
+		{
+			seriesBuilder = StoredSeries.builder();
+			samplingInterval = Duration.ofSeconds(10);
+		}
+
+		/**
+		 * Set the sampling interval this backend should use for {@link Probe}s,
+		 * {@link SampledProbe}s and {@link Timer}s.
+		 *
+		 * @param interval
+		 *   interval to use
+		 * @return
+		 */
+		@NonNull
+		public Builder withSamplingInterval(@NonNull Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval can not be null");
+			this.samplingInterval = interval;
+
+			return this;
+		}
+
+		/**
+		 * Set the resolutions of the tiers samples are downsampled into.
+		 *
+		 * @param resolutions
+		 * @return
+		 * @see StoredSeries.Builder#withTiers(Duration...)
+		 */
+		@NonNull
+		public Builder withTiers(@NonNull Duration... resolutions)
+		{
+			seriesBuilder.withTiers(resolutions);
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of samples kept in every tier of a series.
+		 *
+		 * @param samples
+		 * @return
+		 * @see StoredSeries.Builder#withSamplesPerTier(int)
+		 */
+		@NonNull
+		public Builder withSamplesPerTier(int samples)
+		{
+			seriesBuilder.withSamplesPerTier(samples);
+			return this;
+		}
+
+		/**
+		 * Build the backend.
+		 *
+		 * @return
+		 */
+		@NonNull
+		public MemoryStorageBackend build()
+		{
+			return new MemoryStorageBackend(samplingInterval, seriesBuilder);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package se.l4.vibe.storage;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.Handle;
+import se.l4.vibe.internal.storage.Tier;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * Series of numeric samples stored in memory. Samples are compressed into
+ * chunks and downsampled into tiers with a coarser resolution, by default
+ * 10 seconds, 1 minute and 1 hour. Every tier keeps a bounded number of
+ * samples so the memory used by a series is bounded.
+ *
+ * <p>
+ * Series can be used on their own by attaching them to a sampler:
+ *
+ * <pre>
+ * StoredSeries series = StoredSeries.builder()
+ *   .build();
+ *
+ * series.attach(sampler);
+ *
+ * series.query(Instant.now().minus(Duration.ofHours(1)), Instant.now())
+ *   .forEach(sample -> ...);
+ * </pre>
+ *
+ * @see MemoryStorageBackend
+ */
+public class StoredSeries
+{
+	private static final int CHUNK_SIZE = 120;
+
+	private final Tier[] tiers;
+
+	StoredSeries(Duration[] resolutions, int samplesPerTier)
+	{
+		tiers = new Tier[resolutions.length + 1];
+		tiers[0] = new Tier(0, CHUNK_SIZE, samplesPerTier);
+		for(int i=0; i<resolutions.length; i++)
+		{
+			tiers[i + 1] = new Tier(resolutions[i].toMillis(), CHUNK_SIZE, samplesPerTier);
+		}
+	}
+
+	/**
+	 * Add a sample to this series. Samples should be added in time order,
+	 * samples older than the last sample are ignored.
+	 *
+	 * @param time
+	 *   time of the sample in milliseconds
+	 * @param value
+	 */
+	public void add(long time, double value)
+	{
+		synchronized(this)
+		{
+			for(Tier tier : tiers)
+			{
+				tier.add(time, value);
+			}
+		}
+	}
+
+	/**
+	 * Store all samples of the given sampler in this series.
+	 *
+	 * @param sampler
+	 * @return
+	 *   handle that stops storing samples
+	 */
+	@NonNull
+	public <T extends Number> Handle attach(@NonNull TimeSampler<T> sampler)
+	{
+		return sampler.addListener(sample -> add(sample.getTime(), sample.getValue().doubleValue()));
+	}
+
+	/**
+	 * Query for samples between the given times. The tier with the finest
+	 * resolution that still has samples at {@code from} is used, falling
+	 * back to the coarsest tier if none of them go back that far.
+	 *
+	 * @param from
+	 *   start of the range, inclusive
+	 * @param to
+	 *   end of the range, inclusive
+	 * @return
+	 */
+	@NonNull
+	public Stream<Sample<Double>> query(@NonNull Instant from, @NonNull Instant to)
+	{
+		long start = from.toEpochMilli();
+		long end = to.toEpochMilli();
+
+		synchronized(this)
+		{
+			Tier tier = tiers[tiers.length - 1];
+			for(Tier t : tiers)
+			{
+				if(t.getOldestTime() <= start)
+				{
+					tier = t;
+					break;
+				}
+			}
+
+			return collect(tier, start, end);
+		}
+	}
+
+	/**
+	 * Query for samples between the given times using the tier with the
+	 * finest resolution that is at least as coarse as the given resolution.
+	 *
+	 * @param from
+	 *   start of the range, inclusive
+	 * @param to
+	 *   end of the range, inclusive
+	 * @param resolution
+	 *   the requested resolution, {@link Duration#ZERO} for samples as they
+	 *   were stored
+	 * @return
+	 */
+	@NonNull
+	public Stream<Sample<Double>> query(
+		@NonNull Instant from,
+		@NonNull Instant to,
+		@NonNull Duration resolution
+	)
+	{
+		long wanted = resolution.toMillis();
+
+		synchronized(this)
+		{
+			Tier tier = tiers[tiers.length - 1];
+			for(Tier t : tiers)
+			{
+				if(t.getResolution() >= wanted)
+				{
+					tier = t;
+					break;
+				}
+			}
+
+			return collect(tier, from.toEpochMilli(), to.toEpochMilli());
+		}
+	}
+
+	private Stream<Sample<Double>> collect(Tier tier, long from, long to)
+	{
+		List<Sample<Double>> result = new ArrayList<>();
+		tier.collect(from, to, result);
+		return result.stream();
+	}
+
+	/**
+	 * Get an estimate of the number of bytes used to store the samples of
+	 * this series.
+	 *
+	 * @return
+	 */
+	public long getSizeInBytes()
+	{
+		synchronized(this)
+		{
+			long size = 0;
+			for(Tier tier : tiers)
+			{
+				size += tier.getSizeInBytes();
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * Start building a new series.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		Duration[] tiers;
+		int samplesPerTier;
+
+		Builder()
+		{
+			tiers = new Duration[] {
+				Duration.ofSeconds(10),
+				Duration.ofMinutes(1),
+				Duration.ofHours(1)
+			};
+
+			samplesPerTier = 720;
+		}
+
+		/**
+		 * Set the resolutions of the tiers samples are downsampled into.
+		 * Resolutions should be given in ascending order.
+		 *
+		 * @param resolutions
+		 * @return
+		 */
+		@NonNull
+		public Builder withTiers(@NonNull Duration... resolutions)
+		{
+			Objects.requireNonNull(resolutions, "resolutions must be specified");
+
+			for(int i=1; i<resolutions.length; i++)
+			{
+				if(resolutions[i - 1].compareTo(resolutions[i]) >= 0)
+				{
+					throw new IllegalArgumentException("Resolutions must be in ascending order");
+				}
+			}
+
+			this.tiers = Arrays.copyOf(resolutions, resolutions.length);
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of samples kept in every tier. Defaults to
+		 * 720 samples, which with the default tiers keeps two hours of
+		 * samples at a 10 second resolution, twelve hours at a minute and
+		 * thirty days at an hour.
+		 *
+		 * @param samples
+		 * @return
+		 */
+		@NonNull
+		public Builder withSamplesPerTier(int samples)
+		{
+			if(samples <= 0)
+			{
+				throw new IllegalArgumentException("samples must be positive");
+			}
+
+			this.samplesPerTier = samples;
+			return this;
+		}
+
+		/**
+		 * Build the series.
+		 *
+		 * @return
+		 */
+		@NonNull
+		public StoredSeries build()
+		{
+			return new StoredSeries(tiers, samplesPerTier);
+		}
+	}
+}
@@ -0,0 +1,4 @@
+/**
+ * Classes for keeping history of sampled values in memory.
+ */
+package se.l4.vibe.storage;
@@ -25,6 +25,17 @@ public interface Timer
 	@NonNull
 	Stopwatch start();
 
+	/**
+	 * Record that something took the given amount of time. Can be used when
+	 * the time has been measured without a {@link Stopwatch}.
+	 *
+	 * @param time
+	 *   the time something took
+	 * @param unit
+	 *   the unit of the time
+	 */
+	void record(long time, @NonNull TimeUnit unit);
+
 	/**
 	 * Add a listener that is triggered whenever this timer is stopped.
 	 *
@@ -65,13 +76,38 @@ public interface Timer
 	Probe<Long> getMinimumProbe();
 
 	/**
-	 * Get a probe that samples snapshot information for this probe.
+	 * Get a probe that samples snapshot information for this probe. Every
+	 * sample contains the timings recorded in the buckets that have been
+	 * completed since the previous sample, see
+	 * {@link Builder#withWindow(Duration, int)}. Samples trail the current
+	 * bucket by up to the length of one bucket, five seconds by default, so
+	 * a timing is only part of a sample once its bucket has been completed.
+	 *
+	 * <p>
+	 * If the probe is sampled less often than the length of the window of
+	 * the timer the sample only contains the timings still kept by the
+	 * window.
 	 *
 	 * @return
 	 */
 	@NonNull
 	SampledProbe<TimerSnapshot> getSnapshotProbe();
 
+	/**
+	 * Get a probe that samples snapshot information over a sliding window,
+	 * such as the last minute. Every sample contains the timings recorded in
+	 * the last complete buckets covering the window, so the same timing can
+	 * be part of several samples and samples trail the current bucket by up
+	 * to the length of one bucket, five seconds by default.
+	 *
+	 * @param window
+	 *   the length of the window, must be a multiple of the bucket length and
+	 *   at most the length of the window of the timer
+	 * @return
+	 */
+	@NonNull
+	SampledProbe<TimerSnapshot> getSnapshotProbe(@NonNull Duration window);
+
 	/**
 	 * Start building a new timer.
 	 *
@@ -155,6 +191,35 @@ public interface Timer
 		@NonNull
 		Builder withPercentiles(@NonNull Supplier<PercentileCounter> counter);
 
+		/**
+		 * Set the window timings are kept for and how many buckets it is
+		 * divided into, defaults to five minutes divided into 60 buckets of
+		 * five seconds.
+		 *
+		 * <p>
+		 * Timings are recorded into the bucket for the current time and
+		 * snapshots are created by summing complete buckets, so the length of
+		 * a bucket should not be longer than the interval the timer is
+		 * sampled at. Samples trail the current bucket by up to the length of
+		 * one bucket. If the window is shorter than the interval samples only
+		 * contain the timings of the window.
+		 *
+		 * <p>
+		 * Histograms created via {@link #withBuckets(Duration...)} are kept
+		 * for every bucket. Other percentile counters, such as a
+		 * {@link se.l4.vibe.percentiles.DecayingPercentileCounter}, are
+		 * created once and kept for the lifetime of the timer.
+		 *
+		 * @param length
+		 *   the total length of the window, the longest window that can be
+		 *   used with {@link Timer#getSnapshotProbe(Duration)}
+		 * @param buckets
+		 *   the number of buckets to divide the window into
+		 * @return
+		 */
+		@NonNull
+		Builder withWindow(@NonNull Duration length, int buckets);
+
 		/**
 		 * Build the timer.
 		 *
@@ -3,6 +3,8 @@ package se.l4.vibe.timers;
 import java.util.concurrent.TimeUnit;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.internal.timer.TimerSnapshotImpl;
+import se.l4.vibe.percentiles.PercentileSnapshot;
 import se.l4.vibe.snapshots.Snapshot;
 
 /**
@@ -54,6 +56,16 @@ public interface TimerSnapshot
 	 */
 	long getMaximum();
 
+	/**
+	 * Get the percentile information of this snapshot. If the timer was built
+	 * with {@link Timer.Builder#withBuckets(java.time.Duration...) buckets}
+	 * this can be used to access them.
+	 *
+	 * @return
+	 */
+	@NonNull
+	PercentileSnapshot getPercentiles();
+
 	/**
 	 * Remove the values from the given object and return a new copy.
 	 *
@@ -71,4 +83,30 @@ public interface TimerSnapshot
 	 */
 	@NonNull
 	TimerSnapshot add(@NonNull TimerSnapshot other);
+
+	/**
+	 * Create a snapshot from previously collected data, such as a snapshot
+	 * that has been received from another instance.
+	 *
+	 * @param resolution
+	 *   the resolution of the times
+	 * @param percentiles
+	 *   percentile information, see
+	 *   {@link se.l4.vibe.percentiles.BucketPercentileCounter#createSnapshot(long, long[], int[])}
+	 * @param minimum
+	 *   the minimum time
+	 * @param maximum
+	 *   the maximum time
+	 * @return
+	 */
+	@NonNull
+	static TimerSnapshot create(
+		@NonNull TimeUnit resolution,
+		@NonNull PercentileSnapshot percentiles,
+		long minimum,
+		long maximum
+	)
+	{
+		return new TimerSnapshotImpl(resolution, percentiles, minimum, maximum);
+	}
 }
@@ -0,0 +1,210 @@
+package se.l4.vibe;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.l4.vibe.ContainerProbes.ContainerMemorySnapshot;
+import se.l4.vibe.ContainerProbes.IoSnapshot;
+import se.l4.vibe.ContainerProbes.PressureSnapshot;
+import se.l4.vibe.ContainerProbes.ThrottlingSnapshot;
+import se.l4.vibe.sampling.Sampler;
+
+public class ContainerProbesTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testV2Throttling()
+		throws IOException
+	{
+		Path root = v2();
+		write(root, "cpu.stat", "usage_usec 1000\nnr_periods 10\nnr_throttled 2\nthrottled_usec 500\n");
+
+		Sampler<ThrottlingSnapshot> sampler = ContainerProbes.forRoot(root).cpuThrottling().create();
+		sampler.sample();
+
+		write(root, "cpu.stat", "usage_usec 2000\nnr_periods 30\nnr_throttled 12\nthrottled_usec 2500\n");
+		ThrottlingSnapshot snapshot = sampler.sample();
+		sampler.release();
+
+		assertThat(snapshot.getPeriods(), is(20l));
+		assertThat(snapshot.getThrottledPeriods(), is(10l));
+		assertThat(snapshot.getThrottledTime(), is(2_000_000l));
+		assertThat(snapshot.getThrottledAsFraction(), is(0.5));
+	}
+
+	@Test
+	public void testV2Memory()
+		throws IOException
+	{
+		Path root = v2();
+		write(root, "memory.current", "256\n");
+		write(root, "memory.max", "1024\n");
+
+		ContainerMemorySnapshot snapshot = ContainerProbes.forRoot(root).memory().create().sample();
+		assertThat(snapshot.getUsed(), is(256l));
+		assertThat(snapshot.getLimit(), is(1024l));
+		assertThat(snapshot.getUsageAsFraction(), is(0.25));
+
+		write(root, "memory.max", "max\n");
+		snapshot = ContainerProbes.forRoot(root).memory().create().sample();
+		assertThat(snapshot.getLimit(), is(-1l));
+	}
+
+	@Test
+	public void testV2PressureAndIo()
+		throws IOException
+	{
+		Path root = v2();
+		write(root, "cpu.pressure", "some avg10=1.50 avg60=0.25 avg300=0.00 total=100\nfull avg10=0.75 avg60=0.00 avg300=0.00 total=10\n");
+		write(root, "io.stat", "8:0 rbytes=100 wbytes=200 rios=1 wios=2 dbytes=0 dios=0\n");
+
+		ContainerProbes probes = ContainerProbes.forRoot(root);
+		assertThat(probes.isPressureAvailable(), is(true));
+
+		PressureSnapshot pressure = probes.cpuPressure().create().sample();
+		assertThat(pressure.getSomeAvg10(), is(1.5));
+		assertThat(pressure.getSomeAvg60(), is(0.25));
+		assertThat(pressure.getFullAvg10(), is(0.75));
+
+		Sampler<IoSnapshot> io = probes.io().create();
+		io.sample();
+
+		write(root, "io.stat", "8:0 rbytes=150 wbytes=200 rios=2 wios=2 dbytes=0 dios=0\n8:16 rbytes=50 wbytes=0 rios=1 wios=0 dbytes=0 dios=0\n");
+		IoSnapshot snapshot = io.sample();
+		assertThat(snapshot.getReadBytes(), is(100l));
+		assertThat(snapshot.getReads(), is(2l));
+		assertThat(snapshot.getWrittenBytes(), is(0l));
+	}
+
+	@Test
+	public void testV1()
+		throws IOException
+	{
+		Path root = folder.newFolder("v1").toPath();
+		Path cpu = Files.createDirectory(root.resolve("cpu"));
+		Path memory = Files.createDirectory(root.resolve("memory"));
+
+		write(cpu, "cpu.stat", "nr_periods 10\nnr_throttled 1\nthrottled_time 1000\n");
+		write(memory, "memory.usage_in_bytes", "100\n");
+		write(memory, "memory.limit_in_bytes", "9223372036854771712\n");
+
+		ContainerProbes probes = ContainerProbes.forRoot(root);
+		assertThat(probes.isV2(), is(false));
+		assertThat(probes.isPressureAvailable(), is(false));
+
+		Sampler<ThrottlingSnapshot> throttling = probes.cpuThrottling().create();
+		throttling.sample();
+		write(cpu, "cpu.stat", "nr_periods 20\nnr_throttled 6\nthrottled_time 5000\n");
+		assertThat(throttling.sample().getThrottledTime(), is(4000l));
+
+		ContainerMemorySnapshot snapshot = probes.memory().create().sample();
+		assertThat(snapshot.getUsed(), is(100l));
+		assertThat(snapshot.getLimit(), is(-1l));
+	}
+
+	@Test
+	public void testDetectV2InNestedCgroup()
+		throws IOException
+	{
+		Path mount = folder.newFolder("unified").toPath();
+		write(mount, "cgroup.controllers", "cpu io memory\n");
+		write(mount, "memory.current", "1\n");
+
+		Path service = Files.createDirectories(mount.resolve("system.slice").resolve("app.service"));
+		write(service, "memory.current", "100\n");
+		write(service, "memory.max", "200\n");
+
+		Path proc = folder.newFolder("proc").toPath();
+		write(proc, "cgroup", "0::/system.slice/app.service\n");
+		write(proc, "mountinfo",
+			"25 30 0:23 / /proc rw,nosuid - proc proc rw\n"
+			+ "31 25 0:26 / " + mount + " rw,nosuid - cgroup2 cgroup2 rw,nsdelegate\n"
+		);
+
+		ContainerProbes probes = ContainerProbes.detect(proc.resolve("cgroup"), proc.resolve("mountinfo")).get();
+		assertThat(probes.isV2(), is(true));
+
+		ContainerMemorySnapshot snapshot = probes.memory().create().sample();
+		assertThat(snapshot.getUsed(), is(100l));
+		assertThat(snapshot.getLimit(), is(200l));
+	}
+
+	@Test
+	public void testDetectV1WithMountedCgroup()
+		throws IOException
+	{
+		// Containers without a cgroup namespace mount their own cgroup
+		Path cpu = folder.newFolder("cpu,cpuacct").toPath();
+		Path memory = folder.newFolder("memory").toPath();
+		write(cpu, "cpu.stat", "nr_periods 10\nnr_throttled 1\nthrottled_time 1000\n");
+		write(memory, "memory.usage_in_bytes", "100\n");
+		write(memory, "memory.limit_in_bytes", "200\n");
+
+		Path proc = folder.newFolder("proc").toPath();
+		write(proc, "cgroup",
+			"12:memory:/docker/abc\n"
+			+ "4:cpu,cpuacct:/docker/abc\n"
+			+ "0::/\n"
+		);
+		write(proc, "mountinfo",
+			"40 35 0:35 /docker/abc " + cpu + " ro,nosuid - cgroup cgroup rw,cpu,cpuacct\n"
+			+ "41 35 0:36 /docker/abc " + memory + " ro,nosuid - cgroup cgroup rw,memory\n"
+			+ "42 35 0:37 / /sys/fs/cgroup/unified rw - cgroup2 cgroup2 rw\n"
+		);
+
+		ContainerProbes probes = ContainerProbes.detect(proc.resolve("cgroup"), proc.resolve("mountinfo")).get();
+		assertThat(probes.isV2(), is(false));
+
+		ContainerMemorySnapshot snapshot = probes.memory().create().sample();
+		assertThat(snapshot.getUsed(), is(100l));
+		assertThat(snapshot.getLimit(), is(200l));
+
+		Sampler<ThrottlingSnapshot> throttling = probes.cpuThrottling().create();
+		throttling.sample();
+		write(cpu, "cpu.stat", "nr_periods 20\nnr_throttled 6\nthrottled_time 5000\n");
+		assertThat(throttling.sample().getThrottledTime(), is(4000l));
+	}
+
+	@Test
+	public void testDetectWithoutCgroup()
+		throws IOException
+	{
+		Path proc = folder.newFolder("proc").toPath();
+		write(proc, "cgroup", "");
+		write(proc, "mountinfo", "25 30 0:23 / /proc rw,nosuid - proc proc rw\n");
+
+		assertThat(ContainerProbes.detect(proc.resolve("cgroup"), proc.resolve("mountinfo")).isPresent(), is(false));
+	}
+
+	@Test(expected=VibeException.class)
+	public void testNotACgroup()
+		throws IOException
+	{
+		ContainerProbes.forRoot(folder.newFolder("empty").toPath());
+	}
+
+	private Path v2()
+		throws IOException
+	{
+		Path root = folder.newFolder("v2").toPath();
+		write(root, "cgroup.controllers", "cpu io memory\n");
+		return root;
+	}
+
+	private static void write(Path dir, String name, String content)
+		throws IOException
+	{
+		Files.write(dir.resolve(name), content.getBytes(StandardCharsets.US_ASCII));
+	}
+}
@@ -0,0 +1,255 @@
+package se.l4.vibe;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.l4.vibe.ExecutorProbes.ExecutorSnapshot;
+import se.l4.vibe.ExecutorProbes.ForkJoinPoolSnapshot;
+import se.l4.vibe.sampling.Sampler;
+
+public class ExecutorProbesTest
+{
+	@Test
+	public void testQueueWaitAndExecutionAreRecorded()
+		throws Exception
+	{
+		InstrumentedExecutorService executor = ExecutorProbes.instrument(
+			Executors.newSingleThreadExecutor()
+		);
+
+		try
+		{
+			Sampler<ExecutorSnapshot> sampler = executor.getSnapshotProbe().create();
+
+			Future<?> first = executor.submit(() -> sleep(50));
+			Future<?> second = executor.submit(() -> {});
+			first.get();
+			second.get();
+
+			// Counters are updated after the future completes
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+
+			// The second task waited for the first one to complete
+			assertThat(executor.getQueueWaitTimer().getMaximumProbe().read(), greaterThanOrEqualTo(40_000l));
+			assertThat(executor.getExecutionTimer().getMaximumProbe().read(), greaterThanOrEqualTo(40_000l));
+
+			ExecutorSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getSubmitted(), is(2l));
+			assertThat(snapshot.getCompleted(), is(2l));
+			assertThat(snapshot.getQueued(), is(0l));
+			assertThat(snapshot.getRunning(), is(0l));
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testRejectionsAndSaturation()
+		throws Exception
+	{
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new SynchronousQueue<>());
+		InstrumentedExecutorService executor = ExecutorProbes.instrument(pool);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try
+		{
+			Sampler<ExecutorSnapshot> sampler = executor.getSnapshotProbe().create();
+
+			executor.execute(() -> {
+				started.countDown();
+				await(release);
+			});
+			started.await();
+
+			try
+			{
+				executor.execute(() -> {});
+			}
+			catch(RejectedExecutionException e)
+			{
+				// Expected as the only thread is busy
+			}
+
+			ExecutorSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getRejected(), is(1l));
+			assertThat(snapshot.getRunning(), is(1l));
+			assertThat(snapshot.getSaturation(), is(1.0));
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDiscardedTasksAreRejected()
+		throws Exception
+	{
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(
+			1, 1, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(1),
+			new ThreadPoolExecutor.DiscardPolicy()
+		);
+		InstrumentedExecutorService executor = ExecutorProbes.instrument(pool);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		try
+		{
+			Sampler<ExecutorSnapshot> sampler = executor.getSnapshotProbe().create();
+
+			executor.execute(() -> {
+				started.countDown();
+				await(release);
+			});
+			started.await();
+
+			executor.execute(() -> {});
+			executor.execute(() -> {});
+			executor.execute(() -> {});
+
+			ExecutorSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getRejected(), is(2l));
+			assertThat(snapshot.getQueued(), is(1l));
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDiscardedOldestTasksAreRejected()
+		throws Exception
+	{
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(
+			1, 1, 0, TimeUnit.MILLISECONDS,
+			new ArrayBlockingQueue<>(1),
+			new ThreadPoolExecutor.DiscardOldestPolicy()
+		);
+		InstrumentedExecutorService executor = ExecutorProbes.instrument(pool);
+
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger ran = new AtomicInteger();
+		try
+		{
+			Sampler<ExecutorSnapshot> sampler = executor.getSnapshotProbe().create();
+
+			executor.execute(() -> {
+				started.countDown();
+				await(release);
+			});
+			started.await();
+
+			executor.execute(() -> ran.addAndGet(1));
+			executor.execute(() -> ran.addAndGet(10));
+
+			ExecutorSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getRejected(), is(1l));
+			assertThat(snapshot.getQueued(), is(1l));
+
+			release.countDown();
+			executor.shutdown();
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+
+			assertThat(ran.get(), is(10));
+			assertThat(sampler.sample().getQueued(), is(0l));
+		}
+		finally
+		{
+			release.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testScheduledTasksAreRecorded()
+		throws Exception
+	{
+		InstrumentedScheduledExecutorService executor = ExecutorProbes.instrument(
+			Executors.newSingleThreadScheduledExecutor()
+		);
+
+		try
+		{
+			Sampler<ExecutorSnapshot> sampler = executor.getSnapshotProbe().create();
+
+			ScheduledFuture<String> future = executor.schedule(() -> "done", 10, TimeUnit.MILLISECONDS);
+			assertThat(future.get(), is("done"));
+
+			executor.shutdown();
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+
+			ExecutorSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getSubmitted(), is(1l));
+			assertThat(snapshot.getCompleted(), is(1l));
+			assertThat(snapshot.getQueued(), is(0l));
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testForkJoinPool()
+	{
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try
+		{
+			ForkJoinPoolSnapshot snapshot = ExecutorProbes.forForkJoinPool(pool).create().sample();
+			assertThat(snapshot.getParallelism(), is(2l));
+			assertThat(snapshot.getSteals(), is(0l));
+		}
+		finally
+		{
+			pool.shutdownNow();
+		}
+	}
+
+	private static void sleep(long ms)
+	{
+		try
+		{
+			Thread.sleep(ms);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void await(CountDownLatch latch)
+	{
+		try
+		{
+			latch.await();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+}
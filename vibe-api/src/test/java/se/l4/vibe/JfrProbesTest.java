@@ -0,0 +1,46 @@
+package se.l4.vibe;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.junit.Assume;
+import org.junit.Test;
+
+public class JfrProbesTest
+{
+	@Test
+	public void testThreadParksAreRecorded()
+		throws InterruptedException
+	{
+		Assume.assumeTrue(JfrProbes.isAvailable());
+
+		JfrProbes probes = JfrProbes.builder()
+			.withThreshold(Duration.ofMillis(1))
+			.build();
+
+		try
+		{
+			CountDownLatch latch = new CountDownLatch(1);
+			probes.getThreadParkTimer().addListener(e -> latch.countDown());
+
+			boolean recorded = false;
+			long deadline = System.currentTimeMillis() + 10000;
+			while(! recorded && System.currentTimeMillis() < deadline)
+			{
+				LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+				recorded = latch.await(100, TimeUnit.MILLISECONDS);
+			}
+
+			assertThat(recorded, is(true));
+		}
+		finally
+		{
+			probes.release();
+		}
+	}
+}
@@ -0,0 +1,181 @@
+package se.l4.vibe;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.l4.vibe.JvmProbes.GarbageCollectionSnapshot;
+import se.l4.vibe.JvmProbes.ProcessSnapshot;
+import se.l4.vibe.JvmProbes.ProcessThreadsSnapshot;
+import se.l4.vibe.JvmProbes.ThreadUsage;
+import se.l4.vibe.JvmProbes.ThreadUsageSnapshot;
+import se.l4.vibe.internal.GarbageCollectors;
+import se.l4.vibe.internal.ProcessThreadsSampler;
+import se.l4.vibe.sampling.Sampler;
+
+public class JvmProbesTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testCollectorKeys()
+	{
+		assertThat(GarbageCollectors.toKey("PS Old Gen"), is("psOldGen"));
+		assertThat(GarbageCollectors.toKey("G1 Young Generation"), is("g1YoungGeneration"));
+		assertThat(GarbageCollectors.toKey("Copy"), is("copy"));
+	}
+
+	@Test
+	public void testPauseActions()
+	{
+		assertThat(GarbageCollectors.isPause("end of minor GC"), is(true));
+		assertThat(GarbageCollectors.isPause("end of major GC"), is(true));
+		assertThat(GarbageCollectors.isPause("end of GC pause"), is(true));
+		assertThat(GarbageCollectors.isPause("end of concurrent GC pause"), is(true));
+		assertThat(GarbageCollectors.isPause("end of GC cycle"), is(false));
+		assertThat(GarbageCollectors.isPause(null), is(false));
+	}
+
+	@Test(expected=VibeException.class)
+	public void testUnknownCollector()
+	{
+		JvmProbes.garbageCollectionPauses("Unknown Collector");
+	}
+
+	@Test
+	public void testCollectionsAreNotified()
+		throws InterruptedException
+	{
+		List<Sampler<GarbageCollectionSnapshot>> samplers = new ArrayList<>();
+		for(String collector : JvmProbes.garbageCollectors())
+		{
+			samplers.add(JvmProbes.garbageCollections(collector).create());
+		}
+
+		long collections = 0;
+		long deadline = System.currentTimeMillis() + 5000;
+		while(collections == 0 && System.currentTimeMillis() < deadline)
+		{
+			System.gc();
+			Thread.sleep(100);
+
+			for(Sampler<GarbageCollectionSnapshot> sampler : samplers)
+			{
+				collections += sampler.sample().getCollections();
+			}
+		}
+
+		assertThat(collections > 0, is(true));
+	}
+
+	@Test
+	public void testBusyThreadIsInTopLists()
+		throws InterruptedException
+	{
+		Sampler<ThreadUsageSnapshot> sampler = JvmProbes.threadUsage(3).create();
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		Thread busy = new Thread(() -> {
+			List<long[]> garbage = new ArrayList<>();
+			while(running.get())
+			{
+				garbage.add(new long[128]);
+				if(garbage.size() > 1000)
+				{
+					garbage.clear();
+				}
+			}
+		}, "vibe-busy");
+
+		busy.start();
+		Thread.sleep(300);
+
+		ThreadUsageSnapshot snapshot;
+		try
+		{
+			snapshot = sampler.sample();
+		}
+		finally
+		{
+			running.set(false);
+			busy.join();
+		}
+
+		assertThat(snapshot.getTopCpu().size() <= 3, is(true));
+		assertThat(containsThread(snapshot.getTopCpu(), "vibe-busy"), is(true));
+		assertThat(containsThread(snapshot.getTopAllocation(), "vibe-busy"), is(true));
+	}
+
+	private static boolean containsThread(List<ThreadUsage> usage, String name)
+	{
+		return usage.stream().anyMatch(u -> u.getName().equals(name));
+	}
+
+	@Test
+	public void testProcess()
+	{
+		Assume.assumeTrue(Files.isReadable(Paths.get("/proc/self/stat")));
+
+		Sampler<ProcessSnapshot> sampler = JvmProbes.process().create();
+		try
+		{
+			ProcessSnapshot snapshot = sampler.sample();
+			assertThat(snapshot.getRss() > 0, is(true));
+			assertThat(snapshot.getThreads() > 0, is(true));
+			assertThat(snapshot.getMinorFaults() >= 0, is(true));
+		}
+		finally
+		{
+			sampler.release();
+		}
+	}
+
+	@Test
+	public void testProcessThreadsFromFixture()
+		throws IOException
+	{
+		Path tasks = folder.newFolder("task").toPath();
+		writeStatus(tasks, 1, "S (sleeping)", 10, 1);
+		writeStatus(tasks, 2, "R (running)", 5, 5);
+
+		ProcessThreadsSampler sampler = new ProcessThreadsSampler(tasks);
+
+		writeStatus(tasks, 1, "D (disk sleep)", 15, 1);
+		writeStatus(tasks, 3, "R (running)", 2, 0);
+
+		ProcessThreadsSnapshot snapshot = sampler.sample();
+		assertThat(snapshot.getRunning(), is(2));
+		assertThat(snapshot.getWaiting(), is(1));
+		assertThat(snapshot.getSleeping(), is(0));
+		assertThat(snapshot.getVoluntaryContextSwitches(), is(7l));
+		assertThat(snapshot.getInvoluntaryContextSwitches(), is(0l));
+	}
+
+	private static void writeStatus(Path tasks, int id, String state, long voluntary, long involuntary)
+		throws IOException
+	{
+		Path dir = tasks.resolve(String.valueOf(id));
+		Files.createDirectories(dir);
+		Files.write(dir.resolve("status"), (
+			"Name:\tjava\n"
+			+ "State:\t" + state + "\n"
+			+ "Pid:\t" + id + "\n"
+			+ "voluntary_ctxt_switches:\t" + voluntary + "\n"
+			+ "nonvoluntary_ctxt_switches:\t" + involuntary + "\n"
+		).getBytes(StandardCharsets.US_ASCII));
+	}
+}
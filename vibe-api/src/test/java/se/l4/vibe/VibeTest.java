@@ -4,9 +4,11 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.After;
 import org.junit.Before;
@@ -211,6 +213,133 @@ public class VibeTest
 		assertThat(backend.get("probe"), is(nullValue()));
 	}
 
+	@Test
+	public void testSampledProbeSharedBetweenBackends()
+	{
+		AtomicInteger created = new AtomicInteger();
+		AtomicInteger reads = new AtomicInteger();
+		SampledProbe<Integer> probe = () -> {
+			created.incrementAndGet();
+			return reads::incrementAndGet;
+		};
+
+		Vibe vibe = Vibe.builder()
+			.addBackend(new SamplingBackend())
+			.addBackend(new SamplingBackend())
+			.build();
+
+		try
+		{
+			vibe.export(probe)
+				.at("probe")
+				.done();
+
+			assertThat(created.get(), is(1));
+			assertThat(reads.get(), is(1));
+		}
+		finally
+		{
+			vibe.destroy();
+		}
+	}
+
+	@Test
+	public void testProbeSharedBetweenBackends()
+	{
+		AtomicInteger reads = new AtomicInteger();
+		Probe<Integer> probe = reads::incrementAndGet;
+
+		Vibe vibe = Vibe.builder()
+			.addBackend(new SamplingBackend())
+			.addBackend(new SamplingBackend())
+			.build();
+
+		try
+		{
+			vibe.export(probe)
+				.at("probe")
+				.done();
+
+			assertThat(reads.get(), is(1));
+		}
+		finally
+		{
+			vibe.destroy();
+		}
+	}
+
+	@Test
+	public void testInternalMetricsExported()
+	{
+		Vibe vibe = Vibe.builder()
+			.addBackend(backend)
+			.withInternalMetrics()
+			.build();
+
+		try
+		{
+			assertThat(backend.get("vibe/sampling/lag") instanceof SampledProbe, is(true));
+
+			Probe<Double> randomProbe = () -> ThreadLocalRandom.current().nextDouble();
+			vibe.export(randomProbe)
+				.at("probe")
+				.done();
+
+			assertThat(backend.get("vibe/probes/probe") instanceof SampledProbe, is(true));
+		}
+		finally
+		{
+			vibe.destroy();
+		}
+	}
+
+	@Test(expected=VibeException.class)
+	public void testInternalMetricsPathReserved()
+	{
+		Vibe vibe = Vibe.builder()
+			.addBackend(backend)
+			.withInternalMetrics()
+			.build();
+
+		try
+		{
+			vibe.export(SampledProbe.over(() -> 1))
+				.at("vibe", "test")
+				.done();
+		}
+		finally
+		{
+			vibe.destroy();
+		}
+	}
+
+	/**
+	 * Backend that samples probes like the built-in backends do.
+	 */
+	public static class SamplingBackend
+		implements VibeBackend
+	{
+		@Override
+		public Handle export(String path, Probe<?> probe)
+		{
+			return export(path, SampledProbe.over(probe));
+		}
+
+		@Override
+		public Handle export(String path, SampledProbe<?> probe)
+		{
+			return TimeSampler.forProbe(probe)
+				.withInterval(Duration.ofMinutes(1))
+				.build()
+				.start();
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
 	public static class TestBackend
 		implements VibeBackend
 	{
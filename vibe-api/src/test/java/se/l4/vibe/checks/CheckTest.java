@@ -0,0 +1,263 @@
+package se.l4.vibe.checks;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.internal.CheckDamping;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sampler;
+
+public class CheckTest
+{
+	@Test
+	public void testDoubleConditions()
+	{
+		DoubleCondition<Number> above = DoubleConditions.above(5.0);
+		assertThat(above.testDouble(6.0), is(true));
+		assertThat(above.testDouble(5.0), is(false));
+		assertThat(above.test(10l), is(true));
+		assertThat(above.test(null), is(false));
+
+		DoubleCondition<Number> range = DoubleConditions.inRange(1.0, 2.0);
+		assertThat(range.testDouble(1.0), is(true));
+		assertThat(range.testDouble(2.0), is(false));
+
+		// Conditions keeps returning predicates, but checks can still unbox them
+		assertThat(Conditions.below(5.0) instanceof DoubleCondition, is(true));
+	}
+
+	@Test
+	public void testChecksOnSameProbeShareSampler()
+	{
+		AtomicInteger created = new AtomicInteger();
+		SampledProbe<Double> probe = () -> {
+			created.incrementAndGet();
+			return new Sampler<Double>()
+			{
+				@Override
+				public Double sample()
+				{
+					return 10.0;
+				}
+			};
+		};
+
+		List<Check> checks = new ArrayList<>();
+		List<Handle> handles = new ArrayList<>();
+		for(int i=0; i<1000; i++)
+		{
+			Check check = Check.builder()
+				.whenProbe(probe)
+					.is(Conditions.below(i))
+				.build();
+
+			checks.add(check);
+			handles.add(check.start());
+		}
+
+		assertThat(created.get(), is(1));
+
+		for(int i=0; i<checks.size(); i++)
+		{
+			assertThat(checks.get(i).isConditionsMet(), is(i > 10));
+		}
+
+		for(Handle handle : handles)
+		{
+			handle.release();
+		}
+
+		// A new sampler is created once every check has been stopped
+		Handle handle = checks.get(0).start();
+		assertThat(created.get(), is(2));
+		handle.release();
+	}
+
+	@Test
+	public void testRestartedCheckSharesSamplerWithNewCheck()
+	{
+		AtomicInteger created = new AtomicInteger();
+		SampledProbe<Double> probe = () -> {
+			created.incrementAndGet();
+			return () -> 10.0;
+		};
+
+		Check first = Check.builder()
+			.whenProbe(probe)
+				.is(Conditions.below(5))
+			.build();
+
+		first.start().release();
+		assertThat(created.get(), is(1));
+
+		Check second = Check.builder()
+			.whenProbe(probe)
+				.is(Conditions.above(5))
+			.build();
+
+		// Building a check does not create a sampler
+		assertThat(created.get(), is(1));
+
+		Handle firstHandle = first.start();
+		Handle secondHandle = second.start();
+		assertThat(created.get(), is(2));
+
+		firstHandle.release();
+		secondHandle.release();
+	}
+
+	@Test
+	public void testChecksWithOperationsDoNotShareSampler()
+	{
+		AtomicInteger created = new AtomicInteger();
+		SampledProbe<Double> probe = () -> {
+			created.incrementAndGet();
+			return () -> 10.0;
+		};
+
+		Check c1 = Check.builder()
+			.whenProbe(probe)
+				.apply(() -> v -> v * 2)
+				.is(Conditions.above(15.0))
+			.build();
+
+		Check c2 = Check.builder()
+			.whenProbe(probe)
+				.is(Conditions.above(15.0))
+			.build();
+
+		Handle h1 = c1.start();
+		Handle h2 = c2.start();
+
+		assertThat(created.get(), is(2));
+		assertThat(c1.isConditionsMet(), is(true));
+		assertThat(c2.isConditionsMet(), is(false));
+
+		h1.release();
+		h2.release();
+	}
+
+	@Test
+	public void testSharedCheckReceivesEvents()
+	{
+		AtomicInteger value = new AtomicInteger(0);
+		SampledProbe<Integer> probe = () -> value::get;
+
+		List<CheckEvent> events = new ArrayList<>();
+		Check check = Check.builder()
+			.whenProbe(probe)
+				.is(Conditions.below(1.0))
+			.build();
+
+		Handle handle = check.addListener(events::add);
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).isConditionsMet(), is(true));
+
+		handle.release();
+	}
+
+	@Test
+	public void testHysteresis()
+		throws Exception
+	{
+		AtomicReference<Double> value = new AtomicReference<>(0.5);
+		BlockingQueue<CheckEvent> events = new LinkedBlockingQueue<>();
+
+		Check check = Check.builder()
+			.whenProbe(value::get)
+				.withCheckInterval(Duration.ofMillis(5))
+				.is(Conditions.above(0.9), Conditions.below(0.8))
+			.build();
+
+		Handle handle = check.addListener(events::add);
+
+		value.set(0.95);
+		assertThat(events.poll(1, TimeUnit.SECONDS).isConditionsMet(), is(true));
+
+		// Between the thresholds, so the check stays met
+		value.set(0.85);
+		assertThat(events.poll(100, TimeUnit.MILLISECONDS), is(nullValue()));
+		assertThat(check.isConditionsMet(), is(true));
+
+		value.set(0.7);
+		assertThat(events.poll(1, TimeUnit.SECONDS).isConditionsMet(), is(false));
+
+		handle.release();
+	}
+
+	@Test
+	public void testDampingWithDuration()
+	{
+		CheckDamping damping = new CheckDamping(1000, 0, 1, 1);
+
+		assertThat(damping.update(false, true, 0), is(false));
+		assertThat(damping.update(false, true, 500), is(false));
+
+		// A single unmet sample restarts the duration
+		assertThat(damping.update(false, false, 600), is(false));
+		assertThat(damping.update(false, true, 700), is(false));
+		assertThat(damping.update(false, true, 1600), is(false));
+		assertThat(damping.update(false, true, 1700), is(true));
+
+		assertThat(damping.update(true, false, 1800), is(false));
+	}
+
+	@Test
+	public void testDampingWithSamples()
+	{
+		CheckDamping damping = new CheckDamping(0, 0, 3, 5);
+
+		boolean state = false;
+		boolean[] samples = { true, false, true, false, true, true, false, false, false };
+		boolean[] expected = { false, false, false, false, true, true, true, false, false };
+		for(int i=0; i<samples.length; i++)
+		{
+			state = damping.update(state, samples[i], i);
+			assertThat("sample " + i, state, is(expected[i]));
+		}
+	}
+
+	@Test
+	public void testDampingWithLargeWindow()
+	{
+		CheckDamping damping = new CheckDamping(0, 0, 100, 200);
+
+		boolean state = false;
+		for(int i=0; i<99; i++)
+		{
+			state = damping.update(state, true, i);
+		}
+
+		assertThat(state, is(false));
+
+		state = damping.update(state, true, 99);
+		assertThat(state, is(true));
+
+		// Push the met samples out of the window
+		for(int i=0; i<101; i++)
+		{
+			state = damping.update(state, false, 100 + i);
+		}
+
+		assertThat(state, is(false));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMetInSamplesValidatesRange()
+	{
+		Check.builder().whenMetInSamples(6, 5);
+	}
+}
@@ -0,0 +1,74 @@
+package se.l4.vibe.events;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+
+public class EventsTest
+{
+	@Test
+	public void testFailingListenerDoesNotStopDelivery()
+	{
+		Events<TestData> events = Events.<TestData>builder().build();
+
+		AtomicInteger received = new AtomicInteger();
+		events.addListener(event -> {
+			throw new IllegalStateException("Listener failure");
+		});
+		events.addListener(event -> received.incrementAndGet());
+
+		events.register(new TestData());
+
+		assertThat(received.get(), is(1));
+	}
+
+	@Test
+	public void testRemoveDuringDelivery()
+	{
+		Events<TestData> events = Events.<TestData>builder().build();
+
+		AtomicInteger received = new AtomicInteger();
+		Handle[] second = new Handle[1];
+		events.addListener(event -> second[0].release());
+		second[0] = events.addListener(event -> received.incrementAndGet());
+
+		events.register(new TestData());
+		events.register(new TestData());
+
+		assertThat(received.get(), is(0));
+	}
+
+	@Test
+	public void testRegisterAllDeliversBatch()
+	{
+		Events<TestData> events = Events.<TestData>builder().build();
+
+		List<TestData> received = new ArrayList<>();
+		events.addListener(event -> received.add(event.getData()));
+
+		TestData a = new TestData();
+		TestData b = new TestData();
+		events.registerAll(Arrays.asList(a, b));
+
+		assertThat(received, is(Arrays.asList(a, b)));
+		assertThat(events.getTotalEventsProbe().read(), is(2l));
+	}
+
+	private static class TestData
+		implements EventData
+	{
+		@Override
+		public String toHumanReadable()
+		{
+			return "test";
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package se.l4.vibe.meters;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.sampling.Sampler;
+import se.l4.vibe.sampling.TimeSampler;
+
+public class MeterTest
+{
+	@Test
+	public void testFirstSampleDoesNotIncludeEarlierEvents()
+	{
+		AtomicLong clock = new AtomicLong();
+		Meter meter = new Meter(clock::get);
+		meter.mark(1000000);
+
+		Sampler<MeterSnapshot> sampler = meter.create();
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(2));
+		meter.mark(10);
+
+		MeterSnapshot snapshot = sampler.sample();
+		assertThat(snapshot.getCount(), is(1000010l));
+		assertThat(snapshot.getEvents(), is(10l));
+		assertThat(snapshot.getRate(), closeTo(5.0, 0.0001));
+	}
+
+	@Test
+	public void testRateIsIndependentOfInterval()
+	{
+		AtomicLong clock = new AtomicLong();
+		Meter meter = new Meter(clock::get);
+
+		Sampler<MeterSnapshot> fast = meter.create();
+		Sampler<MeterSnapshot> slow = meter.create();
+
+		MeterSnapshot fastSnapshot = null;
+		for(int i=1; i<=100; i++)
+		{
+			clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+			meter.mark(50);
+			fastSnapshot = fast.sample();
+
+			if(i % 20 == 0)
+			{
+				MeterSnapshot slowSnapshot = slow.sample();
+				assertThat(slowSnapshot.getEvents(), is(1000l));
+				assertThat(slowSnapshot.getRate(), closeTo(100.0, 0.0001));
+			}
+		}
+
+		assertThat(fastSnapshot.getEvents(), is(50l));
+		assertThat(fastSnapshot.getRate(), closeTo(100.0, 0.0001));
+		assertThat(fastSnapshot.getMeanRate(), closeTo(100.0, 0.0001));
+		assertThat(fastSnapshot.getOneMinuteRate(), closeTo(100.0, 0.0001));
+	}
+
+	@Test
+	public void testMovingRatesDecay()
+	{
+		AtomicLong clock = new AtomicLong();
+		Meter meter = new Meter(clock::get);
+		Sampler<MeterSnapshot> sampler = meter.create();
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(5));
+		meter.mark(500);
+		sampler.sample();
+
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(1));
+		MeterSnapshot snapshot = sampler.sample();
+
+		assertThat(snapshot.getRate(), is(0.0));
+		assertThat(snapshot.getOneMinuteRate(), closeTo(100 * Math.exp(-1), 0.0001));
+		assertThat(snapshot.getFiveMinuteRate(), closeTo(100 * Math.exp(-1 / 5.0), 0.0001));
+	}
+
+	@Test
+	public void testSampleRightAfterCreateIsBaseline()
+	{
+		AtomicLong clock = new AtomicLong();
+		Meter meter = new Meter(clock::get);
+		Sampler<MeterSnapshot> sampler = meter.create();
+
+		clock.addAndGet(TimeUnit.MICROSECONDS.toNanos(10));
+		meter.mark(5);
+
+		MeterSnapshot first = sampler.sample();
+		assertThat(first.getEvents(), is(0l));
+		assertThat(first.getRate(), is(0.0));
+		assertThat(first.getOneMinuteRate(), is(0.0));
+
+		clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+		meter.mark(95);
+
+		MeterSnapshot second = sampler.sample();
+		assertThat(second.getEvents(), is(100l));
+		assertThat(second.getRate(), closeTo(100.0, 0.01));
+		assertThat(second.getOneMinuteRate(), closeTo(100.0, 0.01));
+		assertThat(second.getFifteenMinuteRate(), closeTo(100.0, 0.01));
+	}
+
+	@Test
+	public void testMovingRatesViaTimeSampler()
+		throws InterruptedException
+	{
+		Meter meter = new Meter();
+		TimeSampler<MeterSnapshot> sampler = TimeSampler.forProbe(meter)
+			.withInterval(Duration.ofMillis(200))
+			.build();
+
+		List<MeterSnapshot> snapshots = new CopyOnWriteArrayList<>();
+		Handle handle = sampler.addListener(sample -> snapshots.add(sample.getValue()));
+		try
+		{
+			long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+			while(System.nanoTime() < end)
+			{
+				meter.mark(10);
+				Thread.sleep(10);
+			}
+		}
+		finally
+		{
+			handle.release();
+		}
+
+		MeterSnapshot last = snapshots.get(snapshots.size() - 1);
+		for(MeterSnapshot snapshot : snapshots)
+		{
+			assertThat(snapshot.getRate(), is(lessThan(5000.0)));
+		}
+
+		assertThat(last.getOneMinuteRate(), is(greaterThan(200.0)));
+		assertThat(last.getFifteenMinuteRate(), is(greaterThan(200.0)));
+	}
+}
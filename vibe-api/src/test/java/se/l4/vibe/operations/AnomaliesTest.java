@@ -0,0 +1,194 @@
+package se.l4.vibe.operations;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.checks.CheckEvent;
+import se.l4.vibe.checks.Conditions;
+import se.l4.vibe.sampling.Sample;
+
+public class AnomaliesTest
+{
+	/**
+	 * Create a recorded series of requests per interval that follows a daily
+	 * pattern with some noise.
+	 *
+	 * @param days
+	 * @param perDay
+	 * @return
+	 */
+	private static double[] dailyTraffic(int days, int perDay)
+	{
+		Random random = new Random(42);
+		double[] result = new double[days * perDay];
+		for(int i=0; i<result.length; i++)
+		{
+			double phase = 2 * Math.PI * (i % perDay) / perDay;
+			result[i] = 1000 + 600 * Math.sin(phase) + random.nextGaussian() * 20;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Replay a series through an operation, returning the scores.
+	 *
+	 * @param operation
+	 * @param series
+	 * @return
+	 */
+	private static double[] replay(TimeSampleOperation<Double, Double> operation, double[] series)
+	{
+		OperationExecutor<Sample<Double>, Sample<Double>> executor = operation.create();
+
+		double[] scores = new double[series.length];
+		for(int i=0; i<series.length; i++)
+		{
+			scores[i] = executor.apply(Sample.create(i * 1000l, series[i])).getValue();
+		}
+
+		return scores;
+	}
+
+	private static int countOutside(double[] scores, int from, int to, double limit)
+	{
+		int result = 0;
+		for(int i=from; i<to; i++)
+		{
+			if(Math.abs(scores[i]) > limit)
+			{
+				result++;
+			}
+		}
+
+		return result;
+	}
+
+	@Test
+	public void testEwmaScoreDetectsSpike()
+	{
+		Random random = new Random(42);
+		double[] series = new double[3600];
+		for(int i=0; i<series.length; i++)
+		{
+			series[i] = 100 + random.nextGaussian() * 5;
+		}
+
+		series[3000] = 150;
+
+		double[] scores = replay(Anomalies.ewmaScore(Duration.ofMinutes(5)), series);
+
+		assertThat(scores[0], is(0.0));
+		assertThat(scores[3000], greaterThan(6.0));
+		assertThat(countOutside(scores, 300, 3000, 4), lessThan(5));
+	}
+
+	@Test
+	public void testHoltWintersDetectsDropDuringPeak()
+	{
+		int perDay = 96;
+		double[] series = dailyTraffic(6, perDay);
+
+		// Traffic drops by half during the peak of the last day
+		int anomaly = 5 * perDay + perDay / 4;
+		series[anomaly] /= 2;
+
+		double[] scores = replay(Anomalies.holtWintersScore(perDay), series);
+
+		// Warming up during the first two days
+		assertThat(countOutside(scores, 0, 2 * perDay, 0), is(0));
+
+		assertThat(countOutside(scores, 3 * perDay, anomaly, 5), lessThan(3));
+		assertThat(scores[anomaly], lessThan(-10.0));
+	}
+
+	@Test
+	public void testHoltWintersDoesNotFlagDailyPeak()
+	{
+		int perDay = 96;
+		double[] series = dailyTraffic(6, perDay);
+
+		double[] scores = replay(Anomalies.holtWintersScore(perDay), series);
+
+		// A static threshold is passed during the peak of every day
+		int aboveThreshold = 0;
+		for(int i=3 * perDay; i<series.length; i++)
+		{
+			if(series[i] > 1500)
+			{
+				aboveThreshold++;
+			}
+		}
+
+		assertThat(aboveThreshold, greaterThan(3 * 10));
+		assertThat(countOutside(scores, 3 * perDay, series.length, 5), is(0));
+	}
+
+	@Test
+	public void testMadScoreIgnoresOutliers()
+	{
+		Random random = new Random(42);
+		double[] series = new double[2000];
+		for(int i=0; i<series.length; i++)
+		{
+			series[i] = 50 + random.nextGaussian() * 2;
+			if(i % 100 == 50)
+			{
+				// Occasional extreme outliers
+				series[i] = 5000;
+			}
+		}
+
+		double[] scores = replay(Anomalies.madScore(), series);
+
+		for(int i=150; i<series.length; i+=100)
+		{
+			assertThat("outlier " + i, scores[i], greaterThan(100.0));
+		}
+
+		assertThat(countOutside(scores, 200, series.length, 5), lessThan(30));
+	}
+
+	@Test
+	public void testCheckTriggersOnReplayedAnomaly()
+		throws Exception
+	{
+		Random random = new Random(42);
+		double[] series = new double[100];
+		for(int i=0; i<series.length; i++)
+		{
+			series[i] = i < 80 ? 20 + random.nextGaussian() : 60;
+		}
+
+		AtomicInteger index = new AtomicInteger();
+		BlockingQueue<CheckEvent> events = new LinkedBlockingQueue<>();
+
+		Check check = Check.builder()
+			.whenProbe(() -> series[Math.min(index.getAndIncrement(), series.length - 1)])
+				.withCheckInterval(Duration.ofMillis(2))
+				.applyResampling(Anomalies.madScore())
+				.is(Conditions.outside(-5, 5))
+			.build();
+
+		Handle handle = check.addListener(events::add);
+
+		CheckEvent event = events.poll(5, TimeUnit.SECONDS);
+		assertThat(event.isConditionsMet(), is(true));
+		assertThat(index.get(), greaterThan(80));
+
+		handle.release();
+	}
+}
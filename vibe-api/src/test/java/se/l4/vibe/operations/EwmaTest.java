@@ -0,0 +1,90 @@
+package se.l4.vibe.operations;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.is;
+
+import java.time.Duration;
+import java.util.Random;
+
+import org.junit.Test;
+
+import se.l4.vibe.sampling.Sample;
+
+public class EwmaTest
+{
+	@Test
+	public void testAverageMatchesWindowedAverage()
+	{
+		Duration window = Duration.ofMinutes(1);
+		OperationExecutor<Sample<Double>, Sample<Double>> ewma = Ewma.<Double>averageOver(window).create();
+		OperationExecutor<Sample<Double>, Sample<Double>> exact = Average.<Double>averageOver(window).create();
+
+		Random random = new Random(42);
+		double lastEwma = 0;
+		double lastExact = 0;
+		for(int i=0; i<3600; i++)
+		{
+			Sample<Double> sample = Sample.create(i * 1000l, 100 + random.nextGaussian() * 10);
+			lastEwma = ewma.apply(sample).getValue();
+			lastExact = exact.apply(sample).getValue();
+		}
+
+		assertThat(lastEwma, closeTo(100, 3));
+		assertThat(lastEwma, closeTo(lastExact, 4));
+	}
+
+	@Test
+	public void testAverageFollowsStep()
+	{
+		OperationExecutor<Sample<Integer>, Sample<Double>> ewma = Ewma.<Integer>averageOver(Duration.ofSeconds(10)).create();
+
+		long time = 0;
+		for(int i=0; i<100; i++)
+		{
+			ewma.apply(Sample.create(time += 1000, 10));
+		}
+
+		double value = ewma.apply(Sample.create(time += 10000, 20)).getValue();
+		assertThat(value, closeTo(10 + 10 * (1 - Math.exp(-1)), 0.0001));
+
+		for(int i=0; i<60; i++)
+		{
+			value = ewma.apply(Sample.create(time += 1000, 20)).getValue();
+		}
+
+		assertThat(value, closeTo(20, 0.05));
+	}
+
+	@Test
+	public void testRateMatchesWindowedRate()
+	{
+		Duration window = Duration.ofMinutes(5);
+		OperationExecutor<Sample<Long>, Sample<Double>> ewma = Ewma.<Long>rateOver(window).create();
+		OperationExecutor<Sample<Long>, Sample<Long>> exact = Sum.<Long>sumAsLongOver(window).create();
+
+		Random random = new Random(42);
+		double lastEwma = 0;
+		long lastExact = 0;
+		for(int i=0; i<3600; i++)
+		{
+			// Events for the last 5 seconds, about 50 per second
+			Sample<Long> sample = Sample.create(i * 5000l, 200 + (long) random.nextInt(100));
+			lastEwma = ewma.apply(sample).getValue();
+			lastExact = exact.apply(sample).getValue();
+		}
+
+		double exactRate = lastExact / (double) window.getSeconds();
+		assertThat(lastEwma, closeTo(50, 2));
+		assertThat(lastEwma, closeTo(exactRate, 2));
+	}
+
+	@Test
+	public void testRateSkipsFirstSample()
+	{
+		OperationExecutor<Sample<Long>, Sample<Double>> ewma = Ewma.<Long>rateOver(Duration.ofMinutes(1)).create();
+
+		assertThat(ewma.apply(Sample.create(0, 1000000l)).getValue(), is(0.0));
+		assertThat(ewma.apply(Sample.create(1000, 10l)).getValue(), is(10.0));
+	}
+}
@@ -0,0 +1,96 @@
+package se.l4.vibe.percentiles;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class DecayingPercentileCounterTest
+{
+	@Test
+	public void testPercentilesMatchExact()
+	{
+		AtomicLong clock = new AtomicLong();
+		Random priorities = new Random(1);
+		DecayingPercentileCounter counter = new DecayingPercentileCounter(1028, 0.015, clock::get, priorities::nextDouble);
+
+		Random random = new Random(42);
+		long[] values = new long[100000];
+		for(int i=0; i<values.length; i++)
+		{
+			values[i] = random.nextInt(10000);
+			counter.add(values[i]);
+		}
+
+		Arrays.sort(values);
+		PercentileSnapshot snapshot = counter.get();
+
+		assertThat(snapshot.getSamples(), is(100000l));
+		for(int p : new int[] { 50, 75, 95, 99 })
+		{
+			double exact = values[values.length * p / 100];
+			assertThat((double) snapshot.estimatePercentile(p), closeTo(exact, 300));
+		}
+	}
+
+	@Test
+	public void testRecentValuesAreFavored()
+	{
+		AtomicLong clock = new AtomicLong();
+		DecayingPercentileCounter counter = new DecayingPercentileCounter(100, 0.015, clock::get);
+
+		for(int i=0; i<1000; i++)
+		{
+			counter.add(10);
+		}
+
+		clock.addAndGet(TimeUnit.MINUTES.toNanos(15));
+		for(int i=0; i<200; i++)
+		{
+			counter.add(1000);
+		}
+
+		assertThat(counter.get().estimatePercentile(50), is(1000l));
+	}
+
+	@Test
+	public void testRescaleKeepsOrder()
+	{
+		AtomicLong clock = new AtomicLong();
+		DecayingPercentileCounter counter = new DecayingPercentileCounter(100, 0.015, clock::get);
+
+		for(int i=0; i<100; i++)
+		{
+			counter.add(10);
+		}
+
+		clock.addAndGet(TimeUnit.HOURS.toNanos(10));
+		for(int i=0; i<100; i++)
+		{
+			counter.add(20);
+		}
+
+		PercentileSnapshot snapshot = counter.get();
+		assertThat(snapshot.estimatePercentile(1), is(20l));
+		assertThat(snapshot.estimatePercentile(99), greaterThanOrEqualTo(20l));
+	}
+
+	@Test
+	public void testResetKeepsReservoir()
+	{
+		DecayingPercentileCounter counter = new DecayingPercentileCounter();
+		counter.add(5);
+		counter.reset();
+
+		PercentileSnapshot snapshot = counter.get();
+		assertThat(snapshot.getSamples(), is(0l));
+		assertThat(snapshot.estimatePercentile(50), is(5l));
+	}
+}
@@ -0,0 +1,123 @@
+package se.l4.vibe.sampling;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+import se.l4.vibe.VibeException;
+import se.l4.vibe.internal.sampling.AdaptiveIntervalImpl;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.snapshots.MapSnapshot;
+
+public class AdaptiveIntervalTest
+{
+	private AdaptiveIntervalImpl create(AdaptiveInterval.Builder builder)
+	{
+		return (AdaptiveIntervalImpl) builder
+			.withMinimumInterval(Duration.ofSeconds(1))
+			.withMaximumInterval(Duration.ofSeconds(8))
+			.withStableSamples(2)
+			.build();
+	}
+
+	@Test
+	public void testSpeedsUpOnChange()
+	{
+		AdaptiveIntervalImpl interval = create(AdaptiveInterval.builder()
+			.whenChangeExceeds(0.5));
+
+		assertThat(interval.start(), is(8000l));
+		assertThat(interval.next(10), is(8000l));
+		assertThat(interval.next(11), is(8000l));
+		assertThat(interval.next(20), is(1000l));
+
+		MapSnapshot state = interval.getStateProbe().read();
+		assertThat(state.get("reason"), is(Optional.of("change")));
+		assertThat(state.get("speedUps"), is(Optional.of(1l)));
+	}
+
+	@Test
+	public void testSlowsDownWhenStable()
+	{
+		AtomicBoolean active = new AtomicBoolean(true);
+		AdaptiveIntervalImpl interval = create(AdaptiveInterval.builder()
+			.whenCondition(active::get));
+
+		interval.start();
+		assertThat(interval.next(1), is(1000l));
+
+		active.set(false);
+		assertThat(interval.next(1), is(1000l));
+		assertThat(interval.next(1), is(2000l));
+		assertThat(interval.next(1), is(2000l));
+		assertThat(interval.next(1), is(4000l));
+		assertThat(interval.next(1), is(4000l));
+		assertThat(interval.next(1), is(8000l));
+		assertThat(interval.next(1), is(8000l));
+		assertThat(interval.next(1), is(8000l));
+
+		assertThat(interval.getStateProbe().read().get("slowDowns"), is(Optional.of(3l)));
+	}
+
+	@Test(expected=VibeException.class)
+	public void testOnlyUsedByOneSampler()
+	{
+		AdaptiveIntervalImpl interval = create(AdaptiveInterval.builder());
+
+		interval.start();
+		interval.start();
+	}
+
+	@Test
+	public void testSamplerUsesInterval()
+		throws Exception
+	{
+		AdaptiveInterval interval = AdaptiveInterval.builder()
+			.withMinimumInterval(Duration.ofMillis(10))
+			.withMaximumInterval(Duration.ofMillis(20))
+			.build();
+
+		TimeSampler<Integer> sampler = TimeSampler.forProbe(() -> 10)
+			.withAdaptiveInterval(interval)
+			.build();
+
+		sampler.start();
+		Thread.sleep(100);
+
+		assertThat(sampler.getLastSample().getValue(), is(10));
+		assertThat(interval.getStateProbe().read().get("interval"), is(Optional.of(20l)));
+	}
+
+	@Test(expected=VibeException.class)
+	public void testRejectsOtherImplementations()
+	{
+		AdaptiveInterval interval = new AdaptiveInterval()
+		{
+			@Override
+			public Duration getMinimumInterval()
+			{
+				return Duration.ofSeconds(1);
+			}
+
+			@Override
+			public Duration getMaximumInterval()
+			{
+				return Duration.ofSeconds(10);
+			}
+
+			@Override
+			public Probe<MapSnapshot> getStateProbe()
+			{
+				return () -> null;
+			}
+		};
+
+		TimeSampler.forProbe(() -> 10)
+			.withAdaptiveInterval(interval);
+	}
+}
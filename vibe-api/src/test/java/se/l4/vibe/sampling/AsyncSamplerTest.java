@@ -0,0 +1,174 @@
+package se.l4.vibe.sampling;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+
+public class AsyncSamplerTest
+{
+	@Test
+	public void testCompletedRead()
+		throws Exception
+	{
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> CompletableFuture.completedFuture(10))
+			.build();
+
+		Handle handle = sampler.start();
+		assertThat(sampler.getLastSample().getValue(), is(10));
+		handle.release();
+	}
+
+	@Test
+	public void testMissedDeadlineLeavesGap()
+		throws Exception
+	{
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> new CompletableFuture<Integer>())
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(10))
+			.build();
+
+		Handle handle = sampler.start();
+		Thread.sleep(100);
+		handle.release();
+
+		assertThat(sampler.getLastSample(), is(nullValue()));
+	}
+
+	@Test
+	public void testMissedDeadlineRepeatsStaleValue()
+		throws Exception
+	{
+		AtomicBoolean first = new AtomicBoolean(true);
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> first.getAndSet(false)
+				? CompletableFuture.completedFuture(10)
+				: new CompletableFuture<Integer>()
+			)
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(10))
+			.whenDeadlineMissed(DeadlinePolicy.STALE)
+			.build();
+
+		List<Sample<Integer>> samples = new CopyOnWriteArrayList<>();
+		Handle handle = sampler.addListener(samples::add);
+		Thread.sleep(100);
+		handle.release();
+
+		assertThat(samples.size(), is(greaterThan(2)));
+		for(int i=0; i<samples.size(); i++)
+		{
+			assertThat(samples.get(i).getValue(), is(10));
+			if(i > 0)
+			{
+				assertThat(samples.get(i).getTime(), is(greaterThan(samples.get(i - 1).getTime())));
+			}
+		}
+	}
+
+	@Test
+	public void testMissedDeadlineCancelsRead()
+		throws Exception
+	{
+		List<CompletableFuture<Integer>> reads = new CopyOnWriteArrayList<>();
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> {
+				CompletableFuture<Integer> future = new CompletableFuture<>();
+				reads.add(future);
+				return future;
+			})
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(10))
+			.build();
+
+		Handle handle = sampler.start();
+		Thread.sleep(100);
+		handle.release();
+
+		assertThat(reads.size(), is(greaterThan(1)));
+		assertThat(reads.get(0).isCancelled(), is(true));
+	}
+
+	@Test
+	public void testStuckReadIsNotStartedAgain()
+		throws Exception
+	{
+		AtomicInteger reads = new AtomicInteger();
+		CompletableFuture<Integer> stuck = new CompletableFuture<>();
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> {
+				reads.incrementAndGet();
+				return stuck.minimalCompletionStage();
+			})
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(10))
+			.build();
+
+		Handle handle = sampler.start();
+		Thread.sleep(60);
+
+		assertThat(reads.get(), is(1));
+
+		stuck.complete(10);
+		Thread.sleep(50);
+		handle.release();
+
+		assertThat(reads.get(), is(greaterThan(1)));
+	}
+
+	@Test
+	public void testStuckReadRepeatsStaleValue()
+		throws Exception
+	{
+		AtomicBoolean first = new AtomicBoolean(true);
+		CompletableFuture<Integer> stuck = new CompletableFuture<>();
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> first.getAndSet(false)
+				? CompletableFuture.completedFuture(10)
+				: stuck.minimalCompletionStage()
+			)
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(50))
+			.whenDeadlineMissed(DeadlinePolicy.STALE)
+			.build();
+
+		List<Sample<Integer>> samples = new CopyOnWriteArrayList<>();
+		Handle handle = sampler.addListener(samples::add);
+		Thread.sleep(200);
+		handle.release();
+
+		// One completed read, one missed deadline and then one per skipped tick
+		assertThat(samples.size(), is(greaterThan(4)));
+		for(int i=1; i<samples.size(); i++)
+		{
+			assertThat(samples.get(i).getTime(), is(greaterThan(samples.get(i - 1).getTime())));
+		}
+	}
+
+	@Test
+	public void testStuckReadIsAbandoned()
+		throws Exception
+	{
+		AtomicInteger reads = new AtomicInteger();
+		TimeSampler<Integer> sampler = TimeSampler.forAsyncProbe(() -> {
+				reads.incrementAndGet();
+				return new CompletableFuture<Integer>().minimalCompletionStage();
+			})
+			.withInterval(Duration.ofMillis(20))
+			.withTimeout(Duration.ofMillis(10))
+			.build();
+
+		Handle handle = sampler.start();
+		Thread.sleep(300);
+		handle.release();
+
+		assertThat(reads.get(), is(greaterThan(1)));
+	}
+}
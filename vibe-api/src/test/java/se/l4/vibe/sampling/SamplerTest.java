@@ -4,10 +4,20 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Test;
 
+import se.l4.vibe.Handle;
+import se.l4.vibe.internal.InternalMetrics;
+import se.l4.vibe.probes.SampledProbe;
+
 public class SamplerTest
 {
 	@Test
@@ -50,4 +60,69 @@ public class SamplerTest
 
 		assertThat(randomSampler.getLastSample().getValue(), is(100));
 	}
+
+	@Test
+	public void testSlowListenerSkipsTicks()
+		throws Exception
+	{
+		Handle metrics = InternalMetrics.enable();
+		long overruns = InternalMetrics.SAMPLING_OVERRUNS.read();
+
+		TimeSampler<Integer> sampler = TimeSampler.forProbe(() -> 10)
+			.withInterval(Duration.ofMillis(10))
+			.build();
+
+		List<Long> times = new CopyOnWriteArrayList<>();
+		Handle handle = sampler.addListener(sample -> {
+			times.add(sample.getTime());
+
+			try
+			{
+				Thread.sleep(25);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+			}
+		});
+
+		Thread.sleep(200);
+		handle.release();
+		metrics.release();
+
+		assertThat(InternalMetrics.SAMPLING_OVERRUNS.read(), is(greaterThan(overruns)));
+		for(int i=1; i<times.size(); i++)
+		{
+			assertThat(times.get(i) - times.get(i - 1), is(greaterThan(5l)));
+		}
+	}
+
+	@Test
+	public void testStartsAfterFailedStart()
+	{
+		AtomicBoolean fail = new AtomicBoolean(true);
+		SampledProbe<Integer> probe = () -> {
+			if(fail.getAndSet(false))
+			{
+				throw new RuntimeException("Failed to create sampler");
+			}
+
+			return () -> 10;
+		};
+
+		TimeSampler<Integer> sampler = TimeSampler.forProbe(probe)
+			.build();
+
+		sampler.start().release();
+
+		Handle handle = sampler.start();
+		try
+		{
+			assertThat(sampler.getLastSample().getValue(), is(10));
+		}
+		finally
+		{
+			handle.release();
+		}
+	}
 }
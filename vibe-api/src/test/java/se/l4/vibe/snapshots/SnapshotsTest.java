@@ -0,0 +1,73 @@
+package se.l4.vibe.snapshots;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class SnapshotsTest
+{
+	@Test
+	public void testKeysAreInterned()
+	{
+		SnapshotKey a = SnapshotKey.of("test");
+		SnapshotKey b = SnapshotKey.of("test");
+
+		assertThat(a, sameInstance(b));
+		assertThat(a.getId(), is(b.getId()));
+	}
+
+	@Test
+	public void testTypedValuesAreDispatched()
+	{
+		List<String> received = new ArrayList<>();
+		KeyValueReceiver receiver = new KeyValueReceiver()
+		{
+			@Override
+			public void add(String key, Object value)
+			{
+				received.add(key + ":object");
+			}
+
+			@Override
+			public void add(String key, long value)
+			{
+				received.add(key + ":long");
+			}
+
+			@Override
+			public void add(String key, double value)
+			{
+				received.add(key + ":double");
+			}
+		};
+
+		KeyValueReceiver.addValue(receiver, "a", 1);
+		KeyValueReceiver.addValue(receiver, "b", 1.5f);
+		receiver.add(SnapshotKey.of("c"), 2l);
+		receiver.add("d", true);
+
+		assertThat(received.get(0), is("a:long"));
+		assertThat(received.get(1), is("b:double"));
+		assertThat(received.get(2), is("c:long"));
+		assertThat(received.get(3), is("d:object"));
+	}
+
+	@Test
+	public void testToString()
+	{
+		Snapshot snapshot = receiver -> {
+			receiver.add(SnapshotKey.of("count"), 2l);
+			receiver.add("average", 2.5);
+			receiver.add("name", "test");
+		};
+
+		String value = Snapshots.toString(snapshot);
+		assertThat(value, containsString("count=2 average=2.5 name=test"));
+	}
+}
@@ -0,0 +1,142 @@
+package se.l4.vibe.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import se.l4.vibe.sampling.Sample;
+
+public class StoredSeriesTest
+{
+	@Test
+	public void testRoundTrip()
+	{
+		StoredSeries series = StoredSeries.builder()
+			.withSamplesPerTier(10000)
+			.build();
+
+		Random random = new Random(42);
+		long[] times = new long[1000];
+		double[] values = new double[1000];
+		long time = 1_600_000_000_000l;
+		for(int i=0; i<times.length; i++)
+		{
+			time += 10000 + random.nextInt(20) - 10;
+			times[i] = time;
+			values[i] = i % 3 == 0 ? random.nextDouble() * 1000 : Math.floor(i / 10.0);
+
+			series.add(times[i], values[i]);
+		}
+
+		List<Sample<Double>> samples = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(time), Duration.ZERO)
+			.collect(Collectors.toList());
+
+		assertThat(samples.size(), is(times.length));
+		for(int i=0; i<times.length; i++)
+		{
+			assertThat(samples.get(i).getTime(), is(times[i]));
+			assertThat(samples.get(i).getValue(), is(values[i]));
+		}
+	}
+
+	@Test
+	public void testExtremeValues()
+	{
+		StoredSeries series = StoredSeries.builder().build();
+
+		double[] values = { 0, -0.0, Double.MAX_VALUE, Double.MIN_VALUE, Double.NaN, -1, Double.NEGATIVE_INFINITY, 1e-300 };
+		long[] times = { 0, 1, 5_000_000_000l, 5_000_000_001l, Long.MAX_VALUE / 4, Long.MAX_VALUE / 4 + 1, Long.MAX_VALUE / 2, Long.MAX_VALUE / 2 };
+		for(int i=0; i<values.length; i++)
+		{
+			series.add(times[i], values[i]);
+		}
+
+		List<Sample<Double>> samples = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(Long.MAX_VALUE), Duration.ZERO)
+			.collect(Collectors.toList());
+
+		assertThat(samples.size(), is(values.length));
+		for(int i=0; i<values.length; i++)
+		{
+			assertThat(samples.get(i).getTime(), is(times[i]));
+			assertThat(Double.doubleToRawLongBits(samples.get(i).getValue()), is(Double.doubleToRawLongBits(values[i])));
+		}
+	}
+
+	@Test
+	public void testDownsampling()
+	{
+		StoredSeries series = StoredSeries.builder()
+			.withTiers(Duration.ofSeconds(10), Duration.ofMinutes(1))
+			.build();
+
+		// One sample every second for five minutes
+		for(int i=0; i<300; i++)
+		{
+			series.add(i * 1000l, i % 10);
+		}
+
+		List<Sample<Double>> tenSeconds = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(300000), Duration.ofSeconds(10))
+			.collect(Collectors.toList());
+
+		assertThat(tenSeconds.size(), is(30));
+		assertThat(tenSeconds.get(1).getTime(), is(10000l));
+		assertThat(tenSeconds.get(1).getValue(), is(4.5));
+
+		List<Sample<Double>> minutes = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(300000), Duration.ofSeconds(30))
+			.collect(Collectors.toList());
+
+		assertThat(minutes.size(), is(5));
+		assertThat(minutes.get(4).getTime(), is(240000l));
+	}
+
+	@Test
+	public void testMemoryIsBounded()
+	{
+		StoredSeries series = StoredSeries.builder()
+			.withSamplesPerTier(240)
+			.build();
+
+		Random random = new Random(1);
+		for(int i=0; i<100000; i++)
+		{
+			series.add(i * 1000l, random.nextDouble());
+		}
+
+		// Worst case for random doubles is about 10 bytes per sample
+		assertThat(series.getSizeInBytes(), is(lessThan(4l * 360 * 10 + 4 * 1024)));
+
+		List<Sample<Double>> raw = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(100000000), Duration.ZERO)
+			.collect(Collectors.toList());
+
+		assertThat(raw.size(), is(lessThan(361)));
+		assertThat(raw.get(raw.size() - 1).getTime(), is(99999000l));
+	}
+
+	@Test
+	public void testQueryPicksTierCoveringRange()
+	{
+		StoredSeries series = StoredSeries.builder()
+			.withSamplesPerTier(400)
+			.build();
+
+		for(int i=0; i<3600; i++)
+		{
+			series.add(i * 1000l, 1);
+		}
+
+		// Raw samples only cover the last few minutes, so the 10s tier is used
+		List<Sample<Double>> samples = series.query(Instant.ofEpochMilli(0), Instant.ofEpochMilli(3600000))
+			.collect(Collectors.toList());
+
+		assertThat(samples.get(0).getTime() % 10000, is(0l));
+		assertThat(samples.get(1).getTime() - samples.get(0).getTime(), is(10000l));
+	}
+}
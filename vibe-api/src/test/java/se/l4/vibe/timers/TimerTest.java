@@ -4,10 +4,20 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.greaterThan;
 
+import java.time.Duration;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.junit.Test;
 
+import se.l4.vibe.VibeException;
+import se.l4.vibe.internal.timer.TimeWindow;
+import se.l4.vibe.percentiles.BucketPercentileCounter;
+import se.l4.vibe.percentiles.DecayingPercentileCounter;
+import se.l4.vibe.percentiles.FakePercentileCounter;
+import se.l4.vibe.sampling.Sampler;
+
 public class TimerTest
 {
 	@Test
@@ -41,4 +51,180 @@ public class TimerTest
 
 		assertThat(timer.getMaximumProbe().read(), is(greaterThan(1l)));
 	}
+
+	@Test
+	public void testAddKeepsMinimumAndMaximum()
+	{
+		TimerSnapshot a = TimerSnapshot.create(
+			TimeUnit.MILLISECONDS,
+			BucketPercentileCounter.createSnapshot(30, new long[] { 1, 1 }, new int[] { 0, 20 }),
+			5,
+			25
+		);
+
+		TimerSnapshot b = TimerSnapshot.create(
+			TimeUnit.MILLISECONDS,
+			BucketPercentileCounter.createSnapshot(50, new long[] { 0, 1 }, new int[] { 0, 20 }),
+			50,
+			50
+		);
+
+		TimerSnapshot merged = a.add(b);
+		assertThat(merged.getSamples(), is(3l));
+		assertThat(merged.getTotalTime(), is(80l));
+		assertThat(merged.getMinimum(), is(5l));
+		assertThat(merged.getMaximum(), is(50l));
+		assertThat(merged.getPercentiles().getBucketSamples(1), is(2l));
+	}
+
+	@Test
+	public void testWindowSumsCompleteBuckets()
+	{
+		AtomicLong clock = new AtomicLong();
+		TimeWindow window = new TimeWindow(TimeUnit.MILLISECONDS, FakePercentileCounter::new, 1000, 4, clock::get);
+
+		window.add(5);
+		clock.set(1000);
+		window.add(7);
+		clock.set(2500);
+		window.add(100);
+
+		TimerSnapshot snapshot = window.sum(0, window.currentEpoch());
+		assertThat(snapshot.getSamples(), is(2l));
+		assertThat(snapshot.getTotalTime(), is(12l));
+		assertThat(snapshot.getMinimum(), is(5l));
+		assertThat(snapshot.getMaximum(), is(7l));
+	}
+
+	@Test
+	public void testWindowSkipsReplacedBuckets()
+	{
+		AtomicLong clock = new AtomicLong();
+		TimeWindow window = new TimeWindow(TimeUnit.MILLISECONDS, FakePercentileCounter::new, 1000, 4, clock::get);
+
+		window.add(5);
+		clock.set(4000);
+		window.add(7);
+		clock.set(5000);
+
+		assertThat(window.sum(0, 1).getSamples(), is(0l));
+		assertThat(window.sum(1, window.currentEpoch()).getSamples(), is(1l));
+		assertThat(window.sum(1, window.currentEpoch()).getMinimum(), is(7l));
+	}
+
+	@Test
+	public void testWindowClampsSumLongerThanRing()
+	{
+		AtomicLong clock = new AtomicLong();
+		TimeWindow window = new TimeWindow(TimeUnit.MILLISECONDS, FakePercentileCounter::new, 1000, 4, clock::get);
+
+		window.add(5);
+		clock.set(2000);
+		window.add(7);
+		clock.set(5000);
+
+		TimerSnapshot snapshot = window.sum(0, window.currentEpoch());
+		assertThat(snapshot.getSamples(), is(1l));
+		assertThat(snapshot.getMinimum(), is(7l));
+	}
+
+	@Test
+	public void testSampledLessOftenThanWindow()
+		throws InterruptedException
+	{
+		Timer timer = Timer.builder()
+			.withWindow(Duration.ofMillis(200), 4)
+			.build();
+
+		Sampler<TimerSnapshot> sampler = timer.getSnapshotProbe().create();
+
+		timer.record(5, TimeUnit.MILLISECONDS);
+		Thread.sleep(400);
+		timer.record(7, TimeUnit.MILLISECONDS);
+		Thread.sleep(100);
+
+		TimerSnapshot snapshot = sampler.sample();
+		assertThat(snapshot.getSamples(), is(1l));
+		assertThat(snapshot.getMinimum(), is(7l));
+
+		assertThat(sampler.sample().getSamples(), is(0l));
+	}
+
+	@Test
+	public void testWindowKeepsSingleReservoir()
+	{
+		AtomicLong clock = new AtomicLong();
+		AtomicInteger created = new AtomicInteger();
+		TimeWindow window = new TimeWindow(
+			TimeUnit.MILLISECONDS,
+			() -> {
+				created.incrementAndGet();
+				return new DecayingPercentileCounter(16, 0.015);
+			},
+			1000,
+			4,
+			clock::get
+		);
+
+		for(int i=0; i<10; i++)
+		{
+			clock.set(i * 1000);
+			window.add(10);
+		}
+
+		clock.set(10_000);
+		window.add(1000);
+
+		TimerSnapshot snapshot = window.sum(8, 10);
+		assertThat(created.get(), is(1));
+		assertThat(snapshot.getSamples(), is(2l));
+		assertThat(snapshot.getTotalTime(), is(20l));
+		assertThat(snapshot.getPercentiles().estimatePercentile(50), is(10l));
+	}
+
+	@Test
+	public void testWindowKeepsHistogramPerBucket()
+	{
+		AtomicLong clock = new AtomicLong();
+		TimeWindow window = new TimeWindow(
+			TimeUnit.MILLISECONDS,
+			() -> new BucketPercentileCounter(0, 100),
+			1000,
+			4,
+			clock::get
+		);
+
+		window.add(10);
+		clock.set(1000);
+		window.add(200);
+		clock.set(2000);
+
+		TimerSnapshot snapshot = window.sum(1, 2);
+		assertThat(snapshot.getSamples(), is(1l));
+		assertThat(snapshot.getPercentiles().getBucketSamples(0), is(0l));
+		assertThat(snapshot.getPercentiles().getBucketSamples(1), is(1l));
+	}
+
+	@Test
+	public void testEmptySnapshotHasNoMinimum()
+	{
+		Timer timer = Timer.builder()
+			.build();
+
+		TimerSnapshot snapshot = timer.getSnapshotProbe().create().sample();
+		assertThat(snapshot.getSamples(), is(0l));
+		assertThat(snapshot.getMinimum(), is(0l));
+		assertThat(snapshot.getMaximum(), is(0l));
+		assertThat(timer.getMinimumProbe().read(), is(0l));
+	}
+
+	@Test(expected=VibeException.class)
+	public void testWindowLongerThanTimer()
+	{
+		Timer timer = Timer.builder()
+			.withWindow(Duration.ofMinutes(1), 6)
+			.build();
+
+		timer.getSnapshotProbe(Duration.ofMinutes(5));
+	}
 }
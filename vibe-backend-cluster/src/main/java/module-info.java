@@ -0,0 +1,6 @@
+module se.l4.vibe.cluster {
+	requires se.l4.vibe;
+	requires org.slf4j;
+
+	exports se.l4.vibe.cluster;
+}
@@ -0,0 +1,442 @@
+package se.l4.vibe.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.DatagramChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.Vibe;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibeException;
+import se.l4.vibe.cluster.internal.ClusterSeries;
+import se.l4.vibe.cluster.internal.Frame;
+import se.l4.vibe.cluster.internal.WireFormat;
+import se.l4.vibe.probes.CountingProbe;
+
+/**
+ * Aggregator that receives samples from many instances of an application via
+ * {@link ClusterBackend} and merges them into cluster-wide series.
+ *
+ * <pre>
+ * ClusterAggregator aggregator = ClusterAggregator.builder()
+ *   .withPort(7070)
+ *   .withInterval(Duration.ofSeconds(10))
+ *   .addBackend(prometheusBackend)
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * Samples are grouped into intervals based on the time they were sampled at.
+ * An interval is closed once the grace period has passed after its end, the
+ * merged value is then exported to the backends of the aggregator with the
+ * start of the interval as its time. Samples arriving for an interval that
+ * has been closed are dropped.
+ *
+ * <p>
+ * Timers and percentiles are merged exactly by adding their buckets, so
+ * percentiles of the cluster are estimated from all values measured and not
+ * from an average of the percentiles of every node. Numeric values are
+ * exported as a snapshot with the sum, minimum, maximum and average over all
+ * nodes, together with the number of nodes that reported a value.
+ */
+public class ClusterAggregator
+	implements AutoCloseable
+{
+	private static final Logger logger = LoggerFactory.getLogger(ClusterAggregator.class);
+
+	private final long interval;
+	private final long gracePeriod;
+	private final List<VibeBackend> backends;
+
+	private final Map<String, ClusterSeries> series;
+	private final List<Handle> handles;
+
+	private final DatagramChannel channel;
+	private final ScheduledExecutorService executor;
+
+	private final CountingProbe framesReceived;
+	private final CountingProbe lateFrames;
+	private final CountingProbe invalidFrames;
+
+	private ClusterAggregator(
+		Duration interval,
+		Duration gracePeriod,
+		List<VibeBackend> backends,
+		DatagramChannel channel
+	)
+	{
+		this.interval = interval.toMillis();
+		this.gracePeriod = gracePeriod.toMillis();
+		this.backends = backends;
+		this.channel = channel;
+
+		series = new ConcurrentHashMap<>();
+		handles = new ArrayList<>();
+
+		framesReceived = new CountingProbe();
+		lateFrames = new CountingProbe();
+		invalidFrames = new CountingProbe();
+
+		executor = Executors.newScheduledThreadPool(1, r -> {
+			Thread thread = new Thread(r, "vibe-cluster");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+		long tick = Math.max(1, this.interval / 4);
+		executor.scheduleAtFixedRate(this::closeIntervals, tick, tick, TimeUnit.MILLISECONDS);
+
+		if(channel != null)
+		{
+			Thread thread = new Thread(this::receiveDatagrams, "vibe-cluster-receiver");
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Get the port this aggregator is listening on, or {@code -1} if it
+	 * only receives samples via {@link #loopback()}.
+	 *
+	 * @return
+	 */
+	public int getPort()
+	{
+		if(channel == null)
+		{
+			return -1;
+		}
+
+		try
+		{
+			return ((InetSocketAddress) channel.getLocalAddress()).getPort();
+		}
+		catch(IOException e)
+		{
+			throw new VibeException("Could not resolve port; " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Get a transport that hands frames directly to this aggregator, for
+	 * use with a {@link ClusterBackend} in the same process.
+	 *
+	 * @return
+	 */
+	public ClusterTransport loopback()
+	{
+		return this::receive;
+	}
+
+	/**
+	 * Export metrics about this aggregator, such as the number of frames
+	 * received and dropped.
+	 *
+	 * @param vibe
+	 */
+	public void exportInternalMetrics(Vibe vibe)
+	{
+		vibe.export(framesReceived)
+			.at("frames")
+			.done();
+
+		vibe.export(lateFrames)
+			.at("lateFrames")
+			.done();
+
+		vibe.export(invalidFrames)
+			.at("invalidFrames")
+			.done();
+	}
+
+	/**
+	 * Close and export all intervals that have received samples, without
+	 * waiting for the grace period.
+	 */
+	public void flush()
+	{
+		flush(Long.MAX_VALUE);
+	}
+
+	private void closeIntervals()
+	{
+		try
+		{
+			flush(System.currentTimeMillis() - gracePeriod - interval + 1);
+		}
+		catch(Throwable t)
+		{
+			logger.warn("Unable to export merged samples; " + t.getMessage(), t);
+		}
+	}
+
+	private void flush(long before)
+	{
+		for(ClusterSeries s : series.values())
+		{
+			s.flush(before);
+		}
+	}
+
+	private void receiveDatagrams()
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(WireFormat.MAX_FRAME_SIZE);
+		while(channel.isOpen())
+		{
+			try
+			{
+				buffer.clear();
+				channel.receive(buffer);
+				buffer.flip();
+
+				receive(buffer);
+			}
+			catch(ClosedChannelException e)
+			{
+				return;
+			}
+			catch(IOException e)
+			{
+				logger.warn("Unable to receive frame; " + e.getMessage(), e);
+			}
+		}
+	}
+
+	private void receive(ByteBuffer buffer)
+	{
+		framesReceived.increase();
+
+		Frame frame;
+		try
+		{
+			frame = Frame.decode(buffer);
+		}
+		catch(VibeException e)
+		{
+			logger.debug("Received invalid frame; " + e.getMessage(), e);
+			invalidFrames.increase();
+			return;
+		}
+
+		long start = frame.getTime() - Math.floorMod(frame.getTime(), interval);
+		try
+		{
+			if(! getSeries(frame.getPath()).add(start, frame.getNode(), frame.getValue()))
+			{
+				lateFrames.increase();
+			}
+		}
+		catch(VibeException e)
+		{
+			logger.debug("Could not merge frame for " + frame.getPath() + "; " + e.getMessage(), e);
+			invalidFrames.increase();
+		}
+	}
+
+	private ClusterSeries getSeries(String path)
+	{
+		ClusterSeries s = series.get(path);
+		if(s != null)
+		{
+			return s;
+		}
+
+		synchronized(handles)
+		{
+			s = series.get(path);
+			if(s != null)
+			{
+				return s;
+			}
+
+			s = new ClusterSeries();
+			for(VibeBackend backend : backends)
+			{
+				handles.add(backend.export(path, s));
+			}
+
+			series.put(path, s);
+			return s;
+		}
+	}
+
+	@Override
+	public void close()
+	{
+		if(channel != null)
+		{
+			try
+			{
+				channel.close();
+			}
+			catch(IOException e)
+			{
+				// Nothing to do if the channel can not be closed
+			}
+		}
+
+		executor.shutdown();
+		flush();
+
+		synchronized(handles)
+		{
+			for(Handle handle : handles)
+			{
+				handle.release();
+			}
+
+			handles.clear();
+		}
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private final List<VibeBackend> backends;
+
+		private Duration interval;
+		private Duration gracePeriod;
+		private InetSocketAddress address;
+
+		public Builder()
+		{
+			backends = new ArrayList<>();
+			interval = Duration.ofSeconds(10);
+		}
+
+		/**
+		 * Set the interval samples are merged over, defaults to 10 seconds.
+		 * This should be the same as the sampling interval of the nodes.
+		 *
+		 * @param interval
+		 * @return
+		 */
+		public Builder withInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval can not be null");
+			if(interval.toMillis() < 1)
+			{
+				throw new IllegalArgumentException("interval must be at least one millisecond");
+			}
+
+			this.interval = interval;
+			return this;
+		}
+
+		/**
+		 * Set how long to wait for samples after an interval has ended before
+		 * it is closed, defaults to the same as the interval.
+		 *
+		 * @param gracePeriod
+		 * @return
+		 */
+		public Builder withGracePeriod(Duration gracePeriod)
+		{
+			Objects.requireNonNull(gracePeriod, "gracePeriod can not be null");
+			this.gracePeriod = gracePeriod;
+			return this;
+		}
+
+		/**
+		 * Listen for samples on the given port on all interfaces.
+		 *
+		 * @param port
+		 * @return
+		 */
+		public Builder withPort(int port)
+		{
+			return withAddress(new InetSocketAddress(port));
+		}
+
+		/**
+		 * Listen for samples on the given address.
+		 *
+		 * @param address
+		 * @return
+		 */
+		public Builder withAddress(InetSocketAddress address)
+		{
+			Objects.requireNonNull(address, "address can not be null");
+			this.address = address;
+			return this;
+		}
+
+		/**
+		 * Add a backend that merged series are exported to.
+		 *
+		 * @param backend
+		 * @return
+		 */
+		public Builder addBackend(VibeBackend backend)
+		{
+			Objects.requireNonNull(backend, "backend can not be null");
+			backends.add(backend);
+			return this;
+		}
+
+		/**
+		 * Build the aggregator, starting to listen for samples if an address
+		 * or port has been set.
+		 *
+		 * @return
+		 */
+		public ClusterAggregator build()
+		{
+			DatagramChannel channel = null;
+			if(address != null)
+			{
+				try
+				{
+					channel = DatagramChannel.open();
+				}
+				catch(IOException e)
+				{
+					throw new VibeException("Could not open channel; " + e.getMessage(), e);
+				}
+
+				try
+				{
+					channel.bind(address);
+				}
+				catch(IOException e)
+				{
+					try
+					{
+						channel.close();
+					}
+					catch(IOException e2)
+					{
+						// Nothing to do if the channel can not be closed
+					}
+
+					throw new VibeException("Could not listen on " + address + "; " + e.getMessage(), e);
+				}
+			}
+
+			return new ClusterAggregator(
+				interval,
+				gracePeriod == null ? interval : gracePeriod,
+				new ArrayList<>(backends),
+				channel
+			);
+		}
+	}
+}
@@ -0,0 +1,260 @@
+package se.l4.vibe.cluster;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.Vibe;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.cluster.internal.Frame;
+import se.l4.vibe.cluster.internal.WireFormat;
+import se.l4.vibe.cluster.internal.WireOutput;
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.probes.CountingProbe;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.timers.Timer;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * {@link VibeBackend Backend} that sends samples to a
+ * {@link ClusterAggregator}, which merges them with samples from other
+ * instances of the application.
+ *
+ * <pre>
+ * VibeBackend backend = ClusterBackend.builder()
+ *   .withNode("server-1")
+ *   .withAggregator("metrics.local", 7070)
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * Numeric values, {@link TimerSnapshot}s and {@link PercentileSnapshot}s are
+ * sent using a compact binary format, other values are skipped. Timers are
+ * sampled so that the aggregator receives a snapshot per interval. The
+ * sampling interval should be the same as the interval of the aggregator.
+ */
+public class ClusterBackend
+	implements VibeBackend
+{
+	private static final Logger logger = LoggerFactory.getLogger(ClusterBackend.class);
+
+	private final String node;
+	private final Duration samplingInterval;
+	private final ClusterTransport transport;
+
+	private final CountingProbe framesSent;
+	private final CountingProbe bytesSent;
+	private final CountingProbe failures;
+
+	private ClusterBackend(
+		String node,
+		Duration samplingInterval,
+		ClusterTransport transport
+	)
+	{
+		this.node = node;
+		this.samplingInterval = samplingInterval;
+		this.transport = transport;
+
+		framesSent = new CountingProbe();
+		bytesSent = new CountingProbe();
+		failures = new CountingProbe();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, TimeSampler<?> sampler)
+	{
+		return ((TimeSampler) sampler).addListener(new SampleSender(path));
+	}
+
+	@Override
+	public Handle export(String path, Probe<?> probe)
+	{
+		return sampleAndExport(path, SampledProbe.over(probe));
+	}
+
+	@Override
+	public Handle export(String path, SampledProbe<?> probe)
+	{
+		return sampleAndExport(path, probe);
+	}
+
+	@Override
+	public Handle export(String path, Timer timer)
+	{
+		return sampleAndExport(path, timer.getSnapshotProbe());
+	}
+
+	private Handle sampleAndExport(String path, SampledProbe<?> probe)
+	{
+		TimeSampler<?> sampler = TimeSampler.forProbe(probe)
+			.withInterval(samplingInterval)
+			.build();
+
+		return export(path, sampler);
+	}
+
+	@Override
+	public void exportInternalMetrics(Vibe vibe)
+	{
+		vibe.export(framesSent)
+			.at("frames")
+			.done();
+
+		vibe.export(bytesSent)
+			.at("bytesSent")
+			.done();
+
+		vibe.export(failures)
+			.at("failures")
+			.done();
+	}
+
+	@Override
+	public void close()
+	{
+		transport.close();
+	}
+
+	private class SampleSender
+		implements SampleListener<Object>
+	{
+		private final String path;
+		private final WireOutput out;
+
+		public SampleSender(String path)
+		{
+			this.path = path;
+			out = new WireOutput();
+		}
+
+		@Override
+		public synchronized void sampleAcquired(Sample<Object> sample)
+		{
+			if(! Frame.encode(out, node, sample.getTime(), path, sample.getValue()))
+			{
+				// Value can not be merged by the aggregator
+				return;
+			}
+
+			if(out.size() > WireFormat.MAX_FRAME_SIZE)
+			{
+				logger.warn("Unable to send " + path + "; Frame is " + out.size() + " bytes");
+				failures.increase();
+				return;
+			}
+
+			ByteBuffer frame = out.toByteBuffer();
+			try
+			{
+				transport.send(frame);
+
+				framesSent.increase();
+				bytesSent.add(out.size());
+			}
+			catch(IOException e)
+			{
+				logger.warn("Unable to send " + path + "; " + e.getMessage(), e);
+				failures.increase();
+			}
+		}
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private String node;
+		private Duration samplingInterval;
+		private ClusterTransport transport;
+
+		public Builder()
+		{
+			node = ManagementFactory.getRuntimeMXBean().getName();
+			samplingInterval = Duration.ofSeconds(10);
+		}
+
+		/**
+		 * Set the name of this node, defaults to the name of the running
+		 * JVM. Every instance of the application should use a unique name.
+		 *
+		 * @param node
+		 * @return
+		 */
+		public Builder withNode(String node)
+		{
+			Objects.requireNonNull(node, "node can not be null");
+			this.node = node;
+			return this;
+		}
+
+		/**
+		 * Set the sampling interval this backend should use for {@link Probe}s,
+		 * {@link SampledProbe}s and {@link Timer}s.
+		 *
+		 * @param interval
+		 *   interval to use
+		 * @return
+		 */
+		public Builder withSamplingInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval can not be null");
+			this.samplingInterval = interval;
+
+			return this;
+		}
+
+		/**
+		 * Send samples to an aggregator listening on the given host and
+		 * port.
+		 *
+		 * @param host
+		 * @param port
+		 * @return
+		 */
+		public Builder withAggregator(String host, int port)
+		{
+			return withTransport(ClusterTransport.udp(new InetSocketAddress(host, port)));
+		}
+
+		/**
+		 * Set the transport used to send samples.
+		 *
+		 * @param transport
+		 * @return
+		 */
+		public Builder withTransport(ClusterTransport transport)
+		{
+			Objects.requireNonNull(transport, "transport can not be null");
+			this.transport = transport;
+			return this;
+		}
+
+		/**
+		 * Build the instance.
+		 *
+		 * @return
+		 */
+		public ClusterBackend build()
+		{
+			Objects.requireNonNull(transport, "aggregator or transport must be set");
+
+			return new ClusterBackend(node, samplingInterval, transport);
+		}
+	}
+}
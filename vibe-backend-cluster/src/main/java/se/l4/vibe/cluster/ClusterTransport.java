@@ -0,0 +1,46 @@
+package se.l4.vibe.cluster;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.cluster.internal.DatagramTransport;
+
+/**
+ * Transport used by {@link ClusterBackend} to send frames to a
+ * {@link ClusterAggregator}. Every frame is a single sample, either sent
+ * over UDP via {@link #udp(InetSocketAddress)} or handed directly to an
+ * aggregator in the same process via {@link ClusterAggregator#loopback()}.
+ */
+public interface ClusterTransport
+{
+	/**
+	 * Send a frame. The buffer is only valid during the call.
+	 *
+	 * @param frame
+	 * @throws IOException
+	 */
+	void send(@NonNull ByteBuffer frame)
+		throws IOException;
+
+	/**
+	 * Release any resources held by this transport.
+	 */
+	default void close()
+	{
+	}
+
+	/**
+	 * Get a transport that sends frames as UDP datagrams to the given
+	 * address.
+	 *
+	 * @param address
+	 * @return
+	 */
+	@NonNull
+	static ClusterTransport udp(@NonNull InetSocketAddress address)
+	{
+		return new DatagramTransport(address);
+	}
+}
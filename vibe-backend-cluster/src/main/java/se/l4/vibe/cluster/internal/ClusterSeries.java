@@ -0,0 +1,120 @@
+package se.l4.vibe.cluster.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * {@link TimeSampler} for a single path in the cluster. Values are collected
+ * into intervals and the merged value of an interval is emitted once it has
+ * been closed.
+ */
+public class ClusterSeries
+	implements TimeSampler<Object>
+{
+	private final CopyOnWriteArrayList<SampleListener<Object>> listeners;
+	private final TreeMap<Long, IntervalAccumulator> pending;
+
+	private volatile Sample<Object> lastSample;
+	private long closedBefore;
+
+	public ClusterSeries()
+	{
+		listeners = new CopyOnWriteArrayList<>();
+		pending = new TreeMap<>();
+		closedBefore = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Add a value to the interval starting at the given time.
+	 *
+	 * @param interval
+	 * @param node
+	 * @param value
+	 * @return
+	 *   {@code false} if the interval has already been emitted
+	 */
+	public synchronized boolean add(long interval, String node, Object value)
+	{
+		if(interval < closedBefore)
+		{
+			return false;
+		}
+
+		IntervalAccumulator accumulator = pending.get(interval);
+		if(accumulator == null)
+		{
+			accumulator = new IntervalAccumulator();
+			pending.put(interval, accumulator);
+		}
+
+		accumulator.add(node, value);
+		return true;
+	}
+
+	/**
+	 * Emit all intervals that start before the given time.
+	 *
+	 * @param before
+	 */
+	public void flush(long before)
+	{
+		List<Sample<Object>> samples = new ArrayList<>();
+		synchronized(this)
+		{
+			Iterator<Map.Entry<Long, IntervalAccumulator>> it = pending.entrySet().iterator();
+			while(it.hasNext())
+			{
+				Map.Entry<Long, IntervalAccumulator> e = it.next();
+				if(e.getKey() >= before) break;
+
+				samples.add(Sample.create(e.getKey(), e.getValue().get()));
+				it.remove();
+			}
+
+			closedBefore = Math.max(closedBefore, before);
+		}
+
+		for(Sample<Object> sample : samples)
+		{
+			lastSample = sample;
+			for(SampleListener<Object> listener : listeners)
+			{
+				listener.sampleAcquired(sample);
+			}
+		}
+	}
+
+	@Override
+	public Sample<Object> getLastSample()
+	{
+		return lastSample;
+	}
+
+	@Override
+	public Handle start()
+	{
+		return Handle.empty();
+	}
+
+	@Override
+	public Handle addListener(SampleListener<Object> listener)
+	{
+		listeners.add(listener);
+		return () -> removeListener(listener);
+	}
+
+	@Override
+	public void removeListener(SampleListener<Object> listener)
+	{
+		listeners.remove(listener);
+	}
+}
@@ -0,0 +1,53 @@
+package se.l4.vibe.cluster.internal;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import se.l4.vibe.VibeException;
+import se.l4.vibe.cluster.ClusterTransport;
+
+/**
+ * {@link ClusterTransport} that sends every frame as a UDP datagram.
+ */
+public class DatagramTransport
+	implements ClusterTransport
+{
+	private final InetSocketAddress address;
+	private final DatagramChannel channel;
+
+	public DatagramTransport(InetSocketAddress address)
+	{
+		this.address = address;
+
+		try
+		{
+			channel = DatagramChannel.open();
+		}
+		catch(IOException e)
+		{
+			throw new VibeException("Could not open channel; " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void send(ByteBuffer frame)
+		throws IOException
+	{
+		channel.send(frame, address);
+	}
+
+	@Override
+	public void close()
+	{
+		try
+		{
+			channel.close();
+		}
+		catch(IOException e)
+		{
+			// Nothing to do if the channel can not be closed
+		}
+	}
+}
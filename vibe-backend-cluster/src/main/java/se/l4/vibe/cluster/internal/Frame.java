@@ -0,0 +1,97 @@
+package se.l4.vibe.cluster.internal;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import se.l4.vibe.VibeException;
+
+/**
+ * Frame sent from a node to the aggregator, containing a single sample. A
+ * frame is the version, the name of the node, the time of the sample, the
+ * path and finally the value.
+ */
+public class Frame
+{
+	private final String node;
+	private final long time;
+	private final String path;
+	private final Object value;
+
+	public Frame(String node, long time, String path, Object value)
+	{
+		this.node = node;
+		this.time = time;
+		this.path = path;
+		this.value = value;
+	}
+
+	public String getNode()
+	{
+		return node;
+	}
+
+	public long getTime()
+	{
+		return time;
+	}
+
+	public String getPath()
+	{
+		return path;
+	}
+
+	public Object getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * Encode a frame into the given output.
+	 *
+	 * @param out
+	 * @param node
+	 * @param time
+	 * @param path
+	 * @param value
+	 * @return
+	 *   if the value was supported and the frame was written
+	 */
+	public static boolean encode(WireOutput out, String node, long time, String path, Object value)
+	{
+		out.reset();
+		out.writeByte(WireFormat.VERSION);
+		out.writeString(node);
+		out.writeVarLong(time);
+		out.writeString(path);
+		return out.writeValue(value);
+	}
+
+	/**
+	 * Decode a frame.
+	 *
+	 * @param buffer
+	 * @return
+	 */
+	public static Frame decode(ByteBuffer buffer)
+	{
+		try
+		{
+			WireInput in = new WireInput(buffer);
+			int version = in.readByte();
+			if(version != WireFormat.VERSION)
+			{
+				throw new VibeException("Unsupported frame version " + version);
+			}
+
+			String node = in.readString();
+			long time = in.readVarLong();
+			String path = in.readString();
+			Object value = in.readValue();
+			return new Frame(node, time, path, value);
+		}
+		catch(BufferUnderflowException e)
+		{
+			throw new VibeException("Frame is truncated", e);
+		}
+	}
+}
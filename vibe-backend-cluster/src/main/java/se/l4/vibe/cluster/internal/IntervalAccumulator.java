@@ -0,0 +1,131 @@
+package se.l4.vibe.cluster.internal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import se.l4.vibe.VibeException;
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * Merges the values received from all nodes for a single interval of a
+ * path. Timers and percentiles are merged exactly by adding their buckets
+ * together. Numeric values are kept per node, with the last value of a node
+ * winning, and are turned into a snapshot with the sum, minimum, maximum and
+ * average over all nodes.
+ */
+public class IntervalAccumulator
+{
+	private TimerSnapshot timer;
+	private PercentileSnapshot percentiles;
+	private Map<String, Number> numbers;
+
+	/**
+	 * Add a value received from a node.
+	 *
+	 * @param node
+	 * @param value
+	 */
+	public void add(String node, Object value)
+	{
+		if(value instanceof TimerSnapshot)
+		{
+			checkType(timer != null || (percentiles == null && numbers == null));
+
+			TimerSnapshot snapshot = (TimerSnapshot) value;
+			timer = timer == null ? snapshot : timer.add(snapshot);
+		}
+		else if(value instanceof PercentileSnapshot)
+		{
+			checkType(percentiles != null || (timer == null && numbers == null));
+
+			PercentileSnapshot snapshot = (PercentileSnapshot) value;
+			percentiles = percentiles == null ? snapshot : percentiles.add(snapshot);
+		}
+		else
+		{
+			checkType(numbers != null || (timer == null && percentiles == null));
+
+			if(numbers == null)
+			{
+				numbers = new HashMap<>();
+			}
+
+			numbers.put(node, (Number) value);
+		}
+	}
+
+	private void checkType(boolean matches)
+	{
+		if(! matches)
+		{
+			throw new VibeException("Received values of different types for the same path");
+		}
+	}
+
+	/**
+	 * Get the merged value.
+	 *
+	 * @return
+	 */
+	public Object get()
+	{
+		if(timer != null)
+		{
+			return timer;
+		}
+		else if(percentiles != null)
+		{
+			return percentiles;
+		}
+
+		boolean allLongs = true;
+		long longSum = 0;
+		long longMin = Long.MAX_VALUE;
+		long longMax = Long.MIN_VALUE;
+		double sum = 0;
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+
+		for(Number number : numbers.values())
+		{
+			if(number instanceof Long)
+			{
+				long value = number.longValue();
+				longSum += value;
+				longMin = Math.min(longMin, value);
+				longMax = Math.max(longMax, value);
+			}
+			else
+			{
+				allLongs = false;
+			}
+
+			double value = number.doubleValue();
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		int nodes = numbers.size();
+		if(allLongs)
+		{
+			return MapSnapshot.builder()
+				.set("sum", longSum)
+				.set("min", longMin)
+				.set("max", longMax)
+				.set("average", longSum / (double) nodes)
+				.set("nodes", (long) nodes)
+				.build();
+		}
+
+		return MapSnapshot.builder()
+			.set("sum", sum)
+			.set("min", min)
+			.set("max", max)
+			.set("average", sum / nodes)
+			.set("nodes", (long) nodes)
+			.build();
+	}
+}
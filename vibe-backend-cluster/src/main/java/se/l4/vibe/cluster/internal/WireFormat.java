@@ -0,0 +1,26 @@
+package se.l4.vibe.cluster.internal;
+
+/**
+ * Constants for the wire format, see {@link WireOutput} and {@link Frame}.
+ */
+public class WireFormat
+{
+	/**
+	 * Version written first in every frame.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Largest frame that can be sent in a single datagram.
+	 */
+	public static final int MAX_FRAME_SIZE = 65507;
+
+	public static final int LONG = 1;
+	public static final int DOUBLE = 2;
+	public static final int PERCENTILES = 3;
+	public static final int TIMER = 4;
+
+	private WireFormat()
+	{
+	}
+}
@@ -0,0 +1,143 @@
+package se.l4.vibe.cluster.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import se.l4.vibe.VibeException;
+import se.l4.vibe.percentiles.BucketPercentileCounter;
+import se.l4.vibe.percentiles.FakePercentileCounter;
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * Input for the wire format, reads what has been written by
+ * {@link WireOutput}.
+ */
+public class WireInput
+{
+	private static final TimeUnit[] UNITS = TimeUnit.values();
+
+	private final ByteBuffer buffer;
+
+	public WireInput(ByteBuffer buffer)
+	{
+		this.buffer = buffer;
+	}
+
+	public int readByte()
+	{
+		return buffer.get() & 0xFF;
+	}
+
+	public long readVarLong()
+	{
+		long result = 0;
+		for(int shift=0; shift<64; shift+=7)
+		{
+			byte b = buffer.get();
+			result |= (long) (b & 0x7F) << shift;
+			if((b & 0x80) == 0)
+			{
+				return result;
+			}
+		}
+
+		throw new VibeException("Malformed variable length integer");
+	}
+
+	public long readSignedVarLong()
+	{
+		long value = readVarLong();
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	public double readDouble()
+	{
+		long bits = 0;
+		for(int i=0; i<8; i++)
+		{
+			bits |= (long) (buffer.get() & 0xFF) << (i * 8);
+		}
+
+		return Double.longBitsToDouble(bits);
+	}
+
+	public String readString()
+	{
+		int length = readLength();
+		String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+		buffer.position(buffer.position() + length);
+		return value;
+	}
+
+	/**
+	 * Read a value written via {@link WireOutput#writeValue(Object)}.
+	 *
+	 * @return
+	 */
+	public Object readValue()
+	{
+		int tag = readByte();
+		switch(tag)
+		{
+			case WireFormat.LONG:
+				return readSignedVarLong();
+			case WireFormat.DOUBLE:
+				return readDouble();
+			case WireFormat.PERCENTILES:
+				return readPercentiles();
+			case WireFormat.TIMER:
+				int unit = readByte();
+				if(unit >= UNITS.length)
+				{
+					throw new VibeException("Unknown resolution " + unit);
+				}
+
+				long min = readSignedVarLong();
+				long max = readSignedVarLong();
+				return TimerSnapshot.create(UNITS[unit], readPercentiles(), min, max);
+			default:
+				throw new VibeException("Unknown value type " + tag);
+		}
+	}
+
+	private PercentileSnapshot readPercentiles()
+	{
+		long samples = readVarLong();
+		long total = readSignedVarLong();
+
+		int count = readLength();
+		if(count == 0)
+		{
+			return FakePercentileCounter.createSnapshot(samples, total);
+		}
+
+		int[] limits = new int[count];
+		long previous = 0;
+		for(int i=0; i<count; i++)
+		{
+			previous += readSignedVarLong();
+			limits[i] = (int) previous;
+		}
+
+		long[] buckets = new long[count];
+		for(int i=0; i<count; i++)
+		{
+			buckets[i] = readVarLong();
+		}
+
+		return BucketPercentileCounter.createSnapshot(total, buckets, limits);
+	}
+
+	private int readLength()
+	{
+		long length = readVarLong();
+		if(length < 0 || length > buffer.remaining())
+		{
+			throw new VibeException("Invalid length " + length);
+		}
+
+		return (int) length;
+	}
+}
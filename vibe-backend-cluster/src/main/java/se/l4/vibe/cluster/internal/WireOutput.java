@@ -0,0 +1,195 @@
+package se.l4.vibe.cluster.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * Output for the wire format used between nodes and the aggregator. Integers
+ * are written as variable length integers, with signed values being
+ * zig-zag encoded so that small negative values stay small.
+ *
+ * <p>
+ * Values start with a tag:
+ *
+ * <ul>
+ *   <li>{@link WireFormat#LONG} - zig-zag encoded value</li>
+ *   <li>{@link WireFormat#DOUBLE} - 8 bytes with the bits of the double</li>
+ *   <li>{@link WireFormat#PERCENTILES} - samples, total, number of buckets,
+ *     followed by the lower bound of every bucket as deltas and the number of
+ *     samples in every bucket</li>
+ *   <li>{@link WireFormat#TIMER} - resolution, minimum, maximum followed by
+ *     percentiles without a tag</li>
+ * </ul>
+ */
+public class WireOutput
+{
+	private byte[] data;
+	private int position;
+
+	public WireOutput()
+	{
+		data = new byte[256];
+	}
+
+	/**
+	 * Reset this output so that it can be reused.
+	 */
+	public void reset()
+	{
+		position = 0;
+	}
+
+	/**
+	 * Get the number of bytes written.
+	 *
+	 * @return
+	 */
+	public int size()
+	{
+		return position;
+	}
+
+	/**
+	 * Get a buffer wrapping the bytes written so far.
+	 *
+	 * @return
+	 */
+	public ByteBuffer toByteBuffer()
+	{
+		return ByteBuffer.wrap(data, 0, position);
+	}
+
+	private void ensureCapacity(int bytes)
+	{
+		if(position + bytes > data.length)
+		{
+			data = Arrays.copyOf(data, Math.max(data.length * 2, position + bytes));
+		}
+	}
+
+	public void writeByte(int value)
+	{
+		ensureCapacity(1);
+		data[position++] = (byte) value;
+	}
+
+	/**
+	 * Write a value that is expected to be positive.
+	 *
+	 * @param value
+	 */
+	public void writeVarLong(long value)
+	{
+		ensureCapacity(10);
+		while((value & ~0x7FL) != 0)
+		{
+			data[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		data[position++] = (byte) value;
+	}
+
+	/**
+	 * Write a value that may be negative.
+	 *
+	 * @param value
+	 */
+	public void writeSignedVarLong(long value)
+	{
+		writeVarLong((value << 1) ^ (value >> 63));
+	}
+
+	public void writeDouble(double value)
+	{
+		ensureCapacity(8);
+		long bits = Double.doubleToRawLongBits(value);
+		for(int i=0; i<8; i++)
+		{
+			data[position++] = (byte) (bits >>> (i * 8));
+		}
+	}
+
+	public void writeString(String value)
+	{
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarLong(bytes.length);
+
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, data, position, bytes.length);
+		position += bytes.length;
+	}
+
+	/**
+	 * Write a value if it is supported by the wire format.
+	 *
+	 * @param value
+	 * @return
+	 *   if the value was written
+	 */
+	public boolean writeValue(Object value)
+	{
+		if(value instanceof TimerSnapshot)
+		{
+			TimerSnapshot snapshot = (TimerSnapshot) value;
+			writeByte(WireFormat.TIMER);
+			writeByte(snapshot.getResolution().ordinal());
+			writeSignedVarLong(snapshot.getMinimum());
+			writeSignedVarLong(snapshot.getMaximum());
+			writePercentiles(snapshot.getPercentiles());
+		}
+		else if(value instanceof PercentileSnapshot)
+		{
+			writeByte(WireFormat.PERCENTILES);
+			writePercentiles((PercentileSnapshot) value);
+		}
+		else if(value instanceof Double || value instanceof Float)
+		{
+			writeByte(WireFormat.DOUBLE);
+			writeDouble(((Number) value).doubleValue());
+		}
+		else if(value instanceof Long || value instanceof Integer
+			|| value instanceof Short || value instanceof Byte)
+		{
+			writeByte(WireFormat.LONG);
+			writeSignedVarLong(((Number) value).longValue());
+		}
+		else if(value instanceof Boolean)
+		{
+			writeByte(WireFormat.LONG);
+			writeSignedVarLong(((Boolean) value) ? 1 : 0);
+		}
+		else
+		{
+			return false;
+		}
+
+		return true;
+	}
+
+	private void writePercentiles(PercentileSnapshot snapshot)
+	{
+		writeVarLong(snapshot.getSamples());
+		writeSignedVarLong(snapshot.getTotal());
+
+		int buckets = snapshot.getBucketCount();
+		writeVarLong(buckets);
+
+		long previous = 0;
+		for(int i=0; i<buckets; i++)
+		{
+			long bound = snapshot.getBucketLowerBound(i);
+			writeSignedVarLong(bound - previous);
+			previous = bound;
+		}
+
+		for(int i=0; i<buckets; i++)
+		{
+			writeVarLong(snapshot.getBucketSamples(i));
+		}
+	}
+}
@@ -0,0 +1,256 @@
+package se.l4.vibe.cluster;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.percentiles.BucketPercentileCounter;
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.TimerSnapshot;
+
+public class ClusterAggregatorTest
+{
+	private static final int[] LIMITS = { 0, 10, 100, 1000 };
+
+	private CapturingBackend capturing;
+	private ClusterAggregator aggregator;
+
+	@Before
+	public void before()
+	{
+		capturing = new CapturingBackend();
+		aggregator = ClusterAggregator.builder()
+			.addBackend(capturing)
+			.build();
+	}
+
+	@After
+	public void after()
+	{
+		aggregator.close();
+	}
+
+	@Test
+	public void testTimersAreMergedExactly()
+	{
+		ManualSampler a = export("node-a", "timer");
+		ManualSampler b = export("node-b", "timer");
+
+		a.emit(1000, timer(new long[] { 5, 3, 0, 0 }, 80, 1, 50));
+		b.emit(2000, timer(new long[] { 0, 1, 0, 1 }, 2050, 40, 2000));
+
+		aggregator.flush();
+
+		assertThat(capturing.samples.size(), is(1));
+
+		Sample<?> sample = capturing.samples.get(0);
+		assertThat(sample.getTime(), is(0l));
+
+		TimerSnapshot merged = (TimerSnapshot) sample.getValue();
+		assertThat(merged.getSamples(), is(10l));
+		assertThat(merged.getTotalTime(), is(2130l));
+		assertThat(merged.getMinimum(), is(1l));
+		assertThat(merged.getMaximum(), is(2000l));
+
+		PercentileSnapshot percentiles = merged.getPercentiles();
+		assertThat(percentiles.getBucketCount(), is(4));
+		assertThat(percentiles.getBucketLowerBound(3), is(1000l));
+		assertThat(percentiles.getBucketSamples(0), is(5l));
+		assertThat(percentiles.getBucketSamples(1), is(4l));
+		assertThat(percentiles.getBucketSamples(3), is(1l));
+	}
+
+	@Test
+	public void testNumbersAreMergedPerNode()
+	{
+		ManualSampler a = export("node-a", "connections");
+		ManualSampler b = export("node-b", "connections");
+
+		a.emit(1000, 3l);
+		a.emit(2000, 5l);
+		b.emit(1500, 7l);
+
+		aggregator.flush();
+
+		assertThat(capturing.samples.size(), is(1));
+
+		MapSnapshot snapshot = (MapSnapshot) capturing.samples.get(0).getValue();
+		assertThat(snapshot.get("sum").get(), is(12l));
+		assertThat(snapshot.get("min").get(), is(5l));
+		assertThat(snapshot.get("max").get(), is(7l));
+		assertThat(snapshot.get("nodes").get(), is(2l));
+	}
+
+	@Test
+	public void testIntervalsAreSeparate()
+	{
+		ManualSampler a = export("node-a", "load");
+
+		a.emit(1000, 0.5);
+		a.emit(11000, 1.5);
+
+		aggregator.flush();
+
+		assertThat(capturing.samples.size(), is(2));
+		assertThat(capturing.samples.get(0).getTime(), is(0l));
+		assertThat(capturing.samples.get(1).getTime(), is(10000l));
+
+		MapSnapshot snapshot = (MapSnapshot) capturing.samples.get(1).getValue();
+		assertThat(snapshot.get("sum").get(), is(1.5));
+	}
+
+	@Test
+	public void testLateSamplesAreDropped()
+	{
+		ManualSampler a = export("node-a", "load");
+		ManualSampler b = export("node-b", "load");
+
+		a.emit(1000, 1l);
+		aggregator.flush();
+
+		b.emit(1000, 2l);
+		aggregator.flush();
+
+		assertThat(capturing.samples.size(), is(1));
+	}
+
+	@Test
+	public void testSendOverUdp()
+		throws Exception
+	{
+		ClusterAggregator udp = ClusterAggregator.builder()
+			.withAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))
+			.withInterval(Duration.ofMillis(50))
+			.withGracePeriod(Duration.ofMillis(20))
+			.addBackend(capturing)
+			.build();
+
+		ClusterBackend backend = ClusterBackend.builder()
+			.withNode("node-a")
+			.withAggregator("127.0.0.1", udp.getPort())
+			.withSamplingInterval(Duration.ofMillis(50))
+			.build();
+
+		Probe<Long> probe = () -> 42l;
+		Handle handle = backend.export("probe", probe);
+
+		try
+		{
+			long end = System.currentTimeMillis() + 5000;
+			while(capturing.samples.isEmpty() && System.currentTimeMillis() < end)
+			{
+				Thread.sleep(10);
+			}
+
+			assertThat(capturing.samples.isEmpty(), is(false));
+			assertThat(capturing.samples.get(0).getValue(), instanceOf(MapSnapshot.class));
+
+			MapSnapshot snapshot = (MapSnapshot) capturing.samples.get(0).getValue();
+			assertThat(snapshot.get("sum").get(), is(42l));
+		}
+		finally
+		{
+			handle.release();
+			backend.close();
+			udp.close();
+		}
+	}
+
+	private ManualSampler export(String node, String path)
+	{
+		ClusterBackend backend = ClusterBackend.builder()
+			.withNode(node)
+			.withTransport(aggregator.loopback())
+			.build();
+
+		ManualSampler sampler = new ManualSampler();
+		backend.export(path, sampler);
+		return sampler;
+	}
+
+	private static TimerSnapshot timer(long[] buckets, long total, long min, long max)
+	{
+		return TimerSnapshot.create(
+			TimeUnit.MILLISECONDS,
+			BucketPercentileCounter.createSnapshot(total, buckets, LIMITS),
+			min,
+			max
+		);
+	}
+
+	private static class CapturingBackend
+		implements VibeBackend
+	{
+		private final List<Sample<?>> samples = new CopyOnWriteArrayList<>();
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public Handle export(String path, TimeSampler<?> series)
+		{
+			return ((TimeSampler) series).addListener(samples::add);
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	private static class ManualSampler
+		implements TimeSampler<Object>
+	{
+		private final List<SampleListener<Object>> listeners = new CopyOnWriteArrayList<>();
+
+		public void emit(long time, Object value)
+		{
+			Sample<Object> sample = Sample.create(time, value);
+			for(SampleListener<Object> listener : listeners)
+			{
+				listener.sampleAcquired(sample);
+			}
+		}
+
+		@Override
+		public Sample<Object> getLastSample()
+		{
+			return null;
+		}
+
+		@Override
+		public Handle start()
+		{
+			return Handle.empty();
+		}
+
+		@Override
+		public Handle addListener(SampleListener<Object> listener)
+		{
+			listeners.add(listener);
+			return () -> listeners.remove(listener);
+		}
+
+		@Override
+		public void removeListener(SampleListener<Object> listener)
+		{
+			listeners.remove(listener);
+		}
+	}
+}
@@ -0,0 +1,7 @@
+module se.l4.vibe.health {
+	requires se.l4.vibe;
+	requires org.slf4j;
+	requires jdk.httpserver;
+
+	exports se.l4.vibe.health;
+}
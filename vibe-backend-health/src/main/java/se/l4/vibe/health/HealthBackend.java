@@ -0,0 +1,294 @@
+package se.l4.vibe.health;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibeException;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.health.internal.HealthRegistry;
+import se.l4.vibe.health.internal.HealthScope;
+
+/**
+ * {@link VibeBackend Backend} that serves the status of exported
+ * {@link Check checks} over HTTP, for use by load balancers and
+ * orchestrators.
+ *
+ * <pre>
+ * HealthBackend backend = HealthBackend.builder()
+ *   .withPort(8081)
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * Every path a check is exported at is a scope, a check exported at
+ * {@code db/primary} is reported by {@code /health}, {@code /health/db} and
+ * {@code /health/db/primary}. A scope responds with {@code 200} if all of
+ * its checks are healthy and {@code 503} if any check is failing.
+ *
+ * <p>
+ * Checks describe problems by default, so a check is failing while its
+ * conditions are met. Use {@link Builder#withHealthyWhenMet()} for checks
+ * that describe when things are working.
+ *
+ * <p>
+ * The status of a scope is kept as a count of failing checks that is
+ * updated when checks change state, so requests never evaluate a check and
+ * respond with a fixed body.
+ */
+public class HealthBackend
+	implements VibeBackend
+{
+	private static final Logger logger = LoggerFactory.getLogger(HealthBackend.class);
+
+	private static final String JSON = "application/json";
+	private static final byte[] UP = "{\"status\":\"UP\"}\n".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] DOWN = "{\"status\":\"DOWN\"}\n".getBytes(StandardCharsets.UTF_8);
+
+	private final HealthRegistry registry;
+
+	private final ExecutorService executor;
+	private final HttpServer server;
+
+	private HealthBackend(
+		InetAddress address,
+		int port,
+		String path,
+		boolean healthyWhenMet
+	)
+	{
+		registry = new HealthRegistry(path, healthyWhenMet);
+
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "vibe-health");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try
+		{
+			server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		}
+		catch(IOException e)
+		{
+			executor.shutdown();
+			throw new VibeException("Unable to start server on port " + port + "; " + e.getMessage(), e);
+		}
+
+		server.createContext(path, this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Get the port the server is listening on. Useful when the backend was
+	 * built with port {@code 0} to listen on any free port.
+	 *
+	 * @return
+	 */
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+	/**
+	 * Get if all the checks exported at or below the given path are
+	 * healthy.
+	 *
+	 * @param path
+	 *   the request path of the scope, such as {@code /health/db}
+	 * @return
+	 *   if the scope is healthy, scopes without checks are healthy
+	 */
+	public boolean isHealthy(String path)
+	{
+		HealthScope scope = registry.get(path);
+		return scope == null || scope.isHealthy();
+	}
+
+	private void handle(HttpExchange exchange)
+		throws IOException
+	{
+		try
+		{
+			String method = exchange.getRequestMethod();
+			boolean head = "HEAD".equals(method);
+			if(! head && ! "GET".equals(method))
+			{
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			HealthScope scope = registry.get(exchange.getRequestURI().getPath());
+			if(scope == null)
+			{
+				exchange.sendResponseHeaders(404, -1);
+				return;
+			}
+
+			boolean healthy = scope.isHealthy();
+			byte[] body = healthy ? UP : DOWN;
+
+			exchange.getResponseHeaders().set("Content-Type", JSON);
+			exchange.getResponseHeaders().set("Cache-Control", "no-store");
+			exchange.sendResponseHeaders(healthy ? 200 : 503, head ? -1 : body.length);
+
+			if(! head)
+			{
+				try(OutputStream out = exchange.getResponseBody())
+				{
+					out.write(body);
+				}
+			}
+		}
+		catch(RuntimeException e)
+		{
+			logger.warn("Unable to report health; " + e.getMessage(), e);
+			exchange.sendResponseHeaders(500, -1);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	@Override
+	public Handle export(String path, Check check)
+	{
+		return registry.add(path, check);
+	}
+
+	@Override
+	public void close()
+	{
+		server.stop(0);
+		executor.shutdown();
+
+		try
+		{
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private InetAddress address;
+		private int port;
+		private String path;
+		private boolean healthyWhenMet;
+
+		public Builder()
+		{
+			port = 8081;
+			path = "/health";
+		}
+
+		/**
+		 * Set the address the server should listen on. By default the server
+		 * listens on all addresses.
+		 *
+		 * @param address
+		 * @return
+		 */
+		public Builder withAddress(InetAddress address)
+		{
+			this.address = address;
+			return this;
+		}
+
+		/**
+		 * Set the port the server should listen on, defaults to {@code 8081}.
+		 * Use {@code 0} to pick any free port.
+		 *
+		 * @param port
+		 * @return
+		 */
+		public Builder withPort(int port)
+		{
+			if(port < 0 || port > 65535)
+			{
+				throw new IllegalArgumentException("port must be between 0 and 65535");
+			}
+
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * Set the path health is served at, defaults to {@code /health}.
+		 * Scopes are served below this path.
+		 *
+		 * @param path
+		 * @return
+		 */
+		public Builder withPath(String path)
+		{
+			Objects.requireNonNull(path, "path can not be null");
+			if(! path.startsWith("/"))
+			{
+				throw new IllegalArgumentException("path must start with /");
+			}
+
+			this.path = path.length() > 1 && path.endsWith("/")
+				? path.substring(0, path.length() - 1)
+				: path;
+			return this;
+		}
+
+		/**
+		 * Treat checks as healthy when their conditions are met, instead of
+		 * as failing.
+		 *
+		 * @return
+		 */
+		public Builder withHealthyWhenMet()
+		{
+			this.healthyWhenMet = true;
+			return this;
+		}
+
+		/**
+		 * Build the instance, starting the server.
+		 *
+		 * @return
+		 */
+		public HealthBackend build()
+		{
+			return new HealthBackend(
+				address,
+				port,
+				path,
+				healthyWhenMet
+			);
+		}
+	}
+}
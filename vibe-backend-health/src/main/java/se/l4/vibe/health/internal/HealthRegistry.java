@@ -0,0 +1,161 @@
+package se.l4.vibe.health.internal;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.checks.CheckEvent;
+import se.l4.vibe.checks.CheckListener;
+
+/**
+ * Registry of the {@link HealthScope scopes} of exported checks. A check
+ * exported at {@code db/primary} is part of the scopes {@code /health},
+ * {@code /health/db} and {@code /health/db/primary}, and every change of the
+ * check updates the number of failing checks in all of them.
+ *
+ * <p>
+ * Scopes are keyed on the full request path so that looking up the status
+ * of a request does not need to parse or copy the path.
+ */
+public class HealthRegistry
+{
+	private final String root;
+	private final boolean healthyWhenMet;
+
+	private final ConcurrentMap<String, HealthScope> scopes;
+
+	public HealthRegistry(String root, boolean healthyWhenMet)
+	{
+		this.root = root;
+		this.healthyWhenMet = healthyWhenMet;
+
+		scopes = new ConcurrentHashMap<>();
+
+		// The root scope always exists so that it reports healthy without checks
+		scopes.put(root, new HealthScope());
+	}
+
+	/**
+	 * Get the scope for the given request path.
+	 *
+	 * @param path
+	 * @return
+	 *   the scope, or {@code null} if no checks have been exported in it
+	 */
+	public HealthScope get(String path)
+	{
+		return scopes.get(path);
+	}
+
+	/**
+	 * Add a check at the given path.
+	 *
+	 * @param path
+	 * @param check
+	 * @return
+	 *   handle that removes the check
+	 */
+	public Handle add(String path, Check check)
+	{
+		String[] segments = path.split("/");
+		String[] keys = new String[segments.length + 1];
+		keys[0] = root;
+
+		StringBuilder builder = new StringBuilder(root.equals("/") ? "" : root);
+		for(int i=0; i<segments.length; i++)
+		{
+			builder.append('/').append(segments[i]);
+			keys[i + 1] = builder.toString();
+		}
+
+		HealthScope[] checkScopes = new HealthScope[keys.length];
+		for(int i=0; i<keys.length; i++)
+		{
+			checkScopes[i] = scopes.compute(keys[i], (key, scope) -> {
+				if(scope == null)
+				{
+					scope = new HealthScope();
+				}
+
+				scope.checks++;
+				return scope;
+			});
+		}
+
+		Tracker tracker = new Tracker(checkScopes);
+		Handle listener = check.addListener(tracker);
+
+		// The check may already have been active, so read its current state
+		tracker.initial(check.isConditionsMet());
+
+		return () -> {
+			listener.release();
+			tracker.update(healthyWhenMet);
+
+			for(String key : keys)
+			{
+				scopes.computeIfPresent(key, (k, scope) -> {
+					scope.checks--;
+					return scope.checks == 0 && ! k.equals(root) ? null : scope;
+				});
+			}
+		};
+	}
+
+	/**
+	 * Listener that keeps track of if a check is failing and updates its
+	 * scopes when it changes. Events and the initial state are applied under
+	 * the same lock, and the initial state is ignored if an event has already
+	 * been received as it may have been read before the event.
+	 */
+	private class Tracker
+		implements CheckListener
+	{
+		private final HealthScope[] scopes;
+
+		private boolean received;
+		private boolean failing;
+
+		public Tracker(HealthScope[] scopes)
+		{
+			this.scopes = scopes;
+		}
+
+		@Override
+		public synchronized void checkStatus(CheckEvent event)
+		{
+			received = true;
+			update(event.isConditionsMet());
+		}
+
+		public synchronized void initial(boolean conditionsMet)
+		{
+			if(received)
+			{
+				// An event is newer than the state read when adding the check
+				return;
+			}
+
+			update(conditionsMet);
+		}
+
+		public synchronized void update(boolean conditionsMet)
+		{
+			boolean isFailing = conditionsMet != healthyWhenMet;
+			if(isFailing == failing)
+			{
+				// Repeated event or state already known
+				return;
+			}
+
+			failing = isFailing;
+
+			int delta = isFailing ? 1 : -1;
+			for(HealthScope scope : scopes)
+			{
+				scope.changeFailing(delta);
+			}
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package se.l4.vibe.health.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aggregated status of all checks exported at or below a path. The number
+ * of failing checks is updated when a check changes state, so reading the
+ * status is a single volatile read.
+ */
+public class HealthScope
+{
+	private final AtomicInteger failing;
+
+	/**
+	 * Number of checks in this scope, only modified while the scope is being
+	 * computed in the {@link HealthRegistry}.
+	 */
+	int checks;
+
+	public HealthScope()
+	{
+		failing = new AtomicInteger();
+	}
+
+	/**
+	 * Get if all checks in this scope are healthy.
+	 *
+	 * @return
+	 */
+	public boolean isHealthy()
+	{
+		return failing.get() == 0;
+	}
+
+	/**
+	 * Get the number of checks in this scope that are failing.
+	 *
+	 * @return
+	 */
+	public int getFailing()
+	{
+		return failing.get();
+	}
+
+	void changeFailing(int delta)
+	{
+		failing.addAndGet(delta);
+	}
+}
@@ -0,0 +1,217 @@
+package se.l4.vibe.health;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.checks.CheckEvent;
+import se.l4.vibe.checks.CheckListener;
+
+public class HealthBackendTest
+{
+	private HealthBackend backend;
+
+	@Before
+	public void startBackend()
+	{
+		backend = HealthBackend.builder()
+			.withAddress(InetAddress.getLoopbackAddress())
+			.withPort(0)
+			.build();
+	}
+
+	@After
+	public void stopBackend()
+	{
+		backend.close();
+	}
+
+	private static Check check(AtomicBoolean failing)
+	{
+		return Check.builder()
+			.whenSupplier(failing::get)
+				.withCheckInterval(Duration.ofMillis(10))
+				.done()
+			.build();
+	}
+
+	@Test
+	public void testHealthyWithoutChecks()
+		throws Exception
+	{
+		assertThat(request("/health"), is(200));
+		assertThat(body("/health"), is("{\"status\":\"UP\"}\n"));
+	}
+
+	@Test
+	public void testUnknownScope()
+		throws Exception
+	{
+		assertThat(request("/health/unknown"), is(404));
+	}
+
+	@Test
+	public void testScopes()
+		throws Exception
+	{
+		AtomicBoolean primary = new AtomicBoolean();
+		AtomicBoolean cache = new AtomicBoolean();
+
+		backend.export("db/primary", check(primary));
+		backend.export("cache", check(cache));
+
+		assertThat(request("/health"), is(200));
+		assertThat(request("/health/db"), is(200));
+		assertThat(request("/health/db/primary"), is(200));
+
+		primary.set(true);
+		awaitStatus("/health/db/primary", 503);
+
+		assertThat(request("/health"), is(503));
+		assertThat(request("/health/db"), is(503));
+		assertThat(request("/health/cache"), is(200));
+		assertThat(body("/health/db"), is("{\"status\":\"DOWN\"}\n"));
+
+		primary.set(false);
+		awaitStatus("/health", 200);
+	}
+
+	@Test
+	public void testRemovingCheck()
+		throws Exception
+	{
+		AtomicBoolean failing = new AtomicBoolean(true);
+		Handle handle = backend.export("db", check(failing));
+
+		awaitStatus("/health/db", 503);
+
+		handle.release();
+
+		assertThat(request("/health"), is(200));
+		assertThat(request("/health/db"), is(404));
+	}
+
+	@Test
+	public void testHealthyWhenMet()
+		throws Exception
+	{
+		backend.close();
+		backend = HealthBackend.builder()
+			.withAddress(InetAddress.getLoopbackAddress())
+			.withPort(0)
+			.withHealthyWhenMet()
+			.build();
+
+		AtomicBoolean working = new AtomicBoolean();
+		backend.export("db", check(working));
+
+		awaitStatus("/health", 503);
+
+		working.set(true);
+		awaitStatus("/health", 200);
+		assertThat(backend.isHealthy("/health/db"), is(true));
+	}
+
+	@Test
+	public void testEventWinsOverInitialState()
+		throws Exception
+	{
+		// Delivers an event when subscribed to but reports an older state
+		Check check = new Check()
+		{
+			@Override
+			public boolean isConditionsMet()
+			{
+				return false;
+			}
+
+			@Override
+			public Handle start()
+			{
+				return () -> {};
+			}
+
+			@Override
+			public Handle addListener(CheckListener listener)
+			{
+				listener.checkStatus(new CheckEvent(true, false, Instant.now()));
+				return () -> {};
+			}
+
+			@Override
+			public void removeListener(CheckListener listener)
+			{
+			}
+		};
+
+		backend.export("db", check);
+
+		assertThat(request("/health/db"), is(503));
+	}
+
+	private void awaitStatus(String path, int status)
+		throws Exception
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		int current;
+		do
+		{
+			current = request(path);
+			if(current == status)
+			{
+				return;
+			}
+
+			Thread.sleep(10);
+		}
+		while(System.currentTimeMillis() < deadline);
+
+		throw new AssertionError("Expected " + status + " for " + path + " but got " + current);
+	}
+
+	private HttpURLConnection open(String path)
+		throws IOException
+	{
+		URL url = new URL("http://127.0.0.1:" + backend.getPort() + path);
+		return (HttpURLConnection) url.openConnection();
+	}
+
+	private int request(String path)
+		throws IOException
+	{
+		HttpURLConnection connection = open(path);
+		try
+		{
+			return connection.getResponseCode();
+		}
+		finally
+		{
+			connection.disconnect();
+		}
+	}
+
+	private String body(String path)
+		throws IOException
+	{
+		HttpURLConnection connection = open(path);
+		try(InputStream in = connection.getResponseCode() < 400 ? connection.getInputStream() : connection.getErrorStream())
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+}
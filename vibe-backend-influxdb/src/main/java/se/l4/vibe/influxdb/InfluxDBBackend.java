@@ -24,13 +24,14 @@ import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import se.l4.vibe.Handle;
+import se.l4.vibe.Vibe;
 import se.l4.vibe.VibeBackend;
 import se.l4.vibe.events.Event;
 import se.l4.vibe.events.EventData;
 import se.l4.vibe.events.EventListener;
 import se.l4.vibe.events.Events;
-import se.l4.vibe.influxdb.internal.DataPoint;
 import se.l4.vibe.influxdb.internal.DataQueue;
+import se.l4.vibe.influxdb.internal.LineBuilder;
 import se.l4.vibe.probes.Probe;
 import se.l4.vibe.probes.SampledProbe;
 import se.l4.vibe.sampling.Sample;
@@ -122,7 +123,7 @@ public class InfluxDBBackend
 		queue = new DataQueue(this::send, executor);
 	}
 
-	private void send(String data)
+	private void send(byte[] data)
 	{
 		Request.Builder builder = new Request.Builder()
 			.url(url)
@@ -195,6 +196,26 @@ public class InfluxDBBackend
 		return timer.addListener(new TimerQueuer(path));
 	}
 
+	@Override
+	public void exportInternalMetrics(Vibe vibe)
+	{
+		vibe.export(queue.getDepthProbe())
+			.at("queue", "depth")
+			.done();
+
+		vibe.export(queue.getSendTimer().getSnapshotProbe())
+			.at("queue", "flush")
+			.done();
+
+		vibe.export(queue.getBytesSentProbe())
+			.at("queue", "bytesSent")
+			.done();
+
+		vibe.export(queue.getFailuresProbe())
+			.at("queue", "failures")
+			.done();
+	}
+
 	@Override
 	public void close()
 	{
@@ -214,33 +235,31 @@ public class InfluxDBBackend
 	private class SampleQueuer
 		implements SampleListener<Object>
 	{
-		private final String path;
+		private final String prefix;
 
 		public SampleQueuer(String path)
 		{
-			this.path = path;
+			this.prefix = LineBuilder.prefix(path, tags);
 		}
 
 		@Override
 		public void sampleAcquired(Sample<Object> sample)
 		{
 			Object value = sample.getValue();
-			Map<String, Object> values = new HashMap<>();
-			KeyValueReceiver receiver = createReceiver(values);
+			LineBuilder line = new LineBuilder(prefix);
 
 			if(value instanceof Snapshot)
 			{
-				((Snapshot) value).mapToKeyValues(receiver);
+				((Snapshot) value).mapToKeyValues(line);
 			}
 			else
 			{
-				receiver.add("value", value);
+				KeyValueReceiver.addValue(line, "value", value);
 			}
 
 			// TODO: Can a probe provide extra tags?
 
-			DataPoint point = new DataPoint(path, sample.getTime(), tags, values);
-			queue.add(point);
+			queue.add(line.toLine(sample.getTime()));
 		}
 
 	}
@@ -248,72 +267,54 @@ public class InfluxDBBackend
 	private class TimerQueuer
 		implements TimerListener
 	{
-		private final String path;
+		private final String prefix;
 
 		public TimerQueuer(String path)
 		{
-			this.path = path;
+			this.prefix = LineBuilder.prefix(path, tags);
 		}
 
 		@Override
 		public void timingComplete(TimerEvent event)
 		{
-			HashMap<String, Object> map = new HashMap<>();
-			map.put("value", event.getDuration());
+			LineBuilder line = new LineBuilder(prefix);
+			line.add("value", event.getDuration());
 
-			DataPoint point = new DataPoint(path, System.currentTimeMillis(), tags, map);
-			queue.add(point);
+			queue.add(line.toLine(System.currentTimeMillis()));
 		}
 	}
 
 	private class EventQueuer
 		implements EventListener<EventData>
 	{
-		private final String path;
+		private final String prefix;
 
 		public EventQueuer(String path)
 		{
-			this.path = path;
+			this.prefix = LineBuilder.prefix(path, tags);
 		}
 
 		@Override
 		public void eventRegistered(Event<EventData> event)
 		{
 			long time = System.currentTimeMillis();
-			Map<String, Object> values = new HashMap<>();
-			values.put("severity", event.getSeverity());
-
-			KeyValueReceiver receiver = createReceiver(values);
+			LineBuilder line = new LineBuilder(prefix);
+			line.add("severity", event.getSeverity().name());
 
 			EventData data = event.getData();
 			if(data instanceof Snapshot)
 			{
-				((Snapshot) data).mapToKeyValues(receiver);
+				((Snapshot) data).mapToKeyValues(line);
 			}
 			else
 			{
-				receiver.add("value", data.toHumanReadable());
+				line.add("value", data.toHumanReadable());
 			}
 
-			DataPoint point = new DataPoint(path, time, tags, values);
-			queue.add(point);
+			queue.add(line.toLine(time));
 		}
 	}
 
-	protected KeyValueReceiver createReceiver(Map<String, Object> values)
-	{
-		return (key, v) -> {
-			if((v instanceof Double && Double.isNaN((Double) v))
-				|| (v instanceof Float && Float.isNaN((Float) v)))
-			{
-				// Skip NaN values
-				return;
-			}
-
-			values.put(key, v);
-		};
-	}
-
 	public static Builder builder()
 	{
 		return new Builder();
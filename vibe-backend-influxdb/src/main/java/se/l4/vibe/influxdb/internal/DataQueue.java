@@ -1,5 +1,6 @@
 package se.l4.vibe.influxdb.internal;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
@@ -9,18 +10,27 @@ import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 
+import se.l4.vibe.probes.CountingProbe;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.timers.Stopwatch;
+import se.l4.vibe.timers.Timer;
+
 /**
- * Queue for data points that are going to be sent to InfluxDB.
+ * Queue for lines that are going to be sent to InfluxDB.
  */
 public class DataQueue
 {
 	private final List<String> items;
-	private final Consumer<String> flusher;
+	private final Consumer<byte[]> flusher;
 	private final ScheduledFuture<?> future;
 	private final Lock lock;
 	private final ScheduledExecutorService executor;
 
-	public DataQueue(Consumer<String> flusher, ScheduledExecutorService executor)
+	private final Timer sendTimer;
+	private final CountingProbe bytesSent;
+	private final CountingProbe failures;
+
+	public DataQueue(Consumer<byte[]> flusher, ScheduledExecutorService executor)
 	{
 		this.flusher = flusher;
 		this.executor = executor;
@@ -28,15 +38,21 @@ public class DataQueue
 		items = new ArrayList<>(100);
 		lock = new ReentrantLock();
 
+		sendTimer = Timer.builder().build();
+		bytesSent = new CountingProbe();
+		failures = new CountingProbe();
+
 		future = executor.scheduleAtFixedRate(this::flush, 5, 5, TimeUnit.SECONDS);
 	}
 
-	public void add(DataPoint point)
+	public void add(String line)
 	{
+		if(line == null) return;
+
 		lock.lock();
 		try
 		{
-			items.add(point.toLine());
+			items.add(line);
 			if(items.size() == 100)
 			{
 				String[] lines = items.toArray(new String[items.size()]);
@@ -52,22 +68,78 @@ public class DataQueue
 
 	private void send(String[] lines, int attempt)
 	{
-		try
+		if(lines.length == 0) return;
+
+		StringBuilder builder = new StringBuilder();
+		for(String line : lines)
 		{
-			StringBuilder builder = new StringBuilder();
-			for(String line : lines)
-			{
-				builder.append(line).append("\n");
-			}
+			builder.append(line).append("\n");
+		}
 
-			flusher.accept(builder.toString());
+		byte[] data = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+		try(Stopwatch stopwatch = sendTimer.start())
+		{
+			flusher.accept(data);
+			bytesSent.add(data.length);
 		}
 		catch(Exception e)
 		{
 			// TODO: Support retrying sending
+			failures.increase();
 		}
 	}
 
+	/**
+	 * Get a probe that reads the number of data points waiting to be sent.
+	 *
+	 * @return
+	 */
+	public Probe<Integer> getDepthProbe()
+	{
+		return () -> {
+			lock.lock();
+			try
+			{
+				return items.size();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		};
+	}
+
+	/**
+	 * Get the timer that measures how long it takes to send data.
+	 *
+	 * @return
+	 */
+	public Timer getSendTimer()
+	{
+		return sendTimer;
+	}
+
+	/**
+	 * Get a probe for the total number of bytes sent.
+	 *
+	 * @return
+	 */
+	public Probe<Long> getBytesSentProbe()
+	{
+		return bytesSent;
+	}
+
+	/**
+	 * Get a probe for the total number of failed sends.
+	 *
+	 * @return
+	 */
+	public Probe<Long> getFailuresProbe()
+	{
+		return failures;
+	}
+
 	/**
 	 * Flush this queue.
 	 */
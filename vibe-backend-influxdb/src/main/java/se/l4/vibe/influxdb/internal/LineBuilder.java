@@ -0,0 +1,135 @@
+package se.l4.vibe.influxdb.internal;
+
+import java.util.Map;
+
+import se.l4.vibe.snapshots.KeyValueReceiver;
+
+/**
+ * Builder for a single line in the InfluxDB line protocol. Fields are
+ * written directly into the line as they are received, the measurement and
+ * tags are expected to be escaped once via {@link #prefix(String, Map)} and
+ * then reused for every line.
+ */
+public class LineBuilder
+	implements KeyValueReceiver
+{
+	private final StringBuilder builder;
+	private int fields;
+
+	public LineBuilder(String prefix)
+	{
+		builder = new StringBuilder(prefix.length() + 64);
+		builder.append(prefix).append(' ');
+	}
+
+	/**
+	 * Create the escaped prefix of a line, containing the measurement and
+	 * the tags.
+	 *
+	 * @param measurement
+	 * @param tags
+	 * @return
+	 */
+	public static String prefix(String measurement, Map<String, String> tags)
+	{
+		StringBuilder builder = new StringBuilder();
+		escapeInto(measurement, builder);
+
+		for(Map.Entry<String, String> tag : tags.entrySet())
+		{
+			builder.append(',');
+			escapeInto(tag.getKey(), builder);
+			builder.append('=');
+			escapeInto(tag.getValue(), builder);
+		}
+
+		return builder.toString();
+	}
+
+	private StringBuilder field(String key)
+	{
+		if(fields++ > 0)
+		{
+			builder.append(',');
+		}
+
+		escapeInto(key, builder);
+		return builder.append('=');
+	}
+
+	@Override
+	public void add(String key, Object value)
+	{
+		KeyValueReceiver.addValue(this, key, value);
+	}
+
+	@Override
+	public void add(String key, long value)
+	{
+		field(key).append(value).append('i');
+	}
+
+	@Override
+	public void add(String key, double value)
+	{
+		if(Double.isNaN(value) || Double.isInfinite(value))
+		{
+			// InfluxDB can not store NaN or infinite values
+			return;
+		}
+
+		field(key).append(value);
+	}
+
+	@Override
+	public void add(String key, boolean value)
+	{
+		field(key).append(value ? 't' : 'f');
+	}
+
+	@Override
+	public void add(String key, CharSequence value)
+	{
+		field(key).append('"');
+		for(int i=0, n=value.length(); i<n; i++)
+		{
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\')
+			{
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+		builder.append('"');
+	}
+
+	/**
+	 * Finish this line using the given timestamp.
+	 *
+	 * @param time
+	 * @return
+	 *   the line, or {@code null} if no fields were added
+	 */
+	public String toLine(long time)
+	{
+		if(fields == 0)
+		{
+			return null;
+		}
+
+		return builder.append(' ').append(time).toString();
+	}
+
+	private static void escapeInto(String value, StringBuilder builder)
+	{
+		for(int i=0, n=value.length(); i<n; i++)
+		{
+			char c = value.charAt(i);
+			if(c == ' ' || c == ',' || c == '=')
+			{
+				builder.append('\\');
+			}
+			builder.append(c);
+		}
+	}
+}
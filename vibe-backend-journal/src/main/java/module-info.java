@@ -0,0 +1,4 @@
+module se.l4.vibe.journal {
+	requires se.l4.vibe;
+	requires org.slf4j;
+}
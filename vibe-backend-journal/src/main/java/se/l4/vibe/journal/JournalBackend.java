@@ -0,0 +1,353 @@
+package se.l4.vibe.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibeException;
+import se.l4.vibe.events.Event;
+import se.l4.vibe.events.EventData;
+import se.l4.vibe.events.EventListener;
+import se.l4.vibe.events.Events;
+import se.l4.vibe.journal.internal.JournalFormat;
+import se.l4.vibe.journal.internal.JournalWriter;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.timers.Timer;
+import se.l4.vibe.timers.TimerEvent;
+import se.l4.vibe.timers.TimerListener;
+
+/**
+ * {@link VibeBackend Backend} that appends all samples, timings and events to
+ * a journal on disk, so that metrics survive a crash of the application and
+ * can be looked at or sent somewhere else afterwards via
+ * {@link JournalReader}.
+ *
+ * <pre>
+ * JournalBackend backend = JournalBackend.builder()
+ *   .withDirectory(Paths.get("/var/lib/app/metrics"))
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * The journal is split into memory-mapped segments of a fixed size, when a
+ * segment is full a new one is created and the oldest segments are removed.
+ * Records are written straight into the mapped file without taking a lock,
+ * so they are kept by the operating system even if the application crashes.
+ * Numeric values and the keys of {@link Snapshot}s are kept, other values
+ * are skipped.
+ */
+public class JournalBackend
+	implements VibeBackend
+{
+	private final Duration samplingInterval;
+	private final JournalWriter writer;
+
+	private JournalBackend(
+		Duration samplingInterval,
+		JournalWriter writer
+	)
+	{
+		this.samplingInterval = samplingInterval;
+		this.writer = writer;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, TimeSampler<?> sampler)
+	{
+		return ((TimeSampler) sampler).addListener(new SampleJournaler(writer.getId(path)));
+	}
+
+	@Override
+	public Handle export(String path, Probe<?> probe)
+	{
+		return sampleAndExport(path, SampledProbe.over(probe));
+	}
+
+	@Override
+	public Handle export(String path, SampledProbe<?> probe)
+	{
+		return sampleAndExport(path, probe);
+	}
+
+	private Handle sampleAndExport(String path, SampledProbe<?> probe)
+	{
+		TimeSampler<?> sampler = TimeSampler.forProbe(probe)
+			.withInterval(samplingInterval)
+			.build();
+
+		return export(path, sampler);
+	}
+
+	@Override
+	public Handle export(String path, Timer timer)
+	{
+		return timer.addListener(new TimerJournaler(writer.getId(path)));
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, Events<?> events)
+	{
+		return ((Events) events).addListener(new EventJournaler(writer.getId(path)));
+	}
+
+	@Override
+	public void close()
+	{
+		writer.close();
+	}
+
+	private class SampleJournaler
+		implements SampleListener<Object>, KeyValueReceiver
+	{
+		private final int path;
+		private final Map<String, Integer> keys;
+
+		private long time;
+
+		public SampleJournaler(int path)
+		{
+			this.path = path;
+			keys = new HashMap<>();
+		}
+
+		@Override
+		public void sampleAcquired(Sample<Object> sample)
+		{
+			Object value = sample.getValue();
+			if(value instanceof Snapshot)
+			{
+				time = sample.getTime();
+				((Snapshot) value).mapToKeyValues(this);
+			}
+			else
+			{
+				append(0, sample.getTime(), value);
+			}
+		}
+
+		@Override
+		public void add(String key, Object value)
+		{
+			KeyValueReceiver.addValue(this, key, value);
+		}
+
+		@Override
+		public void add(String key, long value)
+		{
+			writer.append(JournalFormat.TYPE_LONG, (byte) 0, path, id(key), time, value);
+		}
+
+		@Override
+		public void add(String key, double value)
+		{
+			writer.append(JournalFormat.TYPE_DOUBLE, (byte) 0, path, id(key), time, Double.doubleToRawLongBits(value));
+		}
+
+		@Override
+		public void add(String key, boolean value)
+		{
+			writer.append(JournalFormat.TYPE_LONG, (byte) 0, path, id(key), time, value ? 1 : 0);
+		}
+
+		@Override
+		public void add(String key, CharSequence value)
+		{
+			// Only numeric values are journaled for samples
+		}
+
+		private int id(String key)
+		{
+			Integer id = keys.get(key);
+			if(id == null)
+			{
+				id = writer.getId(key);
+				keys.put(key, id);
+			}
+
+			return id;
+		}
+
+		private void append(int key, long time, Object value)
+		{
+			if(value instanceof Double || value instanceof Float)
+			{
+				writer.append(JournalFormat.TYPE_DOUBLE, (byte) 0, path, key, time, Double.doubleToRawLongBits(((Number) value).doubleValue()));
+			}
+			else if(value instanceof Number)
+			{
+				writer.append(JournalFormat.TYPE_LONG, (byte) 0, path, key, time, ((Number) value).longValue());
+			}
+			else if(value instanceof Boolean)
+			{
+				writer.append(JournalFormat.TYPE_LONG, (byte) 0, path, key, time, ((Boolean) value) ? 1 : 0);
+			}
+		}
+	}
+
+	private class TimerJournaler
+		implements TimerListener
+	{
+		private final int path;
+
+		public TimerJournaler(int path)
+		{
+			this.path = path;
+		}
+
+		@Override
+		public void timingComplete(TimerEvent event)
+		{
+			writer.append(
+				JournalFormat.TYPE_TIMER,
+				(byte) event.getResolution().ordinal(),
+				path,
+				0,
+				System.currentTimeMillis(),
+				event.getDuration()
+			);
+		}
+	}
+
+	private class EventJournaler
+		implements EventListener<EventData>
+	{
+		private final int path;
+
+		public EventJournaler(int path)
+		{
+			this.path = path;
+		}
+
+		@Override
+		public void eventRegistered(Event<EventData> event)
+		{
+			writer.appendEvent(
+				(byte) event.getSeverity().ordinal(),
+				path,
+				System.currentTimeMillis(),
+				event.getData().toHumanReadable()
+			);
+		}
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private Duration samplingInterval;
+		private Path directory;
+		private int segmentSize;
+		private int maxSegments;
+
+		public Builder()
+		{
+			samplingInterval = Duration.ofSeconds(10);
+			segmentSize = 16 * 1024 * 1024;
+			maxSegments = 8;
+		}
+
+		/**
+		 * Set the sampling interval this backend should use for {@link Probe}s
+		 * and {@link SampledProbe}s.
+		 *
+		 * @param interval
+		 *   interval to use
+		 * @return
+		 */
+		public Builder withSamplingInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval can not be null");
+			this.samplingInterval = interval;
+
+			return this;
+		}
+
+		/**
+		 * Set the directory the journal is stored in.
+		 *
+		 * @param directory
+		 * @return
+		 */
+		public Builder withDirectory(Path directory)
+		{
+			this.directory = directory;
+			return this;
+		}
+
+		/**
+		 * Set the size of every segment in bytes, defaults to 16 MiB. The
+		 * size is rounded down to a whole number of blocks.
+		 *
+		 * @param bytes
+		 * @return
+		 */
+		public Builder withSegmentSize(int bytes)
+		{
+			if(bytes < JournalFormat.BLOCK_SIZE)
+			{
+				throw new IllegalArgumentException("Segments must be at least " + JournalFormat.BLOCK_SIZE + " bytes");
+			}
+
+			this.segmentSize = bytes;
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of segments to keep, defaults to 8.
+		 *
+		 * @param segments
+		 * @return
+		 */
+		public Builder withMaxSegments(int segments)
+		{
+			if(segments < 1)
+			{
+				throw new IllegalArgumentException("At least one segment must be kept");
+			}
+
+			this.maxSegments = segments;
+			return this;
+		}
+
+		/**
+		 * Build the instance, opening the journal.
+		 *
+		 * @return
+		 */
+		public JournalBackend build()
+		{
+			Objects.requireNonNull(directory, "directory is required");
+
+			try
+			{
+				JournalWriter writer = new JournalWriter(
+					directory,
+					segmentSize / JournalFormat.BLOCK_SIZE,
+					maxSegments
+				);
+
+				return new JournalBackend(samplingInterval, writer);
+			}
+			catch(IOException e)
+			{
+				throw new VibeException("Could not open journal in " + directory + "; " + e.getMessage(), e);
+			}
+		}
+	}
+}
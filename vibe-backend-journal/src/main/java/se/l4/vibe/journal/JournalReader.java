@@ -0,0 +1,426 @@
+package se.l4.vibe.journal;
+
+import static se.l4.vibe.journal.internal.JournalFormat.BLOCK_MAGIC;
+import static se.l4.vibe.journal.internal.JournalFormat.BLOCK_SIZE;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_FLAGS;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_KEY;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_PATH;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_TIME;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_TYPE;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_VALUE;
+import static se.l4.vibe.journal.internal.JournalFormat.RECORDS_PER_BLOCK;
+import static se.l4.vibe.journal.internal.JournalFormat.RECORD_SIZE;
+import static se.l4.vibe.journal.internal.JournalFormat.TRAILER_OFFSET;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.events.EventSeverity;
+import se.l4.vibe.events.Events;
+import se.l4.vibe.journal.internal.Dictionary;
+import se.l4.vibe.journal.internal.JournalFormat;
+import se.l4.vibe.journal.internal.ReplaySampler;
+import se.l4.vibe.journal.internal.ReplayedEvent;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.Timer;
+
+/**
+ * Reader of a journal written by {@link JournalBackend}. Records can either
+ * be read directly or replayed into another {@link VibeBackend}.
+ *
+ * <pre>
+ * JournalReader reader = JournalReader.open(Paths.get("/var/lib/app/metrics"));
+ * reader.replay(influxBackend);
+ * </pre>
+ *
+ * <p>
+ * Blocks with a CRC that does not match their records are skipped and
+ * counted, see {@link #getCorruptBlocks()}. The last block written before
+ * a crash does not have a CRC, its records are read as long as they are
+ * complete.
+ */
+public class JournalReader
+{
+	private static final JournalRecord.Type[] TYPES = JournalRecord.Type.values();
+	private static final TimeUnit[] UNITS = TimeUnit.values();
+	private static final EventSeverity[] SEVERITIES = EventSeverity.values();
+
+	private final Path directory;
+	private long corruptBlocks;
+
+	private JournalReader(Path directory)
+	{
+		this.directory = directory;
+	}
+
+	/**
+	 * Open the journal in the given directory.
+	 *
+	 * @param directory
+	 * @return
+	 * @throws IOException
+	 *   if the directory is not a journal
+	 */
+	@NonNull
+	public static JournalReader open(@NonNull Path directory)
+		throws IOException
+	{
+		if(! Files.isRegularFile(directory.resolve(JournalFormat.DICTIONARY)))
+		{
+			throw new IOException(directory + " does not contain a journal");
+		}
+
+		return new JournalReader(directory);
+	}
+
+	/**
+	 * Get the number of blocks that were skipped because their CRC did not
+	 * match.
+	 *
+	 * @return
+	 */
+	public long getCorruptBlocks()
+	{
+		return corruptBlocks;
+	}
+
+	/**
+	 * Read all of the records in the journal, from the oldest to the newest
+	 * segment.
+	 *
+	 * @param consumer
+	 * @throws IOException
+	 */
+	public void forEach(@NonNull Consumer<JournalRecord> consumer)
+		throws IOException
+	{
+		corruptBlocks = 0;
+
+		List<String> strings = Dictionary.read(directory.resolve(JournalFormat.DICTIONARY));
+
+		List<Path> segments;
+		try(Stream<Path> files = Files.list(directory))
+		{
+			segments = files.filter(p -> JournalFormat.segmentSequence(p.getFileName().toString()) >= 0)
+				.sorted()
+				.collect(Collectors.toList());
+		}
+
+		for(Path segment : segments)
+		{
+			ByteBuffer data;
+			try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ))
+			{
+				data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			catch(IOException e)
+			{
+				// Segments can be removed by a writer while reading
+				if(Files.exists(segment)) throw e;
+				continue;
+			}
+
+			for(int block=0, n=data.capacity() / BLOCK_SIZE; block<n; block++)
+			{
+				readBlock(data, block * BLOCK_SIZE, strings, consumer);
+			}
+		}
+	}
+
+	private void readBlock(
+		ByteBuffer data,
+		int offset,
+		List<String> strings,
+		Consumer<JournalRecord> consumer
+	)
+	{
+		int records = RECORDS_PER_BLOCK;
+		if(data.getInt(offset + TRAILER_OFFSET) == BLOCK_MAGIC)
+		{
+			records = data.getInt(offset + TRAILER_OFFSET + 4);
+			int expected = data.getInt(offset + TRAILER_OFFSET + 8);
+
+			ByteBuffer block = data.duplicate();
+			block.limit(offset + Math.min(records, RECORDS_PER_BLOCK) * RECORD_SIZE);
+			block.position(offset);
+
+			CRC32C crc = new CRC32C();
+			crc.update(block);
+			if(records > RECORDS_PER_BLOCK || (int) crc.getValue() != expected)
+			{
+				corruptBlocks++;
+				return;
+			}
+		}
+
+		for(int i=0; i<records; i++)
+		{
+			int record = offset + i * RECORD_SIZE;
+			int type = data.get(record + OFFSET_TYPE);
+			if(type <= 0 || type > TYPES.length)
+			{
+				// Slot was never written, or the write did not complete
+				continue;
+			}
+
+			String path = lookup(strings, data.getInt(record + OFFSET_PATH));
+			if(path == null) continue;
+
+			String key = lookup(strings, data.getInt(record + OFFSET_KEY));
+			long time = data.getLong(record + OFFSET_TIME);
+			long value = data.getLong(record + OFFSET_VALUE);
+			int flags = data.get(record + OFFSET_FLAGS);
+
+			JournalRecord.Type recordType = TYPES[type - 1];
+			if(flags < 0
+				|| (recordType == JournalRecord.Type.TIMER && flags >= UNITS.length)
+				|| (recordType == JournalRecord.Type.EVENT && flags >= SEVERITIES.length))
+			{
+				continue;
+			}
+
+			if(recordType == JournalRecord.Type.EVENT)
+			{
+				String message = readText(data, record, value, records - i - 1);
+				if(message != null)
+				{
+					// Skip the text records of the message
+					i += JournalFormat.textRecords((int) value);
+					consumer.accept(new JournalRecord(recordType, path, key, time, message, null, SEVERITIES[flags]));
+				}
+
+				continue;
+			}
+
+			switch(recordType)
+			{
+				case LONG:
+					consumer.accept(new JournalRecord(recordType, path, key, time, value, null, null));
+					break;
+				case DOUBLE:
+					consumer.accept(new JournalRecord(recordType, path, key, time, Double.longBitsToDouble(value), null, null));
+					break;
+				case TIMER:
+					consumer.accept(new JournalRecord(recordType, path, key, time, value, UNITS[flags], null));
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Read the message of an event from the text records following it.
+	 *
+	 * @param data
+	 * @param record
+	 *   offset of the event record
+	 * @param value
+	 *   length of the message in bytes, as stored in the event record
+	 * @param available
+	 *   number of records in the block after the event record
+	 * @return
+	 *   the message, or {@code null} if the text records are incomplete
+	 */
+	private static String readText(ByteBuffer data, int record, long value, int available)
+	{
+		if(value < 0 || value > JournalFormat.MAX_TEXT_LENGTH)
+		{
+			return null;
+		}
+
+		int length = (int) value;
+		int texts = JournalFormat.textRecords(length);
+		if(texts > available)
+		{
+			return null;
+		}
+
+		byte[] bytes = new byte[length];
+		for(int i=0; i<texts; i++)
+		{
+			int text = record + (i + 1) * RECORD_SIZE;
+			if(data.get(text + OFFSET_TYPE) != JournalFormat.TYPE_TEXT)
+			{
+				// The write of the text did not complete
+				return null;
+			}
+
+			int from = i * JournalFormat.TEXT_PER_RECORD;
+			for(int j=0, n=Math.min(JournalFormat.TEXT_PER_RECORD, length - from); j<n; j++)
+			{
+				bytes[from + j] = data.get(text + 1 + j);
+			}
+		}
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String lookup(List<String> strings, int id)
+	{
+		return id > 0 && id < strings.size() ? strings.get(id) : null;
+	}
+
+	/**
+	 * Replay all of the records in this journal into the given backend.
+	 * Samples are emitted with the time they were sampled at, values of
+	 * snapshots are merged back into a single snapshot. Timers and events
+	 * are replayed as they would be registered, so backends that record the
+	 * time of them will see the time of the replay.
+	 *
+	 * @param backend
+	 * @throws IOException
+	 */
+	public void replay(@NonNull VibeBackend backend)
+		throws IOException
+	{
+		Replayer replayer = new Replayer(backend);
+		try
+		{
+			forEach(replayer);
+			replayer.flushSnapshots();
+		}
+		finally
+		{
+			replayer.release();
+		}
+	}
+
+	private static class Replayer
+		implements Consumer<JournalRecord>
+	{
+		private final VibeBackend backend;
+		private final List<Handle> handles;
+
+		private final Map<String, ReplaySampler> samplers;
+		private final Map<String, Timer> timers;
+		private final Map<String, Events<ReplayedEvent>> events;
+		private final Map<String, PendingSnapshot> snapshots;
+
+		public Replayer(VibeBackend backend)
+		{
+			this.backend = backend;
+
+			handles = new ArrayList<>();
+			samplers = new HashMap<>();
+			timers = new HashMap<>();
+			events = new HashMap<>();
+			snapshots = new HashMap<>();
+		}
+
+		@Override
+		public void accept(JournalRecord record)
+		{
+			String path = record.getPath();
+			switch(record.getType())
+			{
+				case LONG:
+				case DOUBLE:
+					if(record.getKey() == null)
+					{
+						flushSnapshot(path);
+						sampler(path).emit(Sample.create(record.getTime(), record.getValue()));
+					}
+					else
+					{
+						PendingSnapshot pending = snapshots.get(path);
+						if(pending != null && pending.time != record.getTime())
+						{
+							flushSnapshot(path);
+							pending = null;
+						}
+
+						if(pending == null)
+						{
+							pending = new PendingSnapshot(record.getTime());
+							snapshots.put(path, pending);
+						}
+
+						pending.builder.set(record.getKey(), record.getValue());
+					}
+					break;
+				case TIMER:
+					timers.computeIfAbsent(path, p -> {
+						Timer timer = Timer.builder()
+							.withResolution(record.getResolution())
+							.build();
+
+						handles.add(backend.export(p, timer));
+						return timer;
+					}).record((Long) record.getValue(), record.getResolution());
+					break;
+				case EVENT:
+					events.computeIfAbsent(path, p -> {
+						Events<ReplayedEvent> e = Events.<ReplayedEvent>builder()
+							.build();
+
+						handles.add(backend.export(p, e));
+						return e;
+					}).register(record.getSeverity(), new ReplayedEvent((String) record.getValue()));
+					break;
+			}
+		}
+
+		private ReplaySampler sampler(String path)
+		{
+			return samplers.computeIfAbsent(path, p -> {
+				ReplaySampler sampler = new ReplaySampler();
+				handles.add(backend.export(p, sampler));
+				return sampler;
+			});
+		}
+
+		private void flushSnapshot(String path)
+		{
+			PendingSnapshot pending = snapshots.remove(path);
+			if(pending != null)
+			{
+				sampler(path).emit(Sample.create(pending.time, pending.builder.build()));
+			}
+		}
+
+		public void flushSnapshots()
+		{
+			for(String path : new ArrayList<>(snapshots.keySet()))
+			{
+				flushSnapshot(path);
+			}
+		}
+
+		public void release()
+		{
+			for(Handle handle : handles)
+			{
+				handle.release();
+			}
+		}
+	}
+
+	private static class PendingSnapshot
+	{
+		private final long time;
+		private final MapSnapshot.Builder builder;
+
+		public PendingSnapshot(long time)
+		{
+			this.time = time;
+			builder = MapSnapshot.builder();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package se.l4.vibe.journal;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
+import se.l4.vibe.events.EventSeverity;
+
+/**
+ * Record read from a journal.
+ */
+public class JournalRecord
+{
+	/**
+	 * Type of record.
+	 */
+	public enum Type
+	{
+		/**
+		 * Sampled value stored as a long, booleans are stored as {@code 1}
+		 * or {@code 0}.
+		 */
+		LONG,
+		/**
+		 * Sampled value stored as a double.
+		 */
+		DOUBLE,
+		/**
+		 * Time measured by a timer.
+		 */
+		TIMER,
+		/**
+		 * Event that was registered.
+		 */
+		EVENT
+	}
+
+	private final Type type;
+	private final String path;
+	private final String key;
+	private final long time;
+	private final Object value;
+	private final TimeUnit resolution;
+	private final EventSeverity severity;
+
+	public JournalRecord(
+		Type type,
+		String path,
+		String key,
+		long time,
+		Object value,
+		TimeUnit resolution,
+		EventSeverity severity
+	)
+	{
+		this.type = type;
+		this.path = path;
+		this.key = key;
+		this.time = time;
+		this.value = value;
+		this.resolution = resolution;
+		this.severity = severity;
+	}
+
+	@NonNull
+	public Type getType()
+	{
+		return type;
+	}
+
+	/**
+	 * Get the path the record was exported at.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public String getPath()
+	{
+		return path;
+	}
+
+	/**
+	 * Get the key if this record is a value of a snapshot.
+	 *
+	 * @return
+	 */
+	@Nullable
+	public String getKey()
+	{
+		return key;
+	}
+
+	/**
+	 * Get the time of the record in milliseconds since the epoch.
+	 *
+	 * @return
+	 */
+	public long getTime()
+	{
+		return time;
+	}
+
+	/**
+	 * Get the value of the record. Samples have a {@link Long} or a
+	 * {@link Double}, timers have their measured time as a {@link Long} and
+	 * events have their human readable message.
+	 *
+	 * @return
+	 */
+	@NonNull
+	public Object getValue()
+	{
+		return value;
+	}
+
+	/**
+	 * Get the resolution of the measured time of a timer.
+	 *
+	 * @return
+	 */
+	@Nullable
+	public TimeUnit getResolution()
+	{
+		return resolution;
+	}
+
+	/**
+	 * Get the severity of an event.
+	 *
+	 * @return
+	 */
+	@Nullable
+	public EventSeverity getSeverity()
+	{
+		return severity;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder()
+			.append(Instant.ofEpochMilli(time))
+			.append(' ')
+			.append(type)
+			.append(' ')
+			.append(path);
+
+		if(key != null)
+		{
+			builder.append('[').append(key).append(']');
+		}
+
+		builder.append(' ').append(value);
+
+		if(resolution != null)
+		{
+			builder.append(' ').append(resolution);
+		}
+
+		if(severity != null)
+		{
+			builder.append(' ').append(severity);
+		}
+
+		return builder.toString();
+	}
+}
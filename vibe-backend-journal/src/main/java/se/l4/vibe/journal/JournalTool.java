@@ -0,0 +1,90 @@
+package se.l4.vibe.journal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.function.Supplier;
+
+import se.l4.vibe.VibeBackend;
+
+/**
+ * Command line tool for journals.
+ *
+ * <pre>
+ * JournalTool dump &lt;directory&gt;
+ * JournalTool replay &lt;directory&gt; &lt;factory class&gt;
+ * </pre>
+ *
+ * {@code dump} prints all records in a journal. {@code replay} sends all
+ * records to a backend, the backend is created by a class with a public
+ * no-argument constructor that implements {@code Supplier<VibeBackend>}.
+ */
+public class JournalTool
+{
+	private JournalTool()
+	{
+	}
+
+	public static void main(String[] args)
+		throws Exception
+	{
+		if(args.length < 2)
+		{
+			usage();
+			return;
+		}
+
+		Path directory = Paths.get(args[1]);
+		JournalReader reader = JournalReader.open(directory);
+
+		switch(args[0])
+		{
+			case "dump":
+				reader.forEach(System.out::println);
+				break;
+			case "replay":
+				if(args.length < 3)
+				{
+					usage();
+					return;
+				}
+
+				replay(reader, args[2]);
+				break;
+			default:
+				usage();
+				return;
+		}
+
+		if(reader.getCorruptBlocks() > 0)
+		{
+			System.err.println("Skipped " + reader.getCorruptBlocks() + " corrupt blocks");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void replay(JournalReader reader, String factoryClass)
+		throws ReflectiveOperationException, IOException
+	{
+		Supplier<VibeBackend> factory = (Supplier<VibeBackend>) Class.forName(factoryClass)
+			.getConstructor()
+			.newInstance();
+
+		VibeBackend backend = factory.get();
+		try
+		{
+			reader.replay(backend);
+		}
+		finally
+		{
+			backend.close();
+		}
+	}
+
+	private static void usage()
+	{
+		System.err.println("Usage:");
+		System.err.println("  JournalTool dump <directory>");
+		System.err.println("  JournalTool replay <directory> <class implementing Supplier<VibeBackend>>");
+	}
+}
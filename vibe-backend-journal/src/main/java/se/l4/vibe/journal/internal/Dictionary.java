@@ -0,0 +1,162 @@
+package se.l4.vibe.journal.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import se.l4.vibe.VibeException;
+
+/**
+ * Dictionary of the paths and keys used in a journal. Records refer
+ * to strings by their id so that they can have a fixed width. Ids start at
+ * {@code 1}, {@code 0} is used for no string.
+ */
+public class Dictionary
+{
+	private static final int MAX_LENGTH = 0xffff;
+
+	private final Map<String, Integer> ids;
+	private final List<String> strings;
+	private final FileChannel channel;
+
+	private Dictionary(List<String> strings, FileChannel channel)
+	{
+		this.strings = strings;
+		this.channel = channel;
+
+		ids = new ConcurrentHashMap<>();
+		for(int i=1; i<strings.size(); i++)
+		{
+			ids.put(strings.get(i), i);
+		}
+	}
+
+	/**
+	 * Open the dictionary for writing, loading any existing strings.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Dictionary openForWriting(Path file)
+		throws IOException
+	{
+		List<String> strings = read(file);
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		return new Dictionary(strings, channel);
+	}
+
+	/**
+	 * Read all the strings in the given dictionary file. The returned list
+	 * is indexed by id.
+	 *
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<String> read(Path file)
+		throws IOException
+	{
+		List<String> strings = new ArrayList<>();
+		strings.add(null);
+
+		if(! Files.exists(file))
+		{
+			return strings;
+		}
+
+		ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file));
+		while(data.remaining() >= 6)
+		{
+			int id = data.getInt();
+			int length = data.getShort() & 0xffff;
+			if(id != strings.size() || data.remaining() < length)
+			{
+				// Partially written entry at the end of the file
+				break;
+			}
+
+			byte[] bytes = new byte[length];
+			data.get(bytes);
+			strings.add(new String(bytes, StandardCharsets.UTF_8));
+		}
+
+		return strings;
+	}
+
+	/**
+	 * Get the id for the given string, adding it to the dictionary if needed.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public int getId(String value)
+	{
+		Integer id = ids.get(value);
+		if(id != null)
+		{
+			return id;
+		}
+
+		synchronized(this)
+		{
+			id = ids.get(value);
+			if(id != null)
+			{
+				return id;
+			}
+
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			if(bytes.length > MAX_LENGTH)
+			{
+				throw new IllegalArgumentException("String is too long to be stored in the journal");
+			}
+
+			int newId = strings.size();
+			ByteBuffer entry = ByteBuffer.allocate(6 + bytes.length);
+			entry.putInt(newId);
+			entry.putShort((short) bytes.length);
+			entry.put(bytes);
+			entry.flip();
+
+			try
+			{
+				while(entry.hasRemaining())
+				{
+					channel.write(entry);
+				}
+			}
+			catch(IOException e)
+			{
+				throw new VibeException("Could not write to dictionary; " + e.getMessage(), e);
+			}
+
+			strings.add(value);
+			ids.put(value, newId);
+			return newId;
+		}
+	}
+
+	/**
+	 * Close the dictionary.
+	 *
+	 * @throws IOException
+	 */
+	public void close()
+		throws IOException
+	{
+		synchronized(this)
+		{
+			channel.force(true);
+			channel.close();
+		}
+	}
+}
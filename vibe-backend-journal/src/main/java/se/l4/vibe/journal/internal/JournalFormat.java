@@ -0,0 +1,120 @@
+package se.l4.vibe.journal.internal;
+
+/**
+ * Constants describing the binary format of the journal.
+ *
+ * <p>
+ * A journal is a directory with a dictionary file and a number of segment
+ * files. Segments are split into blocks of {@value #BLOCK_SIZE} bytes, each
+ * block holds {@value #RECORDS_PER_BLOCK} fixed-width records followed by a
+ * trailer with the number of records and a CRC of the records.
+ *
+ * <p>
+ * Record layout:
+ * <pre>
+ *  0  type (byte), 0 for slots that have not been written
+ *  1  flags (byte), severity of events or resolution of timers
+ *  4  id of the path (int)
+ *  8  id of the key for snapshot values (int), 0 for no key
+ * 16  time in milliseconds (long)
+ * 24  value (long), raw bits for doubles, length of the message for events
+ * </pre>
+ *
+ * Events are followed by text records in the same block that hold the
+ * message encoded as UTF-8:
+ * <pre>
+ *  0  type (byte), {@link #TYPE_TEXT}
+ *  1  up to {@value #TEXT_PER_RECORD} bytes of the message
+ * </pre>
+ *
+ * Trailer layout:
+ * <pre>
+ *  0  magic (int)
+ *  4  number of records (int)
+ *  8  CRC32C of the records (int)
+ * </pre>
+ *
+ * The dictionary holds paths and keys as a sequence of entries with an id
+ * (int), the length of the string (unsigned short) and the string encoded
+ * as UTF-8.
+ */
+public class JournalFormat
+{
+	public static final int RECORD_SIZE = 32;
+	public static final int BLOCK_SIZE = 4096;
+	public static final int RECORDS_PER_BLOCK = BLOCK_SIZE / RECORD_SIZE - 1;
+	public static final int TRAILER_OFFSET = RECORDS_PER_BLOCK * RECORD_SIZE;
+
+	public static final int BLOCK_MAGIC = 0x56424c4b;
+
+	public static final byte TYPE_LONG = 1;
+	public static final byte TYPE_DOUBLE = 2;
+	public static final byte TYPE_TIMER = 3;
+	public static final byte TYPE_EVENT = 4;
+	public static final byte TYPE_TEXT = 5;
+
+	public static final int TEXT_PER_RECORD = RECORD_SIZE - 1;
+	public static final int MAX_TEXT_LENGTH = (RECORDS_PER_BLOCK - 1) * TEXT_PER_RECORD;
+
+	public static final int OFFSET_TYPE = 0;
+	public static final int OFFSET_FLAGS = 1;
+	public static final int OFFSET_PATH = 4;
+	public static final int OFFSET_KEY = 8;
+	public static final int OFFSET_TIME = 16;
+	public static final int OFFSET_VALUE = 24;
+
+	public static final String DICTIONARY = "dictionary.vjd";
+	public static final String SEGMENT_PREFIX = "segment-";
+	public static final String SEGMENT_SUFFIX = ".vj";
+
+	private JournalFormat()
+	{
+	}
+
+	/**
+	 * Get the number of text records needed for a message.
+	 *
+	 * @param length
+	 *   the length of the message in bytes
+	 * @return
+	 */
+	public static int textRecords(int length)
+	{
+		return (length + TEXT_PER_RECORD - 1) / TEXT_PER_RECORD;
+	}
+
+	/**
+	 * Get the file name of the segment with the given sequence number.
+	 *
+	 * @param sequence
+	 * @return
+	 */
+	public static String segmentName(long sequence)
+	{
+		return String.format("%s%012d%s", SEGMENT_PREFIX, sequence, SEGMENT_SUFFIX);
+	}
+
+	/**
+	 * Get the sequence number of a segment from its file name.
+	 *
+	 * @param name
+	 * @return
+	 *   sequence number or {@code -1} if the name is not of a segment
+	 */
+	public static long segmentSequence(String name)
+	{
+		if(! name.startsWith(SEGMENT_PREFIX) || ! name.endsWith(SEGMENT_SUFFIX))
+		{
+			return -1;
+		}
+
+		try
+		{
+			return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+		}
+		catch(NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+}
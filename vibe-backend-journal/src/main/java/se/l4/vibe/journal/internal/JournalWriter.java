@@ -0,0 +1,208 @@
+package se.l4.vibe.journal.internal;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.VibeException;
+
+/**
+ * Writer of a journal. Appends go directly to the current {@link Segment},
+ * a lock is only taken when the segment is full and a new one needs to be
+ * created.
+ */
+public class JournalWriter
+{
+	private static final Logger logger = LoggerFactory.getLogger(JournalWriter.class);
+
+	private final Path directory;
+	private final int blocksPerSegment;
+	private final int maxSegments;
+
+	private final Dictionary dictionary;
+	private final ArrayDeque<Path> segments;
+
+	private long sequence;
+	private volatile Segment current;
+	private volatile boolean closed;
+
+	public JournalWriter(Path directory, int blocksPerSegment, int maxSegments)
+		throws IOException
+	{
+		this.directory = directory;
+		this.blocksPerSegment = blocksPerSegment;
+		this.maxSegments = maxSegments;
+
+		Files.createDirectories(directory);
+
+		dictionary = Dictionary.openForWriting(directory.resolve(JournalFormat.DICTIONARY));
+		segments = new ArrayDeque<>();
+
+		try(Stream<Path> files = Files.list(directory))
+		{
+			files.filter(p -> JournalFormat.segmentSequence(p.getFileName().toString()) >= 0)
+				.sorted()
+				.forEach(segments::add);
+		}
+
+		Path last = segments.peekLast();
+		sequence = last == null ? 0 : JournalFormat.segmentSequence(last.getFileName().toString());
+
+		current = nextSegment();
+	}
+
+	/**
+	 * Get the id used for the given string, used for paths and keys.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public int getId(String value)
+	{
+		return dictionary.getId(value);
+	}
+
+	/**
+	 * Append a record to the journal. Records appended after the journal
+	 * has been closed are dropped.
+	 */
+	public void append(byte type, byte flags, int path, int key, long time, long value)
+	{
+		while(! closed)
+		{
+			Segment segment = current;
+			if(segment.append(type, flags, path, key, time, value))
+			{
+				return;
+			}
+
+			rotate(segment);
+		}
+	}
+
+	/**
+	 * Append an event to the journal, with its message stored in the
+	 * segment. Messages longer than {@link JournalFormat#MAX_TEXT_LENGTH}
+	 * bytes are truncated. Events appended after the journal has been closed
+	 * are dropped.
+	 */
+	public void appendEvent(byte flags, int path, long time, String message)
+	{
+		byte[] bytes = encode(message);
+		while(! closed)
+		{
+			Segment segment = current;
+			if(segment.appendEvent(flags, path, time, bytes))
+			{
+				return;
+			}
+
+			rotate(segment);
+		}
+	}
+
+	/**
+	 * Encode a message as UTF-8, truncating it on a character boundary if
+	 * it is too long.
+	 *
+	 * @param message
+	 * @return
+	 */
+	private static byte[] encode(String message)
+	{
+		byte[] bytes = message.getBytes(StandardCharsets.UTF_8);
+		if(bytes.length <= JournalFormat.MAX_TEXT_LENGTH)
+		{
+			return bytes;
+		}
+
+		int length = JournalFormat.MAX_TEXT_LENGTH;
+		while(length > 0 && (bytes[length] & 0xc0) == 0x80)
+		{
+			// Do not cut a multi-byte character in half
+			length--;
+		}
+
+		return Arrays.copyOf(bytes, length);
+	}
+
+	private void rotate(Segment full)
+	{
+		synchronized(this)
+		{
+			if(current != full || closed)
+			{
+				// Another thread already rotated
+				return;
+			}
+
+			current = nextSegment();
+		}
+
+		// Flush outside of the lock so other writers can use the new segment
+		full.close();
+	}
+
+	private Segment nextSegment()
+	{
+		sequence++;
+		Path file = directory.resolve(JournalFormat.segmentName(sequence));
+
+		Segment segment;
+		try
+		{
+			segment = Segment.create(file, blocksPerSegment);
+		}
+		catch(IOException e)
+		{
+			throw new VibeException("Could not create journal segment " + file + "; " + e.getMessage(), e);
+		}
+
+		segments.addLast(file);
+		while(segments.size() > maxSegments)
+		{
+			Path oldest = segments.removeFirst();
+			try
+			{
+				Files.deleteIfExists(oldest);
+			}
+			catch(IOException e)
+			{
+				logger.warn("Could not remove old journal segment " + oldest + "; " + e.getMessage(), e);
+			}
+		}
+
+		return segment;
+	}
+
+	/**
+	 * Close the journal, waiting for appends that are in progress and
+	 * flushing everything to disk.
+	 */
+	public void close()
+	{
+		synchronized(this)
+		{
+			if(closed) return;
+
+			closed = true;
+			current.close();
+
+			try
+			{
+				dictionary.close();
+			}
+			catch(IOException e)
+			{
+				logger.warn("Could not close journal dictionary; " + e.getMessage(), e);
+			}
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package se.l4.vibe.journal.internal;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.sampling.TimeSampler;
+
+/**
+ * {@link TimeSampler} that emits samples read from a journal, keeping the
+ * time they were originally sampled at.
+ */
+public class ReplaySampler
+	implements TimeSampler<Object>
+{
+	private final CopyOnWriteArrayList<SampleListener<Object>> listeners;
+	private volatile Sample<Object> lastSample;
+
+	public ReplaySampler()
+	{
+		listeners = new CopyOnWriteArrayList<>();
+	}
+
+	/**
+	 * Emit a sample to all listeners.
+	 *
+	 * @param sample
+	 */
+	public void emit(Sample<Object> sample)
+	{
+		lastSample = sample;
+		for(SampleListener<Object> listener : listeners)
+		{
+			listener.sampleAcquired(sample);
+		}
+	}
+
+	@Override
+	public Sample<Object> getLastSample()
+	{
+		return lastSample;
+	}
+
+	@Override
+	public Handle start()
+	{
+		return Handle.empty();
+	}
+
+	@Override
+	public Handle addListener(SampleListener<Object> listener)
+	{
+		listeners.add(listener);
+		return () -> removeListener(listener);
+	}
+
+	@Override
+	public void removeListener(SampleListener<Object> listener)
+	{
+		listeners.remove(listener);
+	}
+}
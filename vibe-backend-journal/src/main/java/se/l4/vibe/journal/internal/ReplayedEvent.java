@@ -0,0 +1,30 @@
+package se.l4.vibe.journal.internal;
+
+import se.l4.vibe.events.EventData;
+
+/**
+ * Event read from a journal, only the human readable message of events is
+ * kept in a journal.
+ */
+public class ReplayedEvent
+	implements EventData
+{
+	private final String message;
+
+	public ReplayedEvent(String message)
+	{
+		this.message = message;
+	}
+
+	@Override
+	public String toHumanReadable()
+	{
+		return message;
+	}
+
+	@Override
+	public String toString()
+	{
+		return message;
+	}
+}
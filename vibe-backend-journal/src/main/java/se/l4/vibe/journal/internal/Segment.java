@@ -0,0 +1,309 @@
+package se.l4.vibe.journal.internal;
+
+import static se.l4.vibe.journal.internal.JournalFormat.BLOCK_MAGIC;
+import static se.l4.vibe.journal.internal.JournalFormat.BLOCK_SIZE;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_FLAGS;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_KEY;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_PATH;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_TIME;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_TYPE;
+import static se.l4.vibe.journal.internal.JournalFormat.OFFSET_VALUE;
+import static se.l4.vibe.journal.internal.JournalFormat.RECORDS_PER_BLOCK;
+import static se.l4.vibe.journal.internal.JournalFormat.RECORD_SIZE;
+import static se.l4.vibe.journal.internal.JournalFormat.TRAILER_OFFSET;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory-mapped segment of a journal that is being written to.
+ *
+ * <p>
+ * Writers reserve a slot by incrementing a counter and then write their
+ * record directly into the mapped file, so appends never take a lock. Every
+ * block counts the records written to it, the writer that completes a block
+ * calculates the CRC of the block and writes its trailer.
+ *
+ * <p>
+ * Events reserve a run of slots for the record and its text that never
+ * crosses a block, slots skipped at the end of a block are left empty and
+ * counted as written.
+ *
+ * <p>
+ * Closing stops new reservations and waits for writers that have already
+ * reserved a slot before sealing the last block, so the CRC never covers a
+ * record that is still being written.
+ */
+public class Segment
+{
+	private static final Logger logger = LoggerFactory.getLogger(Segment.class);
+
+	/**
+	 * How long closing waits for writers that have reserved a slot.
+	 */
+	private static final long DRAIN_TIMEOUT = TimeUnit.SECONDS.toNanos(5);
+
+	private final Path file;
+	private final MappedByteBuffer buffer;
+	private final long capacity;
+
+	private final AtomicLong reserved;
+	private final AtomicIntegerArray written;
+
+	private Segment(Path file, MappedByteBuffer buffer, int blocks)
+	{
+		this.file = file;
+		this.buffer = buffer;
+
+		capacity = (long) blocks * RECORDS_PER_BLOCK;
+		reserved = new AtomicLong();
+		written = new AtomicIntegerArray(blocks);
+	}
+
+	/**
+	 * Create a new segment.
+	 *
+	 * @param file
+	 * @param blocks
+	 *   the number of blocks in the segment
+	 * @return
+	 * @throws IOException
+	 */
+	public static Segment create(Path file, int blocks)
+		throws IOException
+	{
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) blocks * BLOCK_SIZE);
+			return new Segment(file, buffer, blocks);
+		}
+	}
+
+	public Path getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * Try to append a record to this segment.
+	 *
+	 * @return
+	 *   {@code true} if the record was written, {@code false} if the segment
+	 *   is full
+	 */
+	public boolean append(byte type, byte flags, int path, int key, long time, long value)
+	{
+		long index = reserved.getAndIncrement();
+		if(index >= capacity)
+		{
+			return false;
+		}
+
+		int block = (int) (index / RECORDS_PER_BLOCK);
+		int offset = block * BLOCK_SIZE + (int) (index % RECORDS_PER_BLOCK) * RECORD_SIZE;
+
+		buffer.put(offset + OFFSET_FLAGS, flags);
+		buffer.putInt(offset + OFFSET_PATH, path);
+		buffer.putInt(offset + OFFSET_KEY, key);
+		buffer.putLong(offset + OFFSET_TIME, time);
+		buffer.putLong(offset + OFFSET_VALUE, value);
+
+		// The type is written last as it marks the slot as used
+		buffer.put(offset + OFFSET_TYPE, type);
+
+		written(block, 1);
+		return true;
+	}
+
+	/**
+	 * Try to append an event to this segment. The event record is followed
+	 * by {@link JournalFormat#TEXT_RECORDS text records} holding the message.
+	 *
+	 * @param flags
+	 * @param path
+	 * @param time
+	 * @param message
+	 *   the message encoded as UTF-8, at most
+	 *   {@link JournalFormat#MAX_TEXT_LENGTH} bytes
+	 * @return
+	 *   {@code true} if the event was written, {@code false} if the segment
+	 *   is full
+	 */
+	public boolean appendEvent(byte flags, int path, long time, byte[] message)
+	{
+		int slots = 1 + JournalFormat.textRecords(message.length);
+
+		long index;
+		long start;
+		while(true)
+		{
+			index = reserved.get();
+			if(index >= capacity)
+			{
+				return false;
+			}
+
+			// Move to the next block if the run does not fit in this one
+			long inBlock = index % RECORDS_PER_BLOCK;
+			start = inBlock + slots > RECORDS_PER_BLOCK
+				? index - inBlock + RECORDS_PER_BLOCK
+				: index;
+
+			long end = Math.min(start + slots, capacity);
+			if(reserved.compareAndSet(index, end))
+			{
+				break;
+			}
+		}
+
+		if(start > index)
+		{
+			// Skipped slots at the end of the block are left empty
+			written((int) (index / RECORDS_PER_BLOCK), (int) (start - index));
+		}
+
+		if(start + slots > capacity)
+		{
+			// The run did not fit in the last block of the segment
+			return false;
+		}
+
+		int block = (int) (start / RECORDS_PER_BLOCK);
+		int offset = block * BLOCK_SIZE + (int) (start % RECORDS_PER_BLOCK) * RECORD_SIZE;
+
+		for(int i=0, n=slots - 1; i<n; i++)
+		{
+			int text = offset + (i + 1) * RECORD_SIZE;
+			int from = i * JournalFormat.TEXT_PER_RECORD;
+			int length = Math.min(JournalFormat.TEXT_PER_RECORD, message.length - from);
+			for(int j=0; j<length; j++)
+			{
+				buffer.put(text + 1 + j, message[from + j]);
+			}
+
+			buffer.put(text + OFFSET_TYPE, JournalFormat.TYPE_TEXT);
+		}
+
+		buffer.put(offset + OFFSET_FLAGS, flags);
+		buffer.putInt(offset + OFFSET_PATH, path);
+		buffer.putInt(offset + OFFSET_KEY, 0);
+		buffer.putLong(offset + OFFSET_TIME, time);
+		buffer.putLong(offset + OFFSET_VALUE, message.length);
+		buffer.put(offset + OFFSET_TYPE, JournalFormat.TYPE_EVENT);
+
+		written(block, slots);
+		return true;
+	}
+
+	/**
+	 * Mark that slots in the given block have been written, sealing the
+	 * block if it is complete.
+	 *
+	 * @param block
+	 * @param slots
+	 */
+	private void written(int block, int slots)
+	{
+		if(written.addAndGet(block, slots) == RECORDS_PER_BLOCK)
+		{
+			seal(block, RECORDS_PER_BLOCK);
+		}
+	}
+
+	/**
+	 * Write the trailer for the given block.
+	 *
+	 * @param block
+	 * @param records
+	 */
+	private void seal(int block, int records)
+	{
+		int offset = block * BLOCK_SIZE;
+
+		ByteBuffer data = buffer.duplicate();
+		data.limit(offset + records * RECORD_SIZE);
+		data.position(offset);
+
+		CRC32C crc = new CRC32C();
+		crc.update(data);
+
+		buffer.putInt(offset + TRAILER_OFFSET + 4, records);
+		buffer.putInt(offset + TRAILER_OFFSET + 8, (int) crc.getValue());
+		buffer.putInt(offset + TRAILER_OFFSET, BLOCK_MAGIC);
+	}
+
+	/**
+	 * Close this segment, sealing the last block if it is only partially
+	 * filled and flushing the data to disk. Appends started after this
+	 * return {@code false}.
+	 */
+	public void close()
+	{
+		// Push the counter past the capacity so no new slots are reserved
+		long end = Math.min(reserved.getAndAdd(capacity), capacity);
+
+		if(awaitWritten(end))
+		{
+			int block = (int) (end / RECORDS_PER_BLOCK);
+			int records = (int) (end % RECORDS_PER_BLOCK);
+			if(records > 0)
+			{
+				seal(block, records);
+			}
+		}
+		else
+		{
+			/*
+			 * A writer did not finish, leave the block without a trailer so
+			 * that readers check every record instead of the CRC.
+			 */
+			logger.warn("Timed out waiting for writes to " + file + ", last block is not sealed");
+		}
+
+		buffer.force();
+	}
+
+	/**
+	 * Wait until every reserved slot has been written.
+	 *
+	 * @param end
+	 *   the number of reserved slots
+	 * @return
+	 *   if all slots were written before timing out
+	 */
+	private boolean awaitWritten(long end)
+	{
+		long deadline = System.nanoTime() + DRAIN_TIMEOUT;
+		while(true)
+		{
+			long total = 0;
+			for(int i=0, n=written.length(); i<n; i++)
+			{
+				total += written.get(i);
+			}
+
+			if(total >= end)
+			{
+				return true;
+			}
+
+			if(System.nanoTime() - deadline > 0)
+			{
+				return false;
+			}
+
+			Thread.yield();
+		}
+	}
+}
@@ -0,0 +1,388 @@
+package se.l4.vibe.journal;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.events.EventData;
+import se.l4.vibe.events.EventSeverity;
+import se.l4.vibe.events.Events;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.snapshots.MapSnapshot;
+import se.l4.vibe.timers.Timer;
+
+public class JournalBackendTest
+{
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testRecordsRoundTrip()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.withSamplingInterval(Duration.ofMillis(10))
+			.build();
+
+		Probe<Integer> probe = () -> 42;
+		backend.export("probe", probe);
+
+		Timer timer = Timer.builder().build();
+		backend.export("timer", timer);
+		timer.record(10, TimeUnit.MILLISECONDS);
+		timer.record(20, TimeUnit.MILLISECONDS);
+
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("events", events);
+		events.register(EventSeverity.ERROR, new TestEvent("failed"));
+
+		Thread.sleep(100);
+		backend.close();
+
+		List<JournalRecord> records = read(directory);
+
+		List<JournalRecord> timings = filter(records, "timer");
+		assertThat(timings.size(), is(2));
+		assertThat(timings.get(1).getType(), is(JournalRecord.Type.TIMER));
+		assertThat(timings.get(1).getValue(), is(20l));
+		assertThat(timings.get(1).getResolution(), is(TimeUnit.MILLISECONDS));
+
+		List<JournalRecord> registered = filter(records, "events");
+		assertThat(registered.size(), is(1));
+		assertThat(registered.get(0).getValue(), is("failed"));
+		assertThat(registered.get(0).getSeverity(), is(EventSeverity.ERROR));
+
+		List<JournalRecord> samples = filter(records, "probe");
+		assertThat(samples.size(), is(greaterThan(0)));
+		assertThat(samples.get(0).getValue(), is(42l));
+	}
+
+	@Test
+	public void testConcurrentAppends()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.withSegmentSize(64 * 4096)
+			.withMaxSegments(100)
+			.build();
+
+		Timer timer = Timer.builder().build();
+		backend.export("timer", timer);
+
+		List<Thread> threads = new ArrayList<>();
+		for(int i=0; i<4; i++)
+		{
+			Thread thread = new Thread(() -> {
+				for(int j=0; j<10000; j++)
+				{
+					timer.record(j, TimeUnit.MILLISECONDS);
+				}
+			});
+			thread.start();
+			threads.add(thread);
+		}
+
+		for(Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		backend.close();
+
+		JournalReader reader = JournalReader.open(directory);
+		List<JournalRecord> records = new ArrayList<>();
+		reader.forEach(records::add);
+
+		assertThat(records.size(), is(40000));
+		assertThat(reader.getCorruptBlocks(), is(0l));
+	}
+
+	@Test
+	public void testEventMessagesAreStoredInSegments()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.build();
+
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("events", events);
+
+		StringBuilder longMessage = new StringBuilder();
+		for(int i=0; i<70000; i++)
+		{
+			longMessage.append('\u00e5');
+		}
+
+		for(int i=0; i<1000; i++)
+		{
+			events.register(EventSeverity.INFO, new TestEvent("event " + i));
+		}
+
+		events.register(EventSeverity.WARN, new TestEvent(longMessage.toString()));
+		events.register(EventSeverity.ERROR, new TestEvent(""));
+
+		backend.close();
+
+		// Only the path is kept in the dictionary
+		assertThat(Files.size(directory.resolve("dictionary.vjd")), is(lessThanOrEqualTo(100l)));
+
+		List<JournalRecord> records = filter(read(directory), "events");
+		assertThat(records.size(), is(1002));
+		for(int i=0; i<1000; i++)
+		{
+			assertThat(records.get(i).getValue(), is("event " + i));
+		}
+
+		String truncated = (String) records.get(1000).getValue();
+		assertThat(truncated.length(), is(greaterThan(1000)));
+		assertThat(longMessage.toString().startsWith(truncated), is(true));
+		assertThat(records.get(1000).getSeverity(), is(EventSeverity.WARN));
+
+		assertThat(records.get(1001).getValue(), is(""));
+	}
+
+	@Test
+	public void testCloseWaitsForConcurrentAppends()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.withSegmentSize(64 * 4096)
+			.withMaxSegments(100)
+			.build();
+
+		Timer timer = Timer.builder().build();
+		backend.export("timer", timer);
+
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("events", events);
+
+		AtomicBoolean running = new AtomicBoolean(true);
+		List<Thread> threads = new ArrayList<>();
+		for(int i=0; i<4; i++)
+		{
+			int thread = i;
+			Thread t = new Thread(() -> {
+				for(int j=0; running.get(); j++)
+				{
+					if(thread == 0 && j % 10 == 0)
+					{
+						events.register(EventSeverity.INFO, new TestEvent("event " + j));
+					}
+					else
+					{
+						timer.record(j, TimeUnit.MILLISECONDS);
+					}
+				}
+			});
+			t.start();
+			threads.add(t);
+		}
+
+		Thread.sleep(50);
+		backend.close();
+		running.set(false);
+
+		for(Thread thread : threads)
+		{
+			thread.join();
+		}
+
+		JournalReader reader = JournalReader.open(directory);
+		List<JournalRecord> records = new ArrayList<>();
+		reader.forEach(records::add);
+
+		assertThat(records.size(), is(greaterThan(0)));
+		assertThat(reader.getCorruptBlocks(), is(0l));
+	}
+
+	@Test
+	public void testRotationRemovesOldSegments()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.withSegmentSize(2 * 4096)
+			.withMaxSegments(2)
+			.build();
+
+		Timer timer = Timer.builder().build();
+		backend.export("timer", timer);
+		for(int i=0; i<2000; i++)
+		{
+			timer.record(i, TimeUnit.MILLISECONDS);
+		}
+
+		backend.close();
+
+		try(Stream<Path> files = Files.list(directory))
+		{
+			assertThat(files.filter(p -> p.toString().endsWith(".vj")).count(), is(2l));
+		}
+
+		List<JournalRecord> records = read(directory);
+		assertThat(records.size(), is(lessThanOrEqualTo(4 * 127)));
+		assertThat(records.get(records.size() - 1).getValue(), is(1999l));
+	}
+
+	@Test
+	public void testCorruptBlockIsSkipped()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.build();
+
+		Timer timer = Timer.builder().build();
+		backend.export("timer", timer);
+		for(int i=0; i<300; i++)
+		{
+			timer.record(i, TimeUnit.MILLISECONDS);
+		}
+
+		backend.close();
+
+		Path segment;
+		try(Stream<Path> files = Files.list(directory))
+		{
+			segment = files.filter(p -> p.toString().endsWith(".vj")).findFirst().get();
+		}
+
+		try(FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE))
+		{
+			channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3 }), 24);
+		}
+
+		JournalReader reader = JournalReader.open(directory);
+		List<JournalRecord> records = new ArrayList<>();
+		reader.forEach(records::add);
+
+		assertThat(reader.getCorruptBlocks(), is(1l));
+		assertThat(records.size(), is(300 - 127));
+		assertThat(records.get(0).getValue(), is(127l));
+	}
+
+	@Test
+	public void testReplayKeepsSampleTimeAndSnapshots()
+		throws Exception
+	{
+		Path directory = folder.getRoot().toPath();
+		JournalBackend backend = JournalBackend.builder()
+			.withDirectory(directory)
+			.withSamplingInterval(Duration.ofMillis(10))
+			.build();
+
+		Probe<MapSnapshot> probe = () -> MapSnapshot.builder()
+			.set("count", 2)
+			.set("average", 2.5)
+			.build();
+
+		backend.export("snapshot", probe);
+
+		Thread.sleep(100);
+		backend.close();
+
+		List<JournalRecord> records = read(directory);
+		long firstTime = records.get(0).getTime();
+
+		CapturingBackend capturing = new CapturingBackend();
+		JournalReader.open(directory).replay(capturing);
+
+		long sampleTimes = records.stream()
+			.mapToLong(JournalRecord::getTime)
+			.distinct()
+			.count();
+
+		assertThat((long) capturing.samples.size(), is(sampleTimes));
+
+		Sample<?> sample = capturing.samples.get(0);
+		assertThat(sample.getTime(), is(firstTime));
+
+		MapSnapshot snapshot = (MapSnapshot) sample.getValue();
+		assertThat(snapshot.get("count").get(), is(2l));
+		assertThat(snapshot.get("average").get(), is(2.5));
+	}
+
+	private static List<JournalRecord> read(Path directory)
+		throws IOException
+	{
+		List<JournalRecord> records = new ArrayList<>();
+		JournalReader.open(directory).forEach(records::add);
+		return records;
+	}
+
+	private static List<JournalRecord> filter(List<JournalRecord> records, String path)
+	{
+		return records.stream()
+			.filter(r -> r.getPath().equals(path))
+			.collect(Collectors.toList());
+	}
+
+	private static class CapturingBackend
+		implements VibeBackend
+	{
+		private final List<Sample<?>> samples = new CopyOnWriteArrayList<>();
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		@Override
+		public Handle export(String path, TimeSampler<?> series)
+		{
+			return ((TimeSampler) series).addListener(samples::add);
+		}
+
+		@Override
+		public void close()
+		{
+		}
+	}
+
+	private static class TestEvent
+		implements EventData
+	{
+		private final String message;
+
+		public TestEvent(String message)
+		{
+			this.message = message;
+		}
+
+		@Override
+		public String toHumanReadable()
+		{
+			return message;
+		}
+	}
+}
@@ -1,13 +1,25 @@
 package se.l4.vibe.mail;
 
-import java.text.SimpleDateFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Properties;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,10 +29,12 @@ import jakarta.mail.MessagingException;
 import jakarta.mail.PasswordAuthentication;
 import jakarta.mail.Session;
 import jakarta.mail.Transport;
+import jakarta.mail.internet.AddressException;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 import se.l4.vibe.Handle;
 import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibeException;
 import se.l4.vibe.events.Event;
 import se.l4.vibe.events.EventData;
 import se.l4.vibe.events.EventListener;
@@ -29,26 +43,51 @@ import se.l4.vibe.events.Events;
 
 /**
  * Backend that will e-mail events.
+ *
+ * <p>
+ * Mails are sent from a single background thread that keeps its connection
+ * to the SMTP server open between mails. The number of mails waiting to be
+ * sent is bounded, see {@link Builder#withMaxQueuedMails(int)}, and mails
+ * above that limit are dropped with a warning.
+ *
+ * <p>
+ * By default every event is sent as its own mail. To limit the number of
+ * mails during an event storm a digest can be enabled via
+ * {@link Builder#withDigest(Duration)}, in which case events are grouped per
+ * path and severity and sent as a single mail when the window ends.
  */
 public class MailBackend
 	implements VibeBackend
 {
 	private static final Logger LOG = LoggerFactory.getLogger(MailBackend.class);
 
+	private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm")
+		.withZone(ZoneId.systemDefault());
+
+	/**
+	 * The maximum number of events that are listed in a single digest.
+	 */
+	private static final int MAX_DIGEST_EVENTS = 50;
+
 	private final EventSeverity minimumSeverity;
 
-	private final ExecutorService executor;
+	private final ScheduledExecutorService executor;
+	private final AtomicInteger queuedMails;
+	private final int maxQueuedMails;
 
-	private final String from;
-	private final String receivers[];
+	private final Session session;
+	private final InternetAddress from;
+	private final InternetAddress[] receivers;
 	private final String subject;
 
-	private final AuthenticatorImpl authenticator;
+	private final Lock digestLock;
+	private final ScheduledFuture<?> digestFuture;
+	private Map<DigestKey, Digest> digests;
 
-	private final String smtpServer;
-	private final int smtpPort;
-	private final boolean tls;
-	private final boolean ssl;
+	/**
+	 * Transport used to send mails, only accessed from the sending thread.
+	 */
+	private Transport transport;
 
 	public MailBackend(
 		EventSeverity minimumSeverity,
@@ -61,97 +100,305 @@ public class MailBackend
 		boolean ssl,
 		AuthenticatorImpl authenticator
 	)
+	{
+		this(
+			minimumSeverity,
+			smtpServer,
+			smtpPort,
+			from,
+			receivers,
+			subject,
+			tls,
+			ssl,
+			authenticator,
+			null,
+			100
+		);
+	}
+
+	private MailBackend(
+		EventSeverity minimumSeverity,
+		String smtpServer,
+		int smtpPort,
+		String from,
+		String[] receivers,
+		String subject,
+		boolean tls,
+		boolean ssl,
+		AuthenticatorImpl authenticator,
+		Duration digestWindow,
+		int maxQueuedMails
+	)
 	{
 		this.minimumSeverity = minimumSeverity;
-		this.smtpServer = smtpServer;
-		this.smtpPort = smtpPort;
-		this.from = from;
-		this.receivers = receivers;
 		this.subject = subject;
-		this.tls = tls;
-		this.ssl = ssl;
-		this.authenticator = authenticator;
+		this.maxQueuedMails = maxQueuedMails;
+
+		this.session = createSession(smtpServer, smtpPort, tls, ssl, authenticator);
+
+		try
+		{
+			this.from = new InternetAddress(from);
 
-		executor = Executors.newCachedThreadPool(new ThreadFactory()
+			this.receivers = new InternetAddress[receivers.length];
+			for(int i=0, n=receivers.length; i<n; i++)
+			{
+				this.receivers[i] = new InternetAddress(receivers[i]);
+			}
+		}
+		catch(AddressException e)
+		{
+			throw new VibeException("Invalid e-mail address; " + e.getMessage(), e);
+		}
+
+		queuedMails = new AtomicInteger();
+		digestLock = new ReentrantLock();
+
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory()
 		{
 			@Override
 			public Thread newThread(Runnable r)
 			{
-				return new Thread(r, "vibe-mail");
+				Thread thread = new Thread(r, "vibe-mail");
+				thread.setDaemon(true);
+				return thread;
 			}
 		});
-	}
+		executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+		this.executor = executor;
 
-	/**
-	 * Stop the mail backend.
-	 */
-	public void stop()
-	{
-		executor.shutdown();
+		if(digestWindow != null)
+		{
+			long window = digestWindow.toMillis();
+			digests = new HashMap<>();
+			digestFuture = executor.scheduleAtFixedRate(this::flushDigests, window, window, TimeUnit.MILLISECONDS);
+		}
+		else
+		{
+			digestFuture = null;
+		}
 	}
 
-	private void send(String path, long time, EventSeverity severity, EventData event)
-		throws MessagingException
+	private static Session createSession(
+		String smtpServer,
+		int smtpPort,
+		boolean tls,
+		boolean ssl,
+		AuthenticatorImpl authenticator
+	)
 	{
-		Properties props = System.getProperties();
-		props.put("mail.smtp.host", smtpServer);
-		props.put("mail.smtp.port", smtpPort);
+		Properties props = new Properties();
+		props.setProperty("mail.transport.protocol", "smtp");
+		props.setProperty("mail.smtp.host", smtpServer);
+		props.setProperty("mail.smtp.port", String.valueOf(smtpPort));
 
 		if(tls)
 		{
-			props.put("mail.smtp.starttls.enable", "true");
+			props.setProperty("mail.smtp.starttls.enable", "true");
 		}
 		else if(ssl)
 		{
-			props.put("mail.smtp.socketFactory.port", smtpPort);
-			props.put("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
+			props.setProperty("mail.smtp.socketFactory.port", String.valueOf(smtpPort));
+			props.setProperty("mail.smtp.socketFactory.class", "javax.net.ssl.SSLSocketFactory");
 		}
 
 		if(authenticator != null)
 		{
-			props.setProperty("mail.smtp.submitter", authenticator
+			String username = authenticator
 				.getPasswordAuthentication()
-				.getUserName());
+				.getUserName();
+
+			props.setProperty("mail.smtp.user", username);
+			props.setProperty("mail.smtp.submitter", username);
 			props.setProperty("mail.smtp.auth", "true");
 		}
 
-		Session session = Session.getDefaultInstance(props, authenticator);
+		return Session.getInstance(props, authenticator);
+	}
 
-		Message msg = new MimeMessage(session);
-		msg.setFrom(new InternetAddress(from));
+	/**
+	 * Stop the mail backend.
+	 */
+	public void stop()
+	{
+		close();
+	}
 
-		InternetAddress[] receivers = new InternetAddress[this.receivers.length];
-		for(int i=0, n=receivers.length; i<n; i++)
+	/**
+	 * Queue up a mail to be sent by the sending thread. If too many mails are
+	 * already waiting the mail is dropped.
+	 *
+	 * @param builder
+	 */
+	private void queue(MessageBuilder builder)
+	{
+		if(queuedMails.incrementAndGet() > maxQueuedMails)
 		{
-			receivers[i] = new InternetAddress(this.receivers[i]);
+			queuedMails.decrementAndGet();
+			LOG.warn("Too many e-mails queued, dropping e-mail for events");
+			return;
 		}
 
+		try
+		{
+			executor.execute(() -> {
+				queuedMails.decrementAndGet();
+
+				try
+				{
+					send(builder);
+				}
+				catch(MessagingException e)
+				{
+					LOG.warn("Could not send e-mail for event; " + e.getMessage(), e);
+				}
+			});
+		}
+		catch(RejectedExecutionException e)
+		{
+			queuedMails.decrementAndGet();
+			LOG.warn("Backend has been closed, dropping e-mail for events");
+		}
+	}
+
+	private void send(MessageBuilder builder)
+		throws MessagingException
+	{
+		Message msg = new MimeMessage(session);
+		msg.setFrom(from);
 		msg.setRecipients(Message.RecipientType.TO, receivers);
+		msg.setHeader("X-Mailer", "Vibe");
+		msg.setSentDate(new Date());
+
+		builder.build(msg);
+
+		if(transport == null)
+		{
+			transport = session.getTransport();
+		}
+
+		if(! transport.isConnected())
+		{
+			transport.connect();
+		}
+
+		try
+		{
+			transport.sendMessage(msg, msg.getAllRecipients());
+		}
+		catch(MessagingException e)
+		{
+			/*
+			 * Sending failed, close the connection so that the next mail
+			 * starts from a fresh connection.
+			 */
+			closeTransport();
+			throw e;
+		}
+	}
+
+	private void closeTransport()
+	{
+		if(transport == null) return;
+
+		try
+		{
+			transport.close();
+		}
+		catch(MessagingException e)
+		{
+			// Closing failed, nothing more to do with this transport
+		}
 
-		msg.setSubject(subject
+		transport = null;
+	}
+
+	private String formatSubject(String path, EventSeverity severity)
+	{
+		return subject
 			.replace("{severity}", severity.toString())
-			.replace("{path}", path)
-		);
+			.replace("{path}", path);
+	}
 
-		StringBuilder body = new StringBuilder();
-		SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm");
-		body
-			.append(path)
-			.append(": The following ")
-			.append(severity)
-			.append(" event was received at ")
-			.append(sdf.format(new Date(time)))
-			.append(":\n\n")
-			.append(event.toHumanReadable());
+	private void sendEvent(String path, long time, EventSeverity severity, EventData event)
+	{
+		queue(msg -> {
+			msg.setSubject(formatSubject(path, severity));
+
+			StringBuilder body = new StringBuilder();
+			body
+				.append(path)
+				.append(": The following ")
+				.append(severity)
+				.append(" event was received at ")
+				.append(DATE_FORMAT.format(Instant.ofEpochMilli(time)))
+				.append(":\n\n")
+				.append(event.toHumanReadable());
+
+			msg.setText(body.toString());
+
+			msg.setHeader("X-Vibe-Severity", severity.toString());
+			msg.setHeader("X-Vibe-Path", path);
+		});
+	}
 
-		msg.setText(body.toString());
+	private void addToDigest(String path, long time, EventSeverity severity, EventData event)
+	{
+		digestLock.lock();
+		try
+		{
+			if(digests == null)
+			{
+				// Backend has been closed
+				return;
+			}
 
-		msg.setHeader("X-Mailer", "Vibe");
-		msg.setHeader("X-Vibe-Severity", severity.toString());
-		msg.setHeader("X-Vibe-Path", path);
-		msg.setSentDate(new Date());
+			digests.computeIfAbsent(new DigestKey(path, severity), Digest::new)
+				.add(time, event);
+		}
+		finally
+		{
+			digestLock.unlock();
+		}
+	}
+
+	/**
+	 * Send all of the currently collected digests.
+	 */
+	private void flushDigests()
+	{
+		flushDigests(false);
+	}
+
+	/**
+	 * Send all of the currently collected digests. The digests are swapped
+	 * out under the same lock that events are added under, so every event
+	 * either ends up in the digests that are sent or in the next ones.
+	 *
+	 * @param closing
+	 *   if the backend is closing, in which case no new digests are collected
+	 */
+	private void flushDigests(boolean closing)
+	{
+		Map<DigestKey, Digest> digests;
+
+		digestLock.lock();
+		try
+		{
+			digests = this.digests;
+			if(digests == null || (digests.isEmpty() && ! closing)) return;
+
+			this.digests = closing ? null : new HashMap<>();
+		}
+		finally
+		{
+			digestLock.unlock();
+		}
 
-		Transport.send(msg);
+		for(Digest digest : digests.values())
+		{
+			queue(digest::build);
+		}
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -169,21 +416,14 @@ public class MailBackend
 				}
 
 				long time = System.currentTimeMillis();
-				executor.submit(new Runnable()
+				if(digestFuture != null)
+				{
+					addToDigest(path, time, event.getSeverity(), event.getData());
+				}
+				else
 				{
-					@Override
-					public void run()
-					{
-						try
-						{
-							send(path, time, event.getSeverity(), event.getData());
-						}
-						catch(MessagingException e)
-						{
-							LOG.warn("Could not send e-mail for event; " + e.getMessage(), e);
-						}
-					}
-				});
+					sendEvent(path, time, event.getSeverity(), event.getData());
+				}
 			}
 		});
 	}
@@ -191,7 +431,27 @@ public class MailBackend
 	@Override
 	public void close()
 	{
+		if(executor.isShutdown()) return;
+
+		if(digestFuture != null)
+		{
+			digestFuture.cancel(false);
+
+			// Stop collecting and send what has been collected so far
+			flushDigests(true);
+		}
+
+		executor.execute(this::closeTransport);
 		executor.shutdown();
+
+		try
+		{
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
 	}
 
 	/**
@@ -204,6 +464,118 @@ public class MailBackend
 		return new Builder();
 	}
 
+	/**
+	 * Function used to fill in the subject and contents of a mail.
+	 */
+	private interface MessageBuilder
+	{
+		void build(Message msg)
+			throws MessagingException;
+	}
+
+	private static class DigestKey
+	{
+		private final String path;
+		private final EventSeverity severity;
+
+		public DigestKey(String path, EventSeverity severity)
+		{
+			this.path = path;
+			this.severity = severity;
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(path, severity);
+		}
+
+		@Override
+		public boolean equals(Object obj)
+		{
+			if(this == obj) return true;
+			if(obj == null || getClass() != obj.getClass()) return false;
+
+			DigestKey other = (DigestKey) obj;
+			return path.equals(other.path) && severity == other.severity;
+		}
+	}
+
+	/**
+	 * Events collected for a certain path and severity. Only the first
+	 * {@link #MAX_DIGEST_EVENTS} are kept, the rest are only counted.
+	 */
+	private class Digest
+	{
+		private final DigestKey key;
+		private final List<String> events;
+
+		private long firstTime;
+		private long lastTime;
+		private int count;
+
+		public Digest(DigestKey key)
+		{
+			this.key = key;
+			this.events = new ArrayList<>();
+		}
+
+		public void add(long time, EventData event)
+		{
+			if(count == 0)
+			{
+				firstTime = time;
+			}
+
+			lastTime = time;
+			count++;
+
+			if(events.size() < MAX_DIGEST_EVENTS)
+			{
+				events.add(DATE_FORMAT.format(Instant.ofEpochMilli(time)) + ": " + event.toHumanReadable());
+			}
+		}
+
+		public void build(Message msg)
+			throws MessagingException
+		{
+			msg.setSubject(formatSubject(key.path, key.severity));
+
+			StringBuilder body = new StringBuilder();
+			body
+				.append(key.path)
+				.append(": The following ")
+				.append(count)
+				.append(' ')
+				.append(key.severity)
+				.append(count == 1 ? " event was" : " events were")
+				.append(" received between ")
+				.append(DATE_FORMAT.format(Instant.ofEpochMilli(firstTime)))
+				.append(" and ")
+				.append(DATE_FORMAT.format(Instant.ofEpochMilli(lastTime)))
+				.append(":\n\n");
+
+			for(String event : events)
+			{
+				body.append(event).append("\n\n");
+			}
+
+			if(count > events.size())
+			{
+				body
+					.append("... and ")
+					.append(count - events.size())
+					.append(" more");
+			}
+
+			msg.setText(body.toString());
+
+			msg.setHeader("X-Vibe-Severity", key.severity.toString());
+			msg.setHeader("X-Vibe-Path", key.path);
+			msg.setHeader("X-Vibe-Events", String.valueOf(count));
+		}
+	}
+
 	private static class AuthenticatorImpl
 		extends jakarta.mail.Authenticator
 	{
@@ -231,6 +603,8 @@ public class MailBackend
 		private int smtpPort;
 		private boolean smtpTls;
 		private boolean smtpSsl;
+		private Duration digestWindow;
+		private int maxQueuedMails;
 
 		private AuthenticatorImpl authenticator;
 
@@ -242,6 +616,7 @@ public class MailBackend
 			subject = "{path}: Event with {severity} severity received";
 
 			smtpPort = 25;
+			maxQueuedMails = 100;
 		}
 
 		/**
@@ -362,6 +737,49 @@ public class MailBackend
 			return this;
 		}
 
+		/**
+		 * Collect events into digests instead of sending one e-mail per
+		 * event. Events are grouped by their path and severity and each
+		 * group is sent as a single e-mail when the window ends.
+		 *
+		 * @param window
+		 *   the time to collect events for before sending them
+		 * @return
+		 */
+		public Builder withDigest(Duration window)
+		{
+			Objects.requireNonNull(window, "window can not be null");
+
+			if(window.isNegative() || window.isZero())
+			{
+				throw new IllegalArgumentException("Digest window must be positive");
+			}
+
+			this.digestWindow = window;
+
+			return this;
+		}
+
+		/**
+		 * Set the maximum number of e-mails that can be waiting to be sent.
+		 * E-mails created when this many are already waiting will be dropped.
+		 * Defaults to {@code 100}.
+		 *
+		 * @param max
+		 * @return
+		 */
+		public Builder withMaxQueuedMails(int max)
+		{
+			if(max < 1)
+			{
+				throw new IllegalArgumentException("At least one e-mail must be allowed to be queued");
+			}
+
+			this.maxQueuedMails = max;
+
+			return this;
+		}
+
 		/**
 		 * Create the backend.
 		 *
@@ -398,7 +816,9 @@ public class MailBackend
 				subject,
 				smtpTls,
 				smtpSsl,
-				authenticator
+				authenticator,
+				digestWindow,
+				maxQueuedMails
 			);
 		}
 	}
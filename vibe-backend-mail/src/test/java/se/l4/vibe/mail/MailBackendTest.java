@@ -0,0 +1,228 @@
+package se.l4.vibe.mail;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.l4.vibe.events.EventData;
+import se.l4.vibe.events.EventSeverity;
+import se.l4.vibe.events.Events;
+
+public class MailBackendTest
+{
+	private SmtpStub smtp;
+
+	@Before
+	public void startSmtp()
+		throws IOException
+	{
+		smtp = new SmtpStub();
+	}
+
+	@After
+	public void stopSmtp()
+		throws IOException
+	{
+		smtp.close();
+	}
+
+	private MailBackend.Builder builder()
+	{
+		return MailBackend.builder()
+			.withSmtpServer("127.0.0.1")
+			.withSmtpPort(smtp.getPort())
+			.withSender("vibe@example.com")
+			.addRecipient("ops@example.com");
+	}
+
+	@Test
+	public void testMailsReuseConnection()
+	{
+		MailBackend backend = builder().build();
+
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("service", events);
+
+		events.register(EventSeverity.ERROR, new TestEvent("first"));
+		events.register(EventSeverity.ERROR, new TestEvent("second"));
+		events.register(EventSeverity.INFO, new TestEvent("ignored"));
+
+		backend.close();
+
+		assertThat(smtp.getMessages().size(), is(2));
+		assertThat(smtp.getMessages().get(0), containsString("first"));
+		assertThat(smtp.getMessages().get(1), containsString("second"));
+		assertThat(smtp.getConnections(), is(1));
+	}
+
+	@Test
+	public void testDigestGroupsEvents()
+	{
+		MailBackend backend = builder()
+			.withDigest(Duration.ofMinutes(10))
+			.build();
+
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("service", events);
+
+		events.register(EventSeverity.ERROR, new TestEvent("first"));
+		events.register(EventSeverity.ERROR, new TestEvent("second"));
+		events.register(EventSeverity.CRITICAL, new TestEvent("third"));
+
+		backend.close();
+
+		assertThat(smtp.getMessages().size(), is(2));
+
+		String errors = smtp.getMessages().stream()
+			.filter(m -> m.contains("X-Vibe-Severity: ERROR"))
+			.findFirst()
+			.get();
+
+		assertThat(errors, containsString("X-Vibe-Events: 2"));
+		assertThat(errors, containsString("first"));
+		assertThat(errors, containsString("second"));
+	}
+
+	private static class TestEvent
+		implements EventData
+	{
+		private final String message;
+
+		public TestEvent(String message)
+		{
+			this.message = message;
+		}
+
+		@Override
+		public String toHumanReadable()
+		{
+			return message;
+		}
+	}
+
+	/**
+	 * Minimal SMTP server that accepts all mails and records their data.
+	 */
+	private static class SmtpStub
+	{
+		private final ServerSocket socket;
+		private final List<String> messages;
+		private final AtomicInteger connections;
+
+		public SmtpStub()
+			throws IOException
+		{
+			socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+			messages = new CopyOnWriteArrayList<>();
+			connections = new AtomicInteger();
+
+			Thread thread = new Thread(this::acceptConnections, "smtp-stub");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		public int getPort()
+		{
+			return socket.getLocalPort();
+		}
+
+		public List<String> getMessages()
+		{
+			return messages;
+		}
+
+		public int getConnections()
+		{
+			return connections.get();
+		}
+
+		public void close()
+			throws IOException
+		{
+			socket.close();
+		}
+
+		private void acceptConnections()
+		{
+			while(! socket.isClosed())
+			{
+				try(Socket client = socket.accept())
+				{
+					connections.incrementAndGet();
+					handle(client);
+				}
+				catch(IOException e)
+				{
+					// Closed or broken connection, continue with the next one
+				}
+			}
+		}
+
+		private void handle(Socket client)
+			throws IOException
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.US_ASCII));
+			Writer out = new OutputStreamWriter(client.getOutputStream(), StandardCharsets.US_ASCII);
+
+			reply(out, "220 localhost ESMTP stub");
+
+			String line;
+			while((line = in.readLine()) != null)
+			{
+				String command = line.toUpperCase();
+				if(command.startsWith("EHLO") || command.startsWith("HELO"))
+				{
+					reply(out, "250 localhost");
+				}
+				else if(command.startsWith("DATA"))
+				{
+					reply(out, "354 End data with <CR><LF>.<CR><LF>");
+
+					StringBuilder data = new StringBuilder();
+					while((line = in.readLine()) != null && ! line.equals("."))
+					{
+						data.append(line).append('\n');
+					}
+
+					messages.add(data.toString());
+					reply(out, "250 OK");
+				}
+				else if(command.startsWith("QUIT"))
+				{
+					reply(out, "221 Bye");
+					return;
+				}
+				else
+				{
+					reply(out, "250 OK");
+				}
+			}
+		}
+
+		private void reply(Writer out, String line)
+			throws IOException
+		{
+			out.write(line);
+			out.write("\r\n");
+			out.flush();
+		}
+	}
+}
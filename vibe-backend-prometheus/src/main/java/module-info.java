@@ -0,0 +1,5 @@
+module se.l4.vibe.prometheus {
+	requires se.l4.vibe;
+	requires org.slf4j;
+	requires jdk.httpserver;
+}
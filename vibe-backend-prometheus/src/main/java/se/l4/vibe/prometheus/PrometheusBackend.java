@@ -0,0 +1,359 @@
+package se.l4.vibe.prometheus;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import se.l4.vibe.Handle;
+import se.l4.vibe.VibeBackend;
+import se.l4.vibe.VibeException;
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.events.Events;
+import se.l4.vibe.prometheus.internal.CheckSeries;
+import se.l4.vibe.prometheus.internal.EventsSeries;
+import se.l4.vibe.prometheus.internal.ExpositionBuffer;
+import se.l4.vibe.prometheus.internal.SampleSeries;
+import se.l4.vibe.prometheus.internal.SeriesRegistry;
+import se.l4.vibe.prometheus.internal.TimerSeries;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.probes.SampledProbe;
+import se.l4.vibe.sampling.TimeSampler;
+import se.l4.vibe.timers.Timer;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * {@link VibeBackend Backend} that serves metrics over HTTP in the
+ * OpenMetrics text format, for scraping by Prometheus and compatible systems.
+ *
+ * <pre>
+ * PrometheusBackend backend = PrometheusBackend.builder()
+ *   .withPort(9100)
+ *   .build();
+ * </pre>
+ *
+ * <p>
+ * Probes are sampled at the sampling interval of the backend and scrapes
+ * render the last sampled values, so a scrape never reads a probe or blocks
+ * sampling. Timers are rendered as histograms in seconds, events as a
+ * counter per severity and checks as a gauge that is {@code 1} when the
+ * conditions are met.
+ *
+ * <p>
+ * Scrapes are handled by a single thread that renders into a reused buffer.
+ */
+public class PrometheusBackend
+	implements VibeBackend
+{
+	private static final Logger logger = LoggerFactory.getLogger(PrometheusBackend.class);
+
+	private static final String OPEN_METRICS = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+	private static final String TEXT = "text/plain; version=0.0.4; charset=utf-8";
+	private static final byte[] EOF = ExpositionBuffer.bytes("# EOF\n");
+
+	private final Duration samplingInterval;
+
+	private final SeriesRegistry registry;
+	private final ExpositionBuffer buffer;
+
+	private final ExecutorService executor;
+	private final HttpServer server;
+
+	private PrometheusBackend(
+		Duration samplingInterval,
+		InetAddress address,
+		int port,
+		String path
+	)
+	{
+		this.samplingInterval = samplingInterval;
+
+		registry = new SeriesRegistry();
+		buffer = new ExpositionBuffer(64 * 1024);
+
+		executor = Executors.newSingleThreadExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "vibe-prometheus");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+
+		try
+		{
+			server = HttpServer.create(new InetSocketAddress(address, port), 0);
+		}
+		catch(IOException e)
+		{
+			executor.shutdown();
+			throw new VibeException("Unable to start server on port " + port + "; " + e.getMessage(), e);
+		}
+
+		server.createContext(path, this::handle);
+		server.setExecutor(executor);
+		server.start();
+	}
+
+	/**
+	 * Get the port the server is listening on. Useful when the backend was
+	 * built with port {@code 0} to listen on any free port.
+	 *
+	 * @return
+	 */
+	public int getPort()
+	{
+		return server.getAddress().getPort();
+	}
+
+	private void handle(HttpExchange exchange)
+		throws IOException
+	{
+		try
+		{
+			if(! "GET".equals(exchange.getRequestMethod()))
+			{
+				exchange.sendResponseHeaders(405, -1);
+				return;
+			}
+
+			boolean openMetrics = acceptsOpenMetrics(exchange.getRequestHeaders().get("Accept"));
+
+			buffer.reset();
+			registry.render(buffer);
+			if(openMetrics)
+			{
+				buffer.write(EOF);
+			}
+
+			exchange.getResponseHeaders().set("Content-Type", openMetrics ? OPEN_METRICS : TEXT);
+			exchange.sendResponseHeaders(200, buffer.length());
+
+			try(OutputStream out = exchange.getResponseBody())
+			{
+				buffer.writeTo(out);
+			}
+		}
+		catch(RuntimeException e)
+		{
+			logger.warn("Unable to render metrics; " + e.getMessage(), e);
+			exchange.sendResponseHeaders(500, -1);
+		}
+		finally
+		{
+			exchange.close();
+		}
+	}
+
+	private static boolean acceptsOpenMetrics(List<String> accept)
+	{
+		if(accept == null) return false;
+
+		for(String value : accept)
+		{
+			if(value.contains("application/openmetrics-text"))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, TimeSampler<?> sampler)
+	{
+		SampleSeries series = new SampleSeries(path);
+		Handle listener = ((TimeSampler) sampler).addListener(series);
+		Handle registered = registry.add(series);
+		return () -> {
+			registered.release();
+			listener.release();
+		};
+	}
+
+	@Override
+	public Handle export(String path, Probe<?> probe)
+	{
+		return export(path, sample(SampledProbe.over(probe)));
+	}
+
+	@Override
+	public Handle export(String path, SampledProbe<?> probe)
+	{
+		return export(path, sample(probe));
+	}
+
+	private <T> TimeSampler<T> sample(SampledProbe<T> probe)
+	{
+		return TimeSampler.forProbe(probe)
+			.withInterval(samplingInterval)
+			.build();
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Override
+	public Handle export(String path, Events<?> events)
+	{
+		EventsSeries series = new EventsSeries(path);
+		Handle listener = ((Events) events).addListener(series);
+		Handle registered = registry.add(series);
+		return () -> {
+			registered.release();
+			listener.release();
+		};
+	}
+
+	@Override
+	public Handle export(String path, Timer timer)
+	{
+		TimeSampler<TimerSnapshot> sampler = sample(timer.getSnapshotProbe());
+
+		TimerSeries series = new TimerSeries(path);
+		Handle listener = sampler.addListener(series);
+		Handle registered = registry.add(series);
+		return () -> {
+			registered.release();
+			listener.release();
+		};
+	}
+
+	@Override
+	public Handle export(String path, Check check)
+	{
+		CheckSeries series = new CheckSeries(path, check);
+		Handle listener = check.addListener(series);
+		Handle registered = registry.add(series);
+		return () -> {
+			registered.release();
+			listener.release();
+		};
+	}
+
+	@Override
+	public void close()
+	{
+		server.stop(0);
+		executor.shutdown();
+
+		try
+		{
+			executor.awaitTermination(5, TimeUnit.SECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static Builder builder()
+	{
+		return new Builder();
+	}
+
+	public static class Builder
+	{
+		private Duration samplingInterval;
+		private InetAddress address;
+		private int port;
+		private String path;
+
+		public Builder()
+		{
+			samplingInterval = Duration.ofSeconds(10);
+			port = 9100;
+			path = "/metrics";
+		}
+
+		/**
+		 * Set the sampling interval this backend should use for {@link Probe}s,
+		 * {@link SampledProbe}s and {@link Timer}s.
+		 *
+		 * @param interval
+		 *   interval to use
+		 * @return
+		 */
+		public Builder withSamplingInterval(Duration interval)
+		{
+			Objects.requireNonNull(interval, "interval can not be null");
+			this.samplingInterval = interval;
+
+			return this;
+		}
+
+		/**
+		 * Set the address the server should listen on. By default the server
+		 * listens on all addresses.
+		 *
+		 * @param address
+		 * @return
+		 */
+		public Builder withAddress(InetAddress address)
+		{
+			this.address = address;
+			return this;
+		}
+
+		/**
+		 * Set the port the server should listen on, defaults to {@code 9100}.
+		 * Use {@code 0} to pick any free port.
+		 *
+		 * @param port
+		 * @return
+		 */
+		public Builder withPort(int port)
+		{
+			if(port < 0 || port > 65535)
+			{
+				throw new IllegalArgumentException("port must be between 0 and 65535");
+			}
+
+			this.port = port;
+			return this;
+		}
+
+		/**
+		 * Set the path metrics are served at, defaults to {@code /metrics}.
+		 *
+		 * @param path
+		 * @return
+		 */
+		public Builder withPath(String path)
+		{
+			Objects.requireNonNull(path, "path can not be null");
+			this.path = path;
+			return this;
+		}
+
+		/**
+		 * Build the instance, starting the server.
+		 *
+		 * @return
+		 */
+		public PrometheusBackend build()
+		{
+			return new PrometheusBackend(
+				samplingInterval,
+				address,
+				port,
+				path
+			);
+		}
+	}
+}
@@ -0,0 +1,37 @@
+package se.l4.vibe.prometheus.internal;
+
+import se.l4.vibe.checks.Check;
+import se.l4.vibe.checks.CheckEvent;
+import se.l4.vibe.checks.CheckListener;
+
+/**
+ * Series that renders if the conditions of a {@link Check} are met as a
+ * gauge that is either {@code 1} or {@code 0}.
+ */
+public class CheckSeries
+	implements Series, CheckListener
+{
+	private final byte[] header;
+
+	private volatile boolean conditionsMet;
+
+	public CheckSeries(String path, Check check)
+	{
+		header = MetricNames.header(MetricNames.toName(path), "gauge");
+		conditionsMet = check.isConditionsMet();
+	}
+
+	@Override
+	public void checkStatus(CheckEvent event)
+	{
+		conditionsMet = event.isConditionsMet();
+	}
+
+	@Override
+	public void render(ExpositionBuffer buffer)
+	{
+		buffer.write(header)
+			.write(conditionsMet ? 1 : 0)
+			.write((byte) '\n');
+	}
+}
@@ -0,0 +1,57 @@
+package se.l4.vibe.prometheus.internal;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import se.l4.vibe.events.Event;
+import se.l4.vibe.events.EventData;
+import se.l4.vibe.events.EventListener;
+import se.l4.vibe.events.EventSeverity;
+
+/**
+ * Series that counts events per severity and renders them as a counter
+ * labeled with the severity.
+ */
+public class EventsSeries
+	implements Series, EventListener<EventData>
+{
+	private static final EventSeverity[] SEVERITIES = EventSeverity.values();
+
+	private final byte[] header;
+	private final byte[][] prefixes;
+	private final LongAdder[] counters;
+
+	public EventsSeries(String path)
+	{
+		String name = MetricNames.toName(path);
+		header = ExpositionBuffer.bytes("# TYPE " + name + " counter\n");
+
+		prefixes = new byte[SEVERITIES.length][];
+		counters = new LongAdder[SEVERITIES.length];
+		for(int i=0; i<SEVERITIES.length; i++)
+		{
+			prefixes[i] = ExpositionBuffer.bytes(
+				name + "_total{severity=\"" + SEVERITIES[i].name().toLowerCase() + "\"} "
+			);
+			counters[i] = new LongAdder();
+		}
+	}
+
+	@Override
+	public void eventRegistered(Event<EventData> event)
+	{
+		counters[event.getSeverity().ordinal()].increment();
+	}
+
+	@Override
+	public void render(ExpositionBuffer buffer)
+	{
+		buffer.write(header);
+
+		for(int i=0; i<prefixes.length; i++)
+		{
+			buffer.write(prefixes[i])
+				.write(counters[i].sum())
+				.write((byte) '\n');
+		}
+	}
+}
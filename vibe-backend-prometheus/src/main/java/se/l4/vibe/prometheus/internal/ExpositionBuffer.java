@@ -0,0 +1,211 @@
+package se.l4.vibe.prometheus.internal;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Buffer that the exposition format is rendered into. The buffer is reused
+ * between scrapes and only grows, numbers are written directly as ASCII
+ * digits so that rendering a series does not allocate.
+ *
+ * <p>
+ * Instances are not thread-safe, scrapes are expected to be serialized.
+ */
+public class ExpositionBuffer
+{
+	private static final byte[] NAN = bytes("NaN");
+	private static final byte[] POSITIVE_INFINITY = bytes("+Inf");
+	private static final byte[] NEGATIVE_INFINITY = bytes("-Inf");
+	private static final byte[] MIN_LONG = bytes(Long.toString(Long.MIN_VALUE));
+
+	/**
+	 * Number of fractional digits written for doubles.
+	 */
+	private static final int FRACTION_DIGITS = 9;
+	private static final double FRACTION_SCALE = 1e9;
+
+	private final byte[] digits;
+
+	private byte[] data;
+	private int length;
+
+	public ExpositionBuffer(int initialSize)
+	{
+		data = new byte[initialSize];
+		digits = new byte[20];
+	}
+
+	/**
+	 * Reset this buffer so it can be rendered into again.
+	 */
+	public void reset()
+	{
+		length = 0;
+	}
+
+	/**
+	 * Get the number of bytes written to this buffer.
+	 *
+	 * @return
+	 */
+	public int length()
+	{
+		return length;
+	}
+
+	/**
+	 * Write the contents of this buffer to the given stream.
+	 *
+	 * @param out
+	 * @throws IOException
+	 */
+	public void writeTo(OutputStream out)
+		throws IOException
+	{
+		out.write(data, 0, length);
+	}
+
+	private void ensureCapacity(int extra)
+	{
+		int needed = length + extra;
+		if(needed > data.length)
+		{
+			data = Arrays.copyOf(data, Math.max(needed, data.length * 2));
+		}
+	}
+
+	public ExpositionBuffer write(byte b)
+	{
+		ensureCapacity(1);
+		data[length++] = b;
+		return this;
+	}
+
+	public ExpositionBuffer write(byte[] bytes)
+	{
+		ensureCapacity(bytes.length);
+		System.arraycopy(bytes, 0, data, length, bytes.length);
+		length += bytes.length;
+		return this;
+	}
+
+	/**
+	 * Write a long as decimal digits.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public ExpositionBuffer write(long value)
+	{
+		if(value == Long.MIN_VALUE)
+		{
+			return write(MIN_LONG);
+		}
+
+		if(value < 0)
+		{
+			write((byte) '-');
+			value = -value;
+		}
+
+		int i = digits.length;
+		do
+		{
+			digits[--i] = (byte) ('0' + (value % 10));
+			value /= 10;
+		}
+		while(value != 0);
+
+		int count = digits.length - i;
+		ensureCapacity(count);
+		System.arraycopy(digits, i, data, length, count);
+		length += count;
+		return this;
+	}
+
+	/**
+	 * Write a double. Values that are whole numbers are written as longs,
+	 * values within a reasonable range are written with up to nine
+	 * fractional digits and the remaining values fall back to
+	 * {@link Double#toString(double)}.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public ExpositionBuffer write(double value)
+	{
+		if(Double.isNaN(value))
+		{
+			return write(NAN);
+		}
+		else if(value == Double.POSITIVE_INFINITY)
+		{
+			return write(POSITIVE_INFINITY);
+		}
+		else if(value == Double.NEGATIVE_INFINITY)
+		{
+			return write(NEGATIVE_INFINITY);
+		}
+
+		double abs = Math.abs(value);
+		if(abs != 0 && (abs >= 1e15 || abs < 1e-6))
+		{
+			return write(bytes(Double.toString(value)));
+		}
+
+		long whole = (long) abs;
+		long fraction = Math.round((abs - whole) * FRACTION_SCALE);
+		if(fraction >= (long) FRACTION_SCALE)
+		{
+			whole++;
+			fraction = 0;
+		}
+
+		if(value < 0 && (whole != 0 || fraction != 0))
+		{
+			write((byte) '-');
+		}
+
+		write(whole);
+
+		if(fraction != 0)
+		{
+			int digitCount = FRACTION_DIGITS;
+			while(fraction % 10 == 0)
+			{
+				fraction /= 10;
+				digitCount--;
+			}
+
+			ensureCapacity(digitCount + 1);
+			data[length++] = '.';
+			for(int i=digitCount-1; i>=0; i--)
+			{
+				data[length + i] = (byte) ('0' + (fraction % 10));
+				fraction /= 10;
+			}
+			length += digitCount;
+		}
+
+		return this;
+	}
+
+	/**
+	 * Get the given string as ASCII-compatible bytes.
+	 *
+	 * @param value
+	 * @return
+	 */
+	public static byte[] bytes(String value)
+	{
+		return value.getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String(data, 0, length, StandardCharsets.UTF_8);
+	}
+}
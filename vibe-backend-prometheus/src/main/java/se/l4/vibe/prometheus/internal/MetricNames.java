@@ -0,0 +1,58 @@
+package se.l4.vibe.prometheus.internal;
+
+/**
+ * Helpers for turning paths and keys into valid metric names.
+ */
+public class MetricNames
+{
+	private MetricNames()
+	{
+	}
+
+	/**
+	 * Create a metric name from the given path, characters that are not
+	 * allowed in metric names such as {@code /} are replaced with an
+	 * underscore.
+	 *
+	 * @param path
+	 * @return
+	 */
+	public static String toName(String path)
+	{
+		StringBuilder builder = new StringBuilder(path.length() + 1);
+		for(int i=0, n=path.length(); i<n; i++)
+		{
+			char c = path.charAt(i);
+			if((c >= 'a' && c <= 'z')
+				|| (c >= 'A' && c <= 'Z')
+				|| c == '_' || c == ':'
+				|| (c >= '0' && c <= '9' && i > 0))
+			{
+				builder.append(c);
+			}
+			else if(c >= '0' && c <= '9')
+			{
+				builder.append('_').append(c);
+			}
+			else
+			{
+				builder.append('_');
+			}
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Create the bytes for a metric family header followed by the start of
+	 * a sample without labels.
+	 *
+	 * @param name
+	 * @param type
+	 * @return
+	 */
+	public static byte[] header(String name, String type)
+	{
+		return ExpositionBuffer.bytes("# TYPE " + name + " " + type + "\n" + name + " ");
+	}
+}
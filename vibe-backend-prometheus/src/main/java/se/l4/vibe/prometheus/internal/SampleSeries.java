@@ -0,0 +1,190 @@
+package se.l4.vibe.prometheus.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.snapshots.KeyValueReceiver;
+import se.l4.vibe.snapshots.Snapshot;
+import se.l4.vibe.snapshots.SnapshotKey;
+
+/**
+ * Series that keeps the last sampled value and renders it as gauges. Numbers
+ * and booleans are rendered as a single gauge, {@link Snapshot}s are rendered
+ * as one gauge per key. Headers for keys are cached, using the id of
+ * {@link SnapshotKey}s when snapshots provide them.
+ */
+public class SampleSeries
+	implements Series, SampleListener<Object>, KeyValueReceiver
+{
+	private static final byte[] TRUE = { '1' };
+	private static final byte[] FALSE = { '0' };
+
+	private final String name;
+	private final byte[] header;
+	private final Map<String, byte[]> keyHeaders;
+	private byte[][] headersById;
+
+	private volatile Object value;
+
+	private ExpositionBuffer buffer;
+
+	public SampleSeries(String path)
+	{
+		this.name = MetricNames.toName(path);
+		this.header = MetricNames.header(name, "gauge");
+
+		keyHeaders = new HashMap<>();
+		headersById = new byte[0][];
+	}
+
+	@Override
+	public void sampleAcquired(Sample<Object> sample)
+	{
+		value = sample.getValue();
+	}
+
+	@Override
+	public void render(ExpositionBuffer buffer)
+	{
+		Object value = this.value;
+		if(value instanceof Snapshot)
+		{
+			this.buffer = buffer;
+			try
+			{
+				((Snapshot) value).mapToKeyValues(this);
+			}
+			finally
+			{
+				this.buffer = null;
+			}
+		}
+		else if(isSupported(value))
+		{
+			buffer.write(header);
+			writeValue(buffer, value);
+		}
+	}
+
+	@Override
+	public void add(String key, Object value)
+	{
+		KeyValueReceiver.addValue(this, key, value);
+	}
+
+	@Override
+	public void add(String key, long value)
+	{
+		buffer.write(header(key));
+		buffer.write(value);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(String key, double value)
+	{
+		buffer.write(header(key));
+		buffer.write(value);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(String key, boolean value)
+	{
+		buffer.write(header(key));
+		buffer.write(value ? TRUE : FALSE);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(String key, CharSequence value)
+	{
+		// Strings can not be represented as a gauge
+	}
+
+	@Override
+	public void add(SnapshotKey key, long value)
+	{
+		buffer.write(header(key));
+		buffer.write(value);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(SnapshotKey key, double value)
+	{
+		buffer.write(header(key));
+		buffer.write(value);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(SnapshotKey key, boolean value)
+	{
+		buffer.write(header(key));
+		buffer.write(value ? TRUE : FALSE);
+		buffer.write((byte) '\n');
+	}
+
+	@Override
+	public void add(SnapshotKey key, CharSequence value)
+	{
+		// Strings can not be represented as a gauge
+	}
+
+	private byte[] header(String key)
+	{
+		byte[] header = keyHeaders.get(key);
+		if(header == null)
+		{
+			header = MetricNames.header(name + '_' + MetricNames.toName(key), "gauge");
+			keyHeaders.put(key, header);
+		}
+
+		return header;
+	}
+
+	private byte[] header(SnapshotKey key)
+	{
+		int id = key.getId();
+		if(id >= headersById.length)
+		{
+			headersById = Arrays.copyOf(headersById, Math.max(id + 1, headersById.length * 2));
+		}
+
+		byte[] header = headersById[id];
+		if(header == null)
+		{
+			header = header(key.getName());
+			headersById[id] = header;
+		}
+
+		return header;
+	}
+
+	private static boolean isSupported(Object value)
+	{
+		return value instanceof Number || value instanceof Boolean;
+	}
+
+	private static void writeValue(ExpositionBuffer buffer, Object value)
+	{
+		if(value instanceof Double || value instanceof Float)
+		{
+			buffer.write(((Number) value).doubleValue());
+		}
+		else if(value instanceof Number)
+		{
+			buffer.write(((Number) value).longValue());
+		}
+		else
+		{
+			buffer.write(((Boolean) value) ? TRUE : FALSE);
+		}
+
+		buffer.write((byte) '\n');
+	}
+}
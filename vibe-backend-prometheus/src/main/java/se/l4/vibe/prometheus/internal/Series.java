@@ -0,0 +1,15 @@
+package se.l4.vibe.prometheus.internal;
+
+/**
+ * Something that renders one or more metric families when scraped.
+ */
+public interface Series
+{
+	/**
+	 * Render the current state of this series into the given buffer. This
+	 * is only called from the thread handling scrapes.
+	 *
+	 * @param buffer
+	 */
+	void render(ExpositionBuffer buffer);
+}
@@ -0,0 +1,62 @@
+package se.l4.vibe.prometheus.internal;
+
+import java.util.Arrays;
+
+import se.l4.vibe.Handle;
+
+/**
+ * Registry of all the series that are rendered on a scrape. Scrapes read a
+ * volatile array and never take a lock, changes copy the array.
+ */
+public class SeriesRegistry
+{
+	private static final Series[] EMPTY = new Series[0];
+
+	private volatile Series[] series;
+
+	public SeriesRegistry()
+	{
+		series = EMPTY;
+	}
+
+	/**
+	 * Add a series, returning a handle that removes it.
+	 *
+	 * @param item
+	 * @return
+	 */
+	public Handle add(Series item)
+	{
+		synchronized(this)
+		{
+			Series[] series = Arrays.copyOf(this.series, this.series.length + 1);
+			series[series.length - 1] = item;
+			this.series = series;
+		}
+
+		return () -> remove(item);
+	}
+
+	private void remove(Series item)
+	{
+		synchronized(this)
+		{
+			series = Arrays.stream(series)
+				.filter(s -> s != item)
+				.toArray(Series[]::new);
+		}
+	}
+
+	/**
+	 * Render all of the series into the given buffer.
+	 *
+	 * @param buffer
+	 */
+	public void render(ExpositionBuffer buffer)
+	{
+		for(Series s : series)
+		{
+			s.render(buffer);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package se.l4.vibe.prometheus.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import se.l4.vibe.percentiles.PercentileSnapshot;
+import se.l4.vibe.sampling.Sample;
+import se.l4.vibe.sampling.SampleListener;
+import se.l4.vibe.timers.TimerSnapshot;
+
+/**
+ * Series that accumulates {@link TimerSnapshot}s and renders them as a
+ * histogram in seconds. If the timer uses buckets they are rendered as the
+ * buckets of the histogram, otherwise only the {@code +Inf} bucket is
+ * rendered.
+ */
+public class TimerSeries
+	implements Series, SampleListener<TimerSnapshot>
+{
+	private final String name;
+	private final byte[] header;
+	private final byte[] infinityPrefix;
+	private final byte[] countPrefix;
+	private final byte[] sumPrefix;
+
+	private volatile TimerSnapshot total;
+
+	private byte[][] bucketPrefixes;
+
+	public TimerSeries(String path)
+	{
+		name = MetricNames.toName(path);
+		header = ExpositionBuffer.bytes("# TYPE " + name + " histogram\n");
+		infinityPrefix = ExpositionBuffer.bytes(name + "_bucket{le=\"+Inf\"} ");
+		countPrefix = ExpositionBuffer.bytes(name + "_count ");
+		sumPrefix = ExpositionBuffer.bytes(name + "_sum ");
+	}
+
+	@Override
+	public void sampleAcquired(Sample<TimerSnapshot> sample)
+	{
+		/*
+		 * Only the sampling thread updates the total, the snapshots are
+		 * immutable so scrapes can read the latest total without locking.
+		 */
+		TimerSnapshot current = total;
+		total = current == null ? sample.getValue() : current.add(sample.getValue());
+	}
+
+	@Override
+	public void render(ExpositionBuffer buffer)
+	{
+		TimerSnapshot total = this.total;
+		if(total == null) return;
+
+		double scale = toSeconds(total.getResolution());
+		PercentileSnapshot percentiles = total.getPercentiles();
+
+		buffer.write(header);
+
+		int buckets = percentiles.getBucketCount();
+		if(buckets > 1)
+		{
+			byte[][] prefixes = bucketPrefixes(percentiles, scale);
+			long cumulative = 0;
+			for(int i=0, n=buckets-1; i<n; i++)
+			{
+				cumulative += percentiles.getBucketSamples(i);
+
+				buffer.write(prefixes[i])
+					.write(cumulative)
+					.write((byte) '\n');
+			}
+		}
+
+		buffer.write(infinityPrefix)
+			.write(total.getSamples())
+			.write((byte) '\n');
+
+		buffer.write(countPrefix)
+			.write(total.getSamples())
+			.write((byte) '\n');
+
+		buffer.write(sumPrefix)
+			.write(total.getTotalTime() * scale)
+			.write((byte) '\n');
+	}
+
+	private byte[][] bucketPrefixes(PercentileSnapshot percentiles, double scale)
+	{
+		byte[][] prefixes = bucketPrefixes;
+		if(prefixes != null) return prefixes;
+
+		/*
+		 * The upper bound of a bucket is the lower bound of the next one, the
+		 * last bucket is covered by +Inf.
+		 */
+		int n = percentiles.getBucketCount() - 1;
+		prefixes = new byte[n][];
+		ExpositionBuffer le = new ExpositionBuffer(32);
+		for(int i=0; i<n; i++)
+		{
+			le.reset();
+			le.write(percentiles.getBucketLowerBound(i + 1) * scale);
+
+			prefixes[i] = ExpositionBuffer.bytes(name + "_bucket{le=\"" + le + "\"} ");
+		}
+
+		bucketPrefixes = prefixes;
+		return prefixes;
+	}
+
+	private static double toSeconds(TimeUnit unit)
+	{
+		return unit.toNanos(1) / 1_000_000_000.0;
+	}
+}
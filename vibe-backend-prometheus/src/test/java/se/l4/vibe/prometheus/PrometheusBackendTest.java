@@ -0,0 +1,165 @@
+package se.l4.vibe.prometheus;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import se.l4.vibe.events.EventData;
+import se.l4.vibe.events.EventSeverity;
+import se.l4.vibe.events.Events;
+import se.l4.vibe.prometheus.internal.ExpositionBuffer;
+import se.l4.vibe.probes.Probe;
+import se.l4.vibe.timers.Timer;
+
+public class PrometheusBackendTest
+{
+	private PrometheusBackend backend;
+
+	@Before
+	public void startBackend()
+	{
+		backend = PrometheusBackend.builder()
+			.withAddress(InetAddress.getLoopbackAddress())
+			.withPort(0)
+			.withSamplingInterval(Duration.ofMillis(20))
+			.build();
+	}
+
+	@After
+	public void stopBackend()
+	{
+		backend.close();
+	}
+
+	@Test
+	public void testProbe()
+		throws Exception
+	{
+		Probe<Integer> probe = () -> 42;
+		backend.export("jvm/threads", probe);
+
+		String body = scrapeUntil("jvm_threads ");
+		assertThat(body, containsString("# TYPE jvm_threads gauge\njvm_threads 42\n"));
+	}
+
+	@Test
+	public void testTimerHistogram()
+		throws Exception
+	{
+		Timer timer = Timer.builder()
+			.withBuckets(Duration.ZERO, Duration.ofMillis(100), Duration.ofMillis(500))
+			// Snapshots trail by one bucket, keep them short to not wait 5 seconds
+			.withWindow(Duration.ofSeconds(1), 50)
+			.build();
+
+		backend.export("http/requests", timer);
+
+		timer.record(50, TimeUnit.MILLISECONDS);
+		timer.record(200, TimeUnit.MILLISECONDS);
+		timer.record(1000, TimeUnit.MILLISECONDS);
+
+		String body = scrapeUntil("http_requests_count 3");
+		assertThat(body, containsString("# TYPE http_requests histogram\n"));
+		assertThat(body, containsString("http_requests_bucket{le=\"0.1\"} 1\n"));
+		assertThat(body, containsString("http_requests_bucket{le=\"0.5\"} 2\n"));
+		assertThat(body, containsString("http_requests_bucket{le=\"+Inf\"} 3\n"));
+		assertThat(body, containsString("http_requests_sum 1.25\n"));
+	}
+
+	@Test
+	public void testEvents()
+		throws Exception
+	{
+		Events<TestEvent> events = Events.<TestEvent>builder().build();
+		backend.export("service/errors", events);
+
+		events.register(EventSeverity.ERROR, new TestEvent());
+		events.register(EventSeverity.ERROR, new TestEvent());
+
+		String body = scrape(null);
+		assertThat(body, containsString("service_errors_total{severity=\"error\"} 2\n"));
+		assertThat(body, containsString("service_errors_total{severity=\"info\"} 0\n"));
+	}
+
+	@Test
+	public void testOpenMetricsNegotiation()
+		throws Exception
+	{
+		assertThat(scrape("application/openmetrics-text; version=1.0.0").endsWith("# EOF\n"), is(true));
+		assertThat(scrape("text/plain").contains("# EOF"), is(false));
+	}
+
+	@Test
+	public void testDoubleFormatting()
+	{
+		ExpositionBuffer buffer = new ExpositionBuffer(4);
+		buffer.write(0.25).write((byte) ' ')
+			.write(-3.0).write((byte) ' ')
+			.write(1.0 / 3).write((byte) ' ')
+			.write(Double.NaN).write((byte) ' ')
+			.write(Double.POSITIVE_INFINITY).write((byte) ' ')
+			.write(Long.MIN_VALUE);
+
+		assertThat(buffer.toString(), is("0.25 -3 0.333333333 NaN +Inf -9223372036854775808"));
+	}
+
+	private String scrapeUntil(String expected)
+		throws Exception
+	{
+		long deadline = System.currentTimeMillis() + 5000;
+		String body;
+		do
+		{
+			body = scrape(null);
+			if(body.contains(expected))
+			{
+				return body;
+			}
+
+			Thread.sleep(20);
+		}
+		while(System.currentTimeMillis() < deadline);
+
+		throw new AssertionError("Expected " + expected + " in:\n" + body);
+	}
+
+	private String scrape(String accept)
+		throws IOException
+	{
+		URL url = new URL("http://127.0.0.1:" + backend.getPort() + "/metrics");
+		HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+		if(accept != null)
+		{
+			connection.setRequestProperty("Accept", accept);
+		}
+
+		assertThat(connection.getResponseCode(), is(200));
+		try(InputStream in = connection.getInputStream())
+		{
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	private static class TestEvent
+		implements EventData
+	{
+		@Override
+		public String toHumanReadable()
+		{
+			return "test";
+		}
+	}
+}